@@ -0,0 +1,122 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * ClassifierBenchmark.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.benchmark;
+
+import meka.classifiers.multilabel.BR;
+import meka.classifiers.multilabel.CC;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building BR and CC and predicting with them (base classifier: J48).
+ * Predictions are made for all the instances of the (training) dataset.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClassifierBenchmark {
+
+	/** the number of instances. */
+	@Param({"1000"})
+	public int numInstances;
+
+	/** the number of labels. */
+	@Param({"10", "50"})
+	public int numLabels;
+
+	/** the number of attributes. */
+	@Param({"20"})
+	public int numAttributes;
+
+	/** the dataset. */
+	protected Instances m_Data;
+
+	/** the built BR. */
+	protected BR m_BR;
+
+	/** the built CC. */
+	protected CC m_CC;
+
+	/**
+	 * Generates the data and builds the models for the prediction benchmarks.
+	 *
+	 * @throws Exception    if building fails
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		m_Data = SyntheticData.generate(numInstances, numLabels, numAttributes);
+		m_BR   = new BR();
+		m_BR.buildClassifier(new Instances(m_Data));
+		m_CC   = new CC();
+		m_CC.buildClassifier(new Instances(m_Data));
+	}
+
+	@Benchmark
+	public BR buildBR() throws Exception {
+		BR  result;
+
+		result = new BR();
+		result.buildClassifier(new Instances(m_Data));
+
+		return result;
+	}
+
+	@Benchmark
+	public CC buildCC() throws Exception {
+		CC  result;
+
+		result = new CC();
+		result.buildClassifier(new Instances(m_Data));
+
+		return result;
+	}
+
+	@Benchmark
+	public void predictBR(Blackhole bh) throws Exception {
+		for (Instance inst: m_Data)
+			bh.consume(m_BR.distributionForInstance(inst));
+	}
+
+	@Benchmark
+	public void predictCC(Blackhole bh) throws Exception {
+		for (Instance inst: m_Data)
+			bh.consume(m_CC.distributionForInstance(inst));
+	}
+}
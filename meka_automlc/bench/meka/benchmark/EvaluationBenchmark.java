@@ -0,0 +1,112 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * EvaluationBenchmark.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.benchmark;
+
+import meka.core.MLEvalUtils;
+import meka.core.StatUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instances;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the evaluation statistics (with the verbosity used by the experimenter) and the
+ * label co-occurrence/mutual information statistics.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EvaluationBenchmark {
+
+	/** the number of instances. */
+	@Param({"10000"})
+	public int numInstances;
+
+	/** the number of labels. */
+	@Param({"10", "100"})
+	public int numLabels;
+
+	/** the dataset. */
+	protected Instances m_Data;
+
+	/** the true labels. */
+	protected int[][] m_Y;
+
+	/** the (noisy) predicted confidences. */
+	protected double[][] m_Predictions;
+
+	/** the co-occurrence counts. */
+	protected int[][] m_C;
+
+	/**
+	 * Generates the data and the predictions.
+	 */
+	@Setup
+	public void setUp() {
+		Random  rand;
+		int     i;
+		int     j;
+
+		m_Data        = SyntheticData.generate(numInstances, numLabels, 5);
+		m_Y           = new int[numInstances][numLabels];
+		m_Predictions = new double[numInstances][numLabels];
+		rand          = new Random(1);
+		for (i = 0; i < numInstances; i++) {
+			for (j = 0; j < numLabels; j++) {
+				m_Y[i][j]           = (int) m_Data.instance(i).value(j);
+				m_Predictions[i][j] = Math.min(1.0, Math.max(0.0, 0.6 * m_Y[i][j] + 0.4 * rand.nextDouble()));
+			}
+		}
+		m_C = StatUtils.getC(m_Data);
+	}
+
+	@Benchmark
+	public HashMap<String,Object> getMLStats() {
+		return MLEvalUtils.getMLStats(m_Predictions, m_Y, "0.5", "6", "Test");
+	}
+
+	@Benchmark
+	public int[][] getC() {
+		return StatUtils.getC(m_Data);
+	}
+
+	@Benchmark
+	public double[][] mutualInformation() {
+		return StatUtils.I(m_C, numInstances);
+	}
+}
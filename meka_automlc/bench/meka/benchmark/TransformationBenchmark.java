@@ -0,0 +1,113 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * TransformationBenchmark.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.benchmark;
+
+import meka.classifiers.multilabel.cc.CNode;
+import meka.core.PSUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import weka.classifiers.rules.ZeroR;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the data transformations: CNode (classifier chains) and pruned sets.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TransformationBenchmark {
+
+	/** the number of instances. */
+	@Param({"1000"})
+	public int numInstances;
+
+	/** the number of labels. */
+	@Param({"10", "50"})
+	public int numLabels;
+
+	/** the number of attributes. */
+	@Param({"20"})
+	public int numAttributes;
+
+	/** the dataset. */
+	protected Instances m_Data;
+
+	/** the node for the last label, with all other labels as parents. */
+	protected CNode m_Node;
+
+	/** the label predictions to plug in. */
+	protected double[] m_YPred;
+
+	/**
+	 * Generates the data and builds the node.
+	 *
+	 * @throws Exception    if building fails
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		int[]   parents;
+		int     j;
+
+		m_Data  = SyntheticData.generate(numInstances, numLabels, numAttributes);
+		parents = new int[numLabels - 1];
+		for (j = 0; j < parents.length; j++)
+			parents[j] = j;
+		m_Node  = new CNode(numLabels - 1, null, parents);
+		m_Node.build(new Instances(m_Data), new ZeroR());
+		m_YPred = new double[numLabels];
+		for (j = 0; j < numLabels; j += 2)
+			m_YPred[j] = 1.0;
+	}
+
+	@Benchmark
+	public Instances cnodeTransformDataset() throws Exception {
+		return m_Node.transform(m_Data);
+	}
+
+	@Benchmark
+	public void cnodeTransformInstance(Blackhole bh) throws Exception {
+		for (Instance inst: m_Data)
+			bh.consume(m_Node.transform(inst, m_YPred));
+	}
+
+	@Benchmark
+	public Instances psTransformation() throws Exception {
+		return PSUtils.PSTransformation(m_Data, numLabels, 1, 1);
+	}
+}
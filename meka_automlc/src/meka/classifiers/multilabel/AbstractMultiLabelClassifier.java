@@ -17,14 +17,29 @@ package meka.classifiers.multilabel;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import meka.classifiers.multilabel.incremental.IncrementalEvaluation;
+import meka.core.InstancesView;
 import meka.core.OptionUtils;
+import meka.core.ThreadUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.UpdateableClassifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.classifiers.rules.JRip;
+import weka.classifiers.rules.OneR;
+import weka.classifiers.rules.ZeroR;
+import weka.classifiers.trees.DecisionStump;
+import weka.classifiers.trees.J48;
+import weka.classifiers.trees.REPTree;
+import weka.classifiers.trees.RandomForest;
+import weka.classifiers.trees.RandomTree;
 import weka.core.Attribute;
 import weka.core.BatchPredictor;
 import weka.core.Capabilities;
@@ -50,6 +65,21 @@ public abstract class AbstractMultiLabelClassifier extends AbstractClassifier im
 
 	/** for serialization. */
 	private static final long serialVersionUID = 1713843369736127215L;
+
+	/** the default number of instances per chunk for batch predictions. */
+	public final static int DEFAULT_CHUNK_SIZE = 100;
+
+	/** the Weka classifiers whose distributionForInstance is known to be thread-safe. */
+	protected final static Set<String> THREADSAFE_CLASSIFIERS = new HashSet<>(Arrays.asList(
+		ZeroR.class.getName(),
+		OneR.class.getName(),
+		JRip.class.getName(),
+		DecisionStump.class.getName(),
+		J48.class.getName(),
+		REPTree.class.getName(),
+		RandomTree.class.getName(),
+		RandomForest.class.getName()
+	));
 	
 	/**
 	 * Description to display in the GUI.
@@ -120,6 +150,159 @@ public abstract class AbstractMultiLabelClassifier extends AbstractClassifier im
 	@Override
 	public abstract double[] distributionForInstance(Instance i) throws Exception;
 
+	/**
+	 * Returns the predictions for all the instances, processing chunks of
+	 * getBatchSize() instances in parallel if the classifier is thread-safe.
+	 *
+	 * @param D	the instances to make predictions for
+	 * @return	the predictions, one row per instance
+	 * @throws Exception	if prediction fails
+	 */
+	public double[][] distributionForInstances(Instances D) throws Exception {
+		return distributionForInstances(this, D, ThreadUtils.ALL, getChunkSize(getBatchSize()));
+	}
+
+	/**
+	 * Returns whether distributionForInstance can be called concurrently from
+	 * multiple threads. False by default; classifiers opt in once they have been
+	 * checked to not use any mutable state at prediction time (random number
+	 * generators, reused instances, etc).
+	 *
+	 * @return	true if thread-safe
+	 */
+	public boolean isThreadSafe() {
+		return false;
+	}
+
+	/**
+	 * Returns whether the given classifier can make predictions concurrently.
+	 * Multi-label classifiers are asked directly, Weka classifiers are only
+	 * considered thread-safe if known to not use any filters, nearest neighbour
+	 * searches or other mutable state at prediction time.
+	 *
+	 * @param c	the classifier to check
+	 * @return	true if thread-safe
+	 */
+	public static boolean isThreadSafeClassifier(Classifier c) {
+		if (c == null)
+			return false;
+		if (c instanceof MultiLabelClassifier)
+			return ((MultiLabelClassifier) c).isThreadSafe();
+		if (c instanceof NaiveBayes)
+			return !((NaiveBayes) c).getUseSupervisedDiscretization();
+		return THREADSAFE_CLASSIFIERS.contains(c.getClass().getName());
+	}
+
+	/**
+	 * Turns the batch size string into a chunk size.
+	 *
+	 * @param batchSize	the batch size, eg from getBatchSize()
+	 * @return	the chunk size, {@link #DEFAULT_CHUNK_SIZE} if not a positive integer
+	 */
+	public static int getChunkSize(String batchSize) {
+		int	result;
+
+		try {
+			result = Integer.parseInt(batchSize);
+		}
+		catch (Exception e) {
+			result = DEFAULT_CHUNK_SIZE;
+		}
+		if (result < 1)
+			result = DEFAULT_CHUNK_SIZE;
+
+		return result;
+	}
+
+	/**
+	 * Default implementation of {@link MultiLabelClassifier#distributionForInstances(Instances)}.
+	 * The instances get split into chunks, which are processed in parallel on the shared executor
+	 * if the classifier is thread-safe (see {@link ThreadUtils#invokeAll(List, int)}), otherwise
+	 * sequentially; also sequentially if already running on a thread of the shared executor. The classifier only sees copies of the instances
+	 * with all label values cleared, unless it implements more efficient batch prediction
+	 * (see {@link BatchPredictor}): then it gets each chunk as a whole, with the label values
+	 * present, which it must therefore ignore.
+	 *
+	 * @param h		the built classifier
+	 * @param D		the instances to make predictions for
+	 * @param numThreads	the number of threads to use (-1 for # of cores/cpus)
+	 * @param chunkSize	the number of instances per chunk
+	 * @return		the predictions, one row per instance
+	 * @throws Exception	if prediction fails
+	 */
+	public static double[][] distributionForInstances(final MultiLabelClassifier h, final Instances D, int numThreads, int chunkSize) throws Exception {
+		final double[][]		result;
+		int				numChunks;
+		List<Callable<Object>>		jobs;
+		int				i;
+
+		result    = new double[D.numInstances()][];
+		numChunks = (D.numInstances() + chunkSize - 1) / chunkSize;
+		if (h.isThreadSafe())
+			numThreads = Math.min(ThreadUtils.getActualNumThreads(numThreads, numChunks), numChunks);
+		else
+			numThreads = ThreadUtils.SEQUENTIAL;
+
+		if ((numThreads <= ThreadUtils.SEQUENTIAL) || ThreadUtils.isWorkerThread()) {
+			distributionForInstances(h, D, 0, D.numInstances(), result);
+			return result;
+		}
+
+		jobs = new ArrayList<>();
+		for (i = 0; i < D.numInstances(); i += chunkSize) {
+			final int from = i;
+			final int to   = Math.min(D.numInstances(), i + chunkSize);
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					distributionForInstances(h, D, from, to, result);
+					return null;
+				}
+			});
+		}
+		ThreadUtils.invokeAll(jobs, numThreads);
+
+		return result;
+	}
+
+	/**
+	 * Makes predictions for a range of instances, using copies with all label values cleared,
+	 * or, if the classifier implements more efficient batch prediction, a view of the range.
+	 *
+	 * @param h		the built classifier
+	 * @param D		the instances
+	 * @param from		the first instance (incl)
+	 * @param to		the last instance (excl)
+	 * @param result	the array to store the predictions in
+	 * @throws Exception	if prediction fails
+	 */
+	protected static void distributionForInstances(MultiLabelClassifier h, Instances D, int from, int to, double[][] result) throws Exception {
+		int		L;
+		Instance	x;
+		int[]		indices;
+		double[][]	Y;
+		int		i;
+		int		j;
+
+		if ((h instanceof BatchPredictor) && ((BatchPredictor) h).implementsMoreEfficientBatchPrediction()) {
+			indices = new int[to - from];
+			for (i = from; i < to; i++)
+				indices[i - from] = i;
+			Y = ((BatchPredictor) h).distributionsForInstances(new InstancesView(D, indices));
+			System.arraycopy(Y, 0, result, from, Y.length);
+			return;
+		}
+
+		L = D.classIndex();
+		for (i = from; i < to; i++) {
+			// No cheating allowed; clear all class information
+			x = (Instance) D.instance(i).copy();
+			for (j = 0; j < L; j++)
+				x.setValue(j, 0.0);
+			result[i] = h.distributionForInstance(x);
+		}
+	}
+
 	/**
 	 * Creates a given number of deep copies of the given multi-label classifier using serialization.
 	 *
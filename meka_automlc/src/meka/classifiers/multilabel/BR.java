@@ -27,12 +27,15 @@ import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Drawable;
 import meka.core.MultiLabelDrawable;
-import meka.core.MLUtils;
-import meka.core.F;
+import meka.core.LabelProjectedInstance;
+import meka.core.LabelProjectedInstances;
 import weka.core.RevisionUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 public class BR extends ProblemTransformationMethod implements MultiLabelDrawable {
 
@@ -42,6 +45,9 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 	protected Classifier m_MultiClassifiers[] = null;
 	protected Instances m_InstancesTemplates[] = null; 
 
+	/** the reusable projected instances for predictions, per thread and label. */
+	protected transient ThreadLocal<LabelProjectedInstance[]> m_ProjectedInstances = null;
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -56,7 +62,7 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 	}
 
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 		testCapabilities(D);
 	  	
 		int L = D.classIndex();
@@ -64,19 +70,70 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 		if(getDebug()) System.out.print("Creating "+L+" models ("+m_Classifier.getClass().getName()+"): ");
 		m_MultiClassifiers = AbstractClassifier.makeCopies(m_Classifier,L);
 		m_InstancesTemplates = new Instances[L];
+		m_ProjectedInstances = new ThreadLocal<>();
+
+		// the feature attributes, shared by the headers of all labels
+		final Instances features = new LabelProjectedInstances(new Instances(D,0),L,0);
 
+		List<Callable<Object>> jobs = new ArrayList<>();
 		for(int j = 0; j < L; j++) {
+			final int j_ = j;
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					buildModel(D,j_,features);
+					return null;
+				}
+			});
+		}
+		// (the views only hold one small object per instance)
+		runJobs(jobs, 64L * D.numInstances());
+	}
+
+	/**
+	 * Builds the model for label j.
+	 *
+	 * @param D		the training data
+	 * @param j		the label
+	 * @param features	the header with the feature attributes to share
+	 * @throws Exception	if building fails
+	 */
+	protected void buildModel(Instances D, int j, Instances features) throws Exception {
+		int L = D.classIndex();
 
-			//Select only class attribute 'j'
-			Instances D_j = F.keepLabels(new Instances(D),L,new int[]{j});
-			D_j.setClassIndex(0);
+		//Select only class attribute 'j' (view, sharing the feature values with D)
+		Instances D_j = new LabelProjectedInstances(D,L,j,features);
 
-			//Build the classifier for that class
-			m_MultiClassifiers[j].buildClassifier(D_j);
-			if(getDebug()) System.out.print(" " + (D_j.classAttribute().name()));
+		//Build the classifier for that class
+		m_MultiClassifiers[j].buildClassifier(D_j);
+		if(getDebug()) System.out.print(" " + (D_j.classAttribute().name()));
 
-			m_InstancesTemplates[j] = new Instances(D_j, 0);
+		m_InstancesTemplates[j] = new Instances(D_j, 0);
+	}
+
+	/**
+	 * Returns the projected instances of the current thread, one per label, for making
+	 * predictions without copying the instance.
+	 *
+	 * @return		the projected instances (elements are null until first used)
+	 */
+	protected LabelProjectedInstance[] getProjectedInstances() {
+		ThreadLocal<LabelProjectedInstance[]>	local;
+		LabelProjectedInstance[]		result;
+
+		local = m_ProjectedInstances;
+		if (local == null) {
+			// eg after deserialization
+			local = new ThreadLocal<>();
+			m_ProjectedInstances = local;
+		}
+		result = local.get();
+		if ((result == null) || (result.length != m_InstancesTemplates.length)) {
+			result = new LabelProjectedInstance[m_InstancesTemplates.length];
+			local.set(result);
 		}
+
+		return result;
 	}
 
 	@Override
@@ -86,13 +143,26 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 
 		double y[] = new double[L];
 
-		for (int j = 0; j < L; j++) {
-			Instance x_j = (Instance)x.copy();
-			x_j.setDataset(null);
-			x_j = MLUtils.keepAttributesAt(x_j,new int[]{j},L);
-			x_j.setDataset(m_InstancesTemplates[j]);
-			//y[j] = m_MultiClassifiers[j].classifyInstance(x_j);
-			y[j] = m_MultiClassifiers[j].distributionForInstance(x_j)[1];
+		// project 'x' onto each label without copying it (the buffers are per thread)
+		LabelProjectedInstance x_[] = getProjectedInstances();
+
+		try {
+			for (int j = 0; j < L; j++) {
+				if (x_[j] == null)
+					x_[j] = new LabelProjectedInstance(x,L,j);
+				else
+					x_[j].setSource(x);
+				x_[j].setDataset(m_InstancesTemplates[j]);
+				//y[j] = m_MultiClassifiers[j].classifyInstance(x_[j]);
+				y[j] = m_MultiClassifiers[j].distributionForInstance(x_[j])[1];
+			}
+		}
+		finally {
+			// don't hold on to the instance
+			for (int j = 0; j < L; j++) {
+				if (x_[j] != null)
+					x_[j].setSource(null);
+			}
 		}
 
 		return y;
@@ -148,6 +218,17 @@ public class BR extends ProblemTransformationMethod implements MultiLabelDrawabl
 	}
 
 
+	/**
+	 * Returns true if the base classifier is thread-safe, as the projected
+	 * instances used at prediction time are kept per thread.
+	 *
+	 * @return	true if thread-safe
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier);
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
@@ -15,14 +15,13 @@
 
 package meka.classifiers.multilabel;
 
+import meka.core.LabelProjectedInstances;
 import meka.core.OptionUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.core.*;
 import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
 
 import java.util.*;
 
@@ -94,31 +93,23 @@ public class BRq extends ProblemTransformationMethod implements Randomizable, Te
 
 		for(int i = 0; i < c; i++) {
 
-			int indices[][] = new int[c][c - 1];
-			for(int j = 0, k = 0; j < c; j++) {
-				if(j != i) {
-					indices[i][k++] = j;
-				}
-			}
-
-			//Select only class attribute 'i'
-			Remove FilterRemove = new Remove();
-			FilterRemove.setAttributeIndicesArray(indices[i]);
-			FilterRemove.setInputFormat(data);
-			FilterRemove.setInvertSelection(true);
-			sub_data = Filter.useFilter(data, FilterRemove);
-			sub_data.setClassIndex(0);
+			//Select only class attribute 'i' (view, sharing the feature values with 'data')
+			Instances D_i = new LabelProjectedInstances(data,c,i,sub_data);
 			/* BEGIN downsample for this link */
-			sub_data.randomize(m_Random);
-			int numToRemove = sub_data.numInstances() - (int)Math.round(sub_data.numInstances() * m_DownSampleRatio);
-			for(int m = 0, removed = 0; m < sub_data.numInstances(); m++) {
-				if (sub_data.instance(m).classValue() <= 0.0) {
-					sub_data.instance(m).setClassMissing();
+			D_i.randomize(m_Random);
+			int numToRemove = D_i.numInstances() - (int)Math.round(D_i.numInstances() * m_DownSampleRatio);
+			sub_data = new Instances(D_i, D_i.numInstances());
+			boolean removing = true;
+			for(int m = 0, removed = 0; m < D_i.numInstances(); m++) {
+				Instance x = D_i.instance(m);
+				if (removing && x.classValue() <= 0.0) {
 					if (++removed >= numToRemove)
-						break;
+						removing = false;
+					continue;
 				}
+				if (!x.classIsMissing())
+					sub_data.add(x);
 			}
-			sub_data.deleteWithMissingClass();
 			/* END downsample for this link */
 
 
@@ -24,6 +24,7 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * CC.java - The Classifier Chains Method. Like BR, but label outputs become new inputs for the next classifiers in the chain.
@@ -96,7 +97,7 @@ public class CC extends ProblemTransformationMethod
 	}
 
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 		testCapabilities(D);
 
 		int L = D.classIndex();
@@ -110,13 +111,24 @@ public class CC extends ProblemTransformationMethod
 		nodes = new CNode[L];
 		int pa[] = new int[]{};
 
+		// (the nodes are trained on the true labels of their parents, i.e., independently of each other)
+		List<Callable<Object>> jobs = new ArrayList<>();
 		for(int j : m_Chain) {
 //			if (getDebug()) 
 //				System.out.print(" "+D.attribute(j).name());
-			nodes[j] = new CNode(j, null, pa);
-			nodes[j].build(D, m_Classifier);
+			final CNode node = new CNode(j, null, pa);
+			nodes[j] = node;
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					node.build(D, m_Classifier);
+					return null;
+				}
+			});
 			pa = A.append(pa,j);
 		}
+		// (each node transforms a copy of the data)
+		runJobs(jobs, 2 * estimateMemory(D));
 //		if (getDebug()) System.out.println(" ) -:");
 
 		// to store posterior probabilities (confidences)
@@ -139,12 +151,56 @@ public class CC extends ProblemTransformationMethod
 
 		for(int j : m_Chain) {
 			// h_j : x,pa_j -> y_j
-			y[j] = nodes[j].classify((Instance)x.copy(),y); 
+			y[j] = nodes[j].classify(x,y); 					// (x does not get modified)
 		}
 
 		return y;
 	}
 
+	/**
+	 * Batch prediction is more efficient, since the chain gets walked node by node (see #distributionsForInstances(Instances)).
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return true;
+	}
+
+	/**
+	 * DistributionsForInstances - predict a batch of instances column-wise, i.e., evaluate node j for all instances (passing the whole batch to the base classifier, if it supports batch prediction) before moving on to the next node in the chain.
+	 * The label values of D are ignored. Classifiers that override #distributionForInstance(Instance) but not this method must not return true in #implementsMoreEfficientBatchPrediction().
+	 * @param	D	the instances
+	 * @return	the predictions, one row per instance (the same as #distributionForInstance(Instance) gives)
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+
+		int L = D.classIndex();
+		double Y[][] = new double[D.numInstances()][L];
+		classifyForInstances(D,Y,0);
+		return Y;
+	}
+
+	/**
+	 * ClassifyForInstances - continue predicting a batch column-wise, from position 'k' of the chain onwards.
+	 * @param	D	the instances
+	 * @param	Y	the predictions, one row per instance, which must already contain the predictions for the labels at positions 0,...,k-1 of the chain
+	 * @param	k	the position in the chain to start at
+	 */
+	protected void classifyForInstances(Instances D, double Y[][], int k) throws Exception {
+		int N = D.numInstances();
+
+		for(; k < m_Chain.length; k++) {
+			int j = m_Chain[k];
+			// h_j : x,pa_j -> y_j, for all x in D
+			double P[][] = nodes[j].distributions(D,Y);
+			for(int i = 0; i < N; i++) {
+				Y[i][j] = Utils.maxIndex(P[i]);
+			}
+		}
+	}
+
 	/**
 	 * SampleForInstance.
 	 * predict y[j] stochastically rather than deterministically (as with distributionForInstance(Instance x)).
@@ -189,10 +245,10 @@ public class CC extends ProblemTransformationMethod
 		double y[] = new double[L];
 
 		for(int j : m_Chain) {
-			double p[] = nodes[j].distribution(t_[j],y);               // e.g., [0.4, 0.6]
+			nodes[j].updateTransform(t_[j],y); 						   // set the parents sampled so far
+			double p[] = nodes[j].distributionT(t_[j]);                // e.g., [0.4, 0.6]
 			y[j] = A.samplePMF(p,r);                                   // e.g., 0
 			confidences[j] = p[(int)y[j]];                             // e.g., 0.4
-			nodes[j].updateTransform(t_[j],y); 						   // need to update the transform #SampleForInstance(x,r)
 		}
 
 		return y;
@@ -230,7 +286,7 @@ public class CC extends ProblemTransformationMethod
 
 		for(int j : m_Chain) {
 			// h_j : x,pa_j -> y_j
-			double d[] = nodes[j].distribution((Instance)x.copy(),path);  // <-- posterior distribution
+			double d[] = nodes[j].distribution(x,path);                   // <-- posterior distribution
 			int k = (int)Math.round(path[j]);                             // <-- value of interest
 			p[j] = d[k];                                                  // <-- p(y_j==k) i.e., 'confidence'
 			//y[j] = path[j];
@@ -240,13 +296,61 @@ public class CC extends ProblemTransformationMethod
 	}
 	
 	/**
-	 * Rebuild - NOT YET IMPLEMENTED.
-	 * For efficiency reasons, we may want to rebuild part of the chain.
+	 * Rebuild - rebuild the chain for a new order.
+	 * A node only depends on its label and on the set of its parents, so only the nodes of labels whose parents change get rebuilt, the others are kept.
 	 * If chain[] = [1,2,3,4] and new_chain[] = [1,2,4,3] we only need to rebuild the final two links.
+	 * The nodes array gets replaced (not modified), so copies of this chain that share the array are not affected.
 	 * @param	new_chain	the new chain
 	 * @param	D			the original training data
 	 */
-	public void rebuildClassifier(int new_chain[], Instances D) throws Exception {
+	public void rebuildClassifier(int new_chain[], final Instances D) throws Exception {
+		if (nodes == null) {
+			prepareChain(new_chain);
+			buildClassifier(D);
+			return;
+		}
+
+		int L = new_chain.length;
+		int pos[] = new int[L];
+		for(int k = 0; k < L; k++) {
+			pos[m_Chain[k]] = k;
+		}
+
+		CNode nodes_[] = new CNode[L];
+		int pa[] = new int[]{};
+		// (the labels in the prefix of one chain but not of the other)
+		boolean inOld[] = new boolean[L];
+		boolean inNew[] = new boolean[L];
+		int diff = 0;
+		List<Callable<Object>> jobs = new ArrayList<>();
+		for(int k = 0; k < L; k++) {
+			int j = new_chain[k];
+			if (diff == 0 && pos[j] == k) {
+				// same label, same parents
+				nodes_[j] = nodes[j];
+			}
+			else {
+				final CNode node = new CNode(j, null, pa);
+				nodes_[j] = node;
+				jobs.add(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						node.build(D, m_Classifier);
+						return null;
+					}
+				});
+			}
+			pa = A.append(pa,j);
+			int o = m_Chain[k];
+			diff += inNew[o] ? -1 : 1;
+			inOld[o] = true;
+			diff += inOld[j] ? -1 : 1;
+			inNew[j] = true;
+		}
+		runJobs(jobs, 2 * estimateMemory(D));
+
+		nodes = nodes_;
+		prepareChain(new_chain);
 	}
 
 	public int getDefaultSeed() {
@@ -401,6 +505,17 @@ public class CC extends ProblemTransformationMethod
 		return Arrays.toString(retrieveChain());
 	}
 
+	/**
+	 * Returns true if the base classifier is thread-safe, as the nodes only
+	 * use buffers kept per thread at prediction time.
+	 *
+	 * @return	true if thread-safe
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier);
+	}
+
 	public static void main(String args[]) {
 		ProblemTransformationMethod.evaluation(new CC(), args);
 	}
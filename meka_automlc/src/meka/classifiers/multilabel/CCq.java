@@ -236,6 +236,16 @@ public class CCq extends ProblemTransformationMethod implements Randomizable, Te
 		return MLUtils.toDoubleArray(test,m_NumClasses);
 	}
 
+	/**
+	 * Returns false, as the tree of classifiers classifies the instance in place.
+	 *
+	 * @return	always false
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
@@ -17,6 +17,7 @@ package meka.classifiers.multilabel;
 
 import meka.core.A;
 import meka.core.OptionUtils;
+import meka.core.ThreadUtils;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.core.*;
@@ -24,17 +25,20 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * CDN.java - Conditional Dependency Networks.
  * A fully connected undirected network, each node (label) is connected to each other node (label). Each node is a binary classifier that predicts p(y_j|x,y_1,...,y_{j-1},y_{j-1},...,y_L). Inference is done using Gibbs sampling over I iterations. The final I_c iterations are used to collected the marginal probabilities, which becomes the prediction y[].
- * <br>
+ * Optionally, several chains are sampled (in parallel, for batch predictions), and sampling stops early once the marginals have converged.
+ * The number of Gibbs iterations made at test time, and how many instances converged or reached I iterations, are available as additional measures. <br>
  * See: Yuhong Guoand and Suicheng Gu. <i>Multi-Label Classification Using Conditional Dependency Networks</i>. IJCAI '11. 2011.
  * <br>
  * @author 	Jesse Read
  * @version	November 2012
  */
-public class CDN extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler {
+public class CDN extends ProblemTransformationMethod implements Randomizable, TechnicalInformationHandler, AdditionalMeasureProducer {
 
 	/** for serialization. */
 	private static final long serialVersionUID = -4571133392057899417L;
@@ -46,6 +50,21 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 	protected int I = 1000;	// total iterations
 	protected int I_c = 100;	// collection iterations
 
+	protected int m_Chains = 1;
+	protected double m_Tolerance = 0.0;
+	protected int m_MinBurnin = 100;
+
+	/** the number of convergence checks per I_c collection iterations (with a tolerance) */
+	protected static final int CHECKS = 10;
+
+	/** the chains for sampling (reused between instances) */
+	protected transient Chain m_ChainsCache[] = null;
+
+	/** the Gibbs iterations made, and the number of instances that converged or reached I iterations (at test time) */
+	protected AtomicLong m_Iterations = new AtomicLong();
+	protected AtomicLong m_Converged = new AtomicLong();
+	protected AtomicLong m_MaxIterations = new AtomicLong();
+
 	@Override
 	public void buildClassifier(Instances D) throws Exception {
 		testCapabilities(D);
@@ -55,6 +74,8 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		h = new Classifier[L];
 		m_R = new Random(m_S);
 		D_templates = new Instances[L];
+		m_ChainsCache = null;
+		resetMeasures();
 
 		// Build L probabilistic models, each to predict Y_i | X, Y_{-y}; save the templates.
 		for(int j = 0; j < L; j++) {
@@ -64,9 +85,20 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 			// train H[j] : X -> Y
 			h[j] = AbstractClassifier.forName(getClassifier().getClass().getName(),((AbstractClassifier)getClassifier()).getOptions());
 			h[j].buildClassifier(D_templates[j]);
+			// (only the header is needed from now on)
+			D_templates[j] = new Instances(D_templates[j],0);
 		}
 	}
 
+	/**
+	 * ResetMeasures - reset the counts of the test-time measures.
+	 */
+	protected void resetMeasures() {
+		m_Iterations.set(0);
+		m_Converged.set(0);
+		m_MaxIterations.set(0);
+	}
+
 	/*
 	 *  Discrete Classification.
 	 *  Use Gibbs sampling.
@@ -92,43 +124,321 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 
 	@Override
 	public double[] distributionForInstance(Instance x) throws Exception {
+		return distributionForInstance(x, ThreadUtils.SEQUENTIAL);
+	}
 
-		int L = x.classIndex();
-		//ArrayList<double[]> collection = new ArrayList<double[]>(100);
+	/**
+	 * Batch prediction is more efficient when there are several chains, since they can then run in parallel (see #distributionsForInstances(Instances)).
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return m_Chains > 1;
+	}
 
-		double y[] = new double[L];		// for collectiing marginal
-		int sequence[] = A.make_sequence(L);
+	/**
+	 * DistributionsForInstances - predict a batch of instances one by one, with the chains of each instance running in parallel, if the base classifier is thread-safe.
+	 * The label values of D are ignored.
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+
+		int numThreads = ThreadUtils.SEQUENTIAL;
+		if (AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier))
+			numThreads = Math.min(ThreadUtils.getActualNumThreads(m_NumThreads, m_Chains), m_Chains);
+		double Y[][] = new double[D.numInstances()][];
+		for(int i = 0; i < Y.length; i++) {
+			Y[i] = distributionForInstance(D.instance(i), numThreads);
+		}
+		return Y;
+	}
 
-		double likelihood[] = new double[L];
+	/**
+	 * DistributionForInstance - Gibbs sampling, with m_Chains chains.
+	 * The chains start from all labels set to 0 (the first chain) or from a random labelling (the others), the label values of x are ignored.
+	 * After a burn-in of I - I_c iterations, the marginals are collected from all chains over the remaining I_c iterations.
+	 * With a tolerance, the burn-in is only m_MinBurnin iterations (at most I - I_c), after which the marginals are collected until I iterations,
+	 * checking every I_c / CHECKS iterations whether they converged (see #converged(Chain[], double[])), and stopping early if so.
+	 * With a single chain, the shared random number generator gets used, otherwise each chain uses its own generator, seeded by the shared one; the result does not depend on whether the chains run in parallel.
+	 * @param	x			test Instance
+	 * @param	numThreads	the number of threads for running the chains in parallel on the shared executor (see ThreadUtils#invokeAll(List, int)), ThreadUtils.SEQUENTIAL to run them sequentially
+	 * @return	the marginals
+	 */
+	protected double[] distributionForInstance(Instance x, int numThreads) throws Exception {
 
-		for(int i = 0; i < I; i++) {
-			Collections.shuffle(Arrays.asList(sequence));
-			for(int j : sequence) {
-				// x = [x,y[1],...,y[j-1],y[j+1],...,y[L]]
-				x.setDataset(D_templates[j]);
-				// q = h_j(x)    i.e. p(y_j | x)
-
-				double dist[] = h[j].distributionForInstance(x);
-				int k = A.samplePMF(dist,m_R);
-				x.setValue(j,k);
-				likelihood[j] = dist[k];
-				// likelihood
-				double s = Utils.sum(likelihood);
-				// collect  // and where is is good 
-				if (i > (I - I_c)) {
-					y[j] += x.value(j);
+		int L = x.classIndex();
+		Chain chains[] = getChains(L);
+		for(int k = 0; k < chains.length; k++) {
+			chains[k].reset(x, (chains.length == 1) ? m_R : new Random(m_R.nextLong()), k > 0);
+		}
+
+		int burnin = Math.max(I - I_c, 0);
+		if (m_Tolerance > 0.0)
+			burnin = Math.max(Math.min(m_MinBurnin, burnin), 0);
+		run(chains, burnin, false, numThreads);
+		int i = burnin;
+
+		int block = (m_Tolerance > 0.0) ? Math.max(1, (I_c + CHECKS - 1) / CHECKS) : I - burnin;
+		double y_prev[] = null;
+		boolean converged = false;
+		while (i < I) {
+			int n = Math.min(block, I - i);
+			run(chains, n, true, numThreads);
+			i += n;
+			if (m_Tolerance > 0.0 && i < I) {
+				if (converged(chains, y_prev)) {
+					converged = true;
+					break;
 				}
-				// else still burning in
+				y_prev = marginals(chains);
 			}
 		}
-		// finish, calculate marginals
-		for(int j = 0; j < L; j++) {
-			y[j] /= I_c;
+
+		m_Iterations.addAndGet((long)i * chains.length);
+		if (converged)
+			m_Converged.incrementAndGet();
+		else
+			m_MaxIterations.incrementAndGet();
+
+		return marginals(chains);
+	}
+
+	/**
+	 * Run - run all chains for n iterations.
+	 */
+	protected void run(Chain chains[], int n, boolean collect, int numThreads) throws Exception {
+		if (n <= 0)
+			return;
+
+		for(Chain chain : chains) {
+			chain.iterations = n;
+			chain.collect = collect;
 		}
 
+		ThreadUtils.invokeAll(Arrays.asList(chains), numThreads);
+	}
+
+	/**
+	 * Marginals - the marginals collected so far, over all chains.
+	 */
+	protected double[] marginals(Chain chains[]) {
+		int L = chains[0].y.length;
+		double y[] = new double[L];
+		int n = 0;
+		for(Chain chain : chains) {
+			for(int j = 0; j < L; j++) {
+				y[j] += chain.sum[j];
+			}
+			n += chain.n;
+		}
+		if (n > 0) {
+			for(int j = 0; j < L; j++) {
+				y[j] /= n;
+			}
+		}
 		return y;
 	}
 
+	/**
+	 * Converged - with several chains, whether the potential scale reduction factor (R-hat, Gelman and Rubin) of every label is at most 1 + m_Tolerance;
+	 * with a single chain, whether no marginal changed by more than m_Tolerance since the previous check.
+	 * @param	chains	the chains
+	 * @param	y_prev	the marginals at the previous check (null if none)
+	 */
+	protected boolean converged(Chain chains[], double y_prev[]) {
+		int L = chains[0].y.length;
+		int K = chains.length;
+
+		if (K == 1) {
+			if (y_prev == null)
+				return false;
+			double y[] = marginals(chains);
+			for(int j = 0; j < L; j++) {
+				if (Math.abs(y[j] - y_prev[j]) > m_Tolerance)
+					return false;
+			}
+			return true;
+		}
+
+		double n = chains[0].n;
+		if (n < 2)
+			return false;
+		for(int j = 0; j < L; j++) {
+			// (the samples are binary, hence the mean determines the variance)
+			double mean = 0.0;
+			double W = 0.0;
+			for(Chain chain : chains) {
+				double m = chain.sum[j] / n;
+				mean += m;
+				W += m * (1.0 - m) * n / (n - 1.0);
+			}
+			mean /= K;
+			W /= K;
+			double B = 0.0;
+			for(Chain chain : chains) {
+				double m = chain.sum[j] / n;
+				B += (m - mean) * (m - mean);
+			}
+			B /= (K - 1);								// (= B/n in Gelman and Rubin's notation)
+			if (W <= 0.0) {
+				if (B > 0.0)
+					return false;
+				continue;
+			}
+			double R = Math.sqrt(((n - 1.0) / n * W + B) / W);
+			if (R > 1.0 + m_Tolerance)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the chains for sampling, (re)allocated if necessary.
+	 */
+	protected Chain[] getChains(int L) {
+		Chain chains[] = m_ChainsCache;
+		int K = Math.max(1, m_Chains);
+		if (chains == null || chains.length != K || chains[0].y.length != L) {
+			chains = new Chain[K];
+			for(int k = 0; k < K; k++) {
+				chains[k] = newChain(L);
+			}
+			m_ChainsCache = chains;
+		}
+		return chains;
+	}
+
+	/**
+	 * NewChain - create a chain for sampling L labels.
+	 */
+	protected Chain newChain(int L) {
+		return new Chain(L);
+	}
+
+	/**
+	 * Chain - a Gibbs chain, with its own random number generator, state and collected marginals.
+	 * The instance presented to each node wraps the values of the state without copying them, so sampling does not copy any values.
+	 * It is wrapped anew for every node evaluation, since setValue (e.g., by the base classifier) would detach a kept one from the state.
+	 */
+	protected class Chain implements Callable<Object> {
+
+		/** the current labels */
+		protected double y[];
+		/** the number of times each label was 1 while collecting */
+		protected double sum[];
+		/** the number of iterations collected */
+		protected int n;
+		/** the number of iterations of the next run */
+		protected int iterations;
+		/** whether to collect the next run */
+		protected boolean collect;
+		protected Random r;
+
+		/** the values of the instance (the labels being the current labels) */
+		protected double x_[] = null;
+		/** the weight of the instance */
+		protected double w = 1.0;
+
+		public Chain(int L) {
+			y = new double[L];
+			sum = new double[L];
+		}
+
+		/**
+		 * Reset - prepare for sampling for x, from all labels 0 or a random labelling.
+		 */
+		public void reset(Instance x, Random r, boolean random) {
+			this.r = r;
+			n = 0;
+			Arrays.fill(sum, 0.0);
+			for(int j = 0; j < y.length; j++) {
+				y[j] = random ? r.nextInt(2) : 0.0;
+			}
+			prepare(x);
+		}
+
+		/**
+		 * Prepare - set up the templates for x, given the current labels.
+		 */
+		protected void prepare(Instance x) {
+			int L = y.length;
+			if (x_ == null || x_.length != x.numAttributes()) {
+				x_ = new double[x.numAttributes()];
+			}
+			for(int a = L; a < x_.length; a++) {
+				x_[a] = x.value(a);
+			}
+			System.arraycopy(y, 0, x_, 0, L);
+			w = x.weight();
+		}
+
+		/**
+		 * Distribution - p(y_j | x, y_{-j}) given the current labels.
+		 */
+		protected double[] distribution(int j) throws Exception {
+			// (the respective label as class)
+			Instance t_ = new DenseInstance(w, x_);
+			t_.setDataset(D_templates[j]);
+			return h[j].distributionForInstance(t_);
+		}
+
+		/**
+		 * Set - set label j to value k.
+		 */
+		protected void set(int j, int k) {
+			y[j] = k;
+			x_[j] = k;
+		}
+
+		@Override
+		public Object call() throws Exception {
+			int L = y.length;
+			for(int i = 0; i < iterations; i++) {
+				for(int j = 0; j < L; j++) {
+					// q = h_j(x)    i.e. p(y_j | x)
+					double dist[] = distribution(j);
+					int k = A.samplePMF(dist,r);
+					set(j,k);
+				}
+				if (collect) {
+					for(int j = 0; j < L; j++) {
+						sum[j] += y[j];
+					}
+					n++;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the total number of Gibbs iterations (of all chains) made at test time since the classifier was built.
+	 */
+	public long getIterations() {
+		return m_Iterations.get();
+	}
+
+	@Override
+	public Enumeration enumerateMeasures() {
+		Vector result = new Vector();
+		result.addElement("measureGibbsIterations");
+		result.addElement("measureConverged");
+		result.addElement("measureMaxIterationsReached");
+		return result.elements();
+	}
+
+	@Override
+	public double getMeasure(String measureName) {
+		if (measureName.equals("measureGibbsIterations"))
+			return getIterations();
+		if (measureName.equals("measureConverged"))
+			return m_Converged.get();
+		if (measureName.equals("measureMaxIterationsReached"))
+			return m_MaxIterations.get();
+		throw new IllegalArgumentException("Measure '"+measureName+"' not supported!");
+	}
+
 	protected int m_S = 0;
 
 	@Override
@@ -181,12 +491,51 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		return "The number of collection iterations.";
 	}
 
+	public int getChains() {
+		return m_Chains;
+	}
+
+	public void setChains(int chains) {
+		m_Chains = chains;
+	}
+
+	public String chainsTipText() {
+		return "The number of Gibbs chains per instance, which run in parallel (see number of threads) for batch predictions if the base classifier is thread-safe.";
+	}
+
+	public double getTolerance() {
+		return m_Tolerance;
+	}
+
+	public void setTolerance(double tolerance) {
+		m_Tolerance = tolerance;
+	}
+
+	public String toleranceTipText() {
+		return "The tolerance for stopping early (checked every Ic/10 iterations after the minimum burn-in, with the marginals collected from then on): with several chains, R-hat of every label must be at most 1 + tolerance; with a single chain, no marginal may change by more than the tolerance; 0 to always run all iterations.";
+	}
+
+	public int getMinBurnin() {
+		return m_MinBurnin;
+	}
+
+	public void setMinBurnin(int minBurnin) {
+		m_MinBurnin = minBurnin;
+	}
+
+	public String minBurninTipText() {
+		return "The number of burn-in iterations before collecting the marginals and checking for convergence, when stopping early (see tolerance); at most I - Ic.";
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\t"+iTipText()+"\n\tdefault: 1000", "I", 1, "-I <value>"));
 		result.addElement(new Option("\t"+icTipText()+"\n\tdefault: 100", "Ic", 1, "-Ic <value>"));
 		result.addElement(new Option("\t"+seedTipText(), "S", 1, "-S <value>"));
+		result.addElement(new Option("\t"+chainsTipText()+"\n\tdefault: 1", "chains", 1, "-chains <value>"));
+		result.addElement(new Option("\t"+toleranceTipText()+"\n\tdefault: 0.0", "tolerance", 1, "-tolerance <value>"));
+		result.addElement(new Option("\t"+minBurninTipText()+"\n\tdefault: 100", "min-burnin", 1, "-min-burnin <value>"));
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -196,6 +545,9 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		setI(OptionUtils.parse(options, 'I', 1000));
 		setIc(OptionUtils.parse(options, "Ic", 100));
 		setSeed(OptionUtils.parse(options, 'S', 0));
+		setChains(OptionUtils.parse(options, "chains", 1));
+		setTolerance(OptionUtils.parse(options, "tolerance", 0.0));
+		setMinBurnin(OptionUtils.parse(options, "min-burnin", 100));
 		super.setOptions(options);
 	}
 
@@ -205,6 +557,13 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		OptionUtils.add(result, 'I', getI());
 		OptionUtils.add(result, "Ic", getIc());
 		OptionUtils.add(result, 'S', getSeed());
+		// only when not the default, to keep the commandlines of existing setups (eg in experiment results) unchanged
+		if (getChains() != 1)
+			OptionUtils.add(result, "chains", getChains());
+		if (getTolerance() != 0.0)
+			OptionUtils.add(result, "tolerance", getTolerance());
+		if (getMinBurnin() != 100)
+			OptionUtils.add(result, "min-burnin", getMinBurnin());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 	}
@@ -239,6 +598,16 @@ public class CDN extends ProblemTransformationMethod implements Randomizable, Te
 		return result;
 	}
 
+	/**
+	 * Returns false, as the shared random number generator gets used for Gibbs sampling.
+	 *
+	 * @return	always false
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public String getRevision() {
 		return RevisionUtils.extract("$Revision: 9117 $");
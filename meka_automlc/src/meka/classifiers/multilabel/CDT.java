@@ -53,6 +53,8 @@ public class CDT extends CDN {
 		int L = D.classIndex();
 		int d = D.numAttributes()-L;
 		m_R = new Random(getSeed());
+		m_ChainsCache = null;
+		resetMeasures();
 		int width = m_Width;
 
 		if (m_Width < 0)
@@ -98,34 +100,46 @@ public class CDT extends CDN {
 	}
 
 	@Override
-	public double[] distributionForInstance(Instance x) throws Exception {
-
-		int L = x.classIndex();
-		double y[] = new double[L];			// for sampling
-		double y_marg[] = new double[L];	// for collectiing marginal
-
-		int sequence[] = A.make_sequence(L);
-
-		double likelihood[] = new double[L];
-
-		for(int i = 0; i < I; i++) {
-			Collections.shuffle(Arrays.asList(sequence));
-			for(int j : sequence) {
-				// sample
-				y[j] = nodes[j].sample(x,y,m_R);
-				// collect marginals
-				if (i > (I - I_c)) {
-					y_marg[j] += y[j];
-				}
-				// else still burning in
+	protected Chain newChain(int L) {
+		return new TrellisChain(L);
+	}
+
+	/**
+	 * TrellisChain - a Gibbs chain over the nodes of the trellis, reusing the transformed values of each node.
+	 */
+	protected class TrellisChain extends Chain {
+
+		/** the transformed values of each node */
+		protected double xs_[][];
+
+		public TrellisChain(int L) {
+			super(L);
+			xs_ = new double[L][];
+			for(int j = 0; j < L; j++) {
+				xs_[j] = new double[nodes[j].numAttributes()];
 			}
 		}
-		// finish, calculate marginals
-		for(int j = 0; j < L; j++) {
-			y_marg[j] /= I_c;
+
+		@Override
+		protected void prepare(Instance x) {
+			for(int j = 0; j < y.length; j++) {
+				nodes[j].transform(x,y,xs_[j]);
+			}
+			w = x.weight();
 		}
 
-		return y_marg;
+		@Override
+		protected double[] distribution(int j) throws Exception {
+			nodes[j].updateTransform(xs_[j],y);
+			Instance t_ = nodes[j].template(xs_[j]);
+			t_.setWeight(w);
+			return nodes[j].distributionT(t_);
+		}
+
+		@Override
+		protected void set(int j, int k) {
+			y[j] = k;
+		}
 	}
 
 	/* NOTE: these options in common with CT */
@@ -16,9 +16,13 @@
 package meka.classifiers.multilabel;
 
 import meka.classifiers.multitarget.MultiTargetClassifier;
+import meka.core.A;
+import meka.core.InstancesView;
 import meka.core.MLEvalUtils;
 import meka.core.MLUtils;
 import meka.core.Result;
+import weka.classifiers.AbstractClassifier;
+import weka.core.AdditionalMeasureProducer;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -32,6 +36,7 @@ import weka.core.converters.ConverterUtils.DataSource;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Random;
 
 /**
@@ -41,6 +46,12 @@ import java.util.Random;
  */
 public class Evaluation {
 
+	/** Training Evaluation OPtion: do not test the model on the training data. */
+	public final static String TRAINING_EVALUATION_OFF = "off";
+
+	/** Training Evaluation OPtion: test the model on all of the training data. */
+	public final static String TRAINING_EVALUATION_FULL = "full";
+
 	/**
 	 * RunExperiment - Build and evaluate a model with command-line options.
 	 * @param	h		multi-label classifier
@@ -132,6 +143,15 @@ public class Evaluation {
 			// output predictions to file?
 			String predictions = Utils.getOption("predictions", options);
 
+			// Training Evaluation OPtion
+			String teop = TRAINING_EVALUATION_FULL; // default
+			if (Utils.getOptionPos("train-eval",options) >= 0)
+				teop = Utils.getOption("train-eval",options);
+			double budget = 0.0;
+			if (Utils.getOptionPos("train-eval-budget",options) >= 0)
+				budget = Double.parseDouble(Utils.getOption("train-eval-budget",options));
+			checkTrainingEvaluation(teop, budget);
+
 			// suppress evaluation?
 			boolean doEval = !Utils.getFlag("no-eval", options);
 
@@ -217,7 +237,7 @@ public class Evaluation {
 								r = evaluateModelM(h, D_train, D_test, top, voption);
 							}
 							else {
-								r = evaluateModel(h, D_train, D_test, top, voption);
+								r = evaluateModel(h, D_train, D_test, top, voption, teop, budget);
 							}
 						}
 						else {
@@ -313,7 +333,7 @@ public class Evaluation {
 	}
 
 	/**
-	 * EvaluateModel - Build model 'h' on 'D_train', test it on 'D_test', threshold it according to 'top', verbosity 'vop'.
+	 * EvaluateModel - Build model 'h' on 'D_train', test it on 'D_test' (and on all of 'D_train'), threshold it according to 'top', verbosity 'vop'.
 	 * @param	h		a multi-dim. classifier
 	 * @param	D_train	training data
 	 * @param	D_test 	test data
@@ -322,8 +342,28 @@ public class Evaluation {
 	 * @return	Result	raw prediction data with evaluation statistics included.
 	 */
 	public static Result evaluateModel(MultiLabelClassifier h, Instances D_train, Instances D_test, String top, String vop) throws Exception {
-               
-                long before = System.currentTimeMillis();
+		return evaluateModel(h, D_train, D_test, top, vop, TRAINING_EVALUATION_FULL, 0.0);
+	}
+
+	/**
+	 * EvaluateModel - Build model 'h' on 'D_train', test it on 'D_test', threshold it according to 'top', verbosity 'vop'.
+	 * Depending on 'teop', the model is also tested on the training data, which produces the "-training" statistics.
+	 * The training evaluation mode and the number of training instances it used are stored in Result.vals.
+	 * @param	h		a multi-dim. classifier
+	 * @param	D_train	training data
+	 * @param	D_test 	test data
+	 * @param	top    	Threshold OPtion (pertains to multi-label data only)
+	 * @param	vop    	Verbosity OPtion (which measures do we want to calculate/output)
+	 * @param	teop   	Training Evaluation OPtion: 'full' (all of D_train), 'off' (skip), or a number N &gt; 0 (stratified sample of N training instances)
+	 * @param	budget 	time budget in seconds for testing on the training data (0 for no limit)
+	 * @return	Result	raw prediction data of the test data (in any mode) with evaluation statistics included; with 'off', there are no "-training" statistics.
+	 */
+	public static Result evaluateModel(MultiLabelClassifier h, Instances D_train, Instances D_test, String top, String vop, String teop, double budget) throws Exception {
+
+		checkTrainingEvaluation(teop, budget);
+		Instances D_eval = getTrainingEvaluationData(D_train, teop);
+
+		long before = System.currentTimeMillis();
 		// Set test data as unlabelled data, if SemisupervisedClassifier
 		if (h instanceof SemisupervisedClassifier) {
 			((SemisupervisedClassifier)h).introduceUnlabelledData(MLUtils.setLabelsMissing(new Instances(D_test)));
@@ -333,75 +373,148 @@ public class Evaluation {
 		long after = System.currentTimeMillis();
 
 		//System.out.println(":- Classifier -: "+h.getClass().getName()+": "+Arrays.toString(h.getOptions()));
-                //Train+Test
-                Result resultTrainPlusTest = testClassifier(h,D_train);
+		//Train+Test
+		Result resultTrainPlusTest = null;
+		if (D_eval == D_train && budget > 0) {
+			// test in random order, so that a truncated evaluation is still representative
+			int indices[] = A.make_sequence(D_train.numInstances());
+			A.shuffle(indices, new Random(0));
+			D_eval = new InstancesView(D_train, indices);
+		}
+		if (D_eval != null)
+			resultTrainPlusTest = testClassifier(h, D_eval, budget);
 		// Test
 		long before_test = System.currentTimeMillis();
 		Result result = testClassifier(h,D_test);
 		long after_test = System.currentTimeMillis();
 
-		result.setValue("Number of training instances",D_train.numInstances());
-                resultTrainPlusTest.setValue("Number of training instances",D_train.numInstances());
-                
-		result.setValue("Number of test instances",D_test.numInstances());
-                resultTrainPlusTest.setValue("Number of test instances",D_test.numInstances());
-                
-		result.setValue("Label cardinality (train set)",MLUtils.labelCardinality(D_train));
-                resultTrainPlusTest.setValue("Label cardinality (train set)",MLUtils.labelCardinality(D_train));
-                
-		result.setValue("Label cardinality (test set)",MLUtils.labelCardinality(D_test));
-                resultTrainPlusTest.setValue("Label cardinality (test set)",MLUtils.labelCardinality(D_test));
+		Result results[] = (resultTrainPlusTest == null) ? new Result[]{result} : new Result[]{resultTrainPlusTest, result};
+		String threshold = null;
+		if (!(h instanceof MultiTargetClassifier || isMT(D_test)) && (h instanceof MultiLabelClassifier))
+			threshold = MLEvalUtils.getThreshold(result.predictions,D_train,top); // <-- only relevant to ML (for now), but we'll put it in here in any case
+
+		for (Result r : results) {
+			r.setValue("Number of training instances",D_train.numInstances());
+			r.setValue("Number of test instances",D_test.numInstances());
+			r.setValue("Label cardinality (train set)",MLUtils.labelCardinality(D_train));
+			r.setValue("Label cardinality (test set)",MLUtils.labelCardinality(D_test));
+
+			r.setValue("Build Time",(after - before)/1000.0);
+			r.setValue("Test Time",(after_test - before_test)/1000.0);
+			r.setValue("Total Time", (after_test - before) / 1000.0);
+
+			r.setValue("Training evaluation mode", getTrainingEvaluationMode(teop));
+			r.setValue("Training evaluation instances", (resultTrainPlusTest == null) ? 0 : resultTrainPlusTest.size());
+			addAdditionalMeasures(h, r);
+
+			r.setInfo("Classifier",h.getClass().getName());
+			r.setInfo("Options",Arrays.toString(h.getOptions()));
+			r.setInfo("Additional Info",h.toString());
+			r.setInfo("Dataset",MLUtils.getDatasetName(D_train));
+			r.setInfo("Number of labels (L)",String.valueOf(D_train.classIndex()));
+			//r.setInfo("Maxfreq_set",MLUtils.mostCommonCombination(D_train,result.L));
+
+			if (h instanceof MultiTargetClassifier || isMT(D_test)) {
+				r.setInfo("Type","MT");
+			}
+			else if (h instanceof MultiLabelClassifier) {
+				r.setInfo("Type","ML");
+				r.setInfo("Threshold",threshold);
+			}
+			r.setInfo("Verbosity",vop);
+		}
 
-		result.setValue("Build Time",(after - before)/1000.0);
-                resultTrainPlusTest.setValue("Build Time",(after - before)/1000.0);
-                
-		result.setValue("Test Time",(after_test - before_test)/1000.0);
-                resultTrainPlusTest.setValue("Test Time",(after_test - before_test)/1000.0);
-                
-		result.setValue("Total Time", (after_test - before) / 1000.0);
-                resultTrainPlusTest.setValue("Total Time", (after_test - before) / 1000.0);
+		result.output = Result.getStats(result, vop, "test");
+		if (resultTrainPlusTest != null) {
+			// the "-training" statistics first, as before; the predictions stay the ones on the test data
+			HashMap<String,Object> output = Result.getStats(resultTrainPlusTest, vop, "training");
+			output.putAll(result.output);
+			result.output = output;
+		}
 
-		result.setInfo("Classifier",h.getClass().getName());
-                resultTrainPlusTest.setInfo("Classifier",h.getClass().getName());
-                
-		result.setInfo("Options",Arrays.toString(h.getOptions()));
-                resultTrainPlusTest.setInfo("Options",Arrays.toString(h.getOptions()));
-                
-		result.setInfo("Additional Info",h.toString());
-                resultTrainPlusTest.setInfo("Additional Info",h.toString());
-                
-		result.setInfo("Dataset",MLUtils.getDatasetName(D_train));
-                resultTrainPlusTest.setInfo("Dataset",MLUtils.getDatasetName(D_train));
-                
-		result.setInfo("Number of labels (L)",String.valueOf(D_train.classIndex()));
-                resultTrainPlusTest.setInfo("Number of labels (L)",String.valueOf(D_train.classIndex()));
-		//result.setInfo("Maxfreq_set",MLUtils.mostCommonCombination(D_train,result.L));
+		return result;
+	}
 
-//		String model = h.getModel();
-//		if (model.length() > 0)
-//			result.setModel("Model",h.getModel());
-                
-                
-                
-                
-		if (h instanceof MultiTargetClassifier || isMT(D_test)) {
-			result.setInfo("Type","MT");
-                        resultTrainPlusTest.setInfo("Type","MT");
+	/**
+	 * AddAdditionalMeasures - store the additional measures of 'h' in Result.vals, if it produces any (e.g., counts of the work done at test time, since it was built).
+	 * @param	h	a multi-dim. classifier
+	 * @param	r	the result to store the measures in
+	 */
+	public static void addAdditionalMeasures(MultiLabelClassifier h, Result r) {
+		if (!(h instanceof AdditionalMeasureProducer))
+			return;
+		AdditionalMeasureProducer producer = (AdditionalMeasureProducer)h;
+		Enumeration measures = producer.enumerateMeasures();
+		while (measures.hasMoreElements()) {
+			String name = (String)measures.nextElement();
+			r.setValue(name, producer.getMeasure(name));
+		}
+	}
+
+	/**
+	 * GetTrainingEvaluationMode - the numeric code of a Training Evaluation OPtion, for storing it in Result.vals.
+	 * @param	teop	Training Evaluation OPtion ('off', 'full', or sample size N)
+	 * @return	0 for 'off', 1 for 'full', 2 for a sample
+	 */
+	public static int getTrainingEvaluationMode(String teop) {
+		if (teop.equalsIgnoreCase(TRAINING_EVALUATION_OFF))
+			return 0;
+		else if (teop.equalsIgnoreCase(TRAINING_EVALUATION_FULL))
+			return 1;
+		else
+			return 2;
+	}
+
+	/**
+	 * GetTrainingEvaluationSize - the sample size of a Training Evaluation OPtion that is a number.
+	 * @param	teop	Training Evaluation OPtion (a number N &gt; 0)
+	 * @return	N
+	 * @throws	Exception	if teop is not a positive number
+	 */
+	protected static int getTrainingEvaluationSize(String teop) throws Exception {
+		int n;
+		try {
+			n = Integer.parseInt(teop);
+		} catch(NumberFormatException e) {
+			throw new Exception("[Error] Training evaluation must be '"+TRAINING_EVALUATION_OFF+"', '"+TRAINING_EVALUATION_FULL+"' or a sample size, provided: " + teop);
+		}
+		if (n <= 0)
+			throw new Exception("[Error] Training evaluation sample size must be at least 1 (use '"+TRAINING_EVALUATION_OFF+"' to skip it), provided: " + teop);
+		return n;
+	}
+
+	/**
+	 * CheckTrainingEvaluation - make sure that a Training Evaluation OPtion and its time budget are valid, before anything gets built.
+	 * @param	teop	Training Evaluation OPtion: 'off', 'full', or a number N &gt; 0
+	 * @param	budget	time budget in seconds (0 for no limit)
+	 * @throws	Exception	if teop is neither 'off', 'full' nor a positive number, or if the budget is negative
+	 */
+	public static void checkTrainingEvaluation(String teop, double budget) throws Exception {
+		if (getTrainingEvaluationMode(teop) == 2)
+			getTrainingEvaluationSize(teop);
+		if (budget < 0)
+			throw new Exception("[Error] Training evaluation budget must be at least 0 (0 = no limit), provided: " + budget);
+	}
+
+	/**
+	 * GetTrainingEvaluationData - the training data to test on, according to a Training Evaluation OPtion.
+	 * @param	D_train	training data
+	 * @param	teop	Training Evaluation OPtion: 'off', 'full', or a number N &gt; 0 (a stratified sample of N instances, drawn with seed 0)
+	 * @return	the data to test on (a view on D_train for a sample), or null if 'off'
+	 * @throws	Exception	if teop is neither 'off', 'full' nor a positive number
+	 */
+	public static Instances getTrainingEvaluationData(Instances D_train, String teop) throws Exception {
+		switch (getTrainingEvaluationMode(teop)) {
+			case 0:
+				return null;
+			case 1:
+				return D_train;
+			default:
+				int n = getTrainingEvaluationSize(teop);
+				if (n >= D_train.numInstances())
+					return D_train;
+				return new InstancesView(D_train, MLUtils.stratifiedSample(D_train, n, new Random(0)));
 		}
-		else if (h instanceof MultiLabelClassifier) {
-			result.setInfo("Type","ML");
-                        resultTrainPlusTest.setInfo("Type","ML");
-			result.setInfo("Threshold",MLEvalUtils.getThreshold(result.predictions,D_train,top)); // <-- only relevant to ML (for now), but we'll put it in here in any case
-                        resultTrainPlusTest.setInfo("Threshold",MLEvalUtils.getThreshold(result.predictions,D_train,top));
-                }
-		result.setInfo("Verbosity",vop);
-                resultTrainPlusTest.setInfo("Verbosity",vop);
-                resultTrainPlusTest.output = Result.getStats(resultTrainPlusTest, vop, "training"); 
-		result.output = Result.getStats(result, vop, "test");
-                resultTrainPlusTest.output.putAll(result.output);
-                
-                
-		return resultTrainPlusTest;
 	}
 
 	/**
@@ -497,7 +610,6 @@ public class Evaluation {
 		long after = System.currentTimeMillis();
 
 		//System.out.println(":- Classifier -: "+h.getClass().getName()+": "+Arrays.toString(h.getOptions()));
-                Result resultTrainPlusTest = testClassifier(h,D_train);
 		// Test
 		long before_test = System.currentTimeMillis();
 		Result result = testClassifier(h,D_test);
@@ -511,6 +623,7 @@ public class Evaluation {
 		result.setValue("Build Time",(after - before)/1000.0);
 		result.setValue("Test Time",(after_test - before_test)/1000.0);
 		result.setValue("Total Time", (after_test - before) / 1000.0);
+		addAdditionalMeasures(h, result);
 
 		result.setInfo("Classifier",h.getClass().getName());
 		result.setInfo("Options",Arrays.toString(h.getOptions()));
@@ -592,42 +705,68 @@ public class Evaluation {
 	 * @return	Result	with raw prediction data ONLY
 	 */
 	public static Result testClassifier(MultiLabelClassifier h, Instances D_test) throws Exception {
+		return testClassifier(h, D_test, 0.0);
+	}
+
+	/**
+	 * TestClassifier - test classifier h on D_test, stopping once the time budget is used up.
+	 * The predictions are obtained in batches via MultiLabelClassifier.distributionForInstances(Instances),
+	 * with the budget being checked between batches. At least one batch is always tested.
+	 * @param	h		a multi-dim. classifier, ALREADY BUILT
+	 * @param	D_test 	test data
+	 * @param	budget	time budget in seconds (&le; 0 for no limit)
+	 * @return	Result	with raw prediction data ONLY, for the first Result.size() instances of D_test
+	 */
+	public static Result testClassifier(MultiLabelClassifier h, Instances D_test, double budget) throws Exception {
 
 		int L = D_test.classIndex();
-		Result result = new Result(D_test.numInstances(),L);
+		int N = D_test.numInstances();
+		Result result = new Result(N,L);
 
 		if(h.getDebug()) System.out.print(":- Evaluate ");
-		for (int i = 0, c = 0; i < D_test.numInstances(); i++) {
-
-			if(h.getDebug()) { int t = i*50/D_test.numInstances(); if(t > c) { System.out.print("#"); c = t; } }
+		if (budget <= 0) {
+			addResults(result, h, D_test, h.distributionForInstances(D_test), 0);
+		}
+		else {
+			long deadline = System.currentTimeMillis() + (long)(budget * 1000);
+			int batch = (h instanceof AbstractClassifier) ? AbstractMultiLabelClassifier.getChunkSize(((AbstractClassifier)h).getBatchSize()) : AbstractMultiLabelClassifier.DEFAULT_CHUNK_SIZE;
+			for (int i = 0; i < N; i += batch) {
+				if (i > 0 && System.currentTimeMillis() > deadline) {
+					if(h.getDebug()) System.out.print(" (time budget exceeded after "+i+" instances) ");
+					break;
+				}
+				int indices[] = new int[Math.min(batch, N - i)];
+				for (int k = 0; k < indices.length; k++)
+					indices[k] = i + k;
+				addResults(result, h, D_test, h.distributionForInstances(new InstancesView(D_test, indices)), i);
+			}
+		}
+		if(h.getDebug()) System.out.println(":-");
 
-			// No cheating allowed; clear all class information
-			Instance x = (Instance)(D_test.instance(i)).copy();
-			for(int v = 0; v < D_test.classIndex(); v++)
-				x.setValue(v,0.0);
+		return result;
+	}
 
-			// Get and store ranking
-			double y[] = h.distributionForInstance(x);
+	/**
+	 * AddResults - store batch predictions in a Result.
+	 * @param	result	the Result to add to
+	 * @param	h		the classifier that made the predictions
+	 * @param	D_test 	test data
+	 * @param	Y		the predictions, one row per instance
+	 * @param	offset	the index in D_test of the first prediction
+	 */
+	protected static void addResults(Result result, MultiLabelClassifier h, Instances D_test, double Y[][], int offset) {
+		int L = D_test.classIndex();
+		for (int i = 0; i < Y.length; i++) {
+			double y[] = Y[i];
 			// Cut off any [no-longer-needed] probabalistic information from MT classifiers.
 			if (h instanceof MultiTargetClassifier)
 				y = Arrays.copyOf(y,L);
 
 			// Store the result
-			result.addResult(y,D_test.instance(i));
+			result.addResult(y,D_test.instance(offset + i));
 		}
-		if(h.getDebug()) System.out.println(":-");
-
-		/*
-		if(h.getDebug()) {
-
-			for(int i = 0; i < result.size(); i++) {
-				System.out.println("\t"+Arrays.toString(result.rowTrue(i))+" vs "+Arrays.toString(result.rowRanking(i)));
-			}
-		}
-		*/
-
-		return result;
 	}
+
 	/**
 	 *Test Classifier but threaded (Multiple)
 	 * @param	h		a multi-dim. classifier, ALREADY BUILT (threaded, implements MultiLabelThreaded)
@@ -635,32 +774,9 @@ public class Evaluation {
 	 * @return	Result	with raw prediction data ONLY
 	 */
 	public static Result testClassifierM(MultiLabelClassifier h, Instances D_test) throws Exception {
-
-		int L = D_test.classIndex();
-		Result result = new Result(D_test.numInstances(),L);
-		if(h.getDebug()) System.out.print(":- Evaluate ");
-		if(h instanceof MultiLabelClassifierThreaded){
+		if(h instanceof MultiLabelClassifierThreaded)
 			((MultiLabelClassifierThreaded)h).setThreaded(true);
-			double y[][] = ((MultiLabelClassifierThreaded)h).distributionForInstanceM(D_test);
-
-			for (int i = 0, c = 0; i < D_test.numInstances(); i++) {
-				// Store the result
-				result.addResult(y[i],D_test.instance(i));
-			}
-			if(h.getDebug()) System.out.println(":-");
-
-		/*
-		if(h.getDebug()) {
-
-			for(int i = 0; i < result.size(); i++) {
-				System.out.println("\t"+Arrays.toString(result.rowActual(i))+" vs "+Arrays.toString(result.rowRanking(i)));
-			}
-
-
-		}
-		*/
-		}
-		return result;
+		return testClassifier(h, D_test);
 	}
 
 	/**
@@ -797,6 +913,10 @@ public class Evaluation {
 		text.append("\tSpecify a file to load classifier from.\n");
 		text.append("-verbosity <verbosity level>\n");
 		text.append("\tSpecify more/less evaluation output\n");
+		text.append("-train-eval <training evaluation>\n");
+		text.append("\tSets whether to also evaluate on the training set; where\n\t\t'full' uses all training instances (the default);\n\t\t'off' skips the training evaluation;\n\t\tany positive number, e.g. '500', uses a stratified sample of that many training instances.\n");
+		text.append("-train-eval-budget <seconds>\n");
+		text.append("\tSets the time budget for the training evaluation (0 = no limit, the default; must not be negative).\n");
 		// Multilabel Options
 		text.append("\n\nClassifier Options:\n\n");
 		while (e.hasMoreElements()) {
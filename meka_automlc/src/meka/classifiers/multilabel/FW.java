@@ -15,12 +15,23 @@
 
 package meka.classifiers.multilabel;
 
+import meka.core.LabelProjectedInstance;
+import meka.core.OptionUtils;
+import meka.core.PairProjectedInstances;
+import meka.core.StatUtils;
 import weka.classifiers.*;
 import weka.core.*;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+
 /**
  * FW.java Four-class pairWise classification. 
  * Trains a multi-class base classifier for each pair of labels -- (L*(L-1))/2 in total --, each with four possible class values: {00,01,10,11} representing the possible combinations of relevant (1) /irrelevant (0) for the pair. Uses a voting + threshold scheme at testing time where e.g., 01 from pair jk gives one vote to label k; any label with votes above the threshold is considered relevant.
+ * The pairs are trained on views of the data that share the feature values (see PairProjectedInstances). Optionally, pairs of labels that (almost) never co-occur are skipped.
  * @version	October 2012
  * @author 	Jesse Read (jesse@tsc.uc3m.es)
  */
@@ -30,6 +41,15 @@ public class FW extends ProblemTransformationMethod {
 	Classifier h[][] = null;
 	Attribute classAttribute = null;
 
+	/** the pairs of labels (j,k) that models were built for, and the number of pairs of each label */
+	protected int m_Pairs[][] = null;
+	protected int m_NumPairs[] = null;
+
+	protected double m_MinCooccurrence = 0.0;
+
+	/** the projections for making predictions (one per thread) */
+	protected transient ThreadLocal<LabelProjectedInstance> m_ProjectedInstance = null;
+
 	@Override
 	public String globalInfo() {
 		return "The Fourclass Pairwise (FW) method.\n"
@@ -53,13 +73,11 @@ public class FW extends ProblemTransformationMethod {
 		for (int i = 0; i < L; i++)
 			D.deleteAttributeAt(1);
 
-		m_InstancesTemplate = new Instances(D,0);
-
 		return D;
     }
 
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 		testCapabilities(D);
 
 		FastVector values = new FastVector(4);
@@ -73,17 +91,109 @@ public class FW extends ProblemTransformationMethod {
 		int L = D.classIndex();
 
 		h = new Classifier[L][L];
+		m_ProjectedInstance = new ThreadLocal<>();
+
+		// the header is the same for all pairs
+		m_InstancesTemplate = convert(new Instances(D,0),0,Math.min(1,L-1));
+		final Instances header = m_InstancesTemplate;
+
+		m_Pairs = selectPairs(D);
+
+		List<Callable<Object>> jobs = new ArrayList<>();
+		for(final int pair[] : m_Pairs) {
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					if (getDebug()) System.out.print(".");
+					// (view, sharing the feature values with D)
+					Instances D_pair = new PairProjectedInstances(D,D.classIndex(),pair[0],pair[1],header);
+					Classifier h_ = (AbstractClassifier)AbstractClassifier.forName(getClassifier().getClass().getName(),((AbstractClassifier)getClassifier()).getOptions());
+					h_.buildClassifier(D_pair);
+					h[pair[0]][pair[1]] = h_;
+					return null;
+				}
+			});
+		}
+		// (the views only hold one small object per instance)
+		runJobs(jobs, 64L * D.numInstances());
+		if (getDebug()) System.out.println("");
+
+	}
+
+	/**
+	 * SelectPairs - the pairs of labels to build models for: all pairs, unless a minimum co-occurrence is set.
+	 * Then pairs that co-occur in less than that fraction of the training instances are skipped; but each label keeps at least the pair with the label it co-occurs with most.
+	 * @param	D	the training data
+	 * @return	the pairs (j,k), with j &lt; k
+	 */
+	protected int[][] selectPairs(Instances D) {
+		int L = D.classIndex();
+		boolean keep[][] = new boolean[L][L];
 
+		if (m_MinCooccurrence > 0.0) {
+			int C[][] = StatUtils.getC(D);
+			double min = m_MinCooccurrence * D.numInstances();
+			for(int j = 0; j < L; j++) {
+				int best = -1;
+				boolean kept = false;
+				for(int k = 0; k < L; k++) {
+					if (k == j)
+						continue;
+					int c = (j < k) ? C[j][k] : C[k][j];
+					if (c >= min) {
+						keep[Math.min(j,k)][Math.max(j,k)] = true;
+						kept = true;
+					}
+					if (best < 0 || c > ((j < best) ? C[j][best] : C[best][j]))
+						best = k;
+				}
+				if (!kept && best >= 0)
+					keep[Math.min(j,best)][Math.max(j,best)] = true;
+			}
+		}
+		else {
+			for(int j = 0; j < L; j++) {
+				for(int k = j+1; k < L; k++) {
+					keep[j][k] = true;
+				}
+			}
+		}
+
+		m_NumPairs = new int[L];
+		List<int[]> pairs = new ArrayList<>();
 		for(int j = 0; j < L; j++) {
 			for(int k = j+1; k < L; k++) {
-				if (getDebug()) System.out.print(".");
-				Instances D_pair = convert(D,j,k);
-				h[j][k] = (AbstractClassifier)AbstractClassifier.forName(getClassifier().getClass().getName(),((AbstractClassifier)getClassifier()).getOptions());
-				h[j][k].buildClassifier(D_pair);
+				if (keep[j][k]) {
+					pairs.add(new int[]{j,k});
+					m_NumPairs[j]++;
+					m_NumPairs[k]++;
+				}
 			}
-			if (getDebug()) System.out.println("");
 		}
+		if (getDebug()) System.out.println("Using "+pairs.size()+" of "+(L*(L-1)/2)+" pairs");
 
+		return pairs.toArray(new int[pairs.size()][]);
+	}
+
+	/**
+	 * Returns the projected instance of the current thread, for making predictions without copying the instance.
+	 */
+	protected LabelProjectedInstance getProjectedInstance(Instance x) {
+		ThreadLocal<LabelProjectedInstance> local = m_ProjectedInstance;
+		if (local == null) {
+			// eg after deserialization
+			local = new ThreadLocal<>();
+			m_ProjectedInstance = local;
+		}
+		LabelProjectedInstance x_ = local.get();
+		if (x_ == null) {
+			x_ = new LabelProjectedInstance(x,x.classIndex(),0);
+			local.set(x_);
+		}
+		else {
+			x_.setSource(x);
+		}
+		return x_;
 	}
 
 	@Override
@@ -91,21 +201,17 @@ public class FW extends ProblemTransformationMethod {
 
 		int L = x.classIndex();
 
-		x = (Instance)x.copy();
-		x.setDataset(null);
-		for (int i = 1; i < L; i++)
-			x.deleteAttributeAt(1);
-		x.setDataset(m_InstancesTemplate);
+		// (the same projection serves all pairs, as they share the header)
+		LabelProjectedInstance x_ = getProjectedInstance(x);
+		x_.setDataset(m_InstancesTemplate);
 
 		double r[] = new double[L];
-                double sum = 0.0;
 
-		for(int j = 0; j < L; j++) {
-			for(int k = j+1; k < L; k++) {
-				//double d[] = h[j][k].distributionForInstance(x);
-                                sum += 1.0;
-                                
-				int c = (int)Math.round(h[j][k].classifyInstance(x));
+		try {
+			for(int pair[] : m_Pairs) {
+				int j = pair[0];
+				int k = pair[1];
+				int c = (int)Math.round(h[j][k].classifyInstance(x_));
 				if (c == 1) {
 					r[j] += 1.0;
 				}
@@ -118,14 +224,67 @@ public class FW extends ProblemTransformationMethod {
 				}
 			}
 		}
-                
-                for(int j = 0; j < L; j++) {
-                    r[j] = r[j]/sum;
-                }
+		finally {
+			// don't hold on to the instance
+			x_.setSource(null);
+		}
+
+		// (with all pairs, i.e., L-1 per label, this is the number of votes over the number of pairs, L*(L-1)/2)
+		for(int j = 0; j < L; j++) {
+			if (m_NumPairs[j] > 0)
+				r[j] = r[j] / (m_NumPairs[j] * L / 2.0);
+		}
 
 		return r;
 	}
 
+	public void setMinCooccurrence(double m) {
+		m_MinCooccurrence = m;
+	}
+
+	public double getMinCooccurrence() {
+		return m_MinCooccurrence;
+	}
+
+	public String minCooccurrenceTipText() {
+		return "Skip the pairs of labels that co-occur in less than this fraction of the training instances (each label keeps the pair with the label it co-occurs with most); 0 to build all pairs.";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		result.addElement(new Option("\t"+minCooccurrenceTipText()+"\n\tdefault: 0.0", "min-cooccurrence", 1, "-min-cooccurrence <value>"));
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setMinCooccurrence(OptionUtils.parse(options, "min-cooccurrence", 0.0));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		// only when not the default, to keep the commandlines of existing setups (eg in experiment results) unchanged
+		if (getMinCooccurrence() != 0.0)
+			OptionUtils.add(result, "min-cooccurrence", getMinCooccurrence());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
+	/**
+	 * Returns true if the base classifier is thread-safe, as the projected
+	 * instance used at prediction time is kept per thread.
+	 *
+	 * @return	true if thread-safe
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier);
+	}
+
 	public static void main(String args[]) {
 		ProblemTransformationMethod.evaluation(new FW(), args);
 	}
@@ -20,7 +20,6 @@ import weka.classifiers.AbstractClassifier;
 import weka.core.Instances;
 import weka.core.RevisionUtils;
 
-import java.util.Arrays;
 
 /**
  * HASEL - Partitions labels into subsets based on the dataset defined hierarchy.
@@ -55,14 +54,7 @@ public class HASEL extends RAkELd {
 		m_Classifiers = AbstractClassifier.makeCopies(m_Classifier,m_M);
 		m_InstancesTemplates = new Instances[m_M];
 
-		for(int i = 0; i < m_M; i++) {
-
-			if (getDebug()) 
-				System.out.println("Building model "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i]));
-			Instances D_i = SuperLabelUtils.makePartitionDataset(D,kMap[i]);
-			m_Classifiers[i].buildClassifier(D_i);
-			m_InstancesTemplates[i] = new Instances(D_i,0);
-		}
+		buildModels(D,0,0);
 
 	}
 
@@ -24,6 +24,7 @@ import weka.core.Drawable;
 import weka.core.OptionHandler;
 import weka.core.RevisionUtils;
 
+import meka.core.LabelSet;
 import meka.core.MultiLabelDrawable;
 import meka.core.PSUtils;
 
@@ -40,6 +41,9 @@ public class LC extends ProblemTransformationMethod implements OptionHandler, Mu
 	/** for serialization. */
 	private static final long serialVersionUID = -2726090581435923988L;
 
+	/** the label combination of each class value of the template, i.e., class value (id) k stands for m_LabelSets[k] */
+	protected LabelSet m_LabelSets[] = null;
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -63,6 +67,7 @@ public class LC extends ProblemTransformationMethod implements OptionHandler, Mu
 		if(getDebug()) System.out.print("Transforming Instances ...");
 		Instances D_ = PSUtils.LCTransformation(D,L);
 		m_InstancesTemplate = new Instances(D_,0);
+		m_LabelSets = PSUtils.makeLabelSetMap(m_InstancesTemplate);
 
 		// Set Info ; Build Classifier
 		info = "K = "+m_InstancesTemplate.attribute(0).numValues() + ", N = "+D_.numInstances();
@@ -83,11 +88,27 @@ public class LC extends ProblemTransformationMethod implements OptionHandler, Mu
 		x_.setDataset(m_InstancesTemplate);
 
 		//Get a classification
-		double y[] = new double[x_.numClasses()];
+		int k = (int)m_Classifier.classifyInstance(x_);
 
-		y[(int)m_Classifier.classifyInstance(x_)] = 1.0;
+		double y[] = new double[L];
+		for(int j : getLabelSets()[k].indices) {
+			y[j] = 1.0;
+		}
+		return y;
+	}
 
-		return PSUtils.convertDistribution(y,L,m_InstancesTemplate);
+	/**
+	 * Returns the label combination of each class value of the template (parsing the class values, if that has not happened yet, e.g., for older serialized models).
+	 *
+	 * @return		the label combinations, indexed by class value
+	 */
+	protected LabelSet[] getLabelSets() {
+		LabelSet result[] = m_LabelSets;
+		if (result == null) {
+			result = PSUtils.makeLabelSetMap(m_InstancesTemplate);
+			m_LabelSets = result;
+		}
+		return result;
 	}
 
 	/**
@@ -133,6 +154,17 @@ public class LC extends ProblemTransformationMethod implements OptionHandler, Mu
 		return result;
 	}
 
+	/**
+	 * Returns true if the base classifier is thread-safe, as the instances get
+	 * converted into new ones at prediction time.
+	 *
+	 * @return	true if thread-safe
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier);
+	}
+
 	private String info = "";
 
 	public String toString() {
@@ -15,6 +15,7 @@
 
 package meka.classifiers.multilabel;
 
+import meka.core.ThreadUtils;
 import weka.classifiers.Classifier;
 import weka.classifiers.SingleClassifierEnhancer;
 import weka.core.Attribute;
@@ -148,6 +149,22 @@ public abstract class LabelTransformationClassifier
 	return y;
     }
 
+    @Override
+    public double[][] distributionForInstances(Instances D) throws Exception {
+	return AbstractMultiLabelClassifier.distributionForInstances(this, D, ThreadUtils.ALL, AbstractMultiLabelClassifier.getChunkSize(getBatchSize()));
+    }
+
+    /**
+     * Returns false, as the label transformations have not been checked for
+     * concurrent use.
+     *
+     * @return	always false
+     */
+    @Override
+    public boolean isThreadSafe() {
+	return false;
+    }
+
     @Override
     public String getRevision() {
 	return RevisionUtils.extract("$Revision: 9117 $");
@@ -19,6 +19,7 @@ import weka.core.TechnicalInformation.*;
 import weka.core.*;
 import meka.core.*;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * MCC.java - CC with Monte Carlo optimisation. 
@@ -42,6 +43,12 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 	protected int m_Is = 0;
 	protected int m_Iy = 10;
 	protected String m_Payoff = "Exact-match-test";
+	protected int m_NumProposals = 1;
+	protected int m_InferenceStreams = 0;
+	protected boolean m_EarlyStopping = false;
+
+	/** the streams for sampling (reused between instances) */
+	protected transient Stream m_Streams[] = null;
 
 	/**
 	 * Payoff - Return a default score of h evaluated on D.
@@ -49,7 +56,24 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 	 * @param	D	a dataset
 	 */
 	public double payoff(CC h, Instances D) throws Exception {
-		Result r = Evaluation.testClassifier(h,D);
+		return payoff(Evaluation.testClassifier(h,D));
+	}
+
+	/**
+	 * Payoff - the payoff of predictions Y (one row per instance) on D.
+	 */
+	public double payoff(double Y[][], Instances D) throws Exception {
+		Result r = new Result(D.numInstances(),D.classIndex());
+		for(int i = 0; i < Y.length; i++) {
+			r.addResult(Y[i],D.instance(i));
+		}
+		return payoff(r);
+	}
+
+	/**
+	 * Payoff - the payoff of the (raw) evaluation result r.
+	 */
+	protected double payoff(Result r) throws Exception {
 		// assume multi-label for now
 		r.setInfo("Type","ML");
 		r.setInfo("Threshold","0.5"); 
@@ -63,19 +87,35 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		return returnPayoff;
 	}
 
+	/**
+	 * Predict - the predictions of chain h for D (one row per instance), reusing the predictions Y of another chain for the first k positions that both chains have in common.
+	 * @param	h	the chain
+	 * @param	D	the instances
+	 * @param	Y	the predictions of the other chain (null if k = 0)
+	 * @param	k	the number of positions the chains have in common
+	 */
+	protected static double[][] predict(CC h, Instances D, double Y[][], int k) throws Exception {
+		int L = D.classIndex();
+		double Y_[][] = new double[D.numInstances()][];
+		for(int i = 0; i < Y_.length; i++) {
+			Y_[i] = (k == 0) ? new double[L] : Arrays.copyOf(Y[i],L);
+		}
+		h.classifyForInstances(D,Y_,k);
+		return Y_;
+	}
+
 	@Override
-	public void buildClassifier(Instances D) throws Exception {
+	public void buildClassifier(final Instances D) throws Exception {
 		testCapabilities(D);
 
 		// Variables
 
 		int L = D.classIndex(); 
-		int N = D.numInstances();
-		int d = D.numAttributes()-L;
 		m_R = new Random(m_S);
+		m_Streams = null;
 
 		prepareChain(L);
-		int s[] = retrieveChain(); 
+		int s[] = Arrays.copyOf(retrieveChain(),L);
 
 //		if(getDebug()) System.out.println("s_[0] = "+Arrays.toString(s));
 
@@ -83,84 +123,359 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		if (m_Is > 0) {
 
 			// Make CC
-			CC h = CCUtils.buildCC(s,D,m_Classifier);
+			CC h = new CC();
+			h.prepareChain(s);
+			h.setClassifier(m_Classifier);
+			h.setNumThreads(getNumThreads());
+			h.buildClassifier(D);
 
 //			if (getDebug()) System.out.println("Optimising s ... ("+m_Is+" iterations):");
 
-			double w = payoff(h,new Instances(D));
+			double Y[][] = predict(h,D,null,0);
+			double w = payoff(Y,D);
 //			if (getDebug()) System.out.println("h_{t="+0+"} := "+Arrays.toString(s)); //+"; w = "+w);
 
-			for(int t = 0; t < m_Is; t++) {
-
-				// propose a chain s' by swapping two elements in s
-				int s_[] = Arrays.copyOf(A.swap(s,m_R),s.length);
+			// the payoffs of the chains rated so far (a chain rated before can never be accepted, since w only increases)
+			Map<String,Double> payoffs = new HashMap<>();
+			payoffs.put(Arrays.toString(s),w);
 
-				// build h'
-				CC h_ = CCUtils.buildCC(s_,D,m_Classifier);
+			int P = Math.max(1,m_NumProposals);
+			for(int t = 0; t < m_Is; t++) {
 
-				// rate h'
-				double w_ = payoff(h_,new Instances(D));
+				// propose chains s' by swapping two elements in s
+				final int S_[][] = new int[P][];
+				final CC H_[] = new CC[P];
+				final double Y_[][][] = new double[P][][];
+				final double W_[] = new double[P];
+				List<Callable<Object>> jobs = new ArrayList<>();
+				for(int p = 0; p < P; p++) {
+					S_[p] = A.swap(Arrays.copyOf(s,L),m_R);
+					if (payoffs.containsKey(Arrays.toString(S_[p])))
+						continue;
+					payoffs.put(Arrays.toString(S_[p]),Double.NaN);
+
+					// build h' (from the nodes of h that can be kept)
+					final CC h_ = new CC();
+					h_.prepareChain(s);
+					h_.setClassifier(m_Classifier);
+					h_.setNumThreads((P > 1) ? ThreadUtils.SEQUENTIAL : getNumThreads());
+					h_.nodes = h.nodes;
+					final double Y0[][] = Y;
+					final int k = firstDifference(s,S_[p]);
+					final int p_ = p;
+					jobs.add(new Callable<Object>() {
+						@Override
+						public Object call() throws Exception {
+							h_.rebuildClassifier(S_[p_],D);
+							// rate h' (the predictions of the common prefix are the same as those of h)
+							Y_[p_] = predict(h_,D,Y0,k);
+							W_[p_] = payoff(Y_[p_],D);
+							H_[p_] = h_;
+							return null;
+						}
+					});
+				}
+				// (the proposals share the nodes of h)
+				if (P > 1 && AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier)) {
+					runJobs(jobs, 2 * estimateMemory(D));
+				}
+				else {
+					for(Callable<Object> job : jobs)
+						job.call();
+				}
 
 				// accept h' over h ? 
-				if (w_ > w) {
-					w = w_;
-					s = s_;
-					h = h_;
-//					if (getDebug()) System.out.println("h_{t="+(t+1)+"} := "+Arrays.toString(s)); //+"; w = "+w);
-					//if (getDebug()) System.out.print("& "+Utils.doubleToString(likelihood(h_,new Instances(D),1),8,2));
-					//if (getDebug()) System.out.print("& "+Utils.doubleToString(likelihood(h_,new Instances(D),2),8,2));
-					//if (getDebug()) System.out.println("& "+Utils.doubleToString(likelihood(h_,new Instances(D),5),8,2));
+				for(int p = 0; p < P; p++) {
+					if (H_[p] == null)
+						continue;
+					payoffs.put(Arrays.toString(S_[p]),W_[p]);
+					if (W_[p] > w) {
+						w = W_[p];
+						s = S_[p];
+						h = H_[p];
+						Y = Y_[p];
+//						if (getDebug()) System.out.println("h_{t="+(t+1)+"} := "+Arrays.toString(s)); //+"; w = "+w);
+					}
 				}
 			}
+//			if (getDebug()) System.out.println("---");
+
+			// (h has been built for s already)
+			this.prepareChain(s);
+			this.nodes = h.nodes;
+			this.confidences = new double[L];
+		}
+		else {
+			this.prepareChain(s);
+			super.buildClassifier(D);
 		}
-//		if (getDebug()) System.out.println("---");
+	}
 
-		this.prepareChain(s);
-		super.buildClassifier(D);
+	/**
+	 * FirstDifference - the first position at which chains s and s_ differ (their length, if they do not).
+	 */
+	private static int firstDifference(int s[], int s_[]) {
+		int k = 0;
+		while (k < s.length && s[k] == s_[k])
+			k++;
+		return k;
 	}
 
 	@Override
 	public double[] distributionForInstance(Instance x) throws Exception {
 
-
 		//  T = 0
 		double y[] = super.distributionForInstance(x);
 
 		// T > 0
-		if (m_Iy > 0) {
-			//double yT[] = CCUtils.RandomSearchaa(this,x,m_Iy,m_R,y0);
-
-			double w  = A.product(this.probabilityForInstance(x,y));	// p(y|x)
-
-			Instance t_[] = this.getTransformTemplates(x);
-
-			//System.out.println("----");
-			//System.out.println("p0("+Arrays.toString(y)+") = "+Arrays.toString(h.getConfidences())+", w="+w);
-			for(int t = 0; t < m_Iy; t++) {
-				double y_[] = this.sampleForInstanceFast(t_,m_R); 	    // propose y' by sampling i.i.d.
-				//double y_[] = this.sampleForInstance(x,m_R); 	    // propose y' by sampling i.i.d.
-				//double p_[] = h.getConfidences();                   //
-				double w_  = A.product(this.getConfidences()); 		// rate y' as w'  --- TODO allow for command-line option
-				//System.out.println("p("+Arrays.toString(y_)+") = "+Arrays.toString(p_)+", w="+w_);
-				if (w_ > w) { 										// accept ? 
-//					if (getDebug()) System.out.println("y' = "+Arrays.toString(y_)+", :"+w_);
-					w = w_;
-					//y = y_;
-					y = Arrays.copyOf(y_,y_.length);
-					//System.out.println("* ACCEPT *");
-				}
+		return searchForInstance(x,y);
+	}
+
+	/**
+	 * DistributionsForInstances - the initial guesses are obtained column-wise for the whole batch (see CC#distributionsForInstances(Instances)), the search is then done instance by instance
+	 * (with the streams of each instance running in parallel, if there are several and the base classifier is thread-safe).
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+
+		//  T = 0
+		double Y[][] = super.distributionsForInstances(D);
+
+		// T > 0
+		int numThreads = ThreadUtils.SEQUENTIAL;
+		if (m_Iy > 0 && m_InferenceStreams > 1 && AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier))
+			numThreads = Math.min(ThreadUtils.getActualNumThreads(m_NumThreads, m_InferenceStreams), m_InferenceStreams);
+		for(int i = 0; i < Y.length; i++) {
+			Y[i] = searchForInstance(D.instance(i),Y[i],numThreads);
+		}
+		return Y;
+	}
+
+	/**
+	 * SearchForInstance - search the output space for a better y than the initial guess, for m_Iy iterations.
+	 * @param	x	test Instance
+	 * @param	y	the initial guess (e.g., the greedy CC prediction)
+	 * @return	the best y found
+	 */
+	protected double[] searchForInstance(Instance x, double y[]) throws Exception {
+		return searchForInstance(x,y,ThreadUtils.SEQUENTIAL);
+	}
+
+	/**
+	 * SearchForInstance - search the output space for a better y than the initial guess, by sampling m_Iy times from the chain.
+	 * With 0 inference streams, all samples are drawn with the random number generator of the classifier, otherwise they are split across the streams, each with its own generator, seeded from a single draw of the classifier's generator; the best y is the same, whether the streams run in parallel or not.
+	 * @param	x			test Instance
+	 * @param	y			the initial guess (e.g., the greedy CC prediction)
+	 * @param	numThreads	the number of threads for running the streams in parallel on the shared executor (see ThreadUtils#invokeAll(List, int)), ThreadUtils.SEQUENTIAL to run them sequentially
+	 * @return	the best y found
+	 */
+	protected double[] searchForInstance(Instance x, double y[], int numThreads) throws Exception {
+
+		if (m_Iy <= 0)
+			return y;
+
+		int L = y.length;
+		int S = Math.max(1,m_InferenceStreams);
+		Stream streams[] = getStreams(S,L);
+
+		// the initial guess, p(y|x)
+		double d[][] = new double[L][];
+		double w = 1.0;
+		for(int j : m_Chain) {
+			d[j] = nodes[j].distribution(x,y);
+		}
+		for(int j = 0; j < L; j++) {
+			w *= d[j][(int)Math.round(y[j])];
+		}
+
+		if (m_InferenceStreams < 1) {
+			streams[0].reset(x,y,d,w,m_R,m_Iy);
+		}
+		else {
+			long seed = m_R.nextLong();
+			for(int k = 0; k < S; k++) {
+				streams[k].reset(x,y,d,w,new Random(mix(seed + k * 0x9E3779B97F4A7C15L)),m_Iy / S + ((k < m_Iy % S) ? 1 : 0));
 			}
 		}
 
+		ThreadUtils.invokeAll(Arrays.asList(streams), numThreads);
+
+		// accept ? (in order of the streams)
+		for(Stream stream : streams) {
+			if (stream.w > w) {
+				w = stream.w;
+				y = Arrays.copyOf(stream.y_best,L);
+			}
+		}
+		if (getDebug())
+			System.out.println("y' = "+Arrays.toString(y)+", :"+w);
+
 		return y;
 	}
 
+	/**
+	 * Mix - scramble the bits of a seed (the finalizer of SplitMix64), to derive seeds for independent random number streams.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the streams for sampling, (re)allocated if necessary.
+	 */
+	protected Stream[] getStreams(int S, int L) {
+		Stream streams[] = m_Streams;
+		if (streams == null || streams.length != S || streams[0].y.length != L) {
+			streams = new Stream[S];
+			for(int k = 0; k < S; k++) {
+				streams[k] = new Stream(L);
+			}
+			m_Streams = streams;
+		}
+		return streams;
+	}
+
+	/**
+	 * Trie - the label vectors sampled for an instance, by prefix (in chain order), along with the distributions of the nodes given each prefix.
+	 */
+	protected static class Trie {
+
+		/** p(y_next | x, prefix), null if not evaluated yet (and at the leaves) */
+		public double dist[] = null;
+
+		/** the prefixes extended by each value of the next label */
+		public Trie children[] = null;
+	}
+
+	/** the maximum number of prefixes to store per stream */
+	protected static final int MAX_TRIE_SIZE = 65536;
+
+	/**
+	 * Stream - draws samples from the chain for an instance with its own random number generator, reusing its buffers (which get wrapped anew for every node evaluation, see CNode#template(double[])).
+	 * The distributions of the nodes are memoised by prefix, so sampling a prefix again does not evaluate the nodes again; a label vector that was sampled before is not rated again.
+	 * The probability mass of the distinct label vectors sampled so far is tracked for early stopping.
+	 */
+	protected class Stream implements Callable<Object> {
+
+		protected double x_[][];
+		protected double weight;
+		protected double y[];
+		protected double conf[];
+		protected double y_best[];
+		protected double w;
+		protected double mass;
+		protected Random r;
+		protected int samples;
+		protected Trie root;
+		protected int size;
+
+		public Stream(int L) {
+			x_ = new double[L][];
+			for(int j = 0; j < L; j++) {
+				x_[j] = new double[nodes[j].numAttributes()];
+			}
+			y = new double[L];
+			conf = new double[L];
+			y_best = new double[L];
+		}
+
+		/**
+		 * Reset - prepare for sampling for instance x, starting from the initial guess y0 (with node distributions d0 and probability w0).
+		 */
+		public void reset(Instance x, double y0[], double d0[][], double w0, Random r, int samples) {
+			for(int j = 0; j < y.length; j++) {
+				nodes[j].transform(x,y,x_[j]);
+			}
+			weight = x.weight();
+			this.r = r;
+			this.samples = samples;
+			w = w0;
+			mass = w0;
+			System.arraycopy(y0,0,y_best,0,y.length);
+			// (the initial guess has been sampled already)
+			root = new Trie();
+			Trie n = root;
+			for(int j : m_Chain) {
+				int v = (int)Math.round(y0[j]);
+				n.dist = d0[j];
+				n.children = new Trie[d0[j].length];
+				n.children[v] = new Trie();
+				n = n.children[v];
+			}
+			size = y.length + 1;
+		}
+
+		@Override
+		public Object call() throws Exception {
+			for(int t = 0; t < samples; t++) {
+				// propose y' by sampling i.i.d.
+				Trie n = root;
+				boolean seen = true;
+				for(int j : m_Chain) {
+					double d[];
+					if (n != null && n.dist != null) {
+						d = n.dist;
+					}
+					else {
+						nodes[j].updateTransform(x_[j],y);		// set the parents sampled so far
+						Instance t_ = nodes[j].template(x_[j]);
+						t_.setWeight(weight);
+						d = nodes[j].distributionT(t_);			// e.g., [0.4, 0.6]
+						if (n != null)
+							n.dist = d;
+					}
+					int v = A.samplePMF(d,r);						// e.g., 0
+					y[j] = v;
+					conf[j] = d[v];									// e.g., 0.4
+					if (n != null) {
+						if (n.children == null)
+							n.children = new Trie[d.length];
+						Trie c = n.children[v];
+						if (c == null) {
+							seen = false;
+							if (size < MAX_TRIE_SIZE) {
+								c = new Trie();
+								n.children[v] = c;
+								size++;
+							}
+						}
+						n = c;
+					}
+					else {
+						seen = false;
+					}
+				}
+				// (rated before, and w never decreases)
+				if (seen)
+					continue;
+				// rate y' as w'
+				double w_ = A.product(conf);
+				mass += w_;
+				if (w_ > w) {										// accept ?
+					w = w_;
+					System.arraycopy(y,0,y_best,0,y.length);
+				}
+				// no label vector not sampled yet can be more probable (only known as long as all vectors are stored)
+				if (m_EarlyStopping && size < MAX_TRIE_SIZE && w > 1.0 - mass)
+					break;
+			}
+			return null;
+		}
+	}
+
 	@Override
 	public Enumeration listOptions() {
 		Vector result = new Vector();
 		result.addElement(new Option("\t"+chainIterationsTipText()+"\n\tdefault: 0", "Is", 1, "-Is <value>"));
 		result.addElement(new Option("\t"+inferenceIterationsTipText()+"\n\tdefault: 10", "Iy", 1, "-Iy <value>"));
 		result.addElement(new Option("\t"+payoffTipText()+"\n\tdefault: Exact match", "P", 1, "-P <value>"));
+		result.addElement(new Option("\t"+numProposalsTipText()+"\n\tdefault: 1", "num-proposals", 1, "-num-proposals <value>"));
+		result.addElement(new Option("\t"+inferenceStreamsTipText()+"\n\tdefault: 0", "inference-streams", 1, "-inference-streams <value>"));
+		result.addElement(new Option("\t"+earlyStoppingTipText(), "early-stopping", 0, "-early-stopping"));
 		OptionUtils.add(result, super.listOptions());
 		return OptionUtils.toEnumeration(result);
 	}
@@ -170,6 +485,9 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		setChainIterations(OptionUtils.parse(options, "Is", 0));
 		setInferenceIterations(OptionUtils.parse(options, "Iy", 10));
 		setPayoff(OptionUtils.parse(options, 'P', "Exact-match-test"));
+		setNumProposals(OptionUtils.parse(options, "num-proposals", 1));
+		setInferenceStreams(OptionUtils.parse(options, "inference-streams", 0));
+		setEarlyStopping(Utils.getFlag("early-stopping", options));
 		super.setOptions(options);
 	}
 
@@ -179,6 +497,12 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		OptionUtils.add(result, "Is", getChainIterations());
 		OptionUtils.add(result, "Iy", getInferenceIterations());
 		OptionUtils.add(result, 'P', getPayoff());
+		// only when not the default, to keep the commandlines of existing setups (eg in experiment results) unchanged
+		if (getNumProposals() != 1)
+			OptionUtils.add(result, "num-proposals", getNumProposals());
+		if (getInferenceStreams() != 0)
+			OptionUtils.add(result, "inference-streams", getInferenceStreams());
+		OptionUtils.add(result, "early-stopping", getEarlyStopping());
 		OptionUtils.add(result, super.getOptions());
 		return OptionUtils.toArray(result);
 	}
@@ -225,6 +549,42 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		return "Sets the payoff function. Any of those listed in regular evaluation output will do (e.g., 'Exact match').";
 	}
 
+	public void setNumProposals(int n) {
+		m_NumProposals = n;
+	}
+
+	public int getNumProposals() {
+		return m_NumProposals;
+	}
+
+	public String numProposalsTipText() {
+		return "The number of chains proposed in each iteration of the chain search, which get built and rated in parallel (see number of threads); the best one is accepted if it improves the payoff.";
+	}
+
+	public void setInferenceStreams(int n) {
+		m_InferenceStreams = n;
+	}
+
+	public int getInferenceStreams() {
+		return m_InferenceStreams;
+	}
+
+	public String inferenceStreamsTipText() {
+		return "The number of independent random number streams to split the inference iterations across, which run in parallel (see number of threads) if the base classifier is thread-safe; 0 draws all samples with the random number generator of the classifier.";
+	}
+
+	public void setEarlyStopping(boolean b) {
+		m_EarlyStopping = b;
+	}
+
+	public boolean getEarlyStopping() {
+		return m_EarlyStopping;
+	}
+
+	public String earlyStoppingTipText() {
+		return "Whether to stop sampling (in each stream) once the best label vector found is more probable than the remaining probability mass, i.e., than any vector not sampled yet.";
+	}
+
 	@Override
 	public String globalInfo() {
 		return "Classifier Chains with Monte Carlo optimization. " + "For more information see:\n" + getTechnicalInformation().toString();
@@ -251,6 +611,16 @@ public class MCC extends CC implements TechnicalInformationHandler, MultiTargetC
 		return result;
 	}
 
+	/**
+	 * Returns false, as the shared random number generator gets used for sampling chains.
+	 *
+	 * @return	always false
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	public static void main(String args[]) {
 		ProblemTransformationMethod.evaluation(new MCC(), args);
 	}
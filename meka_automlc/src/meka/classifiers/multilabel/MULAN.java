@@ -227,6 +227,16 @@ public class MULAN extends ProblemTransformationMethod {
 		return y;
 	}
 
+	/**
+	 * Returns false, as the thread-safety of the MULAN classifiers is unknown.
+	 *
+	 * @return	always false
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
@@ -19,7 +19,8 @@ import java.util.HashMap;
 
 import weka.core.Instance;
 import weka.core.Instances;
-import meka.core.MLUtils;
+import meka.core.A;
+import meka.core.LabelVector;
 import meka.classifiers.multitarget.MultiTargetClassifier;
 import weka.core.RevisionUtils;
 
@@ -36,7 +37,7 @@ public class MajorityLabelset extends AbstractMultiLabelClassifier implements Mu
 	private static final long serialVersionUID = -5932291001079843869L;
 	
 	protected double prediction[] = null;
-	protected HashMap<String,Double> classFreqs = new HashMap<String,Double>();
+	protected HashMap<LabelVector,Double> classFreqs = new HashMap<LabelVector,Double>();
 
 	protected double maxValue = 0.0;
 
@@ -51,14 +52,19 @@ public class MajorityLabelset extends AbstractMultiLabelClassifier implements Mu
 	}
 
 	protected void updateCount(Instance x, int L) {
-		String y = MLUtils.toBitString(x,L);
+		int values[] = new int[L];
+		for(int j = 0; j < L; j++) {
+			values[j] = (int)Math.round(x.value(j));
+		}
+		LabelVector y = new LabelVector(values);
 
-		if (classFreqs.containsKey(y)) {
-			double freq = classFreqs.get(y)+x.weight();
+		Double count = classFreqs.get(y);
+		if (count != null) {
+			double freq = count+x.weight();
 			classFreqs.put(y, freq);
 			if (maxValue < freq) {
 				maxValue = freq;
-				this.prediction = MLUtils.fromBitString(y);
+				this.prediction = A.toDoubleArray(y.values);
 			}
 		} else {
 			classFreqs.put(y, x.weight());
@@ -83,6 +89,16 @@ public class MajorityLabelset extends AbstractMultiLabelClassifier implements Mu
 		return prediction;
 	}
 
+	/**
+	 * Returns true, as the prediction is fixed once built.
+	 *
+	 * @return	true if thread-safe
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	public static void main(String args[]) {
 		AbstractMultiLabelClassifier.evaluation(new MajorityLabelset(), args);
 	}
@@ -21,6 +21,7 @@
 package meka.classifiers.multilabel;
 
 import weka.classifiers.Classifier;
+import weka.core.Instances;
 import weka.core.OptionHandler;
 
 /**
@@ -60,4 +61,24 @@ public interface MultiLabelClassifier
 	 * @return      the model
 	 */
 	public String getModel();
+
+	/**
+	 * Returns the predictions for all the instances, with the label values
+	 * of the instances being hidden from the classifier.
+	 * See {@link AbstractMultiLabelClassifier#distributionForInstances(MultiLabelClassifier, Instances, int, int)}
+	 * for the default implementation.
+	 *
+	 * @param D	the instances to make predictions for
+	 * @return	the predictions, one row per instance
+	 * @throws Exception	if prediction fails
+	 */
+	public double[][] distributionForInstances(Instances D) throws Exception;
+
+	/**
+	 * Returns whether distributionForInstance can be called concurrently from
+	 * multiple threads. If not, batch predictions are made sequentially.
+	 *
+	 * @return	true if thread-safe
+	 */
+	public boolean isThreadSafe();
 }
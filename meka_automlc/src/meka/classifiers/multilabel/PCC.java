@@ -17,37 +17,105 @@ package meka.classifiers.multilabel;
 
 import weka.core.*;
 import meka.core.A;
+import meka.core.OptionUtils;
 import weka.core.TechnicalInformation.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * PCC.java - (Bayes Optimal) Probabalistic Classifier Chains.
  * Exactly like CC at build time, but explores all possible paths as inference at test time (hence, 'Bayes optimal'). <br>
+ * The paths form a probability tree along the chain, which is searched from the root, evaluating the node of each prefix (i.e., the base classifier of the next label in the chain) only once:
+ * <ul>
+ * <li>exact: uniform-cost search, which finds the Bayes-optimal labelset (ties are broken as an enumeration of all labelsets would, with y[0] changing fastest);</li>
+ * <li>beam: beam search, keeping the given number of most probable prefixes at each level (a width of 1 gives the CC prediction);</li>
+ * <li>epsilon: uniform-cost search that only follows prefixes with a probability of at least epsilon (and the most probable child of each prefix), 0 gives exact inference, 0.5 the CC prediction.</li>
+ * </ul>
+ * As the uniform-cost search can evaluate exponentially many nodes (e.g., with confidences close to 0.5), the number of node evaluations per instance can be limited; when that budget is used up before a complete path was found, beam search is used instead. <br>
+ * The number of node evaluations made at test time is available as additional measure 'measureNodeEvaluations'. <br>
  * This version is multi-target capable. <br>
  * See: Dembczynsky et al, <i>Bayes Optimal Multi-label Classification via Probabalistic Classifier Chains</i>, ICML 2010.
+ * See: Kumar et al, <i>Beam search algorithms for multilabel learning</i>, Machine Learning, 2013.
  *
  * @author Jesse Read (jesse@tsc.uc3m.es)
  * @version	November 2012
  */
-public class PCC extends CC implements TechnicalInformationHandler{
+public class PCC extends CC implements TechnicalInformationHandler, AdditionalMeasureProducer {
 	private static final long serialVersionUID = -7669951968300150007L; // MT Capable
 
+	/** exact inference (uniform-cost search) */
+	public static final String INFERENCE_EXACT = "exact";
+
+	/** beam search */
+	public static final String INFERENCE_BEAM = "beam";
+
+	/** epsilon-approximate inference */
+	public static final String INFERENCE_EPSILON = "epsilon";
+
+	protected String m_Inference = INFERENCE_EXACT;
+
+	protected int m_BeamWidth = 10;
+
+	protected double m_Epsilon = 0.25;
+
+	/** the maximum number of node evaluations of the uniform-cost search per instance (0 for no limit) */
+	protected int m_MaxEvaluations = 0;
+
+	/** the number of node evaluations made at test time (since building) */
+	protected AtomicLong m_NodeEvaluations = new AtomicLong();
+
 	/**
-	 * Push - increment y[0] until = K[0], then reset and start with y[0], etc ...
-	 * Basically a counter.
-	 * @return	True if finished
+	 * Prefix - a node in the probability tree of the chain, i.e., values for the first 'depth' labels of the chain.
 	 */
-	private static boolean push(double y[], int K[], int j) {
-		if (j >= y.length) {
-			return true;
+	protected static class Prefix implements Comparable<Prefix> {
+
+		/** the prefix without the last label (null for the root) */
+		public final Prefix parent;
+
+		/** the number of labels of the chain covered */
+		public final int depth;
+
+		/** the value of the last label */
+		public final int value;
+
+		/** p(y_last = value | x, parent) */
+		public final double conf;
+
+		/** p(y_1,...,y_depth | x) */
+		public final double p;
+
+		/** the order of creation (to break ties) */
+		public final long seq;
+
+		public Prefix(Prefix parent, int value, double conf, double p, long seq) {
+			this.parent = parent;
+			this.depth = (parent == null) ? 0 : parent.depth + 1;
+			this.value = value;
+			this.conf = conf;
+			this.p = p;
+			this.seq = seq;
 		}
-		else if (y[j] < K[j]-1) {
-			y[j]++;
-			return false;
+
+		/**
+		 * Fill - write the values (and confidences) of the prefix into y (and conf), indexed by label.
+		 * @param	chain	the chain
+		 * @param	y		the values
+		 * @param	conf	the confidences (null to skip)
+		 */
+		public void fill(int chain[], double y[], double conf[]) {
+			for(Prefix n = this; n.parent != null; n = n.parent) {
+				y[chain[n.depth-1]] = n.value;
+				if (conf != null)
+					conf[chain[n.depth-1]] = n.conf;
+			}
 		}
-		else {
-			y[j] = 0.0;
-			return push(y,K,++j);
+
+		/** more probable prefixes first, then in order of creation */
+		@Override
+		public int compareTo(Prefix o) {
+			if (p != o.p)
+				return (p > o.p) ? -1 : 1;
+			return (seq < o.seq) ? -1 : ((seq == o.seq) ? 0 : 1);
 		}
 	}
 
@@ -78,6 +146,136 @@ public class PCC extends CC implements TechnicalInformationHandler{
 		return p;
 	}
 
+	/**
+	 * Before - whether labelset y comes before labelset y_ when enumerating all labelsets, changing y[0] fastest.
+	 */
+	private static boolean before(double y[], double y_[]) {
+		for(int j = y.length-1; j >= 0; j--) {
+			if (y[j] != y_[j])
+				return y[j] < y_[j];
+		}
+		return false;
+	}
+
+	@Override
+	public void buildClassifier(Instances D) throws Exception {
+		if (!m_Inference.equals(INFERENCE_EXACT) && !m_Inference.equals(INFERENCE_BEAM) && !m_Inference.equals(INFERENCE_EPSILON))
+			throw new Exception("Unknown inference '"+m_Inference+"', use one of: "+INFERENCE_EXACT+", "+INFERENCE_BEAM+", "+INFERENCE_EPSILON);
+		if ((m_Inference.equals(INFERENCE_BEAM) || m_MaxEvaluations > 0) && m_BeamWidth < 1)
+			throw new Exception("The beam width must be at least 1, provided: "+m_BeamWidth);
+		if (m_MaxEvaluations < 0)
+			throw new Exception("The maximum number of node evaluations must be at least 0, provided: "+m_MaxEvaluations);
+		m_NodeEvaluations.set(0);
+		super.buildClassifier(D);
+	}
+
+	/**
+	 * Evaluate - the distribution of the next node in the chain, given prefix n.
+	 * @param	x	the test instance
+	 * @param	n	the prefix
+	 * @param	y	a buffer for the label values
+	 * @return	p(y_{depth+1} | x, n)
+	 */
+	protected double[] evaluate(Instance x, Prefix n, double y[]) throws Exception {
+		n.fill(m_Chain,y,null);
+		m_NodeEvaluations.incrementAndGet();
+		return nodes[m_Chain[n.depth]].distribution(x,y);
+	}
+
+	/**
+	 * SearchUniformCost - search the probability tree best first, the first complete path found is the most probable one (among those searched).
+	 * @param	x		the test instance
+	 * @param	epsilon	prefixes with a probability below epsilon are only followed if they are the most probable child of their parent (0 for exact search)
+	 * @param	budget	the maximum number of node evaluations (0 for no limit); once used up, the best complete path found so far is returned, or if there is none, the result of beam search
+	 * @return	the most probable path, null if all paths have zero probability
+	 */
+	protected Prefix searchUniformCost(Instance x, double epsilon, int budget) throws Exception {
+		int L = m_Chain.length;
+		double y[] = new double[L];
+		double y_best[] = new double[L];
+		double y_[] = new double[L];
+		long seq = 0;
+		PriorityQueue<Prefix> queue = new PriorityQueue<>();
+		Prefix best = null;
+		int evaluations = 0;
+
+		queue.add(new Prefix(null,-1,1.0,1.0,seq++));
+		while (!queue.isEmpty()) {
+			Prefix n = queue.poll();
+			// no remaining path can do better (nor tie)
+			if (best != null && n.p < best.p)
+				break;
+			if (n.depth == L) {
+				if (best == null) {
+					best = n;
+					best.fill(m_Chain,y_best,null);
+				}
+				else {
+					n.fill(m_Chain,y_,null);
+					if (before(y_,y_best)) {
+						best = n;
+						System.arraycopy(y_,0,y_best,0,L);
+					}
+				}
+				continue;
+			}
+			if (budget > 0 && evaluations >= budget) {
+				if (getDebug())
+					System.out.println("Used up the budget of "+budget+" node evaluations, "+((best == null) ? "falling back to beam search" : "using the best path found"));
+				return (best == null) ? searchBeam(x,m_BeamWidth) : best;
+			}
+			double d[] = evaluate(x,n,y);
+			evaluations++;
+			int max = Utils.maxIndex(d);
+			for(int k = 0; k < d.length; k++) {
+				double p = n.p * d[k];
+				if (p > 0.0 && (p >= epsilon || k == max))
+					queue.add(new Prefix(n,k,d[k],p,seq++));
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * SearchBeam - search the probability tree level by level, keeping the 'width' most probable prefixes of each level.
+	 * @param	x		the test instance
+	 * @param	width	the beam width
+	 * @return	the most probable path found, null if it has zero probability
+	 */
+	protected Prefix searchBeam(Instance x, int width) throws Exception {
+		int L = m_Chain.length;
+		double y[] = new double[L];
+		long seq = 0;
+		List<Prefix> beam = new ArrayList<>();
+
+		beam.add(new Prefix(null,-1,1.0,1.0,seq++));
+		for(int i = 0; i < L; i++) {
+			PriorityQueue<Prefix> children = new PriorityQueue<>();
+			for(Prefix n : beam) {
+				double d[] = evaluate(x,n,y);
+				for(int k = 0; k < d.length; k++) {
+					children.add(new Prefix(n,k,d[k],n.p * d[k],seq++));
+				}
+			}
+			beam = new ArrayList<>(width);
+			while (beam.size() < width && !children.isEmpty()) {
+				beam.add(children.poll());
+			}
+		}
+
+		Prefix best = beam.get(0);
+		return (best.p > 0.0) ? best : null;
+	}
+
+	/**
+	 * Predictions are made instance by instance, see #distributionForInstance(Instance).
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return false;
+	}
+
 	@Override
 	public double[] distributionForInstance(Instance xy) throws Exception {
 
@@ -85,39 +283,135 @@ public class PCC extends CC implements TechnicalInformationHandler{
 
 		double y[] = new double[L];
 		double conf[] = new double[L];
-		double w  = 0.0;
 
-		/*
-		 * e.g. K = [3,3,5]
-		 * we push y_[] from [0,0,0] to [2,2,4] over all necessary iterations.
-		 */
 		int K[] = getKs(xy.dataset());
 		if (getDebug()) 
 			System.out.println("K[] = "+Arrays.toString(K));
-		double y_[] = new double[L]; 
-
-		for(int i = 0; i < 1000000; i++) { // limit to 1m
-			double conf_[] = super.probabilityForInstance(xy,y_);
-			double w_  = A.product(conf_);
-			//System.out.println(""+i+" "+Arrays.toString(y_)+" "+w_+" "+Arrays.toString(conf_)+"/"+Arrays.toString(convertConfidenceToProbability(y_,conf_)));
-			if (w_ > w) {
-				if (getDebug()) System.out.println("y' = "+Arrays.toString(y_)+", :"+w_);
-				y = Arrays.copyOf(y_,y_.length);
-				w = w_;
-				conf = conf_;
-			}
-			if (push(y_,K,0)) {
-				// Done !
-				if (getDebug())
-					System.out.println("Tried all "+(i+1)+" combinations.");
-				break;
-			}
-		}
+
+		long evaluations = m_NodeEvaluations.get();
+		Prefix best;
+		if (m_Inference.equals(INFERENCE_BEAM))
+			best = searchBeam(xy,m_BeamWidth);
+		else if (m_Inference.equals(INFERENCE_EPSILON))
+			best = searchUniformCost(xy,m_Epsilon,m_MaxEvaluations);
+		else
+			best = searchUniformCost(xy,0.0,m_MaxEvaluations);
+
+		// (if all paths have zero probability, y stays [0,...,0])
+		if (best != null)
+			best.fill(m_Chain,y,conf);
+		if (getDebug())
+			System.out.println("y' = "+Arrays.toString(y)+", :"+((best == null) ? 0.0 : best.p)+" ("+(m_NodeEvaluations.get()-evaluations)+" node evaluations)");
 
 		// If it's multi-label (binary only), return the probabilistic output (else just the values).
 		return (A.max(K) > 2) ? y : convertConfidenceToProbability(conf,y); //return p_y; //y;
 	}
 
+	/**
+	 * Returns the number of node evaluations made at test time since the classifier was built.
+	 */
+	public long getNodeEvaluations() {
+		return m_NodeEvaluations.get();
+	}
+
+	@Override
+	public Enumeration enumerateMeasures() {
+		Vector result = new Vector();
+		result.addElement("measureNodeEvaluations");
+		return result.elements();
+	}
+
+	@Override
+	public double getMeasure(String measureName) {
+		if (measureName.equals("measureNodeEvaluations"))
+			return getNodeEvaluations();
+		throw new IllegalArgumentException("Measure '"+measureName+"' not supported!");
+	}
+
+	public void setInference(String inference) {
+		m_Inference = inference;
+	}
+
+	public String getInference() {
+		return m_Inference;
+	}
+
+	public String inferenceTipText() {
+		return "The inference: "+INFERENCE_EXACT+" (uniform-cost search for the Bayes-optimal labelset), "+INFERENCE_BEAM+" (beam search) or "+INFERENCE_EPSILON+" (epsilon-approximate inference).";
+	}
+
+	public void setBeamWidth(int width) {
+		m_BeamWidth = width;
+	}
+
+	public int getBeamWidth() {
+		return m_BeamWidth;
+	}
+
+	public String beamWidthTipText() {
+		return "The number of prefixes to keep at each level of the beam search (1 gives the CC prediction).";
+	}
+
+	public void setEpsilon(double epsilon) {
+		m_Epsilon = epsilon;
+	}
+
+	public double getEpsilon() {
+		return m_Epsilon;
+	}
+
+	public String epsilonTipText() {
+		return "The minimum probability of the prefixes to follow in epsilon-approximate inference (0 gives exact inference, 0.5 the CC prediction).";
+	}
+
+	public void setMaxEvaluations(int max) {
+		m_MaxEvaluations = max;
+	}
+
+	public int getMaxEvaluations() {
+		return m_MaxEvaluations;
+	}
+
+	public String maxEvaluationsTipText() {
+		return "The maximum number of node evaluations per instance of the uniform-cost search (exact and epsilon inference); once used up, the best labelset found so far is used, or if there is none, beam search (0 for no limit).";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		result.addElement(new Option("\t"+inferenceTipText()+"\n\tdefault: "+INFERENCE_EXACT, "I", 1, "-I <value>"));
+		result.addElement(new Option("\t"+beamWidthTipText()+"\n\tdefault: 10", "B", 1, "-B <value>"));
+		result.addElement(new Option("\t"+epsilonTipText()+"\n\tdefault: 0.25", "E", 1, "-E <value>"));
+		result.addElement(new Option("\t"+maxEvaluationsTipText()+"\n\tdefault: 0", "max-evaluations", 1, "-max-evaluations <value>"));
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setInference(OptionUtils.parse(options, 'I', INFERENCE_EXACT));
+		setBeamWidth(OptionUtils.parse(options, 'B', 10));
+		setEpsilon(OptionUtils.parse(options, 'E', 0.25));
+		setMaxEvaluations(OptionUtils.parse(options, "max-evaluations", 0));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		// only when not the default, to keep the commandlines of existing setups (eg in experiment results) unchanged
+		if (!getInference().equals(INFERENCE_EXACT))
+			OptionUtils.add(result, 'I', getInference());
+		if (getBeamWidth() != 10)
+			OptionUtils.add(result, 'B', getBeamWidth());
+		if (getEpsilon() != 0.25)
+			OptionUtils.add(result, 'E', getEpsilon());
+		if (getMaxEvaluations() != 0)
+			OptionUtils.add(result, "max-evaluations", getMaxEvaluations());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
 	@Override
 	public String globalInfo() {
 		return "Probabalistic Classifier Chains. " + "For more information see:\n" + getTechnicalInformation().toString();
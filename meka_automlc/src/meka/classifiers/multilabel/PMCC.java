@@ -207,6 +207,14 @@ public class PMCC extends MCC {
 
 	}
 
+	/**
+	 * Predictions are made instance by instance, see #distributionForInstance(Instance).
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return false;
+	}
+
 	@Override
 	public double[] distributionForInstance(Instance x) throws Exception {
 
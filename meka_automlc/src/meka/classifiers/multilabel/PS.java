@@ -201,6 +201,7 @@ public class PS extends LC implements Randomizable, TechnicalInformationHandler
 		// Transform
 		Instances D_ = PSUtils.PSTransformation(D,L,m_P,m_N); 
 		m_InstancesTemplate = new Instances(D_,0);
+		m_LabelSets = PSUtils.makeLabelSetMap(m_InstancesTemplate);
 
 		// Info
 		if(getDebug()) System.out.println("("+m_InstancesTemplate.attribute(0).numValues()+" classes, "+D_.numInstances()+" ins. )");
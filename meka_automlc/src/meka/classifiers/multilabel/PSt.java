@@ -15,7 +15,11 @@
 
 package meka.classifiers.multilabel;
 
+import weka.core.AdditionalMeasureProducer;
 import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import meka.core.OptionUtils;
 import meka.core.PSUtils;
 import weka.core.RevisionUtils;
 import weka.core.TechnicalInformation;
@@ -23,18 +27,37 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 import weka.core.TechnicalInformationHandler;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
 /**
  * PSt.java -  Pruned Sets with a a threshold so as to be able to predict sets not seen in the training set.
  * <br>
+ * Optionally, only the most probable combinations (the top k, or as many as hold a given fraction of the posterior mass) are recombined;
+ * the posterior mass that gets left out (the truncation error) is available as an additional measure.
+ * <br>
  * See: Jesse Read. <i>A Pruned Problem Transformation Method for Multi-label Classification</i>. In Proc. of the NZ Computer Science Research Student Conference. Christchurch, New Zealand (2008).
  * @see PS
  * @author 	Jesse Read (jmr30@cs.waikato.ac.nz)
  */
-public class PSt extends PS implements TechnicalInformationHandler {
+public class PSt extends PS implements TechnicalInformationHandler, AdditionalMeasureProducer {
 
 	/** for serialization. */
 	private static final long serialVersionUID = -792705184263116856L;
 
+	/** the maximum number of combinations to recombine, 0 for all */
+	protected int m_TopK = 0;
+
+	/** the fraction of the posterior mass to recombine (at least), 1 for all */
+	protected double m_TopMass = 1.0;
+
+	/** the truncated predictions, and the sum and maximum of their truncation errors (at test time) */
+	protected long m_Truncated = 0;
+	protected double m_TruncationError = 0.0;
+	protected double m_MaxTruncationError = 0.0;
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -61,6 +84,52 @@ public class PSt extends PS implements TechnicalInformationHandler {
 		return result;
 	}
 
+	@Override
+	public void buildClassifier(Instances D) throws Exception {
+		resetMeasures();
+		super.buildClassifier(D);
+	}
+
+	/**
+	 * ResetMeasures - reset the truncation errors of the test-time measures.
+	 */
+	protected synchronized void resetMeasures() {
+		m_Truncated = 0;
+		m_TruncationError = 0.0;
+		m_MaxTruncationError = 0.0;
+	}
+
+	/**
+	 * RecordTruncation - record the truncation error of a prediction.
+	 */
+	protected synchronized void recordTruncation(double error) {
+		m_Truncated++;
+		m_TruncationError += error;
+		m_MaxTruncationError = Math.max(m_MaxTruncationError, error);
+	}
+
+	/**
+	 * Recombination - the distribution across labels, from the posterior p across combinations,
+	 * only considering the top combinations, if so specified.
+	 */
+	protected double[] recombination(double p[], int L) {
+		if (m_TopK <= 0 && m_TopMass >= 1.0)
+			return PSUtils.recombination_t(p,L,getLabelSets());
+
+		int top[] = PSUtils.topIndices(p,m_TopK,m_TopMass);
+		double total = 0.0;
+		for(double v : p) {
+			total += v;
+		}
+		double kept = 0.0;
+		for(int k : top) {
+			kept += p[k];
+		}
+		recordTruncation(total > 0.0 ? (total - kept) / total : 0.0);
+
+		return PSUtils.recombination_t(p,L,getLabelSets(),top);
+	}
+
 	@Override
 	public double[] distributionForInstance(Instance x) throws Exception {
 
@@ -73,7 +142,79 @@ public class PSt extends PS implements TechnicalInformationHandler {
 		//x_.setDataset(m_InstancesTemplate);
 
 		// Get a classification
-		return PSUtils.recombination_t(m_Classifier.distributionForInstance(x_),L,m_InstancesTemplate);
+		return recombination(m_Classifier.distributionForInstance(x_),L);
+	}
+
+	public int getTopK() {
+		return m_TopK;
+	}
+
+	public void setTopK(int topK) {
+		m_TopK = topK;
+	}
+
+	public String topKTipText() {
+		return "The maximum number of (most probable) combinations to recombine into the label distribution; 0 for all.";
+	}
+
+	public double getTopMass() {
+		return m_TopMass;
+	}
+
+	public void setTopMass(double topMass) {
+		m_TopMass = topMass;
+	}
+
+	public String topMassTipText() {
+		return "The fraction of the posterior mass that the recombined (most probable) combinations need to hold; 1 for all.";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		result.addElement(new Option("\t"+topKTipText()+"\n\tdefault: 0", "top-k", 1, "-top-k <value>"));
+		result.addElement(new Option("\t"+topMassTipText()+"\n\tdefault: 1.0", "top-mass", 1, "-top-mass <value>"));
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setTopK(OptionUtils.parse(options, "top-k", 0));
+		setTopMass(OptionUtils.parse(options, "top-mass", 1.0));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String [] getOptions() {
+		List<String> result = new ArrayList<>();
+		// only when not the default, to keep the commandlines of existing setups (eg in experiment results) unchanged
+		if (getTopK() != 0)
+			OptionUtils.add(result, "top-k", getTopK());
+		if (getTopMass() != 1.0)
+			OptionUtils.add(result, "top-mass", getTopMass());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
+	@Override
+	public Enumeration enumerateMeasures() {
+		Vector result = new Vector();
+		result.addElement("measureTruncatedPredictions");
+		result.addElement("measureTruncationError");
+		result.addElement("measureMaxTruncationError");
+		return result.elements();
+	}
+
+	@Override
+	public synchronized double getMeasure(String measureName) {
+		if (measureName.equals("measureTruncatedPredictions"))
+			return m_Truncated;
+		if (measureName.equals("measureTruncationError"))
+			return (m_Truncated > 0) ? m_TruncationError / m_Truncated : 0.0;
+		if (measureName.equals("measureMaxTruncationError"))
+			return m_MaxTruncationError;
+		throw new IllegalArgumentException("Measure '"+measureName+"' not supported!");
 	}
 
 	@Override
@@ -16,12 +16,21 @@
 package meka.classifiers.multilabel;
 
 import meka.classifiers.multilabel.incremental.IncrementalEvaluation;
+import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
 import weka.classifiers.SingleClassifierEnhancer;
 import weka.classifiers.UpdateableClassifier;
 import weka.classifiers.trees.J48;
 import weka.core.*;
 import weka.core.Capabilities.Capability;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+
 /**
  *  MultilabelClassifier.java - A Multilabel Classifier.
  * 	@author Jesse Read
@@ -30,7 +39,7 @@ import weka.core.Capabilities.Capability;
 
 public abstract class ProblemTransformationMethod
 		extends SingleClassifierEnhancer
-		implements MultiLabelClassifier {
+		implements MultiLabelClassifier, ThreadLimiter {
 
 	/** for serialization. */
 	private static final long serialVersionUID = 1713843369766127169L;
@@ -38,6 +47,9 @@ public abstract class ProblemTransformationMethod
 	/** A Template for Problem Transformations */
 	protected Instances m_InstancesTemplate;
 
+	/** the number of threads to use for building the models. */
+	protected int m_NumThreads = getDefaultNumThreads();
+
 	/**
 	 * Description to display in the GUI.
 	 * 
@@ -77,6 +89,118 @@ public abstract class ProblemTransformationMethod
 		return m_InstancesTemplate;
 	}
 
+	/**
+	 * Returns the default number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	protected int getDefaultNumThreads() {
+		return ThreadUtils.SEQUENTIAL;
+	}
+
+	/**
+	 * Sets the number of threads to use for building the models.
+	 *
+	 * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public void setNumThreads(int value) {
+		if (value >= -1)
+			m_NumThreads = value;
+		else if (getDebug())
+			System.out.println("Number of threads must be >= -1, provided: " + value);
+	}
+
+	/**
+	 * Returns the number of threads to use for building the models.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return 		tip text for this property suitable for
+	 * 			displaying in the GUI or for listing the options.
+	 */
+	public String numThreadsTipText() {
+		return "The number of models (eg per label) to build in parallel, if supported by the method; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
+	@Override
+	public Enumeration listOptions() {
+		Vector result = new Vector();
+		OptionUtils.addOption(result, numThreadsTipText(), "" + getDefaultNumThreads(), "num-threads");
+		OptionUtils.add(result, super.listOptions());
+		return OptionUtils.toEnumeration(result);
+	}
+
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setNumThreads(OptionUtils.parse(options, "num-threads", getDefaultNumThreads()));
+		super.setOptions(options);
+	}
+
+	@Override
+	public String[] getOptions() {
+		List<String> result = new ArrayList<>();
+		// only when not the default, to keep the commandlines of existing setups (eg in experiment results) unchanged
+		if (getNumThreads() != getDefaultNumThreads())
+			OptionUtils.add(result, "num-threads", getNumThreads());
+		OptionUtils.add(result, super.getOptions());
+		return OptionUtils.toArray(result);
+	}
+
+	/**
+	 * Estimates the memory that a copy of the dataset occupies.
+	 *
+	 * @param D		the dataset
+	 * @return		the estimated size in bytes
+	 */
+	protected static long estimateMemory(Instances D) {
+		long	values;
+		int	n;
+		int	i;
+
+		if (D.numInstances() == 0)
+			return 0;
+
+		// average number of stored values, from up to 100 instances
+		n      = Math.min(100, D.numInstances());
+		values = 0;
+		for (i = 0; i < n; i++)
+			values += D.instance(i).numValues();
+
+		// values (plus indices for sparse data) and instance object
+		return (long) D.numInstances() * (values * 12 / n + 48);
+	}
+
+	/**
+	 * Runs the jobs, eg for building the models of a transformation, using up to
+	 * getNumThreads() threads. The number of threads is further limited so that the
+	 * memory that the running jobs require (eg for their transformed datasets) fits into
+	 * the available heap. The jobs must not depend on each other; when running
+	 * sequentially, they get executed in the order of the list. The jobs run on the
+	 * shared executor (see {@link ThreadUtils#invokeAll(List, int)}), ie sequentially
+	 * when already running on one of its threads.
+	 *
+	 * @param jobs		the jobs to run
+	 * @param bytesPerJob	the estimated memory a running job requires, 0 if unknown
+	 * @throws Exception	the exception of the first failed job (in the order of the list)
+	 */
+	protected void runJobs(List<Callable<Object>> jobs, long bytesPerJob) throws Exception {
+		int	numThreads;
+
+		numThreads = Math.min(ThreadUtils.getActualNumThreads(m_NumThreads, jobs.size()), jobs.size());
+		numThreads = ThreadUtils.getMemoryLimitedNumThreads(numThreads, bytesPerJob);
+		if (getDebug() && (numThreads > ThreadUtils.SEQUENTIAL) && !ThreadUtils.isWorkerThread())
+			System.out.println("Running " + jobs.size() + " jobs using " + numThreads + " threads");
+
+		ThreadUtils.invokeAll(jobs, numThreads);
+	}
+
 	/**
 	 * TestCapabilities.
 	 * Make sure the training data is suitable.
@@ -116,6 +240,33 @@ public abstract class ProblemTransformationMethod
 	@Override
 	public abstract double[] distributionForInstance(Instance i) throws Exception;
 
+	/**
+	 * Returns the predictions for all the instances, processing chunks of
+	 * getBatchSize() instances in parallel if the classifier is thread-safe.
+	 *
+	 * @param D	the instances to make predictions for
+	 * @return	the predictions, one row per instance
+	 * @throws Exception	if prediction fails
+	 */
+	@Override
+	public double[][] distributionForInstances(Instances D) throws Exception {
+		return AbstractMultiLabelClassifier.distributionForInstances(this, D, ThreadUtils.ALL, AbstractMultiLabelClassifier.getChunkSize(getBatchSize()));
+	}
+
+	/**
+	 * Returns whether distributionForInstance can be called concurrently from
+	 * multiple threads. False by default, as the transformations may reuse
+	 * instances or other state at prediction time; subclasses opt in once
+	 * checked, usually depending on the base classifier
+	 * (see {@link AbstractMultiLabelClassifier#isThreadSafeClassifier(weka.classifiers.Classifier)}).
+	 *
+	 * @return	true if thread-safe
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
@@ -64,14 +64,13 @@ public class RAkEL extends RAkELd {
 		m_InstancesTemplates = new Instances[m_M];
 		kMap = new int[m_M][m_K];
 		m_Classifiers = AbstractClassifier.makeCopies(m_Classifier,m_M);
+		// (draw all the subsets first, so that the models can get built in parallel)
 		for(int i = 0; i < m_M; i++) {
 			kMap[i] = SuperLabelUtils.get_k_subset(L,m_K,r);
 			if (getDebug()) 
 				System.out.println("\tmodel "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i])+", P="+m_P+", N="+m_N);
-			Instances D_i = SuperLabelUtils.makePartitionDataset(D,kMap[i],m_P,m_N);
-			m_Classifiers[i].buildClassifier(D_i);
-			m_InstancesTemplates[i] = new Instances(D_i,0);
 		}
+		buildModels(D,m_P,m_N);
 	}
 
 	@Override
@@ -23,6 +23,7 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * RAkELd - Takes RAndom partition of labELs; like RAkEL but labelsets are disjoint / non-overlapping subsets.
@@ -41,6 +42,8 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 	int m_K = 3;
 	int m_M = 10;
 	protected int kMap[][] = null;
+	/** the label combination of each class value, for each model (indices relative to the model's subset) */
+	protected LabelSet m_LabelSetMaps[][] = null;
 
 	/**
 	 * Description to display in the GUI.
@@ -69,19 +72,55 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 		if (getDebug())
 			System.out.println("Building "+m_M+" models of "+m_K+" partitions:");
 
-		for(int i = 0; i < m_M; i++) {
-
-			if (getDebug()) 
-				System.out.println("\tpartitioning model "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i])+", P="+m_P+", N="+m_N);
-			Instances D_i = SuperLabelUtils.makePartitionDataset(D,kMap[i],m_P,m_N);
-			if (getDebug()) 
-				System.out.println("\tbuilding model "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i]));
+		buildModels(D,m_P,m_N);
 
-			m_Classifiers[i].buildClassifier(D_i);
-			m_InstancesTemplates[i] = new Instances(D_i,0);
+	}
 
+	/**
+	 * Builds the model for each subset of labels in <code>kMap</code>, in parallel if
+	 * multiple threads are to be used.
+	 *
+	 * @param D		the training data
+	 * @param P		the pruning value
+	 * @param N		the subsampling value
+	 * @throws Exception	if building fails
+	 */
+	protected void buildModels(final Instances D, final int P, final int N) throws Exception {
+		m_LabelSetMaps = new LabelSet[m_M][];
+		List<Callable<Object>> jobs = new ArrayList<>();
+		for(int i = 0; i < m_M; i++) {
+			final int i_ = i;
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					buildModel(D,i_,P,N);
+					return null;
+				}
+			});
 		}
+		// (each subset transforms a copy of the data)
+		runJobs(jobs, 2 * estimateMemory(D));
+	}
 
+	/**
+	 * Builds the model for the i-th subset of labels in <code>kMap</code>.
+	 *
+	 * @param D		the training data
+	 * @param i		the subset
+	 * @param P		the pruning value
+	 * @param N		the subsampling value
+	 * @throws Exception	if building fails
+	 */
+	protected void buildModel(Instances D, int i, int P, int N) throws Exception {
+		if (getDebug()) 
+			System.out.println("\tpartitioning model "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i])+", P="+P+", N="+N);
+		Instances D_i = SuperLabelUtils.makePartitionDataset(D,kMap[i],P,N);
+		if (getDebug()) 
+			System.out.println("\tbuilding model "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i]));
+
+		m_Classifiers[i].buildClassifier(D_i);
+		m_InstancesTemplates[i] = new Instances(D_i,0);
+		m_LabelSetMaps[i] = PSUtils.makeLabelSetMap(m_InstancesTemplates[i]);
 	}
 
 	@Override
@@ -103,7 +142,7 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 
 			// Get a meta classification
 			int i_m = (int)m_Classifiers[m].classifyInstance(x_m);        // e.g., 2
-			int k_indices[] = mapBack(m_InstancesTemplates[m],i_m); // e.g., [3,8]
+			int k_indices[] = mapBack(m,i_m); // e.g., [3,8]
 
 			// Vote with classification
 			for (int i : k_indices) {
@@ -117,14 +156,20 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 	}
 
 	/**
-	 * mapBack: returns the original indices (encoded in the class attribute).
+	 * mapBack: returns the original indices (encoded in the class attribute) of class value i of model m.
 	 */
-	private int[] mapBack(Instances template, int i) {
-		try {
-			return MLUtils.toIntArray(template.classAttribute().value(i));
-		} catch(Exception e) {
-			return new int[]{};
+	private int[] mapBack(int m, int i) {
+		if (m_LabelSetMaps == null)
+			m_LabelSetMaps = new LabelSet[m_M][];
+		LabelSet map[] = m_LabelSetMaps[m];
+		if (map == null) {
+			// e.g., older serialized models
+			map = PSUtils.makeLabelSetMap(m_InstancesTemplates[m]);
+			m_LabelSetMaps[m] = map;
 		}
+		if (i < 0 || i >= map.length)
+			return new int[]{};
+		return map[i].indices;
 	}
 
 	@Override
@@ -178,6 +223,18 @@ public class RAkELd extends PS implements TechnicalInformationHandler {
 		return OptionUtils.toArray(result);
 	}
 
+	/**
+	 * Returns true if the base classifier is thread-safe, as the subsets are
+	 * only read at prediction time (the label set maps of models built with
+	 * older versions get recreated on first use, with the same result).
+	 *
+	 * @return	true if thread-safe
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return AbstractMultiLabelClassifier.isThreadSafeClassifier(m_Classifier);
+	}
+
 	@Override
 	public TechnicalInformation getTechnicalInformation() {
 		TechnicalInformation	result;
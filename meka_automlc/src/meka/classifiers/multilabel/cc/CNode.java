@@ -20,6 +20,8 @@ import meka.core.F;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.functions.SMO;
+import weka.core.BatchPredictor;
+import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Utils;
@@ -44,6 +46,8 @@ public class CNode implements Serializable {
 	private Instance t_ = null;
 	private Classifier h = null;
 	private int map[] = null;
+	/** the per-thread buffers for the values of transformed instances (see #distribution(Instance, double[])) */
+	private transient ThreadLocal<double[]> buffer = null;
 
 	/**
 	 * CNode - A Node 'j', taking inputs from all parents inX and paY.
@@ -107,8 +111,58 @@ public class CNode implements Serializable {
 	 * @return p( y_j = k | x , y_pred ) for k in {0,1}
 	 */
 	public double[] distribution(Instance x, double ypred[]) throws Exception {
-		Instance x_ = transform(x,ypred);
-		return h.distributionForInstance(x_);
+		// transform into the buffer of the current thread, rather than copying x
+		double x_[] = getBuffer();
+		transform(x,ypred,x_);
+		Instance t_ = new DenseInstance(x.weight(),x_);
+		t_.setDataset(T);
+		return h.distributionForInstance(t_);
+	}
+
+	/**
+	 * The distributions of this node for a batch of instances, given the predictions made so far (one row per instance).
+	 * If the classifier supports more efficient batch prediction (see BatchPredictor), it gets all the transformed instances at once.
+	 * @param	D		the instances
+	 * @param	Ypred	the values for the parents, one row per instance
+	 * @return p( y_j = k | x_i , ypred_i ) for k in {0,1}, one row per instance
+	 */
+	public double[][] distributions(Instances D, double Ypred[][]) throws Exception {
+		int N = D.numInstances();
+		double P[][] = new double[N][];
+		if (h instanceof BatchPredictor && ((BatchPredictor)h).implementsMoreEfficientBatchPrediction()) {
+			Instances D_ = new Instances(T,N);
+			for(int i = 0; i < N; i++) {
+				Instance x = D.instance(i);
+				double x_[] = new double[T.numAttributes()];
+				transform(x,Ypred[i],x_);
+				D_.add(new DenseInstance(x.weight(),x_));
+			}
+			P = ((BatchPredictor)h).distributionsForInstances(D_);
+		}
+		else {
+			for(int i = 0; i < N; i++) {
+				P[i] = distribution(D.instance(i),Ypred[i]);
+			}
+		}
+		return P;
+	}
+
+	/**
+	 * Returns the buffer of the current thread for the values of a transformed instance.
+	 * @return the buffer
+	 */
+	private double[] getBuffer() {
+		ThreadLocal<double[]> local = buffer;
+		if (local == null) {
+			local = new ThreadLocal<double[]>();
+			buffer = local;
+		}
+		double x_[] = local.get();
+		if (x_ == null || x_.length != T.numAttributes()) {
+			x_ = new double[T.numAttributes()];
+			local.set(x_);
+		}
+		return x_;
 	}
 
 	/** Same as #distribution(Instance, double[]), but the Instance is pre-transformed with ypred inside. */
@@ -130,25 +184,78 @@ public class CNode implements Serializable {
 	 * @return transformed Instance
 	 */
 	public Instance transform(Instance x, double ypred[]) throws Exception {
-		x = (Instance)x.copy();
+		double x_[] = new double[T.numAttributes()];
+		transform(x,ypred,x_);
+		x = x.copy(x_);
+		x.setDataset(T);
+		return x;
+	}
+
+	/**
+	 * Transform - turn [y1,y2,y3,x1,x2] into [y1,y2,x1,x2], writing the values directly into x_.
+	 * The features get copied once (according to the attribute map computed when building), then the parents are set to ypred and the class to missing.
+	 * @param	x		the instance to transform
+	 * @param	ypred	the values for the parents
+	 * @param	x_		the array to store the values of the transformed instance in (of length T.numAttributes())
+	 */
+	public void transform(Instance x, double ypred[], double x_[]) {
 		int L = x.classIndex();
 		int L_c = (paY.length + 1);
-		x.setDataset(null);
-		for(int j = 0; j < (L - L_c); j++) {
-			x.deleteAttributeAt(0);
+		// features
+		if (x.numValues() == x.numAttributes()) {
+			for(int i = 0; i < d; i++) {
+				x_[L_c + i] = x.value(L + i);
+			}
+		}
+		else {
+			Arrays.fill(x_, L_c, L_c + d, 0.0);
+			for(int p = 0; p < x.numValues(); p++) {
+				int i = x.index(p);
+				if (i >= L)
+					x_[i - L + L_c] = x.valueSparse(p);
+			}
 		}
+		// labels
 		for(int pa : paY) {
-			//System.out.println("x_["+map[pa]+"] <- "+ypred[pa]);
-			x.setValue(map[pa],ypred[pa]);
+			x_[map[pa]] = ypred[pa];
+		}
+		x_[map[j]] = Utils.missingValue();
+	}
+
+	/**
+	 * Template - a (dense) instance for this node that uses the array x_ for its values (without copying them), so that x_ can be refilled directly
+	 * (via #transform(Instance, double[], double[]) and #updateTransform(double[], double[])), rather than via setValue, which copies the values.
+	 * Since setValue (e.g., by the classifier of the node) detaches the instance from x_, wrap x_ anew for each use rather than keeping the template.
+	 * @param	x_	the values, of length #numAttributes()
+	 * @return	the template
+	 */
+	public Instance template(double x_[]) {
+		Instance t_ = new DenseInstance(1.0,x_);
+		t_.setDataset(T);
+		return t_;
+	}
+
+	/**
+	 * Returns the number of attributes of the instances transformed for this node.
+	 */
+	public int numAttributes() {
+		return T.numAttributes();
+	}
+
+	/**
+	 * UpdateTransform - set the parents of an instance transformed into x_ (see #transform(Instance, double[], double[])) to ypred.
+	 */
+	public void updateTransform(double x_[], double ypred[]) {
+		for(int pa : this.paY) {
+			x_[this.map[pa]] = ypred[pa];
 		}
-		x.setDataset(T);
-		x.setClassMissing();
-		return x;
 	}
 
 	public void updateTransform(Instance t_, double ypred[]) throws Exception {
 		for(int pa : this.paY) {
-			t_.setValue(this.map[pa],ypred[pa]);
+			// (setValue copies the values of a DenseInstance, so only when necessary)
+			if (t_.value(this.map[pa]) != ypred[pa])
+				t_.setValue(this.map[pa],ypred[pa]);
 		}
 	}
 
@@ -173,8 +280,7 @@ public class CNode implements Serializable {
 	 * @return argmax_{k in 0,1,...} p( y_j = k | x , y_pred )
 	 */
 	public double classify(Instance x, double ypred[]) throws Exception {
-		Instance x_ = transform(x,ypred);
-		return Utils.maxIndex(h.distributionForInstance(x_));
+		return Utils.maxIndex(distribution(x,ypred));
 	}
 
 	/**
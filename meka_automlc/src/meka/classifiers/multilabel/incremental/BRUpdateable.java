@@ -17,7 +17,7 @@ package meka.classifiers.multilabel.incremental;
 
 import meka.classifiers.multilabel.BR;
 import meka.classifiers.multilabel.IncrementalMultiLabelClassifier;
-import meka.core.MLUtils;
+import meka.core.LabelProjectedInstance;
 import weka.classifiers.UpdateableClassifier;
 import weka.classifiers.trees.HoeffdingTree;
 import weka.core.Instance;
@@ -58,9 +58,7 @@ public class BRUpdateable extends BR implements IncrementalMultiLabelClassifier
 		if(getDebug()) System.out.print("-: Updating "+L+" models");
 
 		for(int j = 0; j < L; j++) {
-			Instance x_j = (Instance)x.copy();
-			x_j.setDataset(null);
-			x_j = MLUtils.keepAttributesAt(x_j,new int[]{j},L);
+			Instance x_j = new LabelProjectedInstance(x,L,j);
 			x_j.setDataset(m_InstancesTemplates[j]);
 			((UpdateableClassifier)m_MultiClassifiers[j]).updateClassifier(x_j);
 		}
@@ -176,6 +176,14 @@ public class CCUpdateable extends CC implements IncrementalMultiLabelClassifier
 			throw new Exception("Train to update chain, but chain not build yet");
 	}
 
+	/**
+	 * Predictions are made instance by instance, see #distributionForInstance(Instance).
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return false;
+	}
+
 	@Override
 	public double[] distributionForInstance(Instance x) throws Exception {
 		int L = x.classIndex();
@@ -18,6 +18,7 @@ package meka.classifiers.multilabel.incremental;
 import meka.classifiers.multilabel.IncrementalMultiLabelClassifier;
 import meka.classifiers.multilabel.PS;
 import meka.core.LabelSet;
+import meka.core.LabelSetIndex;
 import meka.core.MLUtils;
 import meka.core.OptionUtils;
 import meka.core.PSUtils;
@@ -48,6 +49,7 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 	protected int L = -1;
 
 	protected HashMap<LabelSet,Integer> combinations = null;
+	protected LabelSetIndex index = null;
 	protected Instances batch = null;
 	protected MajorityLabelsetUpdateable mlu = new MajorityLabelsetUpdateable();
 
@@ -86,6 +88,7 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 				m_P++;
 				MLUtils.pruneCountHashMap(combinations,m_P);
 			}
+			index = new LabelSetIndex(combinations);
 			super.buildClassifier(batch);
 			m_P = p;
 			// } NEW
@@ -116,6 +119,7 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 					m_P++;
 					MLUtils.pruneCountHashMap(combinations,m_P);
 				}
+				index = new LabelSetIndex(combinations);
 				super.buildClassifier(batch);
 				m_P = p;
 				// } NEW
@@ -129,7 +133,7 @@ public class PSUpdateable extends PS implements IncrementalMultiLabelClassifier
 		}
 		else {
 			// update PS ...
-			for (Instance x_i : PSUtils.PSTransformation(x,L,combinations,m_N,super.m_InstancesTemplate)) {
+			for (Instance x_i : PSUtils.PSTransformation(x,L,index,m_N,super.m_InstancesTemplate)) {
 				// update internal sl classifier (e.g. naive bayes)
 				((UpdateableClassifier)m_Classifier).updateClassifier(x_i);
 			}
@@ -20,9 +20,11 @@
 
 package meka.classifiers.multilabel.meta;
 
+import meka.classifiers.multilabel.AbstractMultiLabelClassifier;
 import meka.classifiers.multilabel.BR;
 import meka.classifiers.multilabel.MultiLabelClassifier;
 import meka.classifiers.multilabel.ProblemTransformationMethod;
+import meka.core.ThreadUtils;
 import weka.classifiers.Classifier;
 import weka.core.Attribute;
 import weka.core.Capabilities;
@@ -140,6 +142,28 @@ public class FilteredClassifier
 			return toString();
 	}
 
+	/**
+	 * Returns the predictions for all the instances.
+	 *
+	 * @param D	the instances to make predictions for
+	 * @return	the predictions, one row per instance
+	 * @throws Exception	if prediction fails
+	 */
+	@Override
+	public double[][] distributionForInstances(Instances D) throws Exception {
+		return AbstractMultiLabelClassifier.distributionForInstances(this, D, ThreadUtils.SEQUENTIAL, AbstractMultiLabelClassifier.getChunkSize(getBatchSize()));
+	}
+
+	/**
+	 * Returns false, as the filter gets used at prediction time.
+	 *
+	 * @return	always false
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	public static void main(String args[]) {
 		ProblemTransformationMethod.evaluation(new FilteredClassifier(), args);
 	}
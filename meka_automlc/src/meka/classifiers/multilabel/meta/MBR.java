@@ -88,7 +88,8 @@ public class MBR extends ProblemTransformationMethod implements TechnicalInforma
 		// Meta BR
 
 		if (getDebug()) System.out.println("Prepare Meta data           ");
-		Instances meta_data = new Instances(data);
+		// (insert the meta attributes into the header only, then copy each instance once)
+		Instances meta_data = new Instances(data, data.numInstances());
 
 		FastVector BinaryClass = new FastVector(c);
 		BinaryClass.addElement("0");
@@ -99,10 +100,17 @@ public class MBR extends ProblemTransformationMethod implements TechnicalInforma
 		}
 
 		for(int i = 0; i < data.numInstances(); i++) {
-			double cfn[] = m_BASE.distributionForInstance(data.instance(i));
-			for(int a = 0; a < cfn.length; a++) {
-				meta_data.instance(i).setValue(a+c,cfn[a]);
+			Instance x = data.instance(i);
+			double cfn[] = m_BASE.distributionForInstance(x);
+			double x_[] = new double[x.numAttributes() + c];
+			for(int a = 0; a < c; a++) {
+				x_[a] = x.value(a);
+				x_[a+c] = cfn[a];
 			}
+			for(int a = c; a < x.numAttributes(); a++) {
+				x_[a+c] = x.value(a);
+			}
+			meta_data.add(x.copy(x_));
 		}
 
 		meta_data.setClassIndex(c);
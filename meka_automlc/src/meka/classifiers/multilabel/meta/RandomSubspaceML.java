@@ -183,6 +183,16 @@ public class RandomSubspaceML extends MetaProblemTransformationMethod implements
 		return result;
 	}
 
+	/**
+	 * Returns false, as the template instances get reused.
+	 *
+	 * @return	always false
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public String getRevision() {
 		return RevisionUtils.extract("$Revision: 9117 $");
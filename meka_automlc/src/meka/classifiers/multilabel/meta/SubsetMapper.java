@@ -17,7 +17,9 @@ package meka.classifiers.multilabel.meta;
 
 import meka.classifiers.multilabel.BR;
 import meka.classifiers.multilabel.ProblemTransformationMethod;
-import meka.core.MLUtils;
+import meka.core.LabelSet;
+import meka.core.LabelSetBKTree;
+import meka.core.LabelSetPool;
 import weka.core.*;
 import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
@@ -27,6 +29,8 @@ import meka.core.OptionUtils;
 
 /**
  * Maps the output of a multi-label classifier to a known label combination using the hamming distance.
+ * The known combinations are kept in a BK-tree over their bit masks; of equally near combinations, the most frequent one is chosen
+ * (then the one that occurred first in the training data).
  * described in	<i>Improved Boosting Algorithms Using Confidence-rated Predictions</i> by Schapire, Robert E. and Singer, Yoram
  *
  * @author 	Jesse Read (jmr30@cs.waikato.ac.nz)
@@ -89,54 +93,51 @@ public class SubsetMapper extends ProblemTransformationMethod
 		return result;
 	}
 
-	protected HashMap<String,Integer> m_Count = new HashMap<String,Integer>();
+	/** the known label combinations and their counts, in the order of their first occurrence */
+	protected LinkedHashMap<LabelSet,Integer> m_Count = new LinkedHashMap<LabelSet,Integer>();
 
-    protected double[] nearestSubset(double d[]) throws Exception {   
+	/** for finding the nearest known label combination */
+	protected LabelSetBKTree m_Index = new LabelSetBKTree();
 
-		String comb = MLUtils.toBitString(doubles2ints(d));
+	protected double[] nearestSubset(double d[]) throws Exception {
 
-		// If combination exists
-		if (m_Count.get(comb) != null) {
-			return MLUtils.fromBitString(comb);
+		int L = d.length;
+		long words[] = new long[(L + 63) >> 6];
+		for(int j = 0; j < L; j++) {
+			if (Math.round(d[j]) > 0)
+				words[j >> 6] |= 1L << j;
 		}
+		LabelSet y = new LabelSet(words);
 
-        int closest_count = 0;
-        int min_distance = Integer.MAX_VALUE;
-		String nearest = comb;
-
-        for(String current : shuffle(m_Count.keySet())) {   
-            int distance = hammingDistance(current,comb);
-            if (distance == min_distance) {   
-                int count = m_Count.get(current);
-                if (count > closest_count) {   
-                    nearest = current;
-                    closest_count = count;
-                }
-            }
-            if (distance < min_distance) {   
-                min_distance = distance;
-                nearest = current;
-                closest_count = m_Count.get(nearest);
-            }
-        }
-		return MLUtils.fromBitString(nearest);
-    }
+		// If the combination does not exist, use the nearest one
+		if (!m_Count.containsKey(y)) {
+			LabelSet nearest = m_Index.nearest(y);
+			if (nearest != null)
+				y = nearest;
+		}
 
-	private Collection<String> shuffle(Set<String> labelSubsets)
-    {
-    	
-    	Vector<String> result = new Vector<String>(labelSubsets.size());
-    	result.addAll(labelSubsets);
-    	Collections.shuffle(result, new Random(m_seed));
-    	return result;
-    }
+		double r[] = new double[L];
+		for(int j : y.indices) {
+			r[j] = 1.0;
+		}
+		return r;
+	}
 
 	@Override
 	public void buildClassifier(Instances D) throws Exception {
 	  	testCapabilities(D);
-	  	
+
+		int L = D.classIndex();
+		LabelSetPool pool = new LabelSetPool();
+		m_Count = new LinkedHashMap<LabelSet,Integer>();
 		for (int i = 0; i < D.numInstances(); i++) {
-			m_Count.put(MLUtils.toBitString(D.instance(i),D.classIndex()),0);
+			LabelSet y = pool.intern(D.instance(i),L);
+			Integer c = m_Count.get(y);
+			m_Count.put(y, c == null ? 1 : c+1);
+		}
+		m_Index = new LabelSetBKTree();
+		for (Map.Entry<LabelSet,Integer> e : m_Count.entrySet()) {
+			m_Index.add(e.getKey(), e.getValue());
 		}
 
 		m_Classifier.buildClassifier(D);
@@ -151,22 +152,6 @@ public class SubsetMapper extends ProblemTransformationMethod
 		return nearestSubset(r);
 	}
 
-	private static final int[] doubles2ints(double d[]) {
-		int b[] = new int[d.length];
-		for(int i = 0; i < d.length; i++) {
-			b[i] = (int)Math.round(d[i]);
-		}
-		return b;
-	}
-
-	private static final int hammingDistance(String s1, String s2) {
-		int dist = 0;
-		for(int i = 0; i < Math.min(s1.length(),s2.length()); i++) {
-			dist += Math.abs(MLUtils.char2int(s1.charAt(i)) - MLUtils.char2int(s2.charAt(i)));
-		}
-		return dist;
-	}
-        
             /**
      * Returns an enumeration of the options.  
      *
@@ -175,7 +160,7 @@ public class SubsetMapper extends ProblemTransformationMethod
     public Enumeration listOptions() {
 	Vector newVector = new Vector();
 
-	 newVector.addElement(new Option("\tSets the seed\n\tdefault: 0", "S", 1, "-S <value>"));
+	 newVector.addElement(new Option("\tSets the seed (not used, ties are broken by count)\n\tdefault: 0", "S", 1, "-S <value>"));
 
 	OptionUtils.add(newVector, super.listOptions());
 
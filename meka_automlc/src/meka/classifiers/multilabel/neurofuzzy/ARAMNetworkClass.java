@@ -29,6 +29,7 @@ import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.Utils;
 import meka.core.MLUtils;
+import meka.core.ThreadUtils;
 import weka.core.WeightedInstancesHandler;
 import weka.core.RevisionUtils;
 
@@ -127,6 +128,29 @@ IncrementalMultiLabelClassifier{
 		}
 	}
 
+	/**
+	 * Returns the predictions for all the instances, using distributionForInstanceM
+	 * if threaded, otherwise making the predictions one by one.
+	 *
+	 * @param D	the instances to make predictions for
+	 * @return	the predictions, one row per instance
+	 * @throws Exception	if prediction fails
+	 */
+	public double[][] distributionForInstances(Instances D) throws Exception {
+		if (isThreaded())
+			return distributionForInstanceM(D);
+		return AbstractMultiLabelClassifier.distributionForInstances(this, D, ThreadUtils.SEQUENTIAL, AbstractMultiLabelClassifier.getChunkSize(getBatchSize()));
+	}
+
+	/**
+	 * Returns false, as the neuron activations are stored at prediction time.
+	 *
+	 * @return	always false
+	 */
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 }
 
 
@@ -26,6 +26,7 @@ import java.util.Arrays;
 
 import meka.classifiers.multilabel.ProblemTransformationMethod;
 import weka.core.Instance;
+import weka.core.Instances;
 import weka.classifiers.trees.J48;
 import weka.core.RevisionUtils;
 
@@ -65,6 +66,19 @@ public class BCC extends meka.classifiers.multilabel.BCC implements MultiTargetC
 		return y_long;
 	}
 
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+		if (!implementsMoreEfficientBatchPrediction())
+			return super.distributionsForInstances(D);
+		int L = D.classIndex();
+		double Y[][] = super.distributionsForInstances(D);
+		for(int i = 0; i < Y.length; i++) {
+			Y[i] = Arrays.copyOf(Y[i],L*2);
+			Arrays.fill(Y[i],L,Y[i].length,1.0);
+		}
+		return Y;
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
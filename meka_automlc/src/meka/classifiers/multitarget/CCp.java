@@ -89,7 +89,10 @@ public class CCp extends meka.classifiers.multilabel.CC implements MultiTargetCl
 				next = new meka.classifiers.multitarget.CCp.Link(chain, ++j, train);
 		}
 
-		protected void classify(Instance test) throws Exception {
+		/**
+		 * Transforms the (partially classified) test instance for this link.
+		 */
+		protected Instance transform(Instance test) throws Exception {
 			// copy
 			Instance copy = (Instance)test.copy();
 			copy.setDataset(null);
@@ -107,8 +110,12 @@ public class CCp extends meka.classifiers.multilabel.CC implements MultiTargetCl
 				copy.setValue(j,Math.round(copy.value(k)));
 			}
 
+			return copy;
+		}
+
+		protected void classify(Instance test) throws Exception {
 			//set class
-			double dist[] = this.classifier.distributionForInstance(copy);
+			double dist[] = this.classifier.distributionForInstance(transform(test));
 			int max_index = Utils.maxIndex(dist);
 			confidences[this.index] = dist[max_index];
 			test.setValue(this.index,max_index);
@@ -117,6 +124,38 @@ public class CCp extends meka.classifiers.multilabel.CC implements MultiTargetCl
 			if (next!=null) next.classify(test);
 		}
 
+		/**
+		 * Classifies a batch of test instances with this link (passing them all to the classifier at once, if it supports batch prediction), before moving on to the next link.
+		 * @param	tests	the (partially classified) test instances
+		 * @param	conf	the confidences, one row per instance
+		 */
+		protected void classify(Instance tests[], double conf[][]) throws Exception {
+			Instances batch = new Instances(this._template,tests.length);
+			for(int i = 0; i < tests.length; i++) {
+				batch.add(transform(tests[i]));
+			}
+			double dists[][];
+			if (this.classifier.implementsMoreEfficientBatchPrediction()) {
+				dists = this.classifier.distributionsForInstances(batch);
+			}
+			else {
+				dists = new double[tests.length][];
+				for(int i = 0; i < tests.length; i++) {
+					dists[i] = this.classifier.distributionForInstance(batch.instance(i));
+				}
+			}
+
+			//set class
+			for(int i = 0; i < tests.length; i++) {
+				int max_index = Utils.maxIndex(dists[i]);
+				conf[i][this.index] = dists[i][max_index];
+				tests[i].setValue(this.index,max_index);
+			}
+
+			//carry on
+			if (next!=null) next.classify(tests,conf);
+		}
+
 		@Override
 		public String toString() {
 			return (next == null) ? String.valueOf(this.index) : String.valueOf(this.index)+">"+next.toString();
@@ -165,6 +204,47 @@ public class CCp extends meka.classifiers.multilabel.CC implements MultiTargetCl
 		return y;
 	}
 
+	/**
+	 * Batch prediction is more efficient, since the chain gets walked link by link.
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return true;
+	}
+
+	@Override
+	public double[][] distributionsForInstances(Instances D) throws Exception {
+		int L = D.classIndex();
+		int N = D.numInstances();
+		// No cheating allowed; clear all class information
+		Instance X[] = new Instance[N];
+		for(int i = 0; i < N; i++) {
+			X[i] = (Instance)D.instance(i).copy();
+			for(int j = 0; j < L; j++)
+				X[i].setValue(j,0.0);
+		}
+		double conf[][] = new double[N][L];
+		root.classify(X,conf);
+		double Y[][] = new double[N][L*2];
+		for(int i = 0; i < N; i++) {
+			for(int j = 0; j < L; j++) {
+				Y[i][j] = X[i].value(j);
+				Y[i][j+L] = conf[i][j]; // <--- this is the extra line
+			}
+		}
+		return Y;
+	}
+
+	/**
+	 * Returns false, as the confidences get stored at prediction time.
+	 *
+	 * @return	always false
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
+
 	@Override
 	public String getRevision() {
 	    return RevisionUtils.extract("$Revision: 9117 $");
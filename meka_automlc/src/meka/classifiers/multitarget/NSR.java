@@ -18,7 +18,6 @@ package meka.classifiers.multitarget;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 
 import meka.classifiers.multilabel.ProblemTransformationMethod;
@@ -48,6 +47,9 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 	/** for serialization. */
 	private static final long serialVersionUID = 8373228150066785001L;
 
+	/** the decoded class values of the template (e.g., "0+3+0" -> [0,3,0]), filled on demand */
+	protected transient int m_ClassValues[][] = null;
+
 	public NSR() {
 		// default classifier for GUI
 		this.m_Classifier = new J48();
@@ -112,9 +114,9 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 		double w[] = m_Classifier.distributionForInstance(x_sl);		// w[j] = p(y_j) for each j = 1,...,L
 		int max_j  = Utils.maxIndex(w);									// j of max w[j]
 		//int max_j = (int)m_Classifier.classifyInstance(x_sl);			// where comb_i is selected
-		String y_max = m_InstancesTemplate.classAttribute().value(max_j);									// comb_i e.g. "0+3+0+0+1+2+0+0"
+		int classValues[][] = getClassValues();							// comb_i e.g. "0+3+0+0+1+2+0+0"
 
-		double y[] = Arrays.copyOf(A.toDoubleArray(MLUtils.decodeValue(y_max)),L*2);					// "0+3+0+0+1+2+0+0" -> [0.0,3.0,0.0,...,0.0]
+		double y[] = Arrays.copyOf(A.toDoubleArray(classValues[max_j]),L*2);					// "0+3+0+0+1+2+0+0" -> [0.0,3.0,0.0,...,0.0]
 
 		HashMap<Double,Double> votes[] = new HashMap[L];
 		for(int j = 0; j < L; j++) {
@@ -122,7 +124,7 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 		}
 
 		for(int i = 0; i < w.length; i++) {
-			double y_i[] = A.toDoubleArray(MLUtils.decodeValue(m_InstancesTemplate.classAttribute().value(i)));
+			double y_i[] = A.toDoubleArray(classValues[i]);
 			for(int j = 0; j < y_i.length; j++) {
 				votes[j].put(y_i[j] , votes[j].containsKey(y_i[j]) ? votes[j].get(y_i[j]) + w[i] : w[i]);
 			}
@@ -136,6 +138,24 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 		return y;
 	}
 
+	/**
+	 * Returns the decoded class values of the template, decoding them on the first call.
+	 *
+	 * @return		the values of the combinations, one row per class value
+	 */
+	protected int[][] getClassValues() {
+		int result[][] = m_ClassValues;
+		if (result == null) {
+			Attribute c = m_InstancesTemplate.classAttribute();
+			result = new int[c.numValues()][];
+			for(int i = 0; i < result.length; i++) {
+				result[i] = MLUtils.decodeValue(c.value(i));
+			}
+			m_ClassValues = result;
+		}
+		return result;
+	}
+
 	// TODO: use PSUtils
 	public double[] convertDistribution(double y_sl[], int L) {
 		double y_ml[] = new double[L];
@@ -151,28 +171,12 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 		return y_ml;
 	}
 
-	// TODO: use SuperLabelUtils
 	/**
 	 * GetTopNSubsets - return the top N subsets which differ from y by a single class value, ranked by the frequency storte in masterCombinations.
+	 * @see SuperLabelUtils#getTopNSubsets(String, HashMap, int)
 	 */
 	public static String[] getTopNSubsets(String y, final HashMap <String,Integer>masterCombinations, int N) {
-		String y_bits[] = y.split("\\+");
-		ArrayList<String> Y = new ArrayList<String>();
-		for(String y_ : masterCombinations.keySet()) {
-			if(MLUtils.bitDifference(y_bits,y_.split("\\+")) <= 1) {
-				Y.add(y_);
-			}
-		}
-		Collections.sort(Y,new Comparator<String>(){
-					public int compare(String s1, String s2) {
-						// @note this is just done by the count, @todo: could add further conditions
-						return (masterCombinations.get(s1) > masterCombinations.get(s2) ? -1 : (masterCombinations.get(s1) > masterCombinations.get(s2) ? 1 : 0));
-					}
-				}
-		);
-		String Y_strings[] = Y.toArray(new String[Y.size()]);
-		//System.out.println("returning "+N+"of "+Arrays.toString(Y_strings));
-		return Arrays.copyOf(Y_strings,Math.min(N,Y_strings.length));
+		return SuperLabelUtils.getTopNSubsets(y, masterCombinations, N);
 	}
 
 	// TODO use PSUtils
@@ -218,6 +222,7 @@ public class NSR extends meka.classifiers.multilabel.PS implements MultiTargetCl
 
 		// keep the header of new dataset for classification
 		m_InstancesTemplate = new Instances(D_, 0);
+		m_ClassValues = null;
 
 		if (getDebug())
 			System.out.println(""+D_);
@@ -41,7 +41,7 @@ public class RAkELd extends NSR {
 	int m_K = 3;
 	int m_M = 10;
 	protected int kMap[][] = null;
-	protected int vMap[][][] = null; // TODO use this to speed things up
+	protected int vMap[][][] = null; // the values of each class value of each model, e.g., vMap[m][d] = [2,3,1]
 
 
 	/**
@@ -90,7 +90,7 @@ public class RAkELd extends NSR {
 			Instances D_i = F.keepLabels(D,D.classIndex(),new int[]{i});
 			D_i.setClassIndex(0);
 
-			//vMap[i] = SuperLabelUtils.extractValues(D_i);
+			vMap[i] = SuperLabelUtils.extractValues(D_i);
 
 			if (getDebug()) 
 				System.out.println("\tbuilding model "+(i+1)+"/"+m_M+": "+Arrays.toString(kMap[i]));
@@ -121,12 +121,12 @@ public class RAkELd extends NSR {
 			// Get a meta classification
 			int yp_j = (int)m_Classifiers[m].classifyInstance(x_m);        // e.g., 2
 
-			int values[] = SuperLabelUtils.decodeValue(m_InstancesTemplates[m].classAttribute().value(yp_j));
+			if (vMap[m] == null)
+				vMap[m] = SuperLabelUtils.extractValues(m_InstancesTemplates[m]);
+			int values[] = vMap[m][yp_j];
 
-			int k_indices[] = SuperLabelUtils.decodeClass(m_InstancesTemplates[m].classAttribute().name());
-
-			// Vote with classification
-            for(int j_k = 0; j_k < k_indices.length; j_k++) {
+			// Vote with classification (the class attribute of model m encodes the indices kMap[m])
+            for(int j_k = 0; j_k < kMap[m].length; j_k++) {
 				//int i = k_indices[j_k];			// original indices
 				int j = kMap[m][j_k];				// original indices
 				Double score = votes[j].get(values[j_k]);
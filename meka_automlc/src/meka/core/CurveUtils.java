@@ -0,0 +1,394 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * CurveUtils.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import weka.classifiers.evaluation.ThresholdCurve;
+import weka.classifiers.evaluation.TwoClassStats;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Threshold curves (ROC, precision-recall) and the areas under them, computed
+ * on primitive arrays with a single sort per label. The curves have the same
+ * points as Weka's {@link ThresholdCurve} (one per distinct confidence, ties
+ * grouped, plus the final zero point), and the areas are calculated the same
+ * way as {@link ThresholdCurve#getROCArea(Instances)} and
+ * {@link ThresholdCurve#getPRCArea(Instances)}.
+ *
+ * @version $Revision$
+ */
+public class CurveUtils {
+
+	/** the default maximum number of points of curves generated for plotting. */
+	public final static int MAX_POINTS = 1000;
+
+	/**
+	 * The points of a threshold curve, with ascending thresholds.
+	 */
+	public static class Curve {
+
+		/** the thresholds. */
+		public double[] threshold;
+
+		/** the true positives at each threshold. */
+		public double[] tp;
+
+		/** the false positives at each threshold. */
+		public double[] fp;
+
+		/** the total number of positives. */
+		public double totalPos;
+
+		/** the total number of negatives. */
+		public double totalNeg;
+
+		/**
+		 * Returns the number of points.
+		 *
+		 * @return		the number of points
+		 */
+		public int size() {
+			return threshold.length;
+		}
+
+		/**
+		 * Returns the statistics at the specified point.
+		 *
+		 * @param i		the point
+		 * @return		the statistics
+		 */
+		public TwoClassStats getStats(int i) {
+			return new TwoClassStats(tp[i], fp[i], totalNeg - fp[i], totalPos - tp[i]);
+		}
+
+		/**
+		 * Returns the area under the ROC curve, see {@link ThresholdCurve#getROCArea(Instances)}.
+		 *
+		 * @return		the area, NaN if only positives or negatives
+		 */
+		public double getROCArea() {
+			double	area;
+			double	cumNeg;
+			double	cip;
+			double	cin;
+			int	n;
+			int	i;
+
+			n      = size();
+			area   = 0.0;
+			cumNeg = 0.0;
+			for (i = 0; i < n; i++) {
+				if (i < n - 1) {
+					cip = tp[i] - tp[i + 1];
+					cin = fp[i] - fp[i + 1];
+				}
+				else {
+					cip = tp[n - 1];
+					cin = fp[n - 1];
+				}
+				area   += cip * (cumNeg + (0.5 * cin));
+				cumNeg += cin;
+			}
+			area /= (fp[0] * tp[0]);
+
+			return area;
+		}
+
+		/**
+		 * Returns the area under the precision-recall curve, see {@link ThresholdCurve#getPRCArea(Instances)}.
+		 *
+		 * @return		the area, NaN if 0
+		 */
+		public double getPRCArea() {
+			double		area;
+			double		xlast;
+			double		recall;
+			TwoClassStats	stats;
+			int		i;
+
+			area  = 0.0;
+			xlast = getStats(size() - 1).getRecall();
+			// start from the first real p/r pair (not the artificial zero point)
+			for (i = size() - 2; i >= 0; i--) {
+				stats  = getStats(i);
+				recall = stats.getRecall();
+				area  += stats.getPrecision() * (recall - xlast);
+				xlast  = recall;
+			}
+			if (area == 0)
+				return Utils.missingValue();
+
+			return area;
+		}
+
+		/**
+		 * Turns the curve into a dataset in the format of {@link ThresholdCurve#getCurve(ArrayList)}.
+		 *
+		 * @param maxPoints	the maximum number of points, evenly spaced; &le; 0 for all
+		 * @return		the dataset
+		 */
+		public Instances toInstances(int maxPoints) {
+			Instances	result;
+			int		n;
+			int		i;
+			int		last;
+			int		index;
+
+			n      = size();
+			result = makeHeader(n);
+			if ((maxPoints <= 0) || (n <= maxPoints) || (maxPoints < 2)) {
+				for (i = 0; i < n; i++)
+					result.add(makeInstance(getStats(i), threshold[i]));
+			}
+			else {
+				// always keep the first and the last (zero) point
+				last = -1;
+				for (i = 0; i < maxPoints; i++) {
+					index = (int) Math.round((double) i * (n - 1) / (maxPoints - 1));
+					if (index == last)
+						continue;
+					result.add(makeInstance(getStats(index), threshold[index]));
+					last = index;
+				}
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Creates the header of a threshold curve dataset.
+	 *
+	 * @param capacity	the initial capacity
+	 * @return		the header
+	 */
+	protected static Instances makeHeader(int capacity) {
+		ArrayList<Attribute>	atts;
+
+		atts = new ArrayList<>();
+		atts.add(new Attribute(ThresholdCurve.TRUE_POS_NAME));
+		atts.add(new Attribute(ThresholdCurve.FALSE_NEG_NAME));
+		atts.add(new Attribute(ThresholdCurve.FALSE_POS_NAME));
+		atts.add(new Attribute(ThresholdCurve.TRUE_NEG_NAME));
+		atts.add(new Attribute(ThresholdCurve.FP_RATE_NAME));
+		atts.add(new Attribute(ThresholdCurve.TP_RATE_NAME));
+		atts.add(new Attribute(ThresholdCurve.PRECISION_NAME));
+		atts.add(new Attribute(ThresholdCurve.RECALL_NAME));
+		atts.add(new Attribute(ThresholdCurve.FALLOUT_NAME));
+		atts.add(new Attribute(ThresholdCurve.FMEASURE_NAME));
+		atts.add(new Attribute(ThresholdCurve.SAMPLE_SIZE_NAME));
+		atts.add(new Attribute(ThresholdCurve.LIFT_NAME));
+		atts.add(new Attribute(ThresholdCurve.THRESHOLD_NAME));
+
+		return new Instances(ThresholdCurve.RELATION_NAME, atts, capacity);
+	}
+
+	/**
+	 * Creates a row of a threshold curve dataset.
+	 *
+	 * @param tc		the statistics at the threshold
+	 * @param prob		the threshold
+	 * @return		the row
+	 */
+	protected static DenseInstance makeInstance(TwoClassStats tc, double prob) {
+		double[]	vals;
+		double		ss;
+		double		expectedByChance;
+
+		vals     = new double[13];
+		vals[0]  = tc.getTruePositive();
+		vals[1]  = tc.getFalseNegative();
+		vals[2]  = tc.getFalsePositive();
+		vals[3]  = tc.getTrueNegative();
+		vals[4]  = tc.getFalsePositiveRate();
+		vals[5]  = tc.getTruePositiveRate();
+		vals[6]  = tc.getPrecision();
+		vals[7]  = tc.getRecall();
+		vals[8]  = tc.getFallout();
+		vals[9]  = tc.getFMeasure();
+		ss       = (tc.getTruePositive() + tc.getFalsePositive())
+			/ (tc.getTruePositive() + tc.getFalsePositive() + tc.getTrueNegative() + tc.getFalseNegative());
+		vals[10] = ss;
+		expectedByChance = ss * (tc.getTruePositive() + tc.getFalseNegative());
+		if (expectedByChance < 1)
+			vals[11] = Utils.missingValue();
+		else
+			vals[11] = tc.getTruePositive() / expectedByChance;
+		vals[12] = prob;
+
+		return new DenseInstance(1.0, vals);
+	}
+
+	/**
+	 * Computes the threshold curve for the relevance of a single label. As with
+	 * {@link Metrics#align(int[], double[])}, missing labels (-1) and missing
+	 * confidences (-1, NaN) are skipped.
+	 *
+	 * @param y		the true values
+	 * @param p		the confidences
+	 * @return		the curve, null if no values left
+	 */
+	public static Curve getCurve(int y[], double p[]) {
+		Curve		result;
+		double[]	pos;
+		double[]	neg;
+		int		numPos;
+		int		numNeg;
+		int		i;
+		int		k;
+		int		n;
+		double		v;
+
+		// split the confidences into relevant and irrelevant, and sort each
+		pos    = new double[y.length];
+		neg    = new double[y.length];
+		numPos = 0;
+		numNeg = 0;
+		for (i = 0; i < y.length; i++) {
+			if ((y[i] == -1) || (p[i] == -1.0) || Double.isNaN(p[i]))
+				continue;
+			if (y[i] == 1)
+				pos[numPos++] = p[i];
+			else
+				neg[numNeg++] = p[i];
+		}
+		if (numPos + numNeg == 0)
+			return null;
+		pos = Arrays.copyOf(pos, numPos);
+		neg = Arrays.copyOf(neg, numNeg);
+		Arrays.sort(pos);
+		Arrays.sort(neg);
+
+		// one point per distinct confidence (ascending), plus the zero point
+		result           = new Curve();
+		result.totalPos  = numPos;
+		result.totalNeg  = numNeg;
+		result.threshold = new double[numPos + numNeg + 1];
+		result.tp        = new double[numPos + numNeg + 1];
+		result.fp        = new double[numPos + numNeg + 1];
+		i = 0;
+		k = 0;
+		n = 0;
+		while ((i < numPos) || (k < numNeg)) {
+			if (i == numPos)
+				v = neg[k];
+			else if (k == numNeg)
+				v = pos[i];
+			else
+				v = Math.min(pos[i], neg[k]);
+			result.threshold[n] = v;
+			result.tp[n]        = numPos - i;
+			result.fp[n]        = numNeg - k;
+			n++;
+			while ((i < numPos) && (pos[i] == v))
+				i++;
+			while ((k < numNeg) && (neg[k] == v))
+				k++;
+		}
+		result.threshold[n] = Math.max(
+			(numPos > 0) ? pos[numPos - 1] : Double.NEGATIVE_INFINITY,
+			(numNeg > 0) ? neg[numNeg - 1] : Double.NEGATIVE_INFINITY) + 10e-6;
+		result.tp[n] = 0;
+		result.fp[n] = 0;
+		n++;
+		result.threshold = Arrays.copyOf(result.threshold, n);
+		result.tp        = Arrays.copyOf(result.tp, n);
+		result.fp        = Arrays.copyOf(result.fp, n);
+
+		return result;
+	}
+
+	/**
+	 * Computes the per-label areas under the ROC or precision-recall curves, processing
+	 * the labels in parallel. Labels with all values missing get an area of 0.
+	 *
+	 * @param Y		the true values
+	 * @param P		the confidences
+	 * @param roc		true for ROC, false for precision-recall
+	 * @param numThreads	the number of threads to use (-1 for # of cores/cpus)
+	 * @return		the areas
+	 */
+	public static double[] getAreas(final int Y[][], final double P[][], final boolean roc, int numThreads) {
+		final double[]		result;
+		final int		L;
+		List<Callable<Object>>	jobs;
+		int			j;
+
+		L          = Y[0].length;
+		result     = new double[L];
+		numThreads = Math.min(ThreadUtils.getActualNumThreads(numThreads, L), L);
+		if (numThreads <= ThreadUtils.SEQUENTIAL) {
+			for (j = 0; j < L; j++)
+				result[j] = getArea(Y, P, j, roc);
+			return result;
+		}
+
+		jobs = new ArrayList<>();
+		for (j = 0; j < L; j++) {
+			final int label = j;
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					result[label] = getArea(Y, P, label, roc);
+					return null;
+				}
+			});
+		}
+		try {
+			ThreadUtils.invokeAll(jobs, numThreads);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to compute areas!", e);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Computes the area under the ROC or precision-recall curve of a single label.
+	 *
+	 * @param Y		the true values
+	 * @param P		the confidences
+	 * @param j		the label
+	 * @param roc		true for ROC, false for precision-recall
+	 * @return		the area, 0 if all values missing, NaN if no confidences
+	 */
+	protected static double getArea(int Y[][], double P[][], int j, boolean roc) {
+		Curve	curve;
+
+		if (Metrics.allMissing(MatrixUtils.getCol(Y, j)))
+			return 0.0;
+		curve = getCurve(MatrixUtils.getCol(Y, j), MatrixUtils.getCol(P, j));
+		if (curve == null)
+			return Double.NaN;
+		return roc ? curve.getROCArea() : curve.getPRCArea();
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * InstancesView.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import weka.core.Instances;
+
+import java.util.Random;
+
+/**
+ * Dataset that references a subset of the rows of another dataset via an
+ * index array, without copying the instances themselves. Only the header
+ * gets copied, the {@link weka.core.Instance} objects are shared with the
+ * source dataset. Hence, a view must be treated as read-only: modifying the
+ * values or the structure of the view modifies the source as well.
+ * Use {@link #materialize()} to obtain an independent copy.
+ *
+ * @version $Revision$
+ */
+public class InstancesView
+  extends Instances {
+
+	private static final long serialVersionUID = -2311432591412585744L;
+
+	/** the underlying dataset. */
+	protected Instances m_Source;
+
+	/** the row indices in the underlying dataset. */
+	protected int[] m_Indices;
+
+	/**
+	 * Initializes the view.
+	 *
+	 * @param source	the dataset to reference
+	 * @param indices	the rows of the dataset, in the order to present them
+	 */
+	public InstancesView(Instances source, int[] indices) {
+		super(source, indices.length);
+
+		m_Source  = source;
+		m_Indices = indices;
+		for (int index: indices)
+			m_Instances.add(source.instance(index));
+	}
+
+	/**
+	 * Returns the underlying dataset.
+	 *
+	 * @return		the dataset
+	 */
+	public Instances getSource() {
+		return m_Source;
+	}
+
+	/**
+	 * Returns the row indices in the underlying dataset.
+	 *
+	 * @return		the indices
+	 */
+	public int[] getIndices() {
+		return m_Indices;
+	}
+
+	/**
+	 * Creates an independent copy of the rows in the view.
+	 *
+	 * @return		the copy
+	 */
+	public Instances materialize() {
+		return materialize(m_Source, m_Indices);
+	}
+
+	/**
+	 * Creates an independent copy of the specified rows.
+	 *
+	 * @param source	the dataset to copy the rows from
+	 * @param indices	the rows to copy
+	 * @return		the copy
+	 */
+	public static Instances materialize(Instances source, int[] indices) {
+		Instances	result;
+
+		result = new Instances(source, indices.length);
+		for (int index: indices)
+			result.add(source.instance(index));  // add() copies the instance
+
+		return result;
+	}
+
+	/**
+	 * Returns the row indices of the training set for the specified fold,
+	 * in the same order as {@link Instances#trainCV(int, int)} and
+	 * {@link Instances#trainCV(int, int, Random)} would produce them.
+	 *
+	 * @param numInstances	the number of rows in the full dataset
+	 * @param numFolds	the number of folds
+	 * @param numFold	the fold (0-based)
+	 * @param random	the random number generator to shuffle the rows with, null to preserve the order
+	 * @return		the indices
+	 */
+	public static int[] trainCV(int numInstances, int numFolds, int numFold, Random random) {
+		int[]	result;
+		int	first;
+		int	size;
+		int	i;
+		int	n;
+		int	j;
+		int	tmp;
+
+		size   = foldSize(numInstances, numFolds, numFold);
+		first  = foldStart(numInstances, numFolds, numFold);
+		result = new int[numInstances - size];
+		n      = 0;
+		for (i = 0; i < first; i++)
+			result[n++] = i;
+		for (i = first + size; i < numInstances; i++)
+			result[n++] = i;
+
+		// same as Instances.randomize(Random)
+		if (random != null) {
+			for (i = result.length - 1; i > 0; i--) {
+				j         = random.nextInt(i + 1);
+				tmp       = result[i];
+				result[i] = result[j];
+				result[j] = tmp;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the row indices of the test set for the specified fold,
+	 * in the same order as {@link Instances#testCV(int, int)} would produce them.
+	 *
+	 * @param numInstances	the number of rows in the full dataset
+	 * @param numFolds	the number of folds
+	 * @param numFold	the fold (0-based)
+	 * @return		the indices
+	 */
+	public static int[] testCV(int numInstances, int numFolds, int numFold) {
+		int[]	result;
+		int	first;
+		int	i;
+
+		first  = foldStart(numInstances, numFolds, numFold);
+		result = new int[foldSize(numInstances, numFolds, numFold)];
+		for (i = 0; i < result.length; i++)
+			result[i] = first + i;
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of test rows in the specified fold.
+	 *
+	 * @param numInstances	the number of rows in the full dataset
+	 * @param numFolds	the number of folds
+	 * @param numFold	the fold (0-based)
+	 * @return		the number of rows
+	 */
+	protected static int foldSize(int numInstances, int numFolds, int numFold) {
+		if (numFold < numInstances % numFolds)
+			return numInstances / numFolds + 1;
+		else
+			return numInstances / numFolds;
+	}
+
+	/**
+	 * Returns the index of the first test row in the specified fold.
+	 *
+	 * @param numInstances	the number of rows in the full dataset
+	 * @param numFolds	the number of folds
+	 * @param numFold	the fold (0-based)
+	 * @return		the index
+	 */
+	protected static int foldStart(int numInstances, int numFolds, int numFold) {
+		return numFold * (numInstances / numFolds) + Math.min(numFold, numInstances % numFolds);
+	}
+}
@@ -0,0 +1,480 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * LabelProjectedInstance.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import weka.core.AbstractInstance;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+import java.io.ObjectStreamException;
+
+/**
+ * Presents a multi-label instance (labels are the first L attributes) as a single-label instance
+ * with label j at position 0, followed by the feature attributes, the same layout that
+ * {@link F#keepLabels(weka.core.Instances, int, int[])} produces. The values are read from the
+ * underlying instance, which never gets modified: the first modification of the projected
+ * instance (setValue, inserting/deleting attributes, etc) copies its values (copy-on-write).
+ * The weight is initialized with the weight of the underlying instance.
+ * <br>
+ * For sparse instances, only the stored values get presented via {@link #numValues()},
+ * {@link #index(int)} and {@link #valueSparse(int)}. When serialized, the instance is replaced
+ * by a regular {@link DenseInstance} or {@link SparseInstance}.
+ *
+ * @version $Revision$
+ */
+public class LabelProjectedInstance
+  extends AbstractInstance {
+
+	private static final long serialVersionUID = -3962493106612418364L;
+
+	/** the underlying instance, null once the values have been copied. */
+	protected Instance m_Source;
+
+	/** the index of the label in the underlying instance. */
+	protected int m_Label;
+
+	/** the offset of the feature indices (L-1). */
+	protected int m_Offset;
+
+	/** whether the underlying instance is sparse. */
+	protected boolean m_Sparse;
+
+	/** the position of the first stored feature value in the underlying instance (-1 if not yet determined). */
+	protected int m_First;
+
+	/** the position of the stored label value in the underlying instance (-1 if not stored, see {@link #locateProjected()}). */
+	protected int m_LabelPos;
+
+	/**
+	 * Initializes the projection.
+	 *
+	 * @param source	the multi-label instance to project
+	 * @param L		the number of labels
+	 * @param j		the label to keep
+	 */
+	public LabelProjectedInstance(Instance source, int L, int j) {
+		super();
+
+		m_Label   = j;
+		m_Offset  = L - 1;
+		m_Dataset = null;
+		setSource(source);
+	}
+
+	/**
+	 * Creates a copy of the projection (sharing the underlying instance).
+	 *
+	 * @param inst	the projection to copy
+	 */
+	protected LabelProjectedInstance(LabelProjectedInstance inst) {
+		super();
+
+		m_Source    = inst.m_Source;
+		m_Label     = inst.m_Label;
+		m_Offset    = inst.m_Offset;
+		m_Sparse    = inst.m_Sparse;
+		m_First     = inst.m_First;
+		m_LabelPos  = inst.m_LabelPos;
+		m_Weight    = inst.m_Weight;
+		m_Dataset   = inst.m_Dataset;
+		m_AttValues = (inst.m_AttValues == null) ? null : inst.m_AttValues.clone();
+	}
+
+	/**
+	 * Points the projection to another multi-label instance (with the same number of labels),
+	 * discarding any modifications. Allows reusing the projection, eg for making predictions.
+	 *
+	 * @param source	the multi-label instance to project, null to release the current one
+	 */
+	public void setSource(Instance source) {
+		m_Source    = source;
+		m_Sparse    = (source instanceof SparseInstance)
+		  || ((source instanceof LabelProjectedInstance) && ((LabelProjectedInstance) source).m_Sparse);
+		m_First     = -1;
+		m_LabelPos  = -1;
+		m_Weight    = (source == null) ? 1.0 : source.weight();
+		m_AttValues = null;
+	}
+
+	/**
+	 * Returns the underlying instance.
+	 *
+	 * @return		the instance, null if the values have been copied already
+	 */
+	public Instance getSource() {
+		return m_Source;
+	}
+
+	/**
+	 * Locates the stored label and feature values in the underlying instance.
+	 */
+	protected void locate() {
+		int	lo;
+		int	hi;
+		int	mid;
+
+		if (m_First > -1)
+			return;
+
+		// all values stored
+		if (m_Source.numValues() == m_Source.numAttributes()) {
+			m_LabelPos = m_Label;
+			m_First    = m_Offset + 1;
+			return;
+		}
+
+		// first stored feature
+		lo = 0;
+		hi = m_Source.numValues();
+		while (lo < hi) {
+			mid = (lo + hi) >>> 1;
+			if (m_Source.index(mid) <= m_Offset)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		m_First = lo;
+
+		// stored label (if any)
+		m_LabelPos = locateProjected();
+	}
+
+	/**
+	 * Locates the stored value(s) that the projected class value is derived from,
+	 * once the position of the first stored feature value is known.
+	 *
+	 * @return		the position of a stored value in the underlying instance, -1 if none
+	 */
+	protected int locateProjected() {
+		return locateLabel(m_Label);
+	}
+
+	/**
+	 * Locates the stored value of a label in the underlying instance, once the position
+	 * of the first stored feature value is known.
+	 *
+	 * @param label	the index of the label
+	 * @return		the position of the value, -1 if not stored
+	 */
+	protected int locateLabel(int label) {
+		int	lo;
+		int	hi;
+		int	mid;
+		int	index;
+
+		lo = 0;
+		hi = m_First - 1;
+		while (lo <= hi) {
+			mid   = (lo + hi) >>> 1;
+			index = m_Source.index(mid);
+			if (index == label)
+				return mid;
+			else if (index < label)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the projected class value, read from the underlying instance.
+	 *
+	 * @return		the value of the label
+	 */
+	protected double projectedValue() {
+		return m_Source.value(m_Label);
+	}
+
+	/**
+	 * Copies the values, detaching the projection from the underlying instance.
+	 */
+	protected void detach() {
+		if (m_AttValues != null)
+			return;
+		m_AttValues = toDoubleArray();
+		m_Source    = null;
+	}
+
+	/**
+	 * Produces a shallow copy of this instance, sharing the underlying instance.
+	 *
+	 * @return		the copy
+	 */
+	@Override
+	public Object copy() {
+		return new LabelProjectedInstance(this);
+	}
+
+	/**
+	 * Copies the instance but fills in the given values, using the same type
+	 * of instance as the underlying one (dense or sparse).
+	 *
+	 * @param values	the values to use
+	 * @return		the new instance
+	 */
+	@Override
+	public Instance copy(double[] values) {
+		Instance	result;
+
+		if (m_Sparse)
+			result = new SparseInstance(m_Weight, values);
+		else
+			result = new DenseInstance(m_Weight, values);
+		result.setDataset(m_Dataset);
+
+		return result;
+	}
+
+	/**
+	 * Returns an independent, regular copy of this instance.
+	 *
+	 * @return		the copy, either a {@link DenseInstance} or {@link SparseInstance}
+	 */
+	public Instance toInstance() {
+		return copy(toDoubleArray());
+	}
+
+	/**
+	 * Replaces the projection with a regular instance when serializing, to avoid
+	 * writing the underlying instance (and its dataset).
+	 *
+	 * @return		the regular instance
+	 * @throws ObjectStreamException	never
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		return toInstance();
+	}
+
+	/**
+	 * Returns the index of the attribute stored at the given position.
+	 *
+	 * @param position	the position
+	 * @return		the index of the attribute
+	 */
+	@Override
+	public int index(int position) {
+		if (m_AttValues != null)
+			return position;
+		locate();
+		if (m_LabelPos > -1) {
+			if (position == 0)
+				return 0;
+			return m_Source.index(m_First + position - 1) - m_Offset;
+		}
+		return m_Source.index(m_First + position) - m_Offset;
+	}
+
+	/**
+	 * Merges this instance with the given instance and returns the result.
+	 * Dataset is set to null.
+	 *
+	 * @param inst	the instance to be merged with this one
+	 * @return		the merged instance
+	 */
+	@Override
+	public Instance mergeInstance(Instance inst) {
+		return toInstance().mergeInstance(inst);
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 *
+	 * @return		the number of attributes
+	 */
+	@Override
+	public int numAttributes() {
+		if (m_AttValues != null)
+			return m_AttValues.length;
+		return m_Source.numAttributes() - m_Offset;
+	}
+
+	/**
+	 * Returns the number of values present.
+	 *
+	 * @return		the number of values
+	 */
+	@Override
+	public int numValues() {
+		if (m_AttValues != null)
+			return m_AttValues.length;
+		locate();
+		return ((m_LabelPos > -1) ? 1 : 0) + m_Source.numValues() - m_First;
+	}
+
+	/**
+	 * Replaces all missing values in the instance with the values contained in the given array.
+	 *
+	 * @param array	containing the means and modes
+	 * @throws IllegalArgumentException	if numbers of attributes are unequal
+	 */
+	@Override
+	public void replaceMissingValues(double[] array) {
+		int	i;
+
+		if ((array == null) || (array.length != numAttributes()))
+			throw new IllegalArgumentException("Unequal number of attributes!");
+		detach();
+		for (i = 0; i < m_AttValues.length; i++) {
+			if (isMissing(i))
+				m_AttValues[i] = array[i];
+		}
+	}
+
+	/**
+	 * Sets a specific value in the instance to the given value.
+	 *
+	 * @param attIndex	the attribute's index
+	 * @param value	the new attribute value
+	 */
+	@Override
+	public void setValue(int attIndex, double value) {
+		detach();
+		m_AttValues[attIndex] = value;
+	}
+
+	/**
+	 * Sets a specific value in the instance to the given value.
+	 *
+	 * @param indexOfIndex	the position of the value
+	 * @param value	the new attribute value
+	 */
+	@Override
+	public void setValueSparse(int indexOfIndex, double value) {
+		setValue(index(indexOfIndex), value);
+	}
+
+	/**
+	 * Returns the values of each attribute as an array of doubles.
+	 *
+	 * @return		an array containing all the instance attribute values
+	 */
+	@Override
+	public double[] toDoubleArray() {
+		double[]	result;
+		int		i;
+		int		n;
+
+		if (m_AttValues != null)
+			return m_AttValues.clone();
+
+		result = new double[numAttributes()];
+		locate();
+		result[0] = projectedValue();
+		n = m_Source.numValues();
+		for (i = m_First; i < n; i++)
+			result[m_Source.index(i) - m_Offset] = m_Source.valueSparse(i);
+
+		return result;
+	}
+
+	/**
+	 * Returns the description of one instance (without weight appended).
+	 *
+	 * @return		the instance's description as a string
+	 */
+	@Override
+	public String toStringNoWeight() {
+		return toInstance().toStringNoWeight();
+	}
+
+	/**
+	 * Returns the description of one instance (without weight appended).
+	 *
+	 * @param afterDecimalPoint	maximum number of digits permitted after the decimal point for numeric values
+	 * @return		the instance's description as a string
+	 */
+	@Override
+	public String toStringNoWeight(int afterDecimalPoint) {
+		return toInstance().toStringNoWeight(afterDecimalPoint);
+	}
+
+	/**
+	 * Returns an instance's attribute value in internal format.
+	 *
+	 * @param attIndex	the attribute's index
+	 * @return		the specified value as a double
+	 */
+	@Override
+	public double value(int attIndex) {
+		if (m_AttValues != null)
+			return m_AttValues[attIndex];
+		if (attIndex == 0)
+			return projectedValue();
+		return m_Source.value(attIndex + m_Offset);
+	}
+
+	/**
+	 * Returns the value stored at the given position.
+	 *
+	 * @param indexOfIndex	the position
+	 * @return		the value
+	 */
+	@Override
+	public double valueSparse(int indexOfIndex) {
+		if (m_AttValues != null)
+			return m_AttValues[indexOfIndex];
+		locate();
+		if (m_LabelPos > -1) {
+			if (indexOfIndex == 0)
+				return projectedValue();
+			return m_Source.valueSparse(m_First + indexOfIndex - 1);
+		}
+		return m_Source.valueSparse(m_First + indexOfIndex);
+	}
+
+	/**
+	 * Deletes an attribute at the given position (0 to numAttributes() - 1).
+	 *
+	 * @param position	the attribute's position
+	 */
+	@Override
+	protected void forceDeleteAttributeAt(int position) {
+		double[]	values;
+
+		detach();
+		values = new double[m_AttValues.length - 1];
+		System.arraycopy(m_AttValues, 0, values, 0, position);
+		if (position < m_AttValues.length - 1)
+			System.arraycopy(m_AttValues, position + 1, values, position, m_AttValues.length - (position + 1));
+		m_AttValues = values;
+	}
+
+	/**
+	 * Inserts an attribute at the given position (0 to numAttributes()) and sets its value to be missing.
+	 *
+	 * @param position	the attribute's position
+	 */
+	@Override
+	protected void forceInsertAttributeAt(int position) {
+		double[]	values;
+
+		detach();
+		values = new double[m_AttValues.length + 1];
+		System.arraycopy(m_AttValues, 0, values, 0, position);
+		values[position] = Utils.missingValue();
+		System.arraycopy(m_AttValues, position, values, position + 1, m_AttValues.length - position);
+		m_AttValues = values;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * LabelProjectedInstances.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+
+/**
+ * Single-label view of a multi-label dataset (labels are the first L attributes): label j as
+ * class attribute (at position 0), followed by the feature attributes, the same data that
+ * <code>F.keepLabels(D, L, new int[]{j})</code> produces. The rows are
+ * {@link LabelProjectedInstance} objects that read the values from the underlying dataset,
+ * i.e., the feature values are not copied. The underlying dataset never gets modified through
+ * the view, as projected instances copy their values before the first modification.
+ * <br>
+ * The header gets built for each label, but the feature attributes can be shared with another
+ * view of the same dataset, to avoid copying them for every label.
+ *
+ * @version $Revision$
+ */
+public class LabelProjectedInstances
+  extends Instances {
+
+	private static final long serialVersionUID = 3870853452453931370L;
+
+	/**
+	 * Initializes the view.
+	 *
+	 * @param source	the multi-label dataset
+	 * @param L		the number of labels
+	 * @param j		the label to keep as class
+	 */
+	public LabelProjectedInstances(Instances source, int L, int j) {
+		this(source, L, j, null);
+	}
+
+	/**
+	 * Initializes the view.
+	 *
+	 * @param source	the multi-label dataset
+	 * @param L		the number of labels
+	 * @param j		the label to keep as class
+	 * @param template	the projected header of another label of the same dataset to share the
+	 *                      feature attributes with, null to copy them
+	 */
+	public LabelProjectedInstances(Instances source, int L, int j, Instances template) {
+		super(source.relationName(), attributes(source, L, j, template), source.numInstances());
+
+		int		i;
+		LabelProjectedInstance	inst;
+
+		setClassIndex(0);
+		for (i = 0; i < source.numInstances(); i++) {
+			inst = new LabelProjectedInstance(source.instance(i), L, j);
+			inst.setDataset(this);
+			m_Instances.add(inst);
+		}
+	}
+
+	/**
+	 * Generates the attributes of the projected header: label j followed by the features.
+	 *
+	 * @param source	the multi-label dataset
+	 * @param L		the number of labels
+	 * @param j		the label to keep as class
+	 * @param template	the projected header to share the feature attributes with, null to copy them
+	 * @return		the attributes
+	 */
+	protected static ArrayList<Attribute> attributes(Instances source, int L, int j, Instances template) {
+		ArrayList<Attribute>	result;
+		int			i;
+
+		if ((template != null) && (template.numAttributes() != source.numAttributes() - L + 1))
+			throw new IllegalArgumentException(
+			  "Template has " + template.numAttributes() + " attributes, expected " + (source.numAttributes() - L + 1) + "!");
+
+		result = new ArrayList<>(source.numAttributes() - L + 1);
+		result.add((Attribute) source.attribute(j).copy());
+		for (i = L; i < source.numAttributes(); i++) {
+			if (template != null)
+				result.add(template.attribute(i - L + 1));
+			else
+				result.add((Attribute) source.attribute(i).copy());
+		}
+
+		return result;
+	}
+}
@@ -15,6 +15,10 @@
 
 package meka.core;
 
+import weka.core.Instance;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -24,6 +28,9 @@ import java.util.Set;
 /**
  * Comparator - A fast sparse labelset representation.
  * e.g. [0,2,3] -- the indices of relevant labels.
+ * Along with the indices, the labelset is kept as a bit mask (packed into long words), so that equality and subset tests take O(L/64) bitwise operations; the hash code is cached.
+ * The indices must therefore not be modified once the labelset is constructed.
+ * @see LabelSetPool
  * @author 	Jesse Read 
  * @version	March 2014
  */
@@ -34,6 +41,12 @@ public class LabelSet implements Comparator, Serializable {
 
 	public int indices[];  // indices of relevant labels, e.g., [1,5,7]
 
+	/** the bit mask, label j is bit (j % 64) of words[j / 64] (trailing words may be 0) */
+	protected transient long words[] = new long[0];
+
+	/** the hash code, the same as Arrays.hashCode(indices) */
+	protected transient int hash = 0;
+
 	public LabelSet() {
 	}
 
@@ -43,6 +56,7 @@ public class LabelSet implements Comparator, Serializable {
 	public LabelSet(int indices[]) {
 		// Assume they are sorted
 		this.indices = indices;
+		pack();
 	} 
 
 	/**
@@ -53,6 +67,27 @@ public class LabelSet implements Comparator, Serializable {
 		// Sort them
 		if (sort == true)
 			Arrays.sort(this.indices);
+		pack();
+	}
+
+	/**
+	 * A new LabelSet, given a bit mask (e.g., of a LabelSet used for lookups, see #set(Instance,int)), which gets copied.
+	 */
+	public LabelSet(long words[]) {
+		int n = 0;
+		for(long w : words) {
+			n += Long.bitCount(w);
+		}
+		this.indices = new int[n];
+		int i = 0;
+		for(int k = 0; k < words.length; k++) {
+			long w = words[k];
+			while (w != 0) {
+				indices[i++] = (k << 6) + Long.numberOfTrailingZeros(w);
+				w &= w - 1;
+			}
+		}
+		pack();
 	}
 
 	public LabelSet(List<Integer> list) {
@@ -64,11 +99,91 @@ public class LabelSet implements Comparator, Serializable {
 		//this.indices = new int[list.size()];
 		//list.toArray(this.indices);
 		this.indices = A.toPrimitive(array);
+		Arrays.sort(this.indices);
+		pack();
 	}
 
 	public LabelSet(Set<Integer> set) {
+		// (a HashSet is not iterated in order)
 		Integer[] array = set.toArray(new Integer[0]);
 		this.indices = A.toPrimitive(array);
+		Arrays.sort(this.indices);
+		pack();
+	}
+
+	/**
+	 * Pack - build the bit mask and the hash code from the indices.
+	 */
+	protected void pack() {
+		hash = Arrays.hashCode(indices);
+		if (indices == null) {
+			words = new long[0];
+			return;
+		}
+		int max = -1;
+		for(int j : indices) {
+			max = Math.max(max, j);
+		}
+		words = new long[(max >> 6) + 1];
+		for(int j : indices) {
+			words[j >> 6] |= 1L << j;
+		}
+	}
+
+	/**
+	 * Set - make this LabelSet the relevant labels (the first L attributes with a value &gt; 0) of x, without allocating any indices.
+	 * Only the bit mask and the hash code are set, which is enough for looking up an equal LabelSet in a hash map, e.g., with LabelSetPool.
+	 * @param	x	an instance
+	 * @param	L	the number of labels
+	 */
+	public void set(Instance x, int L) {
+		int n = (L + 63) >> 6;
+		if (words.length < n)
+			words = new long[n];
+		else
+			Arrays.fill(words, 0L);
+		indices = null;
+		if (x.numValues() < x.numAttributes()) {
+			// sparse
+			for(int p = 0; p < x.numValues(); p++) {
+				int j = x.index(p);
+				if (j >= L)
+					break;
+				if (x.valueSparse(p) > 0.)
+					words[j >> 6] |= 1L << j;
+			}
+		}
+		else {
+			for(int j = 0; j < L; j++) {
+				if (x.value(j) > 0.)
+					words[j >> 6] |= 1L << j;
+			}
+		}
+		// (the hash code of the sorted indices)
+		int h = 1;
+		for(int k = 0; k < words.length; k++) {
+			long w = words[k];
+			while (w != 0) {
+				h = 31 * h + (k << 6) + Long.numberOfTrailingZeros(w);
+				w &= w - 1;
+			}
+		}
+		hash = h;
+	}
+
+	/**
+	 * GetWords - the bit mask (not to be modified); trailing words may be 0.
+	 */
+	public final long[] getWords() {
+		return words;
+	}
+
+	/**
+	 * Rebuilds the bit mask and the hash code after deserialization.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		pack();
 	}
 
 	/*
@@ -79,7 +194,7 @@ public class LabelSet implements Comparator, Serializable {
 	*/
 
 	public final boolean contains(int j) {
-		return Arrays.binarySearch(indices,j) < 0 ? false : true;
+		return (j >> 6) < words.length && (words[j >> 6] & (1L << j)) != 0;
 	}
 
 	public final boolean contains(int js[]) {
@@ -91,25 +206,55 @@ public class LabelSet implements Comparator, Serializable {
 	}
 
 	@Override
-	public final int hashCode() {
-		return Arrays.hashCode(indices);
+	public int hashCode() {
+		return hash;
 	}
 
 	@Override
 	public boolean equals(Object o) {
+		if (o == this)
+			return true;
 		LabelSet l2 = (LabelSet)o;
-		if (indices.length != l2.indices.length)
+		if (hash != l2.hash)
 			return false;
-		else {
-			for(int i = 0; i < indices.length; i++) {
-				if (indices[i] != l2.indices[i]) {
-					return false;
-				}
-			}
+		long w1[] = words;
+		long w2[] = l2.words;
+		int n = Math.min(w1.length, w2.length);
+		for(int k = 0; k < n; k++) {
+			if (w1[k] != w2[k])
+				return false;
+		}
+		for(int k = n; k < w1.length; k++) {
+			if (w1[k] != 0)
+				return false;
+		}
+		for(int k = n; k < w2.length; k++) {
+			if (w2[k] != 0)
+				return false;
 		}
 		return true;
 	}
 
+	/**
+	 * IsSubsetOf - returns true if this \subseteq y.
+	 */
+	public final boolean isSubsetOf(LabelSet y) {
+		long w1[] = words;
+		long w2[] = y.words;
+		for(int k = 0; k < w1.length; k++) {
+			if ((w1[k] & ~((k < w2.length) ? w2[k] : 0L)) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * IsSupersetOf - returns true if y \subseteq this.
+	 */
+	public final boolean isSupersetOf(LabelSet y) {
+		return y.isSubsetOf(this);
+	}
+
 	// @todo, return based on map, if we have access to one, else just length
 	@Override
 	public int compare(Object o1, Object o2) {
@@ -138,8 +283,11 @@ public class LabelSet implements Comparator, Serializable {
 			} 
 	} 
 
+	/**
+	 * Subsetof - returns the number of labels of this LabelSet if this \subseteq y, else -1 (like #subset(int[],int[])).
+	 */
 	public final int subsetof(LabelSet y) {
-		return subset(this.indices,y.indices);
+		return isSubsetOf(y) ? this.indices.length : -1;
 	}
 
 	/**
@@ -177,7 +325,14 @@ public class LabelSet implements Comparator, Serializable {
 	//[275226, 338304] \ [99203, 115256]]]
 
 	public void minus(LabelSet l2) {
-		this.indices = minus(this.indices,l2.indices);
+		long w[] = Arrays.copyOf(words, words.length);
+		for(int k = 0; k < Math.min(w.length, l2.words.length); k++) {
+			w[k] &= ~l2.words[k];
+		}
+		LabelSet y = new LabelSet(w);
+		this.indices = y.indices;
+		this.words = y.words;
+		this.hash = y.hash;
 	}
 
 	/**
@@ -211,9 +366,24 @@ public class LabelSet implements Comparator, Serializable {
 		return Arrays.copyOf(keep,i);
 	}
 
-	// the distance between two labelsets = longest common sub-sequence?
-	public int distance(LabelSet o) {
-		return 0;
+	/**
+	 * Distance - the Hamming distance to y, i.e., the number of labels relevant in only one of the two.
+	 */
+	public int distance(LabelSet y) {
+		long w1[] = words;
+		long w2[] = y.words;
+		int n = Math.min(w1.length, w2.length);
+		int d = 0;
+		for(int k = 0; k < n; k++) {
+			d += Long.bitCount(w1[k] ^ w2[k]);
+		}
+		for(int k = n; k < w1.length; k++) {
+			d += Long.bitCount(w1[k]);
+		}
+		for(int k = n; k < w2.length; k++) {
+			d += Long.bitCount(w2[k]);
+		}
+		return d;
 	}
 
 	public LabelSet deep_copy() {
@@ -0,0 +1,159 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * LabelSetBKTree - a BK-tree over labelsets, for finding the known labelset nearest to a given one (in Hamming distance).
+ * The distances are computed on the bit masks of the labelsets (see LabelSet#distance(LabelSet)), and the triangle inequality
+ * prunes the subtrees that cannot contain anything closer than the best labelset found so far.
+ * <br>
+ * Ties are broken deterministically: the labelset with the highest count wins, then the one that was added first.
+ * Not thread-safe while adding; queries can run concurrently.
+ * @see LabelSet
+ * @version	$Revision$
+ */
+public class LabelSetBKTree implements Serializable {
+
+	/** for serialization. */
+	private static final long serialVersionUID = 1398257310664232758L;
+
+	/**
+	 * A node of the tree, i.e., a labelset, with its children by distance.
+	 */
+	protected static class Node implements Serializable {
+
+		/** for serialization. */
+		private static final long serialVersionUID = -4930377296140186553L;
+
+		/** the labelset */
+		protected LabelSet set;
+
+		/** the count of the labelset */
+		protected int count;
+
+		/** the order in which the labelset was added */
+		protected int rank;
+
+		/** the distances of the children to this node */
+		protected int distances[] = new int[0];
+
+		/** the children, in the order of the distances */
+		protected Node children[] = new Node[0];
+
+		protected Node(LabelSet set, int count, int rank) {
+			this.set = set;
+			this.count = count;
+			this.rank = rank;
+		}
+
+		/**
+		 * Returns the child at distance d, null if none.
+		 */
+		protected Node child(int d) {
+			for(int i = 0; i < distances.length; i++) {
+				if (distances[i] == d)
+					return children[i];
+			}
+			return null;
+		}
+
+		/**
+		 * Adds a child at distance d.
+		 */
+		protected void addChild(int d, Node node) {
+			distances = Arrays.copyOf(distances, distances.length + 1);
+			distances[distances.length - 1] = d;
+			children = Arrays.copyOf(children, children.length + 1);
+			children[children.length - 1] = node;
+		}
+	}
+
+	/** the root */
+	protected Node m_Root = null;
+
+	/** the number of labelsets */
+	protected int m_Size = 0;
+
+	/**
+	 * Add - add labelset y with its count; the count is added up if y is already in the tree.
+	 */
+	public void add(LabelSet y, int count) {
+		if (m_Root == null) {
+			m_Root = new Node(y, count, m_Size++);
+			return;
+		}
+		Node node = m_Root;
+		while (true) {
+			int d = node.set.distance(y);
+			if (d == 0) {
+				node.count += count;
+				return;
+			}
+			Node child = node.child(d);
+			if (child == null) {
+				node.addChild(d, new Node(y, count, m_Size++));
+				return;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Size - the number of (distinct) labelsets.
+	 */
+	public int size() {
+		return m_Size;
+	}
+
+	/**
+	 * Returns true if node n1 is preferred over node n2 at the same distance.
+	 */
+	protected static boolean preferred(Node n1, Node n2) {
+		return n1.count > n2.count || (n1.count == n2.count && n1.rank < n2.rank);
+	}
+
+	/**
+	 * Nearest - the labelset nearest to y, with ties broken by count (then by the order of adding), null if the tree is empty.
+	 */
+	public LabelSet nearest(LabelSet y) {
+		if (m_Root == null)
+			return null;
+
+		Node best = null;
+		int bestDistance = Integer.MAX_VALUE;
+		Deque<Node> stack = new ArrayDeque<Node>();
+		stack.push(m_Root);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			int d = node.set.distance(y);
+			if (d < bestDistance || (d == bestDistance && preferred(node, best))) {
+				best = node;
+				bestDistance = d;
+			}
+			// (children with a distance outside [d - best, d + best] cannot be closer than the best; equally close ones are kept for the ties)
+			for(int i = 0; i < node.children.length; i++) {
+				if (Math.abs(node.distances[i] - d) <= bestDistance)
+					stack.push(node.children[i]);
+			}
+		}
+		return best.set;
+	}
+}
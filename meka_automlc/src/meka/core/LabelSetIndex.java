@@ -0,0 +1,258 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * LabelSetIndex - a subset index over the labelsets of a count map (as produced by <code>PSUtils.countCombinationsSparse</code>),
+ * for answering "which known labelsets are subsets of y" without looking at every labelset.
+ * <br>
+ * The labelsets are stored in a trie over their sorted indices, e.g., [0,2,7] under 0 &rarr; 2 &rarr; 7. A query only descends into
+ * the children whose label is relevant in y, so it visits the subsets of y that are prefixes of known labelsets, rather than all of them.
+ * <br>
+ * The rankings are the same as the ones of the corresponding methods in PSUtils, i.e., sorted by a LabelSetComparator on the map, where
+ * labelsets of equal length and count are considered duplicates and only the first of them (in the iteration order of the map) is kept.
+ * The map must not be modified once the index has been built.
+ * @see PSUtils#getTopNSubsets(LabelSet, HashMap, int)
+ * @see LabelSetComparator
+ * @version	$Revision$
+ */
+public class LabelSetIndex implements Serializable {
+
+	/** for serialization. */
+	private static final long serialVersionUID = -6468013766384106373L;
+
+	/**
+	 * A node of the trie, i.e., a prefix of at least one of the labelsets.
+	 */
+	protected static class Node implements Serializable {
+
+		/** for serialization. */
+		private static final long serialVersionUID = 2890474457914004887L;
+
+		/** the (sorted) labels of the children */
+		protected int labels[] = new int[0];
+
+		/** the children, in the order of the labels */
+		protected Node children[] = new Node[0];
+
+		/** the labelset ending at this node, null if none */
+		protected LabelSet set = null;
+
+		/** the count of the labelset */
+		protected int count = 0;
+
+		/** the position of the labelset in the iteration order of the map (for breaking ties) */
+		protected int rank = 0;
+
+		/**
+		 * Returns the child for the label, creating it if necessary.
+		 */
+		protected Node child(int label) {
+			int i = Arrays.binarySearch(labels, label);
+			if (i >= 0)
+				return children[i];
+			i = -(i + 1);
+			Node node = new Node();
+			int labels_[] = new int[labels.length + 1];
+			System.arraycopy(labels, 0, labels_, 0, i);
+			System.arraycopy(labels, i, labels_, i + 1, labels.length - i);
+			labels_[i] = label;
+			labels = labels_;
+			Node children_[] = new Node[children.length + 1];
+			System.arraycopy(children, 0, children_, 0, i);
+			System.arraycopy(children, i, children_, i + 1, children.length - i);
+			children_[i] = node;
+			children = children_;
+			return node;
+		}
+	}
+
+	/** ascending by length, then count, then rank */
+	protected static final Comparator<Node> RANKING = new Comparator<Node>() {
+		@Override
+		public int compare(Node n1, Node n2) {
+			int l1 = n1.set.indices.length;
+			int l2 = n2.set.indices.length;
+			if (l1 != l2)
+				return l1 < l2 ? -1 : 1;
+			if (n1.count != n2.count)
+				return n1.count < n2.count ? -1 : 1;
+			return n1.rank < n2.rank ? -1 : (n1.rank > n2.rank ? 1 : 0);
+		}
+	};
+
+	/** the map of labelsets to counts */
+	protected HashMap<LabelSet,Integer> m_Map;
+
+	/** the root of the trie (the empty labelset) */
+	protected Node m_Root = new Node();
+
+	/**
+	 * Builds the index over the labelsets in 'map'.
+	 * @param	map	a map of labelsets to counts e.g., {[0,2]:39, [2,7]:5, [2,9]:24...}
+	 */
+	public LabelSetIndex(HashMap<LabelSet,Integer> map) {
+		m_Map = map;
+		int rank = 0;
+		for(LabelSet y : map.keySet()) {
+			Node node = m_Root;
+			for(int j : y.indices) {
+				node = node.child(j);
+			}
+			node.set = y;
+			node.count = map.get(y);
+			node.rank = rank++;
+		}
+	}
+
+	/**
+	 * Returns the map that the index was built from.
+	 */
+	public HashMap<LabelSet,Integer> getMap() {
+		return m_Map;
+	}
+
+	/**
+	 * Count - the count of labelset y, 0 if it is not in the index.
+	 */
+	public int count(LabelSet y) {
+		Integer c = m_Map.get(y);
+		return c == null ? 0 : c;
+	}
+
+	/**
+	 * Collects the nodes of all (non-empty) labelsets below 'node' that are subsets of y, considering only y[from], y[from+1], ...
+	 */
+	protected static void collect(Node node, int y[], int from, List<Node> result) {
+		int labels[] = node.labels;
+		int a = 0;
+		int b = from;
+		while (a < labels.length && b < y.length) {
+			if (labels[a] == y[b]) {
+				Node child = node.children[a];
+				if (child.set != null)
+					result.add(child);
+				collect(child, y, b + 1, result);
+				a++;
+				b++;
+			}
+			else if (labels[a] < y[b]) {
+				a++;
+			}
+			else {
+				b++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the nodes of all (non-empty) labelsets that are subsets of y, ranked ascending, without the duplicates (same length and count).
+	 */
+	protected List<Node> ranked(LabelSet y) {
+		List<Node> nodes = new ArrayList<Node>();
+		collect(m_Root, y.indices, 0, nodes);
+		Collections.sort(nodes, RANKING);
+		List<Node> result = new ArrayList<Node>(nodes.size());
+		Node last = null;
+		for(Node node : nodes) {
+			if (last != null && last.set.indices.length == node.set.indices.length && last.count == node.count)
+				continue;
+			result.add(node);
+			last = node;
+		}
+		return result;
+	}
+
+	/**
+	 * Get Subsets - get all (non-empty) subsets of 'y' in the index.
+	 * @see PSUtils#getSubsets(LabelSet, Set)
+	 */
+	public List<LabelSet> getSubsets(LabelSet y) {
+		List<Node> nodes = new ArrayList<Node>();
+		collect(m_Root, y.indices, 0, nodes);
+		List<LabelSet> result = new ArrayList<LabelSet>(nodes.size());
+		for(Node node : nodes) {
+			result.add(node.set);
+		}
+		return result;
+	}
+
+	/**
+	 * Get Sorted Subsets - get all subsets of 'y' in the index; sorted according to length, and counts.
+	 * @see PSUtils#getSortedSubsets(LabelSet, HashMap)
+	 */
+	public SortedSet<LabelSet> getSortedSubsets(LabelSet y) {
+		final LabelSetComparator comparator = new LabelSetComparator(m_Map);
+		SortedSet<LabelSet> subsets = new TreeSet<LabelSet>(new Comparator<LabelSet>() {
+			@Override
+			public int compare(LabelSet y1, LabelSet y2) {
+				return comparator.compare(y1, y2);
+			}
+		});
+		for(Node node : ranked(y)) {
+			subsets.add(node.set);
+		}
+		return subsets;
+	}
+
+	/**
+	 * GetAllSubsets - Get all frequent subsets of 'y'.
+	 * @see PSUtils#getAllSubsets(LabelSet, HashMap)
+	 */
+	public LabelSet[] getAllSubsets(LabelSet y) {
+		return getTopNSubsets(y, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * GetTopNSubsets - the top 'n' subsets of 'y' (or just y, if it is in the index), in ascending order, i.e., the best one last.
+	 * @see PSUtils#getTopNSubsets(LabelSet, HashMap, int)
+	 */
+	public LabelSet[] getTopNSubsets(LabelSet y, int n) {
+		if (count(y) >= 1)
+			return new LabelSet[]{y};
+
+		List<Node> nodes = ranked(y);
+		int from = Math.max(0, nodes.size() - n);
+		LabelSet s[] = new LabelSet[nodes.size() - from];
+		for(int i = from; i < nodes.size(); i++) {
+			s[i - from] = nodes.get(i).set;
+		}
+		return s;
+	}
+
+	/**
+	 * Cover - cover 'y' completely (or as best as possible) with labelsets from the index.
+	 * @see PSUtils#cover(LabelSet, HashMap)
+	 */
+	public LabelSet[] cover(LabelSet y) {
+		if (count(y) >= 1)
+			return new LabelSet[]{y};
+
+		Set<LabelSet> covS = PSUtils.cover(y, getSortedSubsets(y), new LabelSetComparator(m_Map));
+		return covS.toArray(new LabelSet[0]);
+	}
+}
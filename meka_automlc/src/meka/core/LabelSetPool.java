@@ -0,0 +1,96 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package meka.core;
+
+import weka.core.Instance;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+/**
+ * LabelSetPool - interns LabelSets, i.e., keeps a single LabelSet object for each distinct labelset (keyed on the bit mask).
+ * The labelsets of instances can be looked up without allocating anything, so only the first occurrence of each labelset creates a LabelSet.
+ * Not thread-safe.
+ * @see LabelSet
+ * @version	$Revision$
+ */
+public class LabelSetPool implements Serializable {
+
+	/** for serialization. */
+	private static final long serialVersionUID = 4217741437355702313L;
+
+	/** the interned labelsets */
+	protected HashMap<LabelSet,LabelSet> m_Pool = new HashMap<LabelSet,LabelSet>();
+
+	/** for looking up the labelsets of instances */
+	protected transient LabelSet m_Probe = null;
+
+	/**
+	 * Intern - returns the pooled LabelSet equal to y, adding y to the pool if there is none yet.
+	 */
+	public LabelSet intern(LabelSet y) {
+		LabelSet s = m_Pool.get(y);
+		if (s == null) {
+			m_Pool.put(y,y);
+			s = y;
+		}
+		return s;
+	}
+
+	/**
+	 * Intern - returns the pooled LabelSet of the relevant labels of x (the first L attributes with a value &gt; 0), creating it if there is none yet.
+	 */
+	public LabelSet intern(Instance x, int L) {
+		LabelSet probe = probe(x,L);
+		LabelSet s = m_Pool.get(probe);
+		if (s == null) {
+			s = new LabelSet(probe.getWords());
+			m_Pool.put(s,s);
+		}
+		return s;
+	}
+
+	/**
+	 * Get - returns the pooled LabelSet of the relevant labels of x (the first L attributes with a value &gt; 0), or null if there is none.
+	 */
+	public LabelSet get(Instance x, int L) {
+		return m_Pool.get(probe(x,L));
+	}
+
+	/**
+	 * Probe - the LabelSet for looking up the labelset of x (reused).
+	 */
+	protected LabelSet probe(Instance x, int L) {
+		if (m_Probe == null)
+			m_Probe = new LabelSet();
+		m_Probe.set(x,L);
+		return m_Probe;
+	}
+
+	/**
+	 * Size - the number of distinct labelsets in the pool.
+	 */
+	public int size() {
+		return m_Pool.size();
+	}
+
+	/**
+	 * Clear - remove all labelsets from the pool.
+	 */
+	public void clear() {
+		m_Pool.clear();
+	}
+}
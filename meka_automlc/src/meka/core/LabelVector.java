@@ -52,6 +52,19 @@ public class LabelVector extends LabelSet {
 	} 
 	*/
 
+	/** the cached hash code of the values (0 if not computed yet) */
+	protected transient int hashValues = 0;
+
+	@Override
+	public int hashCode() {
+		int h = hashValues;
+		if (h == 0) {
+			h = Arrays.hashCode(values);
+			hashValues = h;
+		}
+		return h;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 
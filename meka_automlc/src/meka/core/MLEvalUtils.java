@@ -74,40 +74,40 @@ public abstract class MLEvalUtils {
 
 		int Ypred[][] = ThresholdUtils.threshold(Rpred,t);
 
+		// all the count-based measures, collected in a single pass over the data
+		MetricCounts C = new MetricCounts(Y,Ypred,V > 2,ThreadUtils.ALL);
+
 		HashMap<String,Object> results = new LinkedHashMap<String,Object>();
 
 //		results.put("Number of test instances (N)"			,(int)N);
-		results.put("Accuracy"+"-"+evaluationType			,Metrics.P_Accuracy(Y,Ypred));
-		results.put("Jaccard-index"+"-"+evaluationType		,Metrics.P_Accuracy(Y,Ypred));
-		results.put("Hamming-score"+"-"+evaluationType		,Metrics.P_Hamming(Y,Ypred));
-		results.put("Exact-match"+"-"+evaluationType		,Metrics.P_ExactMatch(Y,Ypred));
+		results.put("Accuracy"+"-"+evaluationType			,C.P_Accuracy());
+		results.put("Jaccard-index"+"-"+evaluationType		,C.P_Accuracy());
+		results.put("Hamming-score"+"-"+evaluationType		,C.P_Hamming());
+		results.put("Exact-match"+"-"+evaluationType		,C.P_ExactMatch());
 
 		if (V > 1) {
 
-			results.put("Jaccard-distance"+"-"+evaluationType	,Metrics.L_JaccardDist(Y,Ypred));
-			results.put("Hamming-loss"+"-"+evaluationType		,Metrics.L_Hamming(Y,Ypred));
-			results.put("ZeroOne-loss"+"-"+evaluationType		,Metrics.L_ZeroOne(Y,Ypred));
-			results.put("Harmonic-score"+"-"+evaluationType	,Metrics.P_Harmonic(Y,Ypred));
+			results.put("Jaccard-distance"+"-"+evaluationType	,C.L_JaccardDist());
+			results.put("Hamming-loss"+"-"+evaluationType		,C.L_Hamming());
+			results.put("ZeroOne-loss"+"-"+evaluationType		,C.L_ZeroOne());
+			results.put("Harmonic-score"+"-"+evaluationType	,C.P_Harmonic());
 			results.put("One-error"+"-"+evaluationType			,Metrics.L_OneError(Y,Rpred));
 			results.put("Rank-loss"+"-"+evaluationType			,Metrics.L_RankLoss(Y,Rpred));
 			results.put("Avg-precision"+"-"+evaluationType		,Metrics.P_AveragePrecision(Y,Rpred));
 			results.put("Log-Loss-lim:L"+"-"+evaluationType	,Metrics.L_LogLossL(Y,Rpred));
 			results.put("Log-Loss-lim:D"+"-"+evaluationType	,Metrics.L_LogLossD(Y,Rpred));
 			if (V > 3) {
-				results.put("Micro-Precision"+"-"+evaluationType		,Metrics.P_PrecisionMicro(Y,Ypred));
-				results.put("Micro-Recall"+"-"+evaluationType			,Metrics.P_RecallMicro(Y,Ypred));
-				results.put("Macro-Precision"+"-"+evaluationType		,Metrics.P_PrecisionMacro(Y,Ypred));
-				results.put("Macro-Recall"+"-"+evaluationType			,Metrics.P_RecallMacro(Y,Ypred));
+				results.put("Micro-Precision"+"-"+evaluationType		,C.P_PrecisionMicro());
+				results.put("Micro-Recall"+"-"+evaluationType			,C.P_RecallMicro());
+				results.put("Macro-Precision"+"-"+evaluationType		,C.P_PrecisionMacro());
+				results.put("Macro-Recall"+"-"+evaluationType			,C.P_RecallMacro());
 			}
-			results.put("F1-micro-averaged"+"-"+evaluationType				,Metrics.P_FmicroAvg(Y,Ypred));
-			results.put("F1-macro-averaged-by-example"+"-"+evaluationType   	,Metrics.P_FmacroAvgD(Y,Ypred));
-			results.put("F1-macro-averaged-by-label"+"-"+evaluationType		,Metrics.P_FmacroAvgL(Y,Ypred));
+			results.put("F1-micro-averaged"+"-"+evaluationType				,C.P_FmicroAvg());
+			results.put("F1-macro-averaged-by-example"+"-"+evaluationType   	,C.P_FmacroAvgD());
+			results.put("F1-macro-averaged-by-label"+"-"+evaluationType		,C.P_FmacroAvgL());
 			results.put("AUPRC-macro-averaged"+"-"+evaluationType		    ,Metrics.P_macroAUPRC(Y,Rpred));
 			results.put("AUROC-macro-averaged"+"-"+evaluationType		    ,Metrics.P_macroAUROC(Y,Rpred));
-			// This will not be displayed to text output, rather as a graph
-			results.put("Curve-Data"+"-"+evaluationType		                ,Metrics.curveData(Y,Rpred));
-			results.put("Macro-Curve-Data"+"-"+evaluationType		            ,Metrics.curveDataMacroAveraged(Y,Rpred));
-			results.put("Micro-Curve-Data"+"-"+evaluationType		            ,Metrics.curveDataMicroAveraged(Y,Rpred));
+			// Curve data for plotting is computed on demand, see getCurveData(Result) etc.
 
 			if (V > 2) {
 				results.put("Label-indices"+"-"+evaluationType	,A.make_sequence(L));
@@ -116,10 +116,10 @@ public abstract class MLEvalUtils {
 				double Pr[] = new double[L];
 				double Re[] = new double[L];
 				for(int j = 0; j < L; j++) {
-					HL[j] = Metrics.P_Hamming(Y,Ypred,j);
-					HA[j] = Metrics.P_Harmonic(Y,Ypred,j);
-					Pr[j] = Metrics.P_Precision(Y,Ypred,j);
-					Re[j] = Metrics.P_Recall(Y,Ypred,j);
+					HL[j] = C.P_Hamming(j);
+					HA[j] = C.P_Harmonic(j);
+					Pr[j] = C.P_Precision(j);
+					Re[j] = C.P_Recall(j);
 				}
 				results.put("Accuracy-per-label)"+"-"+evaluationType	        ,HL);
 				if (V > 3) {
@@ -130,19 +130,19 @@ public abstract class MLEvalUtils {
 			}
 
 			if (V > 2) {
-				results.put("Empty-labelvectors-predicted"+"-"+evaluationType	,MLUtils.emptyVectors(Ypred));
-				results.put("Label-cardinality-predicted"+"-"+evaluationType		,MLUtils.labelCardinality(Ypred));
-				results.put("Levenshtein-distance"+"-"+evaluationType, Metrics.L_LevenshteinDistance(Y, Ypred));
+				results.put("Empty-labelvectors-predicted"+"-"+evaluationType	,C.emptyVectors());
+				results.put("Label-cardinality-predicted"+"-"+evaluationType		,C.labelCardinalityPredicted());
+				results.put("Levenshtein-distance"+"-"+evaluationType, C.L_LevenshteinDistance());
 				if (V > 3) {
 					// Label cardinality
-					results.put("Label-cardinality-difference"+"-"+evaluationType		,MLUtils.labelCardinality(Y)-MLUtils.labelCardinality(Ypred));
+					results.put("Label-cardinality-difference"+"-"+evaluationType		,C.labelCardinality()-C.labelCardinalityPredicted());
 					double diff_LC[] = new double[L];
 					double true_LC[] = new double[L];
 					double pred_LC[] = new double[L];
 					for(int j = 0; j < L; j++) {
-						diff_LC[j] = MLUtils.labelCardinality(Y,j) - MLUtils.labelCardinality(Ypred,j);
-						true_LC[j] = MLUtils.labelCardinality(Y,j);
-						pred_LC[j] = MLUtils.labelCardinality(Ypred,j);
+						diff_LC[j] = C.labelCardinality(j) - C.labelCardinalityPredicted(j);
+						true_LC[j] = C.labelCardinality(j);
+						pred_LC[j] = C.labelCardinalityPredicted(j);
 					}
 					results.put("avg-relevance-test-set"+"-"+evaluationType		,true_LC);
 					results.put("avg-relevance-predicted"+"-"+evaluationType		,pred_LC);
@@ -153,6 +153,46 @@ public abstract class MLEvalUtils {
 		return results;
 	}
 
+	/**
+	 * GetCurveData - compute the data for plotting the per-label PR and ROC curves of the predictions in r,
+	 * with at most CurveUtils.MAX_POINTS points per label.
+	 * @param	r	the result with the predictions
+	 * @return	the curve data, one per label (null for labels with all values missing)
+	 */
+	public static Instances[] getCurveData(Result r) {
+		return Metrics.curveData(r.allTrueValues(), r.allPredictions(), CurveUtils.MAX_POINTS);
+	}
+
+	/**
+	 * GetCurveAreas - compute the per-label areas under the ROC or PR curves of the predictions in r, on all of the predictions
+	 * (i.e., the areas that the macro-averaged AUROC/AUPRC are the mean of, rather than the areas under the thinned out curve data).
+	 * @param	r	the result with the predictions
+	 * @param	roc	true for the ROC curves, false for the precision-recall curves
+	 * @return	the areas, one per label
+	 */
+	public static double[] getCurveAreas(Result r, boolean roc) {
+		return CurveUtils.getAreas(r.allTrueValues(), r.allPredictions(), roc, ThreadUtils.ALL);
+	}
+
+	/**
+	 * GetMacroCurveData - compute the data for plotting the macro-averaged PR and ROC curves of the predictions in r.
+	 * @param	r	the result with the predictions
+	 * @return	the curve data
+	 */
+	public static Instances getMacroCurveData(Result r) {
+		return Metrics.curveDataMacroAveraged(r.allTrueValues(), r.allPredictions());
+	}
+
+	/**
+	 * GetMicroCurveData - compute the data for plotting the micro-averaged PR and ROC curves of the predictions in r,
+	 * with at most CurveUtils.MAX_POINTS points.
+	 * @param	r	the result with the predictions
+	 * @return	the curve data
+	 */
+	public static Instances getMicroCurveData(Result r) {
+		return Metrics.curveDataMicroAveraged(r.allTrueValues(), r.allPredictions(), CurveUtils.MAX_POINTS);
+	}
+
 	/**
 	 * GetMTStats - Given multi-target predictions and corresponding true values, retreive evaluation statistics.
 	 * @param	Rpred	predictions
@@ -587,6 +587,40 @@ public abstract class MLUtils {
 		return max_k;
 	}
 
+	/**
+	 * StratifiedSample - select n rows of D such that each label combination is represented proportionally.
+	 * The rows are sorted by their label combination and then sampled systematically (every N/n-th row, from a random offset).
+	 * @param	D	dataset
+	 * @param	n	sample size (if n &ge; N, all rows are returned)
+	 * @param	r	random number generator
+	 * @return	the row indices of the sample, in random order
+	 */
+	public static final int[] stratifiedSample(Instances D, int n, Random r) {
+		int L = D.classIndex();
+		int N = D.numInstances();
+		final String y[] = new String[N];
+		Integer rows[] = new Integer[N];
+		for (int i = 0; i < N; i++) {
+			y[i] = toBitString(D.instance(i),L);
+			rows[i] = i;
+		}
+		Arrays.sort(rows, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				int c = y[i1].compareTo(y[i2]);
+				return (c != 0) ? c : i1.compareTo(i2);
+			}
+		});
+		int sample[] = new int[Math.max(0, Math.min(n, N))];
+		double step = (double)N / sample.length;
+		double start = r.nextDouble() * step;
+		for (int k = 0; k < sample.length; k++) {
+			sample[k] = rows[(int)(start + k * step)];
+		}
+		A.shuffle(sample,r);
+		return sample;
+	}
+
 	/** Get the number of unique label combinations in a dataset */
 	public static final int numberOfUniqueCombinations(Instances D) {
 		HashMap<String,Integer> hm = classCombinationCounts(D);
@@ -0,0 +1,632 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * MetricCounts.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Collects the per-example and per-label confusion counts of thresholded
+ * multi-label predictions in a single pass over the data, and derives the
+ * count-based measures of {@link Metrics} from them. Missing labels (-1) are
+ * treated exactly as by the corresponding methods in {@link Metrics}, and the
+ * values are accumulated in the same order, hence the results are identical.
+ * The rows are processed in chunks, in parallel if more than one thread is used.
+ *
+ * @version $Revision$
+ */
+public class MetricCounts {
+
+	/** the number of rows per chunk. */
+	public final static int CHUNK_SIZE = 1024;
+
+	/** the number of examples. */
+	protected int m_N;
+
+	/** the number of labels. */
+	protected int m_L;
+
+	/** the number of non-missing true labels per example. */
+	protected int[] m_RowValid;
+
+	/** the Jaccard index per example. */
+	protected double[] m_RowAccuracy;
+
+	/** the Hamming loss per example. */
+	protected double[] m_RowHamming;
+
+	/** the 0/1 loss per example. */
+	protected double[] m_RowZeroOne;
+
+	/** the harmonic accuracy per example. */
+	protected double[] m_RowHarmonic;
+
+	/** the F1 measure per example. */
+	protected double[] m_RowF1;
+
+	/** the Levenshtein distance per example (null if not computed). */
+	protected double[] m_RowLevenshtein;
+
+	/** the per-label and overall counts. */
+	protected Counts m_Counts;
+
+	/**
+	 * Label-wise counts of a range of rows.
+	 */
+	protected static class Counts {
+
+		/** the number of non-missing true labels. */
+		public int[] valid;
+
+		/** the number of (aligned) mismatches. */
+		public int[] mismatch;
+
+		/** the number of (aligned) relevant labels. */
+		public int[] relevant;
+
+		/** the number of (aligned) correctly predicted irrelevant labels. */
+		public int[] trueNeg;
+
+		/** the number of true positives. */
+		public int[] tp;
+
+		/** the number of false positives. */
+		public int[] fp;
+
+		/** the number of false negatives. */
+		public int[] fn;
+
+		/** the sum of the true values (incl. missing ones). */
+		public long[] sumTrue;
+
+		/** the sum of the predicted values. */
+		public long[] sumPred;
+
+		/** the number of examples with an empty predicted label vector. */
+		public int emptyPred;
+
+		/**
+		 * Initializes the counts.
+		 *
+		 * @param L	the number of labels
+		 */
+		public Counts(int L) {
+			valid    = new int[L];
+			mismatch = new int[L];
+			relevant = new int[L];
+			trueNeg  = new int[L];
+			tp       = new int[L];
+			fp       = new int[L];
+			fn       = new int[L];
+			sumTrue  = new long[L];
+			sumPred  = new long[L];
+		}
+
+		/**
+		 * Adds the other counts to these ones.
+		 *
+		 * @param other	the counts to add
+		 */
+		public void add(Counts other) {
+			for (int j = 0; j < valid.length; j++) {
+				valid[j]    += other.valid[j];
+				mismatch[j] += other.mismatch[j];
+				relevant[j] += other.relevant[j];
+				trueNeg[j]  += other.trueNeg[j];
+				tp[j]       += other.tp[j];
+				fp[j]       += other.fp[j];
+				fn[j]       += other.fn[j];
+				sumTrue[j]  += other.sumTrue[j];
+				sumPred[j]  += other.sumPred[j];
+			}
+			emptyPred += other.emptyPred;
+		}
+	}
+
+	/**
+	 * Collects the counts.
+	 *
+	 * @param Y		the true values (-1 for missing)
+	 * @param Ypred		the thresholded predictions
+	 * @param levenshtein	whether to compute the Levenshtein distance as well
+	 * @param numThreads	the number of threads to use (-1 for # of cores/cpus)
+	 */
+	public MetricCounts(int Y[][], int Ypred[][], boolean levenshtein, int numThreads) {
+		m_N              = Y.length;
+		m_L              = Y[0].length;
+		m_RowValid       = new int[m_N];
+		m_RowAccuracy    = new double[m_N];
+		m_RowHamming     = new double[m_N];
+		m_RowZeroOne     = new double[m_N];
+		m_RowHarmonic    = new double[m_N];
+		m_RowF1          = new double[m_N];
+		m_RowLevenshtein = levenshtein ? new double[m_N] : null;
+		m_Counts         = count(Y, Ypred, numThreads);
+	}
+
+	/**
+	 * Processes all the rows, in chunks.
+	 *
+	 * @param Y		the true values
+	 * @param Ypred		the predictions
+	 * @param numThreads	the number of threads to use
+	 * @return		the merged label-wise counts
+	 */
+	protected Counts count(final int Y[][], final int Ypred[][], int numThreads) {
+		Counts			result;
+		int			numChunks;
+		List<Callable<Counts>>	jobs;
+		int			i;
+
+		numChunks  = (m_N + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		numThreads = Math.min(ThreadUtils.getActualNumThreads(numThreads, numChunks), numChunks);
+		if (numThreads <= ThreadUtils.SEQUENTIAL)
+			return count(Y, Ypred, 0, m_N);
+
+		jobs = new ArrayList<>();
+		for (i = 0; i < m_N; i += CHUNK_SIZE) {
+			final int from = i;
+			final int to   = Math.min(m_N, i + CHUNK_SIZE);
+			jobs.add(new Callable<Counts>() {
+				@Override
+				public Counts call() {
+					return count(Y, Ypred, from, to);
+				}
+			});
+		}
+
+		// the label-wise counts are integers, so the order of merging does not matter
+		result = new Counts(m_L);
+		try {
+			for (Counts counts: ThreadUtils.invokeAll(jobs, numThreads))
+				result.add(counts);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to collect counts!", e);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Processes a range of rows, storing the per-example values and returning
+	 * the label-wise counts. As with {@link Metrics#align(int[], int[])}, a
+	 * missing prediction for a non-missing true label counts as 0 vs 0.
+	 *
+	 * @param Y		the true values
+	 * @param Ypred		the predictions
+	 * @param from		the first row (incl)
+	 * @param to		the last row (excl)
+	 * @return		the label-wise counts
+	 */
+	protected Counts count(int Y[][], int Ypred[][], int from, int to) {
+		Counts	result;
+		int	i;
+		int	j;
+		int[]	y;
+		int[]	p;
+		int	y_j;
+		int	p_j;
+		int	valid;
+		int	mismatch;
+		int	union;
+		int	inter;
+		int	relevant;
+		int	trueNeg;
+		int	tp;
+		int	fp;
+		int	fn;
+		int	sumPred;
+
+		result = new Counts(m_L);
+		for (i = from; i < to; i++) {
+			y        = Y[i];
+			p        = Ypred[i];
+			valid    = 0;
+			mismatch = 0;
+			union    = 0;
+			inter    = 0;
+			relevant = 0;
+			trueNeg  = 0;
+			tp       = 0;
+			fp       = 0;
+			fn       = 0;
+			sumPred  = 0;
+			for (j = 0; j < m_L; j++) {
+				y_j = y[j];
+				p_j = p[j];
+				sumPred              += p_j;
+				result.sumTrue[j]    += y_j;
+				result.sumPred[j]    += p_j;
+				if (y_j == -1)
+					continue;
+				valid++;
+				result.valid[j]++;
+				if (p_j == 1) {
+					if (y_j == 1) {
+						tp++;
+						result.tp[j]++;
+					}
+					else if (y_j == 0) {
+						fp++;
+						result.fp[j]++;
+					}
+				}
+				else if ((p_j == 0) && (y_j == 1)) {
+					fn++;
+					result.fn[j]++;
+				}
+				// aligned pair
+				if (p_j == -1) {
+					y_j = 0;
+					p_j = 0;
+				}
+				if (y_j != p_j) {
+					mismatch++;
+					result.mismatch[j]++;
+				}
+				if ((y_j == 1) || (p_j == 1))
+					union++;
+				if ((y_j == 1) && (p_j == 1))
+					inter++;
+				if (y_j == 1) {
+					relevant++;
+					result.relevant[j]++;
+				}
+				else if (p_j == 0) {
+					trueNeg++;
+					result.trueNeg[j]++;
+				}
+			}
+
+			if (sumPred <= 0)
+				result.emptyPred++;
+			m_RowValid[i] = valid;
+			if (valid == 0)
+				continue;
+
+			m_RowAccuracy[i] = (union > 0) ? (double) inter / (double) union : 1.0;
+			m_RowHamming[i]  = (double) mismatch / (double) valid;
+			m_RowZeroOne[i]  = (mismatch > 0) ? 1. : 0.;
+			m_RowHarmonic[i] = harmonic(valid, relevant, trueNeg, inter);
+			m_RowF1[i]       = F1(tp, fp, fn);
+			if (m_RowLevenshtein != null)
+				m_RowLevenshtein[i] = Metrics.L_LevenshteinDistance(y, p);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Harmonic accuracy, see {@link Metrics#P_Harmonic(int[], int[])}.
+	 *
+	 * @param valid		the number of (aligned) labels
+	 * @param relevant	the number of relevant labels
+	 * @param trueNeg	the number of correctly predicted irrelevant labels
+	 * @param truePos	the number of correctly predicted relevant labels
+	 * @return		the harmonic accuracy
+	 */
+	protected static double harmonic(int valid, int relevant, int trueNeg, int truePos) {
+		double	acc0;
+		double	acc1;
+
+		acc0 = (double) trueNeg / (double) (valid - relevant);
+		acc1 = (double) truePos / (double) relevant;
+		return 2. / ((1. / acc0) + (1. / acc1));
+	}
+
+	/**
+	 * Precision, see {@link Metrics#P_Precision(int[], int[])}.
+	 *
+	 * @param tp	the true positives
+	 * @param fp	the false positives
+	 * @return	the precision
+	 */
+	protected static double precision(double tp, double fp) {
+		if (tp == 0.0 && fp == 0.0)
+			return 0.0;
+		return tp / (tp + fp);
+	}
+
+	/**
+	 * Recall, see {@link Metrics#P_Recall(int[], int[])}.
+	 *
+	 * @param tp	the true positives
+	 * @param fn	the false negatives
+	 * @return	the recall
+	 */
+	protected static double recall(double tp, double fn) {
+		if (tp == 0.0 && fn == 0.0)
+			return 0.0;
+		return tp / (tp + fn);
+	}
+
+	/**
+	 * F1 measure, see {@link Metrics#F1(int[], int[])}.
+	 *
+	 * @param tp	the true positives
+	 * @param fp	the false positives
+	 * @param fn	the false negatives
+	 * @return	the F1 measure
+	 */
+	protected static double F1(double tp, double fp, double fn) {
+		double	p;
+		double	r;
+
+		p = precision(tp, fp);
+		r = recall(tp, fn);
+		if (p == 0.0 && r == 0.0)
+			return 0.0;
+		return 2. * p * r / (p + r);
+	}
+
+	/**
+	 * Averages the per-example values, skipping examples with all labels
+	 * missing and NaN values.
+	 *
+	 * @param values	the per-example values
+	 * @return		the average
+	 */
+	protected double average(double[] values) {
+		double	sum;
+		int	missing;
+		int	i;
+
+		sum     = 0.0;
+		missing = 0;
+		for (i = 0; i < m_N; i++) {
+			if ((m_RowValid[i] == 0) || Double.isNaN(values[i])) {
+				missing++;
+				continue;
+			}
+			sum += values[i];
+		}
+
+		return sum / (double) (m_N - missing);
+	}
+
+	/**
+	 * Returns the total of the label-wise counts.
+	 *
+	 * @param counts	the counts
+	 * @return		the total
+	 */
+	protected static long total(int[] counts) {
+		long	result;
+
+		result = 0;
+		for (int count: counts)
+			result += count;
+
+		return result;
+	}
+
+	/**
+	 * Returns the total of the label-wise sums.
+	 *
+	 * @param sums	the sums
+	 * @return		the total
+	 */
+	protected static long total(long[] sums) {
+		long	result;
+
+		result = 0;
+		for (long sum: sums)
+			result += sum;
+
+		return result;
+	}
+
+	/** Jaccard Index, see {@link Metrics#P_Accuracy(int[][], int[][])}. */
+	public double P_Accuracy() {
+		return average(m_RowAccuracy);
+	}
+
+	/** Jaccard Distance, see {@link Metrics#L_JaccardDist(int[][], int[][])}. */
+	public double L_JaccardDist() {
+		return 1. - P_Accuracy();
+	}
+
+	/** Hamming loss, see {@link Metrics#L_Hamming(int[][], int[][])}. */
+	public double L_Hamming() {
+		return average(m_RowHamming);
+	}
+
+	/** Hamming score, see {@link Metrics#P_Hamming(int[][], int[][])}. */
+	public double P_Hamming() {
+		return 1. - L_Hamming();
+	}
+
+	/** 0/1 Loss, see {@link Metrics#L_ZeroOne(int[][], int[][])}. */
+	public double L_ZeroOne() {
+		return average(m_RowZeroOne);
+	}
+
+	/** Exact Match, see {@link Metrics#P_ExactMatch(int[][], int[][])}. */
+	public double P_ExactMatch() {
+		return 1. - L_ZeroOne();
+	}
+
+	/** Harmonic Accuracy, see {@link Metrics#P_Harmonic(int[][], int[][])}. */
+	public double P_Harmonic() {
+		return average(m_RowHarmonic);
+	}
+
+	/** F-Measure averaged by example, see {@link Metrics#P_FmacroAvgD(int[][], int[][])}. */
+	public double P_FmacroAvgD() {
+		return average(m_RowF1);
+	}
+
+	/** Levenshtein Distance, see {@link Metrics#L_LevenshteinDistance(int[][], int[][])}. */
+	public double L_LevenshteinDistance() {
+		if (m_RowLevenshtein == null)
+			throw new IllegalStateException("Levenshtein distance was not computed!");
+		return average(m_RowLevenshtein);
+	}
+
+	/** Micro-averaged precision, see {@link Metrics#P_PrecisionMicro(int[][], int[][])}. */
+	public double P_PrecisionMicro() {
+		if (total(m_Counts.valid) == 0)
+			return Double.NaN;
+		return precision(total(m_Counts.tp), total(m_Counts.fp));
+	}
+
+	/** Micro-averaged recall, see {@link Metrics#P_RecallMicro(int[][], int[][])}. */
+	public double P_RecallMicro() {
+		if (total(m_Counts.valid) == 0)
+			return Double.NaN;
+		return recall(total(m_Counts.tp), total(m_Counts.fn));
+	}
+
+	/** Micro-averaged F-measure, see {@link Metrics#P_FmicroAvg(int[][], int[][])}. */
+	public double P_FmicroAvg() {
+		if (total(m_Counts.valid) == 0)
+			return Double.NaN;
+		return F1(total(m_Counts.tp), total(m_Counts.fp), total(m_Counts.fn));
+	}
+
+	/** Macro-averaged precision, see {@link Metrics#P_PrecisionMacro(int[][], int[][])}. */
+	public double P_PrecisionMacro() {
+		double	m;
+		int	L;
+		int	j;
+
+		m = 0.0;
+		L = m_L;
+		for (j = 0; j < m_L; j++) {
+			if (m_Counts.valid[j] == 0) {
+				L--;
+				continue;
+			}
+			m += precision(m_Counts.tp[j], m_Counts.fp[j]);
+		}
+		if (L == 0)
+			return Double.NaN;
+
+		return m / L;
+	}
+
+	/** Macro-averaged recall, see {@link Metrics#P_RecallMacro(int[][], int[][])}. */
+	public double P_RecallMacro() {
+		double	m;
+		int	L;
+		int	j;
+
+		m = 0.0;
+		L = m_L;
+		for (j = 0; j < m_L; j++) {
+			if (m_Counts.valid[j] == 0) {
+				L--;
+				continue;
+			}
+			m += recall(m_Counts.tp[j], m_Counts.fn[j]);
+		}
+		if (L == 0)
+			return Double.NaN;
+
+		return m / L;
+	}
+
+	/** F-Measure macro averaged by label, see {@link Metrics#P_FmacroAvgL(int[][], int[][])}. */
+	public double P_FmacroAvgL() {
+		double	F[];
+		double	prec;
+		double	recall;
+		int	L;
+		int	j;
+
+		F = new double[m_L];
+		L = m_L;
+		for (j = 0; j < m_L; j++) {
+			if (m_Counts.valid[j] == 0) {
+				L--;
+				continue;
+			}
+			if (m_Counts.tp[j] <= 0) {
+				F[j] = 0.0;
+			}
+			else {
+				prec   = (double) m_Counts.tp[j] / ((double) m_Counts.tp[j] + (double) m_Counts.fp[j]);
+				recall = (double) m_Counts.tp[j] / ((double) m_Counts.tp[j] + (double) m_Counts.fn[j]);
+				F[j]   = 2 * ((prec * recall) / (prec + recall));
+			}
+		}
+		if (L == 0)
+			return Double.NaN;
+
+		return A.sum(F) / (double) L;
+	}
+
+	/** Hamming score of the j-th label, see {@link Metrics#P_Hamming(int[][], int[][], int)}. */
+	public double P_Hamming(int j) {
+		if (m_Counts.valid[j] == 0)
+			return Double.NaN;
+		return 1. - (double) m_Counts.mismatch[j] / (double) m_Counts.valid[j];
+	}
+
+	/** Harmonic Accuracy of the j-th label, see {@link Metrics#P_Harmonic(int[][], int[][], int)}. */
+	public double P_Harmonic(int j) {
+		return harmonic(m_Counts.valid[j], m_Counts.relevant[j], m_Counts.trueNeg[j], m_Counts.tp[j]);
+	}
+
+	/** Precision of the j-th label, see {@link Metrics#P_Precision(int[][], int[][], int)}. */
+	public double P_Precision(int j) {
+		if (m_Counts.valid[j] == 0)
+			return Double.NaN;
+		return precision(m_Counts.tp[j], m_Counts.fp[j]);
+	}
+
+	/** Recall of the j-th label, see {@link Metrics#P_Recall(int[][], int[][], int)}. */
+	public double P_Recall(int j) {
+		if (m_Counts.valid[j] == 0)
+			return Double.NaN;
+		return recall(m_Counts.tp[j], m_Counts.fn[j]);
+	}
+
+	/** Proportion of empty predicted label vectors, see {@link MLUtils#emptyVectors(int[][])}. */
+	public double emptyVectors() {
+		return (double) m_Counts.emptyPred / (double) m_N;
+	}
+
+	/** Label cardinality of the true values, see {@link MLUtils#labelCardinality(int[][])}. */
+	public double labelCardinality() {
+		return (double) total(m_Counts.sumTrue) / (double) m_N;
+	}
+
+	/** Label cardinality of the j-th true label, see {@link MLUtils#labelCardinality(int[][], int)}. */
+	public double labelCardinality(int j) {
+		return (double) m_Counts.sumTrue[j] / (double) m_N;
+	}
+
+	/** Label cardinality of the predictions, see {@link MLUtils#labelCardinality(int[][])}. */
+	public double labelCardinalityPredicted() {
+		return (double) total(m_Counts.sumPred) / (double) m_N;
+	}
+
+	/** Label cardinality of the j-th predicted label, see {@link MLUtils#labelCardinality(int[][], int)}. */
+	public double labelCardinalityPredicted(int j) {
+		return (double) m_Counts.sumPred[j] / (double) m_N;
+	}
+}
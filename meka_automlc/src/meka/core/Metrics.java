@@ -996,32 +996,13 @@ public abstract class Metrics {
 
         // works with missing
 	int L = Y[0].length;
-	double AUC[] = new double[L];
 
         int missing = 0;
         
 	for(int j = 0; j < L; j++) {
 	    if(allMissing(MatrixUtils.getCol(Y, j))){
                 missing ++;
-		continue;
 	    }
-	    ThresholdCurve curve = new ThresholdCurve();
-
-            double[][] aligned = align(MatrixUtils.getCol(Y, j),
-                                       MatrixUtils.getCol(P, j));
-            
-	    Instances result =
-                curve.getCurve(MLUtils.toWekaPredictions(toIntArray(aligned[0]),
-                                                         aligned[1]));
-            if (roc) {
-                AUC[j] = ThresholdCurve.getROCArea(result);
-            } else {
-                AUC[j] = ThresholdCurve.getPRCArea(result);
-            }
-//            System.out.println(Arrays.toString(MatrixUtils.getCol(Y, j)));
-//            System.out.println(Arrays.toString(MatrixUtils.getCol(P, j)));
-
-//            System.out.println(AUC[j]);
         }
 
         L -= missing;
@@ -1029,10 +1010,11 @@ public abstract class Metrics {
         if (L == 0) {
             return Double.NaN;
         }
-        
-	return Utils.mean(AUC);
 
-        
+	// one sort per label, labels in parallel
+	double AUC[] = CurveUtils.getAreas(Y, P, roc, ThreadUtils.ALL);
+
+	return Utils.mean(AUC);
     }
 
     /** Calculate AUPRC: Area Under the Precision-Recall curve. */
@@ -1047,18 +1029,13 @@ public abstract class Metrics {
 
     /** Get Data for Plotting PR and ROC curves. */
     public static Instances curveDataMicroAveraged(int Y[][], double P[][]) {
-	//works with missing
-	
-	int y[] = MatrixUtils.flatten(Y);
-	double p[] = MatrixUtils.flatten(P);
-
-	double[][] aligned = align(y, p);
+	return curveDataMicroAveraged(Y, P, 0);
+    }
 
-	y = toIntArray(aligned[0]);
-	p = aligned[1];
-	
-	ThresholdCurve curve = new ThresholdCurve();
-	return curve.getCurve(MLUtils.toWekaPredictions(y,p));
+    /** Get Data for Plotting PR and ROC curves, with at most maxPoints points (&le; 0 for all). */
+    public static Instances curveDataMicroAveraged(int Y[][], double P[][], int maxPoints) {
+	//works with missing
+	return curveData(MatrixUtils.flatten(Y), MatrixUtils.flatten(P), maxPoints);
     }
 
     /** Get Data for Plotting PR and ROC curves. */
@@ -1143,25 +1120,30 @@ public abstract class Metrics {
 
     /** Get Data for Plotting PR and ROC curves. */
     public static Instances curveData(int y[], double p[]) {
-	// works with missing
-	double[][] aligned = align(y, p);
-
-	y = toIntArray(aligned[0]);
-	p = aligned[1];
-
+	return curveData(y, p, 0);
+    }
 
-	
-	ThresholdCurve curve = new ThresholdCurve();
-	return curve.getCurve(MLUtils.toWekaPredictions(y,p));
+    /** Get Data for Plotting PR and ROC curves, with at most maxPoints points (&le; 0 for all). */
+    public static Instances curveData(int y[], double p[], int maxPoints) {
+	// works with missing
+	CurveUtils.Curve curve = CurveUtils.getCurve(y, p);
+	if (curve == null)
+	    return null;
+	return curve.toInstances(maxPoints);
     }
 
     /** Get Data for Plotting PR and ROC curves. */
     public static Instances[] curveData(int Y[][], double P[][]) {
+	return curveData(Y, P, 0);
+    }
+
+    /** Get Data for Plotting PR and ROC curves, with at most maxPoints points per label (&le; 0 for all). */
+    public static Instances[] curveData(int Y[][], double P[][], int maxPoints) {
 	// works with missing
 	int L = Y[0].length;
 	Instances curveData[] = new Instances[L];
 	for(int j = 0; j < L; j++) {
-	    Instances cd = curveData(MatrixUtils.getCol(Y, j), MatrixUtils.getCol(P, j));
+	    Instances cd = curveData(MatrixUtils.getCol(Y, j), MatrixUtils.getCol(P, j), maxPoints);
 	    curveData[j] = cd; 
 	}
 	return curveData;
@@ -60,7 +60,7 @@ public abstract class PSUtils {
 		Set<LabelSet> subsets = new HashSet<LabelSet>();
 		for(LabelSet s : set) {
 				// is it a subset?
-				int m = LabelSet.subset(s.indices,y.indices);
+				int m = s.subsetof(y);
 				if (m > 0) {
 					// it is!
 					subsets.add(s);
@@ -76,7 +76,7 @@ public abstract class PSUtils {
 		SortedSet<LabelSet> subsets = new TreeSet<LabelSet>(cmp);
 		for(LabelSet s : set) {
 				// is it a subset?
-				int m = LabelSet.subset(s.indices,y.indices);
+				int m = s.subsetof(y);
 				if (m > 0) {
 					// it is!
 					subsets.add(s);
@@ -169,6 +169,7 @@ public abstract class PSUtils {
 	 * @param	map	a map of labelsets to counts e.g., {[0,2]:39, [2,7]:5, [2,9]:24...}
 	 * @param	n	the number of sets to take
 	 * @return	the LabelSets to use to decompose y into, e.g., [[0,2],[2,7]]
+	 * @see LabelSetIndex#getTopNSubsets(LabelSet, int) (for many queries on the same map)
 	 */
 	public static LabelSet[] getTopNSubsets(LabelSet y, HashMap<LabelSet,Integer> map, int n) {
 
@@ -220,8 +221,10 @@ public abstract class PSUtils {
 	 */
 	public static final HashMap<LabelSet,Integer> countCombinationsSparse(Instances D, int L) {
 		HashMap<LabelSet,Integer> map = new HashMap<LabelSet,Integer>();  
+		// (only the first occurrence of each combination creates a LabelSet)
+		LabelSetPool pool = new LabelSetPool();
 		for (int i = 0; i < D.numInstances(); i++) {
-			LabelSet y = new LabelSet(MLUtils.toSparseIntArray(D.instance(i),L));
+			LabelSet y = pool.intern(D.instance(i),L);
 			Integer c = map.get(y);
 			map.put(y, c == null ? 1 : c+1);
 		}
@@ -291,9 +294,25 @@ public abstract class PSUtils {
 	}
 
 
+	/**
+	 * MakeLabelSetMap - parse the class values of a PS/LC template into LabelSets, e.g., "[1,3]" to [1,3], once.
+	 * @param	T	the template (header) of the transformed dataset
+	 * @return	the label combination of each class value, indexed by the class value
+	 * @see		PSUtils#recombination(double[],int,LabelSet[])
+	 */
 	public static final LabelSet[] makeLabelSetMap(Instances T) {
-		int L_ = 4;
-		return new LabelSet[L_];
+		Attribute c = T.classAttribute();
+		LabelSet map[] = new LabelSet[c.numValues()];
+		for(int k = 0; k < map.length; k++) {
+			int d[];
+			try {
+				d = MLUtils.toIntArray(c.value(k));
+			} catch(Exception e) {
+				d = new int[0];
+			}
+			map[k] = new LabelSet(d,true);
+		}
+		return map;
 	}
 
 	// @todo name convertDistribution ?
@@ -353,6 +372,90 @@ public abstract class PSUtils {
 		return y;
 	}
 
+	/**
+	 * Convert Distribution - like recombination_t(p,L,map), but only adding the combinations in 'top', e.g., the most probable ones.
+	 * @param	p	the posterior of the super classes (combinations), e.g., P([1,3],[2]) = [0.3,0.7]
+	 * @param	L 	the number of labels
+	 * @param	map	the label combination of each super class
+	 * @param	top	the indices of the super classes to add
+	 * @return	the (truncated) distribution across labels, e.g., P(1,2,3) = [0.0,0.7,0.0] for top = [1]
+	 * @see		PSUtils#topIndices(double[],int,double)
+	 */
+	public static final double[] recombination_t(double p[], int L, LabelSet map[], int top[]) {
+
+		double y[] = new double[L];
+
+		for(int k : top) {
+			for(int j : map[k].indices) {
+				y[j] += p[k];
+			}
+		}
+		return y;
+	}
+
+	/**
+	 * TopIndices - the indices of the largest values of p, in descending order of p (ties broken by index): the top 'k',
+	 * or fewer, if the first ones already hold a fraction of at least 'mass' of the sum of p.
+	 * Only as much of p gets sorted as is needed, i.e., O(|p| + |top| log |p|), so this is cheap for many combinations.
+	 * @param	p		the posterior of the super classes (combinations)
+	 * @param	k		the maximum number of indices, &lt;= 0 for no maximum
+	 * @param	mass	the fraction of the total mass that is enough, &gt;= 1 for all of it
+	 * @return	the indices, e.g., [1] for p = [0.3,0.7] and k = 1
+	 */
+	public static final int[] topIndices(double p[], int k, double mass) {
+		int n = p.length;
+		if (k <= 0 || k > n)
+			k = n;
+
+		double total = 0.0;
+		for(double v : p) {
+			total += v;
+		}
+		double enough = mass * total;
+
+		// max-heap of the indices
+		int heap[] = new int[n];
+		for(int i = 0; i < n; i++) {
+			heap[i] = i;
+		}
+		for(int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(heap, i, n, p);
+		}
+
+		int top[] = new int[k];
+		int m = 0;
+		double sum = 0.0;
+		while (m < k && n > 0 && (mass >= 1.0 || m == 0 || sum < enough)) {
+			top[m++] = heap[0];
+			sum += p[heap[0]];
+			heap[0] = heap[--n];
+			siftDown(heap, 0, n, p);
+		}
+		return (m == top.length) ? top : Arrays.copyOf(top, m);
+	}
+
+	/** sift down in a max-heap of indices into p (ties: smaller index first) */
+	private static void siftDown(int heap[], int i, int n, double p[]) {
+		int v = heap[i];
+		while (true) {
+			int c = 2 * i + 1;
+			if (c >= n)
+				break;
+			if (c + 1 < n && before(heap[c + 1], heap[c], p))
+				c++;
+			if (!before(heap[c], v, p))
+				break;
+			heap[i] = heap[c];
+			i = c;
+		}
+		heap[i] = v;
+	}
+
+	/** true if index a comes before index b, i.e., p[a] &gt; p[b], or equal and a &lt; b */
+	private static boolean before(int a, int b, double p[]) {
+		return p[a] > p[b] || (p[a] == p[b] && a < b);
+	}
+
 	/**
 	 * Convert a multi-label instance into a multi-class instance, according to a template.
 	 */
@@ -409,10 +512,13 @@ public abstract class PSUtils {
 			return PSTransformation(D,L,cname,p-1,n);
 		}
 
-		// Create class attribute
+		// Create class attribute (and the index of each combination in it)
 		ArrayList<String> ClassValues = new ArrayList<String>();
-		for(LabelSet y : distinctCombinations.keySet()) 
+		HashMap<LabelSet,Integer> ids = new HashMap<LabelSet,Integer>();
+		for(LabelSet y : distinctCombinations.keySet()) {
+			ids.put(y,ClassValues.size());
 			ClassValues.add(y.toString());
+		}
 		Attribute C = new Attribute(cname, ClassValues);
 
 		// Insert new special attribute (which has all possible combinations of labels) 
@@ -420,28 +526,32 @@ public abstract class PSUtils {
 		D.setClassIndex(L);
 
 		//Add class values
+		LabelSetPool pool = new LabelSetPool();
+		LabelSetIndex index = null;
 		int N = D.numInstances();
 		for (int i = 0; i < N; i++) {
 			Instance x = D.instance(i);
-			LabelSet y = new LabelSet(MLUtils.toSparseIntArray(x,L));
-			String y_string = y.toString();
+			LabelSet y = pool.intern(x,L);
+			Integer id = ids.get(y);
 
 			// add it
-			if(ClassValues.contains(y_string)) 	//if its class value exists
-				x.setClassValue(y_string);
+			if(id != null) 	//if its class value exists
+				x.setClassValue(id);
 			// decomp
 			else if(n > 0) { 
 				//String d_subsets[] = getTopNSubsets(comb,distinctCombinations,n);
-				LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,distinctCombinations,n);
+				if (index == null)
+					index = new LabelSetIndex(distinctCombinations);
+				LabelSet d_subsets[] = index.getTopNSubsets(y,n);
 				//LabelSet d_subsets[] = PSUtils.cover(y,distinctCombinations);
 				if (d_subsets.length > 0) {
 					// fast
-					x.setClassValue(d_subsets[0].toString());
+					x.setClassValue(ids.get(d_subsets[0]));
 					// additional
 					if (d_subsets.length > 1) {
 						for(int s_i = 1; s_i < d_subsets.length; s_i++) {
 							Instance x_ = (Instance)(x).copy();
-							x_.setClassValue(d_subsets[s_i].toString());
+							x_.setClassValue(ids.get(d_subsets[s_i]));
 							D.add(x_);
 						}
 					}
@@ -534,6 +644,35 @@ public abstract class PSUtils {
 		}
 	}
 
+	/**
+	 * Transform one instance into multi-class representations (an array of possibly multiple single-label instances).
+	 * @param x			instance
+	 * @param L			number of labels in the instance
+	 * @param index		an index over the map of labelsets to their frequencies
+	 * @param n			restoration value
+	 * @return transformed instances
+	 */
+	public static Instance[] PSTransformation(Instance x, int L, LabelSetIndex index, int n, Instances iTemplate) {
+
+		int y_[] = MLUtils.toSparseIntArray(x,L);
+
+		if (y_.length <= 0)
+			// There can be no transformation if there are no labels!
+			return new Instance[0];
+
+		LabelSet y = new LabelSet(y_);
+
+		// The labelset itself if it was observed in the training set, otherwise some subsets that fit
+		LabelSet d_subsets[] = index.getTopNSubsets(y,n);
+		Instance x_subsets[] = new Instance[d_subsets.length];
+		Instance x_template = convertInstance(x,L,iTemplate);
+		for(int i = 0; i < d_subsets.length; i++) {
+			x_subsets[i] = (i == 0) ? x_template : (Instance)(x_template).copy();
+			x_subsets[i].setClassValue(d_subsets[i].toString());
+		}
+		return x_subsets;
+	}
+
 	/**
 	 * Transform instances into a multi-class representation.
 	 * @param D			original dataset
@@ -560,10 +699,13 @@ public abstract class PSUtils {
 			return PSTransformation(D,L,cname,p-1,n);
 		}
 
-		// Create class attribute
+		// Create class attribute (and the index of each combination in it)
 		ArrayList<String> ClassValues = new ArrayList<String>();
-		for(LabelSet y : distinctCombinations.keySet())
+		HashMap<LabelSet,Integer> ids = new HashMap<LabelSet,Integer>();
+		for(LabelSet y : distinctCombinations.keySet()) {
+			ids.put(y,ClassValues.size());
 			ClassValues.add(y.toString());
+		}
 		Attribute C = new Attribute(cname, ClassValues);
 
 		// Insert new special attribute (which has all possible combinations of labels)
@@ -571,28 +713,32 @@ public abstract class PSUtils {
 		D.setClassIndex(L);
 
 		//Add class values
+		LabelSetPool pool = new LabelSetPool();
+		LabelSetIndex index = null;
 		int N = D.numInstances();
 		for (int i = 0; i < N; i++) {
 			Instance x = D.instance(i);
-			LabelSet y = new LabelSet(MLUtils.toSparseIntArray(x,L));
-			String y_string = y.toString();
+			LabelSet y = pool.intern(x,L);
+			Integer id = ids.get(y);
 
 			// add it
-			if(ClassValues.contains(y_string)) 	//if its class value exists
-				x.setClassValue(y_string);
+			if(id != null) 	//if its class value exists
+				x.setClassValue(id);
 				// decomp
 			else if(n > 0) {
 				//String d_subsets[] = getTopNSubsets(comb,distinctCombinations,n);
-				LabelSet d_subsets[] = PSUtils.getTopNSubsets(y,distinctCombinations,n);
+				if (index == null)
+					index = new LabelSetIndex(distinctCombinations);
+				LabelSet d_subsets[] = index.getTopNSubsets(y,n);
 				//LabelSet d_subsets[] = PSUtils.cover(y,distinctCombinations);
 				if (d_subsets.length > 0) {
 					// fast
-					x.setClassValue(d_subsets[0].toString());
+					x.setClassValue(ids.get(d_subsets[0]));
 					// additional
 					if (d_subsets.length > 1) {
 						for(int s_i = 1; s_i < d_subsets.length; s_i++) {
 							Instance x_ = (Instance)(x).copy();
-							x_.setClassValue(d_subsets[s_i].toString());
+							x_.setClassValue(ids.get(d_subsets[s_i]));
 							D.add(x_);
 						}
 					}
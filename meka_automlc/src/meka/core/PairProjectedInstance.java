@@ -0,0 +1,102 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * PairProjectedInstance.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import weka.core.Instance;
+
+/**
+ * Presents a multi-label instance (labels are the first L attributes) as a single-label instance
+ * with the combination of labels j and k at position 0, followed by the feature attributes.
+ * The class value is <code>y_j + 2 * y_k</code>, i.e., the index of "00", "10", "01" or "11"
+ * (y_j, y_k) in a four-valued class attribute. Otherwise, it behaves like a
+ * {@link LabelProjectedInstance}.
+ *
+ * @version $Revision$
+ */
+public class PairProjectedInstance
+  extends LabelProjectedInstance {
+
+	private static final long serialVersionUID = 2245307613915467620L;
+
+	/** the index of the second label in the underlying instance. */
+	protected int m_Label2;
+
+	/**
+	 * Initializes the projection.
+	 *
+	 * @param source	the multi-label instance to project
+	 * @param L		the number of labels
+	 * @param j		the first label of the pair
+	 * @param k		the second label of the pair
+	 */
+	public PairProjectedInstance(Instance source, int L, int j, int k) {
+		super(source, L, j);
+
+		m_Label2 = k;
+	}
+
+	/**
+	 * Creates a copy of the projection (sharing the underlying instance).
+	 *
+	 * @param inst	the projection to copy
+	 */
+	protected PairProjectedInstance(PairProjectedInstance inst) {
+		super(inst);
+
+		m_Label2 = inst.m_Label2;
+	}
+
+	/**
+	 * Produces a shallow copy of this instance, sharing the underlying instance.
+	 *
+	 * @return		the copy
+	 */
+	@Override
+	public Object copy() {
+		return new PairProjectedInstance(this);
+	}
+
+	/**
+	 * Locates the stored values of the two labels: the class value is stored if either is.
+	 *
+	 * @return		the position of a stored label value, -1 if none
+	 */
+	@Override
+	protected int locateProjected() {
+		int	result;
+
+		result = locateLabel(m_Label);
+		if (result == -1)
+			result = locateLabel(m_Label2);
+
+		return result;
+	}
+
+	/**
+	 * Returns the projected class value, the combination of the two labels.
+	 *
+	 * @return		y_j + 2 * y_k
+	 */
+	@Override
+	protected double projectedValue() {
+		return (int) Math.round(m_Source.value(m_Label)) + 2 * (int) Math.round(m_Source.value(m_Label2));
+	}
+}
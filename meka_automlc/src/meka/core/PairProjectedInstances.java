@@ -0,0 +1,67 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * PairProjectedInstances.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import weka.core.Instances;
+
+/**
+ * Four-class view of a multi-label dataset (labels are the first L attributes): the combination
+ * of labels j and k as class attribute (at position 0), followed by the feature attributes.
+ * The rows are {@link PairProjectedInstance} objects that read the values from the underlying
+ * dataset, i.e., the feature values are not copied.
+ * <br>
+ * The header (class attribute with the values "00", "10", "01" and "11", followed by the feature
+ * attributes) is shared by the views of all pairs.
+ *
+ * @version $Revision$
+ */
+public class PairProjectedInstances
+  extends Instances {
+
+	private static final long serialVersionUID = -5166306218766364725L;
+
+	/**
+	 * Initializes the view.
+	 *
+	 * @param source	the multi-label dataset
+	 * @param L		the number of labels
+	 * @param j		the first label of the pair
+	 * @param k		the second label of the pair
+	 * @param header	the projected header, the class attribute at position 0
+	 */
+	public PairProjectedInstances(Instances source, int L, int j, int k, Instances header) {
+		super(header, source.numInstances());
+
+		int			i;
+		PairProjectedInstance	inst;
+
+		if (header.numAttributes() != source.numAttributes() - L + 1)
+			throw new IllegalArgumentException(
+			  "Header has " + header.numAttributes() + " attributes, expected " + (source.numAttributes() - L + 1) + "!");
+
+		setClassIndex(0);
+		for (i = 0; i < source.numInstances(); i++) {
+			inst = new PairProjectedInstance(source.instance(i), L, j, k);
+			inst.setDataset(this);
+			m_Instances.add(inst);
+		}
+	}
+}
@@ -47,6 +47,7 @@ public class Result implements Serializable {
 	/** The number of label (target) variables in the problem */
 	public int L = 0;
 
+	/** the predictions; for a Result of Evaluation.evaluateModel, the ones on the test data, whatever the training evaluation mode (the training evaluation only adds the "-training" statistics to the output) */
 	public ArrayList<double[]> predictions = null;
 	// TODO, store in sparse fashion with either LabelSet or LabelVector
 	public ArrayList<int[]> actuals = null;
@@ -185,10 +185,8 @@ public abstract class SuperLabelUtils {
 			LabelSet Y = map.get(s);
 			if (Y==null)
 				Y = new LabelSet(new int[]{j});
-			else {
-				Y.indices = A.append(Y.indices,j);
-				Arrays.sort(Y.indices);
-			}
+			else
+				Y = new LabelSet(A.append(Y.indices,j),true);
 			map.put(s, Y);
 		}
 		int partition[][] = new int[map.size()][];
@@ -258,10 +256,8 @@ public abstract class SuperLabelUtils {
 	 */
 	public static Instances makePartitionDataset(Instances D, int part[], int P, int N) throws Exception {
 		int L = D.classIndex();
-		Instances D_ = new Instances(D);
 		// strip out irrelevant attributes
-		D_.setClassIndex(-1);
-		D_ = F.keepLabels(D,L,part);
+		Instances D_ = F.keepLabels(D,L,part);
 		D_.setClassIndex(part.length);
 		// make LC transformation
 		D_ = PSUtils.PSTransformation(D_,P,N);
@@ -277,10 +273,8 @@ public abstract class SuperLabelUtils {
 	 * @return Dataset with 1 multi-valued class label, representing the combinations of part[].
 	public static Instances makePartitionDataset(Instances D, int part[], int P, int N) throws Exception {
 		int L = D.classIndex();
-		Instances D_ = new Instances(D);
 		// strip out irrelevant attributes
-		D_.setClassIndex(-1);
-		D_ = F.keepLabels(D,L,part);
+		Instances D_ = F.keepLabels(D,L,part);
 		D_.setClassIndex(part.length);
 		// encode the relevant indices into the class attribute name
 		Range r = new Range(Range.indicesToRangeList(part));
@@ -319,14 +313,19 @@ public abstract class SuperLabelUtils {
 		return MLUtils.toIntArray(s);
 	}
 
-	/** Encode a vector of integer values to a string */
-	public static String encodeValue(Instance x, int indices[]) {
+	/** The (integer) values of x at 'indices' */
+	public static int[] getValues(Instance x, int indices[]) {
 		int values[] = new int[indices.length];
 
 		for (int j = 0; j < indices.length; j++) {
 			values[j] = (int)x.value(indices[j]);
 		}
-		return new LabelVector(values).toString();
+		return values;
+	}
+
+	/** Encode a vector of integer values to a string */
+	public static String encodeValue(Instance x, int indices[]) {
+		return new LabelVector(getValues(x,indices)).toString();
 	}
 
 	/**
@@ -336,7 +335,7 @@ public abstract class SuperLabelUtils {
 		String y_bits[] = y.split("\\+");
 		ArrayList<String> Y = new ArrayList<String>();
 		for(String y_ : masterCombinations.keySet()) {
-			if(MLUtils.bitDifference(y_bits,y_.split("\\+")) <= 1) {
+			if(tokenDifference(y_bits,y_,1) <= 1) {
 				Y.add(y_);
 			}
 		}
@@ -352,6 +351,28 @@ public abstract class SuperLabelUtils {
 		return Arrays.copyOf(Y_strings,Math.min(N,Y_strings.length));
 	}
 
+	/**
+	 * TokenDifference - the number of '+'-separated values of 's' that differ from 'y_bits', i.e.,
+	 * <code>MLUtils.bitDifference(y_bits,s.split("\\+"))</code>, but without splitting 's'.
+	 * Stops counting as soon as the difference exceeds 'max'.
+	 */
+	protected static int tokenDifference(String y_bits[], String s, int max) {
+		int sum = 0;
+		int start = 0;
+		for(int i = 0; i < y_bits.length; i++) {
+			int end = s.indexOf('+',start);
+			if (end < 0)
+				end = s.length();
+			String t = y_bits[i];
+			if (t.length() != end - start || !s.regionMatches(start,t,0,t.length())) {
+				if (++sum > max)
+					return sum;
+			}
+			start = end + 1;
+		}
+		return sum;
+	}
+
 	/**
 	 * Return a set of all the combinations of attributes at 'indices' in 'D', pruned by 'p'; AND THEIR COUNTS, e.g., {(00:3),(01:8),(11:3))}.
 	 */
@@ -381,6 +402,7 @@ public abstract class SuperLabelUtils {
 		int K = indices.length;
 		ArrayList<String> values[] = new ArrayList[K];
 		HashMap<String,Integer> counts[] = new HashMap[K];
+		HashMap<LabelVector,Integer> ids[] = new HashMap[K];
 
 		// create D_
 		Instances D_ = new Instances(D);
@@ -399,6 +421,11 @@ public abstract class SuperLabelUtils {
 			Set<String> vals = counts[j].keySet(); //getValues(D,att,p);
 			values[j] = new ArrayList(vals);
 			D_.insertAttributeAt(new Attribute(encodeClass(att),new ArrayList(vals)),j);
+			// the index of each value, for looking up the values of the instances without encoding them
+			ids[j] = new HashMap<LabelVector,Integer>();
+			for(int k = 0; k < values[j].size(); k++) {
+				ids[j].put(new LabelVector(decodeValue(values[j].get(k))),k);
+			}
 		}
 
 		// copy over values
@@ -406,11 +433,13 @@ public abstract class SuperLabelUtils {
 		for(int i = 0; i < D.numInstances(); i++) {
 			Instance x = D.instance(i);
 			for(int j = 0; j < K; j++) {
-				String y = encodeValue(x,indices[j]);
-				try {
-					D_.instance(i).setValue(j,y); // y =
-				} catch(Exception e) {
+				LabelVector v = new LabelVector(getValues(x,indices[j]));
+				Integer id = ids[j].get(v);
+				if (id != null) {
+					D_.instance(i).setValue(j,id);
+				} else {
 					// value not allowed
+					String y = v.toString();
 					deleteList.add(i); 									   // mark it for deletion
 					String y_close[] = getTopNSubsets(y, counts[j], n); // get N subsets
 					for(int m = 0; m < y_close.length; m++) {
@@ -20,6 +20,17 @@
 
 package meka.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * Thread and multi-process related methods.
  *
@@ -34,6 +45,12 @@ public class ThreadUtils {
 	/** the number of threads used to be considered sequential. */
 	public final static int SEQUENTIAL = 1;
 
+	/** whether the current thread is a thread of the shared executor. */
+	protected final static ThreadLocal<Boolean> m_Worker = new ThreadLocal<Boolean>();
+
+	/** the shared executor, created on first use. */
+	protected static ExecutorService m_SharedExecutor;
+
 	/**
 	 * Returns the available number of processors on the machine.
 	 *
@@ -65,6 +82,41 @@ public class ThreadUtils {
 		return result;
 	}
 
+	/**
+	 * Returns the amount of heap memory that is currently available, i.e., the maximum
+	 * heap size minus the memory in use.
+	 *
+	 * @return                  the available memory in bytes
+	 */
+	public static long getAvailableMemory() {
+		Runtime rt;
+
+		rt = Runtime.getRuntime();
+		return rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+	}
+
+	/**
+	 * Limits the number of threads so that the memory that the threads require at the
+	 * same time (eg for transformed copies of a dataset) fits into the available heap.
+	 *
+	 * @param numThreads        the actual number of threads
+	 * @param bytesPerThread    the estimated memory a thread requires, &lt;= 0 if unknown (no limit)
+	 * @return                  the number of threads to use, at least 1
+	 * @see #getAvailableMemory()
+	 */
+	public static int getMemoryLimitedNumThreads(int numThreads, long bytesPerThread) {
+		long max;
+
+		if (bytesPerThread <= 0)
+			return Math.max(SEQUENTIAL, numThreads);
+
+		max = getAvailableMemory() / bytesPerThread;
+		if (max < numThreads)
+			numThreads = (int) max;
+
+		return Math.max(SEQUENTIAL, numThreads);
+	}
+
 	/**
 	 * Returns whether the number of threads represent a multi-threaded setup.
 	 *
@@ -74,4 +126,122 @@ public class ThreadUtils {
 	public static boolean isMultiThreaded(int numThreads) {
 		return (ThreadUtils.getActualNumThreads(numThreads, ThreadUtils.getAvailableProcessors()) != ThreadUtils.SEQUENTIAL);
 	}
+
+	/**
+	 * Returns the executor that is shared by all parallel jobs (see {@link #invokeAll(List, int)}),
+	 * a pool with one (daemon) thread per processor. It gets created on first use.
+	 *
+	 * @return                  the executor
+	 */
+	public static synchronized ExecutorService getSharedExecutor() {
+		if (m_SharedExecutor == null) {
+			m_SharedExecutor = Executors.newFixedThreadPool(getAvailableProcessors(), new ThreadFactory() {
+				protected AtomicInteger m_Count = new AtomicInteger();
+				@Override
+				public Thread newThread(final Runnable r) {
+					Thread result = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							m_Worker.set(Boolean.TRUE);
+							r.run();
+						}
+					}, "meka-worker-" + m_Count.incrementAndGet());
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return m_SharedExecutor;
+	}
+
+	/**
+	 * Returns whether the current thread is a thread of the shared executor, ie whether
+	 * it is already running a parallel job.
+	 *
+	 * @return                  true if a thread of the shared executor
+	 */
+	public static boolean isWorkerThread() {
+		return (m_Worker.get() != null);
+	}
+
+	/**
+	 * Runs the jobs, with up to numThreads of them at the same time on the shared executor.
+	 * The jobs get run sequentially in the calling thread (in the order of the list) if only
+	 * a single thread is to be used, or if the calling thread is already a thread of the
+	 * shared executor (eg building or predicting within a parallel evaluation). That way,
+	 * parallel jobs do not nest and the number of threads stays bounded.
+	 *
+	 * @param jobs              the jobs to run, which must not depend on each other
+	 * @param numThreads        the actual number of threads to use (see {@link #getActualNumThreads(int, int)})
+	 * @return                  the results of the jobs, in the order of the list
+	 * @throws Exception        the exception of the first failed job (in the order of the list)
+	 */
+	public static <T> List<T> invokeAll(final List<? extends Callable<T>> jobs, int numThreads) throws Exception {
+		final AtomicReferenceArray<T>	results;
+		final Exception[]		errors;
+		final AtomicInteger		next;
+		List<Future<Object>>		runners;
+		List<T>				result;
+		int				i;
+
+		result = new ArrayList<>(jobs.size());
+		numThreads = Math.min(numThreads, jobs.size());
+		if ((numThreads <= SEQUENTIAL) || isWorkerThread()) {
+			for (Callable<T> job: jobs)
+				result.add(job.call());
+			return result;
+		}
+
+		// each runner takes the next job until there are none left (or one has failed)
+		results = new AtomicReferenceArray<>(jobs.size());
+		errors  = new Exception[jobs.size()];
+		next    = new AtomicInteger();
+		runners = new ArrayList<>();
+		try {
+			for (i = 0; i < numThreads; i++) {
+				runners.add(getSharedExecutor().submit(new Callable<Object>() {
+					@Override
+					public Object call() {
+						int n;
+						while ((n = next.getAndIncrement()) < jobs.size()) {
+							try {
+								results.set(n, jobs.get(n).call());
+							}
+							catch (Exception e) {
+								errors[n] = e;
+								next.set(jobs.size());
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Object> runner: runners) {
+				try {
+					runner.get();
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+			}
+		}
+		finally {
+			// eg when interrupted: don't start any further jobs
+			next.set(jobs.size());
+			for (Future<Object> runner: runners)
+				runner.cancel(true);
+		}
+
+		for (i = 0; i < jobs.size(); i++) {
+			if (errors[i] != null)
+				throw errors[i];
+		}
+		for (i = 0; i < jobs.size(); i++)
+			result.add(results.get(i));
+
+		return result;
+	}
+
 }
@@ -17,7 +17,8 @@ package meka.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * ThresholdUtils - Helpful functions for calibrating thresholds.
@@ -51,27 +52,101 @@ public abstract class ThresholdUtils {
 		if (Y.size() <= 0) 
 			return 0.5;
 
-		int N = Y.size();
-		ArrayList<Double> big = new ArrayList<Double>();
+		int size = 0;
 		for(double y[] : Y) {
-			for (double y_ : y) {
-				big.add(y_);
-			}
+			size += y.length;
+		}
+		double big[] = new double[size];
+		int n = 0;
+		for(double y[] : Y) {
+			System.arraycopy(y,0,big,n,y.length);
+			n += y.length;
 		}
-		Collections.sort(big);
 
-		int i = big.size() - (int)Math.round(LC_train * (double)N);
-		
-		if (N == big.size()) { // special cases
-			if (i+1 == N) // only one!
-				return (big.get(N-2)+big.get(N-1)/2.0);
+		return calibrateThreshold(big,Y.size(),LC_train);
+	}
+
+	/**
+	 * CalibrateThreshold - Calibrate a threshold using PCut, see {@link #calibrateThreshold(ArrayList, double)}.
+	 * Rather than sorting all the confidences, only the (at most two) values around the cut get selected
+	 * (quickselect), which is linear in the number of confidences on average.
+	 * @param	big			all the confidences (gets reordered)
+	 * @param	N			the number of instances
+	 * @param	LC_train	label cardinality of the training set
+	 */
+	public static double calibrateThreshold(double big[], int N, double LC_train) {
+
+		int i = big.length - (int)Math.round(LC_train * (double)N);
+
+		if (N == big.length) { // special cases
+			if (i+1 == N) { // only one!
+				select(big,0,N,N-2);
+				select(big,N-1,N,N-1);
+				return (big[N-2]+big[N-1]/2.0);
+			}
 			if (i+1 >= N) // zero!
 				return 1.0;
-			else
-			    return Math.max(((double)(big.get(i)+big.get(i+1))/2.0), 0.00001);
+			else {
+				select(big,0,N,i);
+				select(big,i+1,N,i+1);
+			    return Math.max(((double)(big[i]+big[i+1])/2.0), 0.00001);
+			}
 		}
 
-		return Math.max(((double)(big.get(i)+big.get(Math.max(i+1,N-1))))/2.0 , 0.00001);
+		int k = Math.max(i+1,N-1);
+		select(big,0,big.length,i);
+		select(big,i+1,big.length,k);
+		return Math.max(((double)(big[i]+big[k]))/2.0 , 0.00001);
+	}
+
+	/**
+	 * Select - rearrange a[from..to-1] such that a[k] holds the value it would have if the range were sorted,
+	 * with smaller values before and larger values after it. Values are ordered as by Double.compare,
+	 * as in a sort; a three-way partition keeps this linear with many ties.
+	 * @param	a		the values
+	 * @param	from	the start of the range (incl)
+	 * @param	to		the end of the range (excl)
+	 * @param	k		the position to select
+	 */
+	protected static void select(double a[], int from, int to, int k) {
+		while (to - from > 1) {
+			// median of three as pivot
+			double x = a[from];
+			double y = a[from + (to - from) / 2];
+			double z = a[to - 1];
+			double pivot;
+			if (Double.compare(x,y) < 0)
+				pivot = (Double.compare(y,z) < 0) ? y : ((Double.compare(x,z) < 0) ? z : x);
+			else
+				pivot = (Double.compare(x,z) < 0) ? x : ((Double.compare(y,z) < 0) ? z : y);
+
+			// [from,lt) < pivot, [lt,gt] == pivot, (gt,to) > pivot
+			int lt = from;
+			int gt = to - 1;
+			int j = from;
+			while (j <= gt) {
+				int c = Double.compare(a[j],pivot);
+				if (c < 0) {
+					double tmp = a[lt]; a[lt] = a[j]; a[j] = tmp;
+					lt++;
+					j++;
+				}
+				else if (c > 0) {
+					double tmp = a[gt]; a[gt] = a[j]; a[j] = tmp;
+					gt--;
+				}
+				else {
+					j++;
+				}
+			}
+
+			if (k < lt)
+				to = lt;
+			else if (k > gt)
+				from = gt + 1;
+			else
+				return;
+		}
 	}
 
 	/**
@@ -80,28 +155,72 @@ public abstract class ThresholdUtils {
 	 * @param	LC_train	average frequency of each label
 	 */
 	public static double[] calibrateThresholds(ArrayList<double[]> Y, double LC_train[]) { 
+		return calibrateThresholds(Y,LC_train,ThreadUtils.ALL);
+	}
 
-		int L = LC_train.length;
-		double t[] = new double[L];
+	/**
+	 * CalibrateThreshold - Calibrate a vector of thresholds (one for each label) using PCut, with the labels calibrated in parallel.
+	 * @param	Y			labels
+	 * @param	LC_train	average frequency of each label
+	 * @param	numThreads	the number of threads to use (-1 for # of cores/cpus)
+	 */
+	public static double[] calibrateThresholds(final ArrayList<double[]> Y, final double LC_train[], int numThreads) { 
 
-		ArrayList<double[]> Y_[] = new ArrayList[L];
-		for(int j = 0; j < L; j++) {
-			Y_[j] = new ArrayList<double[]>();
+		final int L = LC_train.length;
+		final double t[] = new double[L];
+
+		if (Y.size() <= 0) {
+			Arrays.fill(t,0.5);
+			return t;
 		}
 
-		for(double y[] : Y) {
+		numThreads = Math.min(ThreadUtils.getActualNumThreads(numThreads,L),L);
+		if (numThreads <= ThreadUtils.SEQUENTIAL) {
 			for(int j = 0; j < L; j++) {
-				Y_[j].add(new double[]{y[j]});
+				t[j] = calibrateThreshold(Y,j,LC_train[j]);
 			}
+			return t;
 		}
 
+		List<Callable<Object>> jobs = new ArrayList<Callable<Object>>();
 		for(int j = 0; j < L; j++) {
-			t[j] = calibrateThreshold(Y_[j],LC_train[j]);
+			final int label = j;
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					t[label] = calibrateThreshold(Y,label,LC_train[label]);
+					return null;
+				}
+			});
+		}
+		try {
+			ThreadUtils.invokeAll(jobs,numThreads);
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Failed to calibrate thresholds!", e);
 		}
 
 		return t;
 	}
 
+	/**
+	 * CalibrateThreshold - Calibrate the threshold of the j-th label using PCut.
+	 * @param	Y			labels
+	 * @param	j			the label
+	 * @param	LC_train	frequency of the label
+	 */
+	protected static double calibrateThreshold(ArrayList<double[]> Y, int j, double LC_train) {
+		int N = Y.size();
+		double y_j[] = new double[N];
+		for(int i = 0; i < N; i++) {
+			y_j[i] = Y.get(i)[j];
+		}
+		return calibrateThreshold(y_j,N,LC_train);
+	}
+
 	/**
 	 * Threshold - returns the labels after the prediction-confidence vector is passed through a vector of thresholds.
 	 * @param	Rpred	label confidence predictions in [0,1]
@@ -22,14 +22,20 @@ package meka.experiment;
 
 import meka.classifiers.multilabel.MultiLabelClassifier;
 import meka.core.OptionUtils;
+import meka.core.ThreadLimiter;
+import meka.core.ThreadUtils;
+import meka.events.LogEvent;
 import meka.events.LogListener;
 import meka.events.LogObject;
 import meka.experiment.datasetproviders.DatasetProvider;
 import meka.experiment.datasetproviders.LocalDatasetProvider;
+import meka.experiment.evaluationstatistics.AbstractEvaluationStatisticsHandler;
+import meka.experiment.evaluationstatistics.CheckpointEvaluationStatisticsHandler;
 import meka.experiment.evaluationstatistics.EvaluationStatistics;
 import meka.experiment.evaluationstatistics.EvaluationStatisticsHandler;
 import meka.experiment.evaluationstatistics.IncrementalEvaluationStatisticsHandler;
 import meka.experiment.evaluationstatistics.KeyValuePairs;
+import meka.experiment.evaluators.CheckpointSupporter;
 import meka.experiment.evaluators.CrossValidation;
 import meka.experiment.evaluators.Evaluator;
 import meka.experiment.events.*;
@@ -39,6 +45,13 @@ import weka.core.Option;
 import weka.core.Utils;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Default experiment which executes experiments on the local machine.
@@ -48,7 +61,7 @@ import java.util.*;
  */
 public class DefaultExperiment
 		extends LogObject
-		implements Experiment {
+		implements Experiment, ThreadLimiter {
 
 	private static final long serialVersionUID = 8654760249461885158L;
 
@@ -88,6 +101,18 @@ public class DefaultExperiment
 	/** the collected statistics. */
 	protected List<EvaluationStatistics> m_Statistics = new ArrayList<>();
 
+	/** the number of threads to use for evaluating dataset/classifier pairs. */
+	protected int m_NumThreads = getDefaultNumThreads();
+
+	/** the executor service to use for parallel execution. */
+	protected transient ExecutorService m_Executor;
+
+	/** the evaluators currently in use by parallel jobs. */
+	protected transient List<Evaluator> m_ActiveEvaluators;
+
+	/** the notifications of the parallel jobs, delivered by the thread running the experiment. */
+	protected transient LinkedBlockingQueue<Runnable> m_Notifications;
+
 	/**
 	 * Sets the notes.
 	 *
@@ -259,6 +284,48 @@ public class DefaultExperiment
 		return "The handler for the statistics (load/save).";
 	}
 
+	/**
+	 * Returns the default number of threads to use.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	protected int getDefaultNumThreads() {
+		return ThreadUtils.SEQUENTIAL;
+	}
+
+	/**
+	 * Sets the number of threads to use for evaluating dataset/classifier pairs.
+	 *
+	 * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public void setNumThreads(int value) {
+		if (value >= -1) {
+			m_NumThreads = value;
+		}
+		else {
+			log("Number of threads must be >= -1, provided: " + value);
+		}
+	}
+
+	/**
+	 * Returns the number of threads to use for evaluating dataset/classifier pairs.
+	 *
+	 * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+	 */
+	public int getNumThreads() {
+		return m_NumThreads;
+	}
+
+	/**
+	 * Returns the tip text for this property.
+	 *
+	 * @return 		tip text for this property suitable for
+	 * 			displaying in the GUI or for listing the options.
+	 */
+	public String numThreadsTipText() {
+		return "The number of dataset/classifier pairs to evaluate in parallel; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+	}
+
 	/**
 	 * Adds the execution stage listener.
 	 *
@@ -387,6 +454,7 @@ public class DefaultExperiment
 		OptionUtils.addOption(result, datasetProviderTipText(), getDefaultDatasetProvider().getClass().getName(), 'D');
 		OptionUtils.addOption(result, evaluatorTipText(), getDefaultEvaluator().getClass().getName(), 'E');
 		OptionUtils.addOption(result, statisticsHandlerTipText(), getDefaultStatisticsHandler().getClass().getName(), 'S');
+		OptionUtils.addOption(result, numThreadsTipText(), "" + getDefaultNumThreads(), "num-threads");
 		return OptionUtils.toEnumeration(result);
 	}
 
@@ -403,6 +471,7 @@ public class DefaultExperiment
 		setDatasetProvider((DatasetProvider) OptionUtils.parse(options, 'D', getDefaultDatasetProvider()));
 		setEvaluator((Evaluator) OptionUtils.parse(options, 'E', getDefaultEvaluator()));
 		setStatisticsHandler((EvaluationStatisticsHandler) OptionUtils.parse(options, 'S', getDefaultStatisticsHandler()));
+		setNumThreads(OptionUtils.parse(options, "num-threads", getDefaultNumThreads()));
 	}
 
 	/**
@@ -418,6 +487,7 @@ public class DefaultExperiment
 		OptionUtils.add(result, 'D', getDatasetProvider());
 		OptionUtils.add(result, 'E', getEvaluator());
 		OptionUtils.add(result, 'S', getStatisticsHandler());
+		OptionUtils.add(result, "num-threads", getNumThreads());
 		return OptionUtils.toArray(result);
 	}
 
@@ -483,25 +553,43 @@ public class DefaultExperiment
 	}
 
 	/**
-	 * Runs the experiment.
+	 * Returns whether the statistics handler gets updated incrementally.
 	 *
-	 * @return          null if successfully run, otherwise error message
+	 * @return          true if incremental
 	 */
-	public String run() {
+	protected boolean isIncremental() {
+		return (m_StatisticsHandler instanceof IncrementalEvaluationStatisticsHandler) &&
+				(((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).supportsIncrementalUpdate());
+	}
+
+	/**
+	 * Passes on the statistics handler to the evaluator for storing checkpoints, if both support it
+	 * and the statistics handler gets updated incrementally. Otherwise, checkpoints get turned off.
+	 *
+	 * @param evaluator     the evaluator to configure
+	 * @param incremental   whether the statistics handler gets updated incrementally
+	 */
+	protected void configureCheckpoints(Evaluator evaluator, boolean incremental) {
+		if (!(evaluator instanceof CheckpointSupporter))
+			return;
+		if (incremental && (m_StatisticsHandler instanceof CheckpointEvaluationStatisticsHandler))
+			((CheckpointSupporter) evaluator).setCheckpointHandler((CheckpointEvaluationStatisticsHandler) m_StatisticsHandler);
+		else
+			((CheckpointSupporter) evaluator).setCheckpointHandler(null);
+	}
+
+	/**
+	 * Evaluates the dataset/classifier pairs one after the other.
+	 *
+	 * @param incremental   whether the statistics handler gets updated incrementally
+	 * @return              null if successfully run, otherwise error message
+	 */
+	protected String runSequential(boolean incremental) {
 		String                      result;
 		Instances                   dataset;
 		List<EvaluationStatistics>  stats;
-		boolean                     incremental;
 
-		debug("pre: run");
-
-		result      = null;
-		m_Running   = true;
-		incremental = (m_StatisticsHandler instanceof IncrementalEvaluationStatisticsHandler) &&
-				(((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).supportsIncrementalUpdate());
-		debug("Incremental statistics? " + incremental);
-
-		notifyExecutionStageListeners(ExecutionStageEvent.Stage.RUNNING);
+		result = null;
 
 		while (m_DatasetProvider.hasNext()) {
 			// next dataset
@@ -546,6 +634,7 @@ public class DefaultExperiment
 
 					// perform evaluation
 					debug("pre: evaluator init");
+					configureCheckpoints(m_Evaluator, incremental);
 					result = m_Evaluator.initialize();
 					debug("post: evaluator init");
 					if (result != null) {
@@ -578,6 +667,440 @@ public class DefaultExperiment
 				break;
 		}
 
+		return result;
+	}
+
+	/**
+	 * Evaluates the dataset/classifier pairs in parallel, using a separate copy
+	 * of the evaluator and classifier per job. The datasets are shared read-only
+	 * between the jobs of a dataset and only get loaded once a thread is free
+	 * for them, ie at most one dataset per thread is held in memory. The calling
+	 * thread is the only one that collects the statistics and appends them to the
+	 * statistics handler, which happens in the same order as with sequential
+	 * execution. It also delivers all notifications and log messages of the jobs
+	 * (see {@link #post(Runnable)}), so listeners never get called concurrently
+	 * or from another thread than with sequential execution.
+	 *
+	 * @param incremental   whether the statistics handler gets updated incrementally
+	 * @param numThreads    the actual number of threads to use
+	 * @return              null if successfully run, otherwise error message
+	 */
+	protected String runParallel(boolean incremental, int numThreads) {
+		String                                      result;
+		Instances                                   dataset;
+		List<Future<List<EvaluationStatistics>>>    jobs;
+		List<List<EvaluationStatistics>>            priors;
+		List<Integer>                               owners;
+		int                                         numDatasets;
+		int                                         collected;
+
+		result             = null;
+		jobs               = new ArrayList<>();
+		priors             = new ArrayList<>();
+		owners             = new ArrayList<>();
+		numDatasets        = 0;
+		collected          = 0;
+		m_ActiveEvaluators = Collections.synchronizedList(new ArrayList<Evaluator>());
+		m_Notifications    = new LinkedBlockingQueue<>();
+		m_Executor         = new ForkJoinPool(numThreads);
+
+		// create and submit jobs
+		debug("pre: submit");
+		while (m_DatasetProvider.hasNext() && m_Running && !m_Stopping) {
+			// collect the results of the oldest datasets first, until there is a thread for the next one
+			while ((result == null) && (collected < jobs.size()) && (numDatasets - owners.get(collected) >= numThreads)) {
+				result = collect(jobs.get(collected), priors.get(collected), incremental);
+				// release the job, which references the dataset
+				jobs.set(collected, null);
+				priors.set(collected, null);
+				collected++;
+			}
+			if ((result != null) || !m_Running || m_Stopping)
+				break;
+
+			// next dataset
+			debug("pre: next-dataset");
+			dataset = m_DatasetProvider.next();
+			debug("post: next-dataset");
+			if (dataset == null) {
+				result = "Failed to obtain next dataset!";
+				log(result);
+				m_Running = false;
+				break;
+			}
+			log("Using dataset: " + dataset.relationName());
+
+			for (MultiLabelClassifier classifier: m_Classifiers) {
+				// evaluation required?
+				if (incremental) {
+					if (!((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).requires(classifier, dataset)) {
+						log("Already present, skipping: " + Utils.toCommandLine(classifier) + " --> " + dataset.relationName());
+						priors.add(((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).retrieve(classifier, dataset));
+						jobs.add(null);
+						owners.add(numDatasets);
+						continue;
+					}
+				}
+
+				try {
+					jobs.add(m_Executor.submit(newJob(classifier, dataset)));
+					priors.add(null);
+					owners.add(numDatasets);
+				}
+				catch (Exception e) {
+					result = handleException("Failed to submit job for dataset '" + dataset.relationName() + "' with classifier: " + Utils.toCommandLine(classifier), e);
+					m_Running = false;
+					break;
+				}
+			}
+			numDatasets++;
+		}
+		debug("post: submit");
+
+		// collect remaining statistics in submission order
+		debug("pre: collect");
+		while ((result == null) && (collected < jobs.size())) {
+			if (!m_Running || m_Stopping)
+				break;
+			result = collect(jobs.get(collected), priors.get(collected), incremental);
+			jobs.set(collected, null);
+			priors.set(collected, null);
+			collected++;
+		}
+		deliverNotifications();
+		debug("post: collect");
+
+		debug("pre: shutdown");
+		if (!m_Running || m_Stopping)
+			m_Executor.shutdownNow();
+		else
+			m_Executor.shutdown();
+		m_Executor = null;
+		debug("post: shutdown");
+
+		return result;
+	}
+
+	/**
+	 * Collects the statistics of a job (or the already present ones), while
+	 * delivering the notifications of the running jobs.
+	 *
+	 * @param job           the job, null if the statistics were already present
+	 * @param prior         the statistics that were already present, if no job
+	 * @param incremental   whether the statistics handler gets updated incrementally
+	 * @return              null if successful, otherwise error message
+	 */
+	protected String collect(Future<List<EvaluationStatistics>> job, List<EvaluationStatistics> prior, boolean incremental) {
+		List<EvaluationStatistics>  stats;
+		Runnable                    notification;
+
+		if (job == null) {
+			deliverNotifications();
+			m_Statistics.addAll(prior);
+			notifyStatisticsNotificationListeners(prior);
+			return null;
+		}
+
+		try {
+			while (!job.isDone() && m_Running && !m_Stopping) {
+				notification = m_Notifications.poll(100, TimeUnit.MILLISECONDS);
+				if (notification != null)
+					notification.run();
+			}
+			deliverNotifications();
+			if (!m_Running || m_Stopping)
+				return null;
+			stats = job.get();
+		}
+		catch (ExecutionException e) {
+			m_Running = false;
+			return handleException("Failed to evaluate", e.getCause());
+		}
+		catch (Exception e) {
+			m_Running = false;
+			return handleException("Failed to obtain result of job", e);
+		}
+
+		if (stats != null) {
+			m_Statistics.addAll(stats);
+			if (incremental)
+				((IncrementalEvaluationStatisticsHandler) m_StatisticsHandler).append(stats);
+			notifyStatisticsNotificationListeners(stats);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Queues a notification of a parallel job (eg for listeners, which may be
+	 * GUI components), to be delivered by the thread running the experiment.
+	 *
+	 * @param notification  the notification to deliver
+	 */
+	protected void post(Runnable notification) {
+		m_Notifications.add(notification);
+	}
+
+	/**
+	 * Hands the checkpoints of a parallel job to the thread running the experiment, which is
+	 * the only one that writes to the statistics handler. The checkpoints the job resumes from
+	 * get retrieved by that thread as well, when the job gets created.
+	 */
+	protected class JobCheckpoints
+			extends AbstractEvaluationStatisticsHandler
+			implements CheckpointEvaluationStatisticsHandler {
+
+		private static final long serialVersionUID = -2236410315628170117L;
+
+		/** the checkpoints of the job's classifier/dataset, present when the job got created. */
+		protected List<EvaluationStatistics> m_Checkpoints;
+
+		/**
+		 * Initializes the handler.
+		 *
+		 * @param checkpoints   the checkpoints of the job's classifier/dataset
+		 */
+		public JobCheckpoints(List<EvaluationStatistics> checkpoints) {
+			m_Checkpoints = Collections.unmodifiableList(new ArrayList<>(checkpoints));
+		}
+
+		/**
+		 * Description to be displayed in the GUI.
+		 *
+		 * @return      the description
+		 */
+		@Override
+		public String globalInfo() {
+			return "Passes on the checkpoints of a parallel job to the thread running the experiment.";
+		}
+
+		/**
+		 * Returns whether the handler is threadsafe.
+		 *
+		 * @return      true, as the checkpoints get queued
+		 */
+		@Override
+		public boolean isThreadSafe() {
+			return true;
+		}
+
+		/**
+		 * Initializes the handler.
+		 *
+		 * @return      always null
+		 */
+		@Override
+		public String initialize() {
+			return null;
+		}
+
+		/**
+		 * Not supported.
+		 *
+		 * @return      always empty
+		 */
+		@Override
+		public List<EvaluationStatistics> read() {
+			return new ArrayList<>();
+		}
+
+		/**
+		 * Not supported.
+		 *
+		 * @param stats the statistics
+		 * @return      always an error message
+		 */
+		@Override
+		public String write(List<EvaluationStatistics> stats) {
+			return "Only checkpoints can be stored!";
+		}
+
+		/**
+		 * Returns whether the handler supports incremental updates.
+		 *
+		 * @return      always true
+		 */
+		@Override
+		public boolean supportsIncrementalUpdate() {
+			return true;
+		}
+
+		/**
+		 * Returns whether the classifier/dataset combination needs evaluating.
+		 *
+		 * @param classifier    the classifier to check
+		 * @param dataset       the dataset to check
+		 * @return              always true
+		 */
+		@Override
+		public boolean requires(MultiLabelClassifier classifier, Instances dataset) {
+			return true;
+		}
+
+		/**
+		 * Not supported.
+		 *
+		 * @param classifier    the classifier to check
+		 * @param dataset       the dataset to check
+		 * @return              always empty
+		 */
+		@Override
+		public List<EvaluationStatistics> retrieve(MultiLabelClassifier classifier, Instances dataset) {
+			return new ArrayList<>();
+		}
+
+		/**
+		 * Not supported.
+		 *
+		 * @param stats         the statistics
+		 * @return              always an error message
+		 */
+		@Override
+		public String append(List<EvaluationStatistics> stats) {
+			return "Only checkpoints can be stored!";
+		}
+
+		/**
+		 * Queues the checkpoints, to be stored by the thread running the experiment.
+		 *
+		 * @param stats         the statistics to store
+		 * @return              always null
+		 */
+		@Override
+		public String checkpoint(final List<EvaluationStatistics> stats) {
+			post(new Runnable() {
+				@Override
+				public void run() {
+					String msg = ((CheckpointEvaluationStatisticsHandler) m_StatisticsHandler).checkpoint(stats);
+					if (msg != null)
+						log(msg);
+				}
+			});
+			return null;
+		}
+
+		/**
+		 * Returns the checkpoints that were present when the job got created.
+		 *
+		 * @param classifier    the classifier of the job
+		 * @param dataset       the dataset of the job
+		 * @return              the checkpoints
+		 */
+		@Override
+		public List<EvaluationStatistics> retrieveCheckpoints(MultiLabelClassifier classifier, Instances dataset) {
+			return m_Checkpoints;
+		}
+	}
+
+	/**
+	 * Delivers all queued notifications of the parallel jobs.
+	 */
+	protected void deliverNotifications() {
+		Runnable    notification;
+
+		while ((notification = m_Notifications.poll()) != null)
+			notification.run();
+	}
+
+	/**
+	 * Creates a job that evaluates a copy of the classifier on the dataset,
+	 * using its own copy of the evaluator. Notifications, log messages and
+	 * checkpoints get posted to the thread running the experiment (see
+	 * {@link JobCheckpoints}).
+	 *
+	 * @param classifier    the classifier to evaluate (gets copied)
+	 * @param dataset       the dataset to use, not modified
+	 * @return              the job
+	 */
+	protected Callable<List<EvaluationStatistics>> newJob(final MultiLabelClassifier classifier, final Instances dataset) {
+		final JobCheckpoints    checkpoints;
+
+		if (isIncremental() && (m_StatisticsHandler instanceof CheckpointEvaluationStatisticsHandler) && (m_Evaluator instanceof CheckpointSupporter))
+			checkpoints = new JobCheckpoints(((CheckpointEvaluationStatisticsHandler) m_StatisticsHandler).retrieveCheckpoints(classifier, dataset));
+		else
+			checkpoints = null;
+
+		return new Callable<List<EvaluationStatistics>>() {
+			@Override
+			public List<EvaluationStatistics> call() throws Exception {
+				final MultiLabelClassifier  current;
+				Evaluator                   evaluator;
+				List<EvaluationStatistics>  stats;
+				String                      msg;
+
+				if (!m_Running || m_Stopping)
+					return null;
+
+				current   = (MultiLabelClassifier) AbstractClassifier.makeCopy(classifier);
+				evaluator = (Evaluator) OptionUtils.shallowCopy(m_Evaluator);
+				if (evaluator == null)
+					throw new Exception("Failed to create copy of evaluator: " + OptionUtils.toCommandLine(m_Evaluator));
+				// without listeners, the evaluator outputs its messages on stderr itself
+				if (getLogListeners().size() > 0) {
+					evaluator.addLogListener(new LogListener() {
+						@Override
+						public void logMessage(final LogEvent e) {
+							post(new Runnable() {
+								@Override
+								public void run() {
+									for (LogListener l: getLogListeners())
+										l.logMessage(e);
+								}
+							});
+						}
+					});
+				}
+				if (evaluator instanceof CheckpointSupporter)
+					((CheckpointSupporter) evaluator).setCheckpointHandler(checkpoints);
+
+				post(new Runnable() {
+					@Override
+					public void run() {
+						notifyIterationNotificationListeners(current, dataset);
+						log("Using classifier: " + OptionUtils.toCommandLine(current) + " --> " + dataset.relationName());
+					}
+				});
+
+				m_ActiveEvaluators.add(evaluator);
+				try {
+					msg = evaluator.initialize();
+					if (msg != null)
+						throw new Exception(msg);
+					stats = evaluator.evaluate(current, dataset);
+				}
+				finally {
+					m_ActiveEvaluators.remove(evaluator);
+				}
+
+				return stats;
+			}
+		};
+	}
+
+	/**
+	 * Runs the experiment.
+	 *
+	 * @return          null if successfully run, otherwise error message
+	 */
+	public String run() {
+		String      result;
+		boolean     incremental;
+		int         numThreads;
+
+		debug("pre: run");
+
+		m_Running   = true;
+		incremental = isIncremental();
+		debug("Incremental statistics? " + incremental);
+		numThreads  = ThreadUtils.getActualNumThreads(m_NumThreads, ThreadUtils.getAvailableProcessors());
+		debug("Number of threads (" + ThreadUtils.SEQUENTIAL + " = sequential): " + numThreads);
+
+		notifyExecutionStageListeners(ExecutionStageEvent.Stage.RUNNING);
+
+		if (numThreads == ThreadUtils.SEQUENTIAL)
+			result = runSequential(incremental);
+		else
+			result = runParallel(incremental, numThreads);
 
 		if (m_Running && !m_Stopping) {
 			if (!incremental)
@@ -614,6 +1137,8 @@ public class DefaultExperiment
 	 * Stops the experiment if running.
 	 */
 	public void stop() {
+		ExecutorService     executor;
+
 		debug("pre: stop");
 
 		m_Stopping     = true;
@@ -623,6 +1148,15 @@ public class DefaultExperiment
 		notifyExecutionStageListeners(ExecutionStageEvent.Stage.STOPPING);
 
 		m_Evaluator.stop();
+		if (m_ActiveEvaluators != null) {
+			synchronized (m_ActiveEvaluators) {
+				for (Evaluator evaluator: m_ActiveEvaluators)
+					evaluator.stop();
+			}
+		}
+		executor = m_Executor;
+		if (executor != null)
+			executor.shutdownNow();
 
 		debug("post: stop");
 	}
@@ -0,0 +1,869 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * BinaryLog.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluationstatistics;
+
+import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.FileUtils;
+import meka.core.OptionUtils;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Vector;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary append-only log, with an in-memory hash index on classifier commandline and relation.
+ * The file consists of a header followed by records, each storing the statistics of one
+ * commandline/relation combination (length, CRC32, body). Records get appended as results come in;
+ * every so often the log gets rewritten as a compacted snapshot, with one record per combination.
+ * The log stays open for appending until the experiment finishes (or the log gets compacted).
+ * An incomplete record at the end (e.g., from an interrupted experiment) gets dropped when loading,
+ * any other corrupt record makes loading fail, rather than losing the records after it.<br>
+ * Also stores checkpoints, ie the partial statistics (eg folds) of evaluations that are still in progress,
+ * which get discarded once the complete statistics are available. The checkpoints carry the setup of the
+ * evaluator that generated them (see AbstractEvaluator#KEY_CHECKPOINT_SETUP), so that evaluators only
+ * restore the ones of their own setup.
+ *
+ * @version $Revision$
+ */
+public class BinaryLog
+  extends AbstractFileBasedEvaluationStatisticsHandler
+  implements OptionalIncrementalEvaluationStatisticsHandler, CheckpointEvaluationStatisticsHandler {
+
+	private static final long serialVersionUID = 2493716617318043591L;
+
+	/** the magic number at the start of the file ("MKSL"). */
+	public final static int MAGIC = 0x4D4B534C;
+
+	/** the format version. */
+	public final static int VERSION = 2;
+
+	/** the size of the file header. */
+	public final static int HEADER_SIZE = 8;
+
+	/** the size of the record header (length, checksum). */
+	public final static int RECORD_HEADER_SIZE = 12;
+
+	/** type: double. */
+	public final static byte TYPE_DOUBLE = 'D';
+
+	/** type: float. */
+	public final static byte TYPE_FLOAT = 'F';
+
+	/** type: long. */
+	public final static byte TYPE_LONG = 'L';
+
+	/** type: integer. */
+	public final static byte TYPE_INTEGER = 'I';
+
+	/** type: short. */
+	public final static byte TYPE_SHORT = 'S';
+
+	/** type: byte. */
+	public final static byte TYPE_BYTE = 'B';
+
+	/** record: complete statistics. */
+	public final static byte RECORD_STATISTICS = 0;
+
+	/** record: checkpoint. */
+	public final static byte RECORD_CHECKPOINT = 1;
+
+	/** the statistics so far, indexed by commandline/relation. */
+	protected EvaluationStatisticsIndex m_Index = new EvaluationStatisticsIndex();
+
+	/** the checkpoints so far, indexed by commandline/relation. */
+	protected EvaluationStatisticsIndex m_Checkpoints = new EvaluationStatisticsIndex();
+
+	/** the number of records in the log. */
+	protected int m_NumRecords;
+
+	/** whether the index reflects the complete log, ie whether the log can be compacted. */
+	protected boolean m_Indexed;
+
+	/** whether the incremental mode is off. */
+	protected boolean m_IncrementalDisabled;
+
+	/** the number of superfluous records after which to compact the log. */
+	protected int m_CompactInterval = getDefaultCompactInterval();
+
+	/** the channel for appending to the log, null if not open. */
+	protected transient FileChannel m_Channel;
+
+	/** the stream for appending to the log, on top of the channel. */
+	protected transient DataOutputStream m_Output;
+
+	/**
+	 * Description to be displayed in the GUI.
+	 *
+	 * @return      the description
+	 */
+	public String globalInfo() {
+		return "Compact binary append-only log, with an in-memory hash index on classifier commandline and relation "
+				+ "for quickly resuming experiments. The log gets loaded via memory-mapping and periodically rewritten "
+				+ "as a compacted snapshot (one record per classifier/relation combination).";
+	}
+
+	/**
+	 * Returns the format description.
+	 *
+	 * @return      the file format
+	 */
+	public String getFormatDescription() {
+		return "Binary statistics log";
+	}
+
+	/**
+	 * Returns the format extension(s).
+	 *
+	 * @return      the extension(s) (incl dot)
+	 */
+	public String[] getFormatExtensions() {
+		return new String[]{".mlog"};
+	}
+
+	/**
+	 * Sets whether incremental model is turned off.
+	 *
+	 * @param value     true to turn off incremental mode
+	 */
+	public void setIncrementalDisabled(boolean value) {
+		m_IncrementalDisabled = value;
+	}
+
+	/**
+	 * Returns whether incremental mode is turned off.
+	 *
+	 * @return          true if incremental mode is pff
+	 */
+	public boolean isIncrementalDisabled() {
+		return m_IncrementalDisabled;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String incrementalDisabledTipText() {
+		return "If enabled, incremental mode is turned off.";
+	}
+
+	/**
+	 * Returns the default number of superfluous records after which to compact the log.
+	 *
+	 * @return          the default
+	 */
+	protected int getDefaultCompactInterval() {
+		return 1000;
+	}
+
+	/**
+	 * Sets the number of superfluous records after which to compact the log.
+	 *
+	 * @param value     the number of records, less than 1 to compact only when finished
+	 */
+	public void setCompactInterval(int value) {
+		m_CompactInterval = value;
+	}
+
+	/**
+	 * Returns the number of superfluous records after which to compact the log.
+	 *
+	 * @return          the number of records, less than 1 to compact only when finished
+	 */
+	public int getCompactInterval() {
+		return m_CompactInterval;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String compactIntervalTipText() {
+		return "The number of superfluous records (ie more than one per classifier/relation combination) after which "
+				+ "to rewrite the log as compacted snapshot; less than 1 to compact only when finished.";
+	}
+
+	/**
+	 * Returns whether the handler is threadsafe.
+	 *
+	 * @return      always true, access is synchronized
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/**
+	 * Returns whether the handler supports incremental write.
+	 *
+	 * @return      true if supported
+	 */
+	@Override
+	public boolean supportsIncrementalUpdate() {
+		return !m_IncrementalDisabled;
+	}
+
+	/**
+	 * Returns an enumeration of all the available options.
+	 *
+	 * @return an enumeration of all available options.
+	 */
+	@Override
+	public Enumeration<Option> listOptions() {
+		Vector<Option> result = new Vector<>();
+		OptionUtils.add(result, super.listOptions());
+		OptionUtils.addOption(result, incrementalDisabledTipText(), "no", "incremental-disabled");
+		OptionUtils.addOption(result, compactIntervalTipText(), "" + getDefaultCompactInterval(), "compact-interval");
+		return result.elements();
+	}
+
+	/**
+	 * Sets the options.
+	 *
+	 * @param options       the options
+	 * @throws Exception    never
+	 */
+	@Override
+	public void setOptions(String[] options) throws Exception {
+		setIncrementalDisabled(Utils.getFlag("incremental-disabled", options));
+		setCompactInterval(OptionUtils.parse(options, "compact-interval", getDefaultCompactInterval()));
+		super.setOptions(options);
+	}
+
+	/**
+	 * Returns the options.
+	 *
+	 * @return              the options
+	 */
+	@Override
+	public String[] getOptions() {
+		List<String> result = new ArrayList<>();
+		OptionUtils.add(result, super.getOptions());
+		OptionUtils.add(result, "incremental-disabled", isIncrementalDisabled());
+		OptionUtils.add(result, "compact-interval", getCompactInterval());
+		return OptionUtils.toArray(result);
+	}
+
+
+	/**
+	 * Initializes the handler.
+	 *
+	 * @return      null if successfully initialized, otherwise error message
+	 */
+	@Override
+	public synchronized String initialize() {
+		String      result;
+		long        valid;
+
+		closeOutput();
+		result = super.initialize();
+
+		if (result == null) {
+			m_Index.clear();
+			m_Checkpoints.clear();
+			m_NumRecords = 0;
+			m_Indexed    = true;
+			if (m_File.exists() && (m_File.length() > 0)) {
+				log("File '" + m_File + "' exists, loading...");
+				try {
+					valid = load(m_Index, m_Checkpoints);
+					log("Loaded " + m_Index.size() + " statistics and " + m_Checkpoints.size() + " checkpoints (" + m_NumRecords + " records)");
+					if (valid < m_File.length()) {
+						log("Dropping incomplete data at end of log: " + (m_File.length() - valid) + " bytes");
+						result = compact();
+					}
+				}
+				catch (Exception e) {
+					m_Indexed = false;
+					result    = handleException("Failed to read statistics from: " + m_File, e);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads a string (length and UTF-8 bytes).
+	 *
+	 * @param buffer    the buffer to read from
+	 * @return          the string
+	 */
+	protected String readString(ByteBuffer buffer) {
+		byte[]  bytes;
+
+		bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a value.
+	 *
+	 * @param buffer    the buffer to read from
+	 * @return          the value
+	 * @throws IOException  if unknown type
+	 */
+	protected Number readValue(ByteBuffer buffer) throws IOException {
+		byte    type;
+
+		type = buffer.get();
+		switch (type) {
+			case TYPE_DOUBLE:
+				return buffer.getDouble();
+			case TYPE_FLOAT:
+				return buffer.getFloat();
+			case TYPE_LONG:
+				return buffer.getLong();
+			case TYPE_INTEGER:
+				return buffer.getInt();
+			case TYPE_SHORT:
+				return buffer.getShort();
+			case TYPE_BYTE:
+				return buffer.get();
+			default:
+				throw new IOException("Unknown value type: " + (char) type);
+		}
+	}
+
+	/**
+	 * Reads the body of a record (after the record type).
+	 *
+	 * @param buffer    the buffer positioned at the body
+	 * @param headers   the cache for the classifiers
+	 * @param stats     for adding the statistics
+	 * @throws Exception    if parsing fails
+	 */
+	protected void readRecord(ByteBuffer buffer, HashMap<String,EvaluationStatistics> headers, List<EvaluationStatistics> stats) throws Exception {
+		String                  cmdline;
+		String                  relation;
+		EvaluationStatistics    stat;
+		int                     numStats;
+		int                     numValues;
+		int                     i;
+		int                     n;
+
+		cmdline  = readString(buffer);
+		relation = readString(buffer);
+		numStats = buffer.getInt();
+		for (i = 0; i < numStats; i++) {
+			stat      = EvaluationStatisticsIndex.newStatistics(headers, cmdline, relation);
+			numValues = buffer.getInt();
+			for (n = 0; n < numValues; n++)
+				stat.put(readString(buffer), readValue(buffer));
+			stats.add(stat);
+		}
+	}
+
+	/**
+	 * Loads the log, adding the statistics and checkpoints to the indices.
+	 * Checkpoints for which the complete statistics are available get discarded. Stops at an
+	 * incomplete record at the end of the log; any other corrupt record results in an exception.
+	 * Updates the number of records.
+	 *
+	 * @param index         the index to add the statistics to
+	 * @param checkpoints   the index to add the checkpoints to
+	 * @return              the length of the valid part of the log
+	 * @throws Exception    if reading fails or the log is corrupt
+	 */
+	protected long load(EvaluationStatisticsIndex index, EvaluationStatisticsIndex checkpoints) throws Exception {
+		long                                    result;
+		InputStream                             istream;
+		DataInputStream                         dis;
+		ByteBuffer                              wrapped;
+		HashMap<String,EvaluationStatistics>    headers;
+		List<EvaluationStatistics>              stats;
+		CRC32                                   crc;
+		byte[]                                  body;
+		long                                    size;
+		int                                     length;
+		long                                    checksum;
+		int                                     version;
+		byte                                    type;
+
+		istream = null;
+		try {
+			size = m_File.length();
+			if (size < HEADER_SIZE)
+				throw new IOException("File too short: " + m_File);
+			istream = new BufferedInputStream(new FileInputStream(m_File));
+			dis     = new DataInputStream(istream);
+			if (dis.readInt() != MAGIC)
+				throw new IOException("Not a binary statistics log: " + m_File);
+			version = dis.readInt();
+			if ((version < 1) || (version > VERSION))
+				throw new IOException("Unsupported version of binary statistics log: " + m_File);
+
+			headers = new HashMap<>();
+			stats   = new ArrayList<>();
+			crc     = new CRC32();
+			result  = HEADER_SIZE;
+			while (result + RECORD_HEADER_SIZE <= size) {
+				length   = dis.readInt();
+				checksum = dis.readLong();
+				if (length < 0)
+					throw new IOException("Corrupt record (length " + length + ") at offset " + result + " of: " + m_File);
+				// incomplete record at the end
+				if (result + RECORD_HEADER_SIZE + length > size)
+					break;
+				body = new byte[length];
+				dis.readFully(body);
+				crc.reset();
+				crc.update(body);
+				if (crc.getValue() != checksum) {
+					// the last record may only have been written partially
+					if (result + RECORD_HEADER_SIZE + length == size)
+						break;
+					throw new IOException("Corrupt record (checksum mismatch) at offset " + result + " of: " + m_File);
+				}
+				wrapped = ByteBuffer.wrap(body);
+				// version 1 only stored complete statistics
+				type    = (version == 1) ? RECORD_STATISTICS : wrapped.get();
+				readRecord(wrapped, headers, stats);
+				if (stats.size() > 0) {
+					if (type == RECORD_CHECKPOINT) {
+						if (!index.contains(stats.get(0).getCommandLine(), stats.get(0).getRelation()))
+							checkpoints.addAll(stats);
+					}
+					else {
+						checkpoints.remove(stats.get(0).getCommandLine(), stats.get(0).getRelation());
+						index.addAll(stats);
+					}
+				}
+				stats.clear();
+				m_NumRecords++;
+				result += RECORD_HEADER_SIZE + length;
+			}
+		}
+		finally {
+			FileUtils.closeQuietly(istream);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Writes a string (length and UTF-8 bytes).
+	 *
+	 * @param out       the stream to write to
+	 * @param s         the string
+	 * @throws IOException  if writing fails
+	 */
+	protected void writeString(DataOutputStream out, String s) throws IOException {
+		byte[]  bytes;
+
+		bytes = String.valueOf(s).getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Writes a value. Types other than the primitive wrappers get stored as double.
+	 *
+	 * @param out       the stream to write to
+	 * @param value     the value
+	 * @throws IOException  if writing fails
+	 */
+	protected void writeValue(DataOutputStream out, Number value) throws IOException {
+		if (value instanceof Integer) {
+			out.writeByte(TYPE_INTEGER);
+			out.writeInt(value.intValue());
+		}
+		else if (value instanceof Long) {
+			out.writeByte(TYPE_LONG);
+			out.writeLong(value.longValue());
+		}
+		else if (value instanceof Float) {
+			out.writeByte(TYPE_FLOAT);
+			out.writeFloat(value.floatValue());
+		}
+		else if (value instanceof Short) {
+			out.writeByte(TYPE_SHORT);
+			out.writeShort(value.shortValue());
+		}
+		else if (value instanceof Byte) {
+			out.writeByte(TYPE_BYTE);
+			out.writeByte(value.byteValue());
+		}
+		else {
+			out.writeByte(TYPE_DOUBLE);
+			out.writeDouble(value.doubleValue());
+		}
+	}
+
+	/**
+	 * Writes a record with the statistics, which must all have the same commandline/relation.
+	 *
+	 * @param out       the stream to write to
+	 * @param type      the type of record
+	 * @param stats     the statistics
+	 * @throws IOException  if writing fails
+	 */
+	protected void writeRecord(DataOutputStream out, byte type, List<EvaluationStatistics> stats) throws IOException {
+		ByteArrayOutputStream   bytes;
+		DataOutputStream        body;
+		CRC32                   crc;
+		int                     numValues;
+
+		bytes = new ByteArrayOutputStream();
+		body  = new DataOutputStream(bytes);
+		body.writeByte(type);
+		writeString(body, stats.get(0).getCommandLine());
+		writeString(body, stats.get(0).getRelation());
+		body.writeInt(stats.size());
+		for (EvaluationStatistics stat: stats) {
+			numValues = 0;
+			for (String key: stat.keySet()) {
+				if (stat.get(key) != null)
+					numValues++;
+			}
+			body.writeInt(numValues);
+			for (String key: stat.keySet()) {
+				if (stat.get(key) == null)
+					continue;
+				writeString(body, key);
+				writeValue(body, stat.get(key));
+			}
+		}
+		body.flush();
+
+		crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeInt(bytes.size());
+		out.writeLong(crc.getValue());
+		bytes.writeTo(out);
+	}
+
+	/**
+	 * Writes the file header.
+	 *
+	 * @param out       the stream to write to
+	 * @throws IOException  if writing fails
+	 */
+	protected void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	/**
+	 * Reads the statistics.
+	 *
+	 * @return              the statistics that were read
+	 */
+	@Override
+	public synchronized List<EvaluationStatistics> read() {
+		List<EvaluationStatistics>  result;
+		EvaluationStatisticsIndex   index;
+		int                         numRecords;
+
+		result     = new ArrayList<>();
+		numRecords = m_NumRecords;
+		try {
+			index = new EvaluationStatisticsIndex();
+			load(index, new EvaluationStatisticsIndex());
+			for (List<EvaluationStatistics> group: index.groups())
+				result.addAll(group);
+		}
+		catch (Exception e) {
+			result = null;
+			handleException("Failed to read statistics from: " + m_File, e);
+		}
+		finally {
+			m_NumRecords = numRecords;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks whether the specified combination of classifier and dataset is required for evaluation
+	 * or already present from previous evaluation.
+	 *
+	 * @param classifier    the classifier to check
+	 * @param dataset       the dataset to check
+	 * @return              true if it needs evaluating
+	 */
+	public synchronized boolean requires(MultiLabelClassifier classifier, Instances dataset) {
+		return !m_Index.contains(Utils.toCommandLine(classifier), dataset.relationName());
+	}
+
+	/**
+	 * Retrieves the statis for the specified combination of classifier and dataset.
+	 *
+	 * @param classifier    the classifier to check
+	 * @param dataset       the dataset to check
+	 * @return              the stats, null if not available
+	 */
+	public synchronized List<EvaluationStatistics> retrieve(MultiLabelClassifier classifier, Instances dataset) {
+		return m_Index.get(Utils.toCommandLine(classifier), dataset.relationName());
+	}
+
+	/**
+	 * Retrieves the partial statistics for the specified combination of classifier and dataset,
+	 * regardless of the evaluator setup they were generated with.
+	 *
+	 * @param classifier    the classifier to check
+	 * @param dataset       the dataset to check
+	 * @return              the stats, empty if none available
+	 */
+	public synchronized List<EvaluationStatistics> retrieveCheckpoints(MultiLabelClassifier classifier, Instances dataset) {
+		return m_Checkpoints.get(Utils.toCommandLine(classifier), dataset.relationName());
+	}
+
+	/**
+	 * Returns the stream for appending to the log, opening the log (and writing the header
+	 * if empty) if necessary.
+	 *
+	 * @return              the stream
+	 * @throws IOException  if opening fails
+	 */
+	protected DataOutputStream getOutput() throws IOException {
+		if (m_Output == null) {
+			m_Channel = FileChannel.open(m_File.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			m_Output  = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(m_Channel)));
+			if (m_Channel.size() == 0) {
+				writeHeader(m_Output);
+				m_Output.flush();
+			}
+		}
+		return m_Output;
+	}
+
+	/**
+	 * Closes the log for appending, if open.
+	 */
+	protected void closeOutput() {
+		FileUtils.closeQuietly(m_Output);
+		m_Output  = null;
+		m_Channel = null;
+	}
+
+	/**
+	 * Closes the log for appending after a failed write, without flushing, and truncates it
+	 * to the specified length to remove a partially written record.
+	 *
+	 * @param valid         the length of the valid part of the log, -1 if unknown
+	 */
+	protected void discardOutput(long valid) {
+		if (m_Channel != null) {
+			try {
+				if ((valid >= 0) && (m_Channel.size() > valid))
+					m_Channel.truncate(valid);
+			}
+			catch (Exception e) {
+				// ignored
+			}
+			try {
+				m_Channel.close();
+			}
+			catch (Exception e) {
+				// ignored
+			}
+		}
+		m_Output  = null;
+		m_Channel = null;
+	}
+
+	/**
+	 * Appends the statistics to the log. Consecutive statistics with the same commandline/relation
+	 * get stored as a single record. Compacts the log if necessary.
+	 *
+	 * @param type          the type of records to write
+	 * @param stats         the statistics to store
+	 * @return              null if successfully stored, otherwise error message
+	 */
+	protected String appendRecords(byte type, List<EvaluationStatistics> stats) {
+		DataOutputStream            dos;
+		List<EvaluationStatistics>  group;
+		String                      key;
+		String                      current;
+		long                        valid;
+
+		valid = -1;
+		try {
+			dos     = getOutput();
+			valid   = m_Channel.size();
+			group   = new ArrayList<>();
+			current = null;
+			for (EvaluationStatistics stat: stats) {
+				key = EvaluationStatisticsIndex.key(stat.getCommandLine(), stat.getRelation());
+				if (!key.equals(current) && (group.size() > 0)) {
+					writeRecord(dos, type, group);
+					m_NumRecords++;
+					group.clear();
+				}
+				current = key;
+				group.add(stat);
+				if (type == RECORD_CHECKPOINT) {
+					m_Checkpoints.add(stat);
+				}
+				else {
+					m_Checkpoints.remove(stat.getCommandLine(), stat.getRelation());
+					m_Index.add(stat);
+				}
+			}
+			if (group.size() > 0) {
+				writeRecord(dos, type, group);
+				m_NumRecords++;
+			}
+			dos.flush();
+		}
+		catch (Exception e) {
+			discardOutput(valid);
+			return handleException("Failed to write statistics to: " + m_File, e);
+		}
+
+		if (m_Indexed && (m_CompactInterval > 0) && (numSuperfluousRecords() >= m_CompactInterval))
+			return compact();
+
+		return null;
+	}
+
+	/**
+	 * Adds the given statistics. Consecutive statistics with the same commandline/relation
+	 * get stored as a single record.
+	 *
+	 * @param stats         the statistics to store
+	 * @return              null if successfully stored, otherwise error message
+	 */
+	@Override
+	public synchronized String append(List<EvaluationStatistics> stats) {
+		log("Writing " + stats.size() + " statistics to: " + m_File);
+		return appendRecords(RECORD_STATISTICS, stats);
+	}
+
+	/**
+	 * Stores the partial statistics of an evaluation in progress.
+	 *
+	 * @param stats         the statistics to store
+	 * @return              null if successfully stored, otherwise error message
+	 */
+	@Override
+	public synchronized String checkpoint(List<EvaluationStatistics> stats) {
+		debug("Writing " + stats.size() + " checkpoint statistics to: " + m_File);
+		return appendRecords(RECORD_CHECKPOINT, stats);
+	}
+
+	/**
+	 * Stores the given statistics.
+	 *
+	 * @param stats         the statistics to store
+	 * @return              null if successfully stored, otherwise error message
+	 */
+	@Override
+	public String write(List<EvaluationStatistics> stats) {
+		return append(stats);
+	}
+
+	/**
+	 * Returns the number of records that a compacted log would not contain.
+	 *
+	 * @return          the number of records
+	 */
+	protected int numSuperfluousRecords() {
+		return m_NumRecords - m_Index.numGroups() - m_Checkpoints.numGroups();
+	}
+
+	/**
+	 * Rewrites the log as compacted snapshot of the index, with one record per commandline/relation
+	 * (plus one per commandline/relation with outstanding checkpoints).
+	 * The snapshot gets written to a temporary file first, which then replaces the log
+	 * (the log gets closed for appending beforehand).
+	 * Only to be used if the index reflects the complete log (see {@link #initialize()}).
+	 *
+	 * @return          null if successful, otherwise error message
+	 */
+	protected String compact() {
+		File                tmp;
+		OutputStream        ostream;
+		DataOutputStream    dos;
+
+		closeOutput();
+		log("Compacting " + m_NumRecords + " records into " + (m_Index.numGroups() + m_Checkpoints.numGroups()) + ": " + m_File);
+
+		tmp     = new File(m_File.getAbsolutePath() + ".tmp");
+		ostream = null;
+		try {
+			ostream = new BufferedOutputStream(new FileOutputStream(tmp));
+			dos     = new DataOutputStream(ostream);
+			writeHeader(dos);
+			for (List<EvaluationStatistics> group: m_Index.groups())
+				writeRecord(dos, RECORD_STATISTICS, group);
+			for (List<EvaluationStatistics> group: m_Checkpoints.groups())
+				writeRecord(dos, RECORD_CHECKPOINT, group);
+			dos.flush();
+			ostream.close();
+			ostream = null;
+			try {
+				Files.move(tmp.toPath(), m_File.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), m_File.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			m_NumRecords = m_Index.numGroups() + m_Checkpoints.numGroups();
+			return null;
+		}
+		catch (Exception e) {
+			return handleException("Failed to compact statistics log: " + m_File, e);
+		}
+		finally {
+			FileUtils.closeQuietly(ostream);
+		}
+	}
+
+	/**
+	 * Gets called after the experiment finished. Closes the log and compacts it, if necessary.
+	 *
+	 * @return          null if successfully finished, otherwise error message
+	 */
+	public synchronized String finish() {
+		closeOutput();
+		if (m_Indexed && (numSuperfluousRecords() > 0))
+			return compact();
+		return null;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * CheckpointEvaluationStatisticsHandler.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluationstatistics;
+
+import meka.classifiers.multilabel.MultiLabelClassifier;
+import weka.core.Instances;
+
+import java.util.List;
+
+/**
+ * For incremental handlers that can also store partial results (eg single folds) of an evaluation
+ * that is still in progress, to be picked up again when resuming an interrupted experiment.
+ * Once the complete statistics of a classifier/dataset combination get appended, its checkpoints
+ * are no longer available. Implementations must be threadsafe with respect to checkpoints.
+ * The checkpoints get stored and retrieved as they are, including the keys that identify the
+ * evaluator setup; it is up to the evaluators to only restore the ones that match their setup.
+ *
+ * @version $Revision$
+ */
+public interface CheckpointEvaluationStatisticsHandler
+  extends IncrementalEvaluationStatisticsHandler {
+
+	/**
+	 * Stores the partial statistics of an evaluation in progress.
+	 *
+	 * @param stats         the statistics to store
+	 * @return              null if successfully stored, otherwise error message
+	 */
+	public String checkpoint(List<EvaluationStatistics> stats);
+
+	/**
+	 * Retrieves the partial statistics for the specified combination of classifier and dataset.
+	 *
+	 * @param classifier    the classifier to check
+	 * @param dataset       the dataset to check
+	 * @return              the stats, empty if none available
+	 */
+	public List<EvaluationStatistics> retrieveCheckpoints(MultiLabelClassifier classifier, Instances dataset);
+}
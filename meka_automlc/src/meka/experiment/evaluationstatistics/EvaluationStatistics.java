@@ -79,10 +79,22 @@ public class EvaluationStatistics
 	 * @param result        the evaluation
 	 */
 	public EvaluationStatistics(MultiLabelClassifier classifier, String relation, Result result) {
+		this(classifier, (classifier == null) ? null : OptionUtils.toCommandLine(classifier), relation, result);
+	}
+
+	/**
+	 * Extracts the statistics from the Result object, using the already generated commandline of the classifier.
+	 *
+	 * @param classifier    the classifier
+	 * @param commandLine   the commandline of the classifier
+	 * @param relation      the relation
+	 * @param result        the evaluation
+	 */
+	public EvaluationStatistics(MultiLabelClassifier classifier, String commandLine, String relation, Result result) {
 		super();
 
 		m_Classifier  = classifier;
-		m_CommandLine = (classifier == null) ? null : OptionUtils.toCommandLine(classifier);
+		m_CommandLine = commandLine;
 		m_Relation    = relation;
 
 		if (result != null) {
@@ -0,0 +1,195 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * EvaluationStatisticsIndex.java
+ * Copyright (C) 2015 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluationstatistics;
+
+import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.OptionUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash index for statistics, using the combination of classifier commandline and relation as key.
+ * The groups are kept in the order they were first added.
+ *
+ * @version $Revision$
+ */
+public class EvaluationStatisticsIndex
+  implements Serializable {
+
+	private static final long serialVersionUID = 5043311591722375127L;
+
+	/** the statistics, grouped by commandline/relation. */
+	protected Map<String,List<EvaluationStatistics>> m_Groups = new LinkedHashMap<>();
+
+	/** the total number of statistics. */
+	protected int m_Size;
+
+	/**
+	 * Generates the key for the combination of classifier commandline and relation.
+	 *
+	 * @param commandLine   the classifier commandline
+	 * @param relation      the relation name
+	 * @return              the key
+	 */
+	public static String key(String commandLine, String relation) {
+		relation = String.valueOf(relation);
+		return relation.length() + ":" + relation + commandLine;
+	}
+
+	/**
+	 * Removes all statistics.
+	 */
+	public void clear() {
+		m_Groups.clear();
+		m_Size = 0;
+	}
+
+	/**
+	 * Adds the statistics.
+	 *
+	 * @param stat      the statistics to add
+	 */
+	public void add(EvaluationStatistics stat) {
+		String                      key;
+		List<EvaluationStatistics>  group;
+
+		key   = key(stat.getCommandLine(), stat.getRelation());
+		group = m_Groups.get(key);
+		if (group == null) {
+			group = new ArrayList<>();
+			m_Groups.put(key, group);
+		}
+		group.add(stat);
+		m_Size++;
+	}
+
+	/**
+	 * Adds all the statistics.
+	 *
+	 * @param stats     the statistics to add
+	 */
+	public void addAll(List<EvaluationStatistics> stats) {
+		for (EvaluationStatistics stat: stats)
+			add(stat);
+	}
+
+	/**
+	 * Checks whether there are statistics for the combination of classifier commandline and relation.
+	 *
+	 * @param commandLine   the classifier commandline
+	 * @param relation      the relation name
+	 * @return              true if available
+	 */
+	public boolean contains(String commandLine, String relation) {
+		return m_Groups.containsKey(key(commandLine, relation));
+	}
+
+	/**
+	 * Returns the statistics for the combination of classifier commandline and relation.
+	 *
+	 * @param commandLine   the classifier commandline
+	 * @param relation      the relation name
+	 * @return              the statistics, empty if none available
+	 */
+	public List<EvaluationStatistics> get(String commandLine, String relation) {
+		List<EvaluationStatistics>  group;
+
+		group = m_Groups.get(key(commandLine, relation));
+		if (group == null)
+			return new ArrayList<>();
+		else
+			return new ArrayList<>(group);
+	}
+
+	/**
+	 * Removes the statistics for the combination of classifier commandline and relation.
+	 *
+	 * @param commandLine   the classifier commandline
+	 * @param relation      the relation name
+	 * @return              the removed statistics, null if none available
+	 */
+	public List<EvaluationStatistics> remove(String commandLine, String relation) {
+		List<EvaluationStatistics>  group;
+
+		group = m_Groups.remove(key(commandLine, relation));
+		if (group != null)
+			m_Size -= group.size();
+
+		return group;
+	}
+
+	/**
+	 * Returns the statistics, grouped by commandline/relation.
+	 *
+	 * @return          the groups
+	 */
+	public List<List<EvaluationStatistics>> groups() {
+		return new ArrayList<>(m_Groups.values());
+	}
+
+	/**
+	 * Returns the number of commandline/relation combinations.
+	 *
+	 * @return          the number of groups
+	 */
+	public int numGroups() {
+		return m_Groups.size();
+	}
+
+	/**
+	 * Returns the total number of statistics.
+	 *
+	 * @return          the number of statistics
+	 */
+	public int size() {
+		return m_Size;
+	}
+
+	/**
+	 * Creates a statistics object for a classifier commandline read from disk. The classifier only gets
+	 * instantiated once per distinct commandline, using the supplied cache.
+	 *
+	 * @param cache         the cache for the instantiated classifiers (commandline read - empty statistics)
+	 * @param commandLine   the classifier commandline as read
+	 * @param relation      the relation
+	 * @return              the (empty) statistics
+	 * @throws Exception    if instantiating the classifier fails
+	 */
+	public static EvaluationStatistics newStatistics(HashMap<String,EvaluationStatistics> cache, String commandLine, String relation) throws Exception {
+		EvaluationStatistics    header;
+
+		header = cache.get(commandLine);
+		if (header == null) {
+			header = new EvaluationStatistics(
+					OptionUtils.fromCommandLine(MultiLabelClassifier.class, commandLine),
+					relation,
+					null);
+			cache.put(commandLine, header);
+		}
+
+		return new EvaluationStatistics(header.getClassifier(), header.getCommandLine(), relation, null);
+	}
+}
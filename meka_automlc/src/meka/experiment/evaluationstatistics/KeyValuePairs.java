@@ -51,8 +51,8 @@ public class KeyValuePairs
 	/** the key for the relation. */
 	public final static String KEY_RELATION = "Relation";
 
-	/** the statistics so far. */
-	protected List<EvaluationStatistics> m_Statistics = new ArrayList<>();
+	/** the statistics so far, indexed by commandline/relation. */
+	protected EvaluationStatisticsIndex m_Index = new EvaluationStatisticsIndex();
 
 	/** whether the incremental mode is off. */
 	protected boolean m_IncrementalDisabled;
@@ -182,10 +182,10 @@ public class KeyValuePairs
 		result = super.initialize();
 
 		if (result == null) {
-			m_Statistics.clear();
+			m_Index.clear();
 			if (m_File.exists()) {
 				log("File '" + m_File + "' exists, loading...");
-				m_Statistics.addAll(read());
+				m_Index.addAll(read());
 			}
 		}
 
@@ -204,11 +204,13 @@ public class KeyValuePairs
 		String[]                    parts;
 		String[]                    entries;
 		HashMap<String,String>      raw;
+		HashMap<String,EvaluationStatistics>    headers;
 		EvaluationStatistics        stat;
 		BufferedReader              breader;
 		FileReader                  freader;
 
 		result  = new ArrayList<>();
+		headers = new HashMap<>();
 		freader = null;
 		breader = null;
 		try {
@@ -229,10 +231,7 @@ public class KeyValuePairs
 						log("Failed to parse: " + entry);
 				}
 				if (raw.containsKey(KEY_CLASSIFIER) && raw.containsKey(KEY_RELATION)) {
-					stat = new EvaluationStatistics(
-							OptionUtils.fromCommandLine(MultiLabelClassifier.class, raw.get(KEY_CLASSIFIER)),
-							raw.get(KEY_RELATION),
-							null);
+					stat = EvaluationStatisticsIndex.newStatistics(headers, raw.get(KEY_CLASSIFIER), raw.get(KEY_RELATION));
 					for (String key: raw.keySet()) {
 						if (key.equals(KEY_CLASSIFIER) || key.equals(KEY_RELATION))
 							continue;
@@ -268,23 +267,7 @@ public class KeyValuePairs
 	 * @return              true if it needs evaluating
 	 */
 	public boolean requires(MultiLabelClassifier classifier, Instances dataset) {
-		boolean     result;
-		String      cls;
-		String      rel;
-
-		result = true;
-
-		cls = Utils.toCommandLine(classifier);
-		rel = dataset.relationName();
-
-		for (EvaluationStatistics stat: m_Statistics) {
-			if (stat.getCommandLine().equals(cls) && stat.getRelation().equals(rel)) {
-				result = false;
-				break;
-			}
-		}
-
-		return result;
+		return !m_Index.contains(Utils.toCommandLine(classifier), dataset.relationName());
 	}
 	/**
 	 * Retrieves the statis for the specified combination of classifier and dataset.
@@ -294,21 +277,7 @@ public class KeyValuePairs
 	 * @return              the stats, null if not available
 	 */
 	public List<EvaluationStatistics> retrieve(MultiLabelClassifier classifier, Instances dataset) {
-		List<EvaluationStatistics>  result;
-		String                      cls;
-		String                      rel;
-
-		result = new ArrayList<>();
-
-		cls = Utils.toCommandLine(classifier);
-		rel = dataset.relationName();
-
-		for (EvaluationStatistics stat: m_Statistics) {
-			if (stat.getCommandLine().equals(cls) && stat.getRelation().equals(rel))
-				result.add(stat);
-		}
-
-		return result;
+		return m_Index.get(Utils.toCommandLine(classifier), dataset.relationName());
 	}
 
 	/**
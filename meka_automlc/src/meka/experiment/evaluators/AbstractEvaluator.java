@@ -20,11 +20,23 @@
 
 package meka.experiment.evaluators;
 
+import meka.classifiers.multilabel.MultiLabelClassifier;
 import meka.core.OptionUtils;
 import meka.events.LogObject;
+import meka.experiment.evaluationstatistics.CheckpointEvaluationStatisticsHandler;
+import meka.experiment.evaluationstatistics.EvaluationStatistics;
+import weka.core.Instances;
 import weka.core.Option;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 /**
@@ -39,9 +51,18 @@ public abstract class AbstractEvaluator
 
 	private static final long serialVersionUID = 6318297857792961890L;
 
+	/** the key for the setup of the evaluator that generated a checkpoint. */
+	public final static String KEY_CHECKPOINT_SETUP = "Checkpoint setup";
+
 	/** whether the evaluation got stopped. */
 	protected boolean m_Stopped;
 
+	/** the handler for storing checkpoints (only used by {@link CheckpointSupporter}s). */
+	protected transient CheckpointEvaluationStatisticsHandler m_CheckpointHandler;
+
+	/** the additional keys identifying the checkpoints. */
+	protected Map<String,Number> m_CheckpointKeys = new HashMap<>();
+
 	/**
 	 * Description to be displayed in the GUI.
 	 *
@@ -90,6 +111,189 @@ public abstract class AbstractEvaluator
 		return new String[0];
 	}
 
+	/**
+	 * Sets the handler to store the checkpoints with.
+	 *
+	 * @param value     the handler, null to turn off checkpoints
+	 */
+	public void setCheckpointHandler(CheckpointEvaluationStatisticsHandler value) {
+		m_CheckpointHandler = value;
+	}
+
+	/**
+	 * Returns the handler to store the checkpoints with.
+	 *
+	 * @return          the handler, null if checkpoints are off
+	 */
+	public CheckpointEvaluationStatisticsHandler getCheckpointHandler() {
+		return m_CheckpointHandler;
+	}
+
+	/**
+	 * Sets the additional keys that identify the checkpoints of this evaluator.
+	 *
+	 * @param value     the keys and their values
+	 */
+	public void setCheckpointKeys(Map<String,Number> value) {
+		m_CheckpointKeys = new HashMap<>(value);
+	}
+
+	/**
+	 * Returns the additional keys that identify the checkpoints of this evaluator.
+	 *
+	 * @return          the keys and their values
+	 */
+	public Map<String,Number> getCheckpointKeys() {
+		return m_CheckpointKeys;
+	}
+
+	/**
+	 * Returns the settings that influence the statistics, which identify
+	 * the checkpoints of this setup. By default, the commandline.
+	 *
+	 * @return          the setup
+	 * @see             #getCheckpointDigest(String)
+	 */
+	protected String getCheckpointSetup() {
+		return OptionUtils.toCommandLine(this);
+	}
+
+	/**
+	 * Returns the digest of the setup that gets stored with the checkpoints
+	 * (see {@link #KEY_CHECKPOINT_SETUP}): the first 64 bits of its SHA-256 hash,
+	 * as the statistics can only hold numbers.
+	 *
+	 * @param setup     the setup
+	 * @return          the digest
+	 */
+	public static long getCheckpointDigest(String setup) {
+		try {
+			return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(setup.getBytes(StandardCharsets.UTF_8))).getLong();
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every JVM has to provide SHA-256
+			throw new IllegalStateException("Failed to compute digest of checkpoint setup!", e);
+		}
+	}
+
+	/**
+	 * Returns the checkpoint keys of this evaluator, including its setup.
+	 *
+	 * @return          the keys and their values
+	 * @see             #getCheckpointSetup()
+	 */
+	protected Map<String,Number> getCheckpointKeysAndSetup() {
+		Map<String,Number>  result;
+
+		result = new HashMap<>(m_CheckpointKeys);
+		result.put(KEY_CHECKPOINT_SETUP, getCheckpointDigest(getCheckpointSetup()));
+
+		return result;
+	}
+
+	/**
+	 * Retrieves the checkpoints for the classifier/dataset that match the checkpoint keys
+	 * and the setup of this evaluator.
+	 *
+	 * @param classifier    the classifier
+	 * @param dataset       the dataset
+	 * @return              the checkpointed statistics, empty if none or checkpoints are off
+	 */
+	protected List<EvaluationStatistics> retrieveCheckpoints(MultiLabelClassifier classifier, Instances dataset) {
+		return retrieveCheckpoints(classifier, dataset, getCheckpointKeysAndSetup());
+	}
+
+	/**
+	 * Retrieves the checkpoints for the classifier/dataset that match the specified keys.
+	 * Checkpoints of a different setup (see {@link #KEY_CHECKPOINT_SETUP}) get ignored.
+	 * The statistics get returned without the keys, like the ones of a new evaluation.
+	 *
+	 * @param classifier    the classifier
+	 * @param dataset       the dataset
+	 * @param keys          the keys to match, including the setup
+	 * @return              the checkpointed statistics, empty if none or checkpoints are off
+	 */
+	protected List<EvaluationStatistics> retrieveCheckpoints(MultiLabelClassifier classifier, Instances dataset, Map<String,Number> keys) {
+		List<EvaluationStatistics>  result;
+		EvaluationStatistics        copy;
+		boolean                     matches;
+		Number                      value;
+		Number                      setup;
+		int                         ignored;
+
+		result = new ArrayList<>();
+		if (m_CheckpointHandler == null)
+			return result;
+
+		setup   = keys.get(KEY_CHECKPOINT_SETUP);
+		ignored = 0;
+		for (EvaluationStatistics stat: m_CheckpointHandler.retrieveCheckpoints(classifier, dataset)) {
+			matches = true;
+			for (String key: keys.keySet()) {
+				if (key.equals(KEY_CHECKPOINT_SETUP))
+					continue;
+				value = stat.get(key);
+				if ((value == null) || (value.doubleValue() != keys.get(key).doubleValue())) {
+					matches = false;
+					break;
+				}
+			}
+			if (matches && (setup != null)) {
+				value = stat.get(KEY_CHECKPOINT_SETUP);
+				if ((value == null) || (value.longValue() != setup.longValue())) {
+					ignored++;
+					matches = false;
+				}
+			}
+			if (matches) {
+				copy = new EvaluationStatistics(stat.getClassifier(), stat.getCommandLine(), stat.getRelation(), null);
+				copy.putAll(stat);
+				copy.keySet().removeAll(keys.keySet());
+				result.add(copy);
+			}
+		}
+		if (ignored > 0)
+			log("Ignoring " + ignored + " checkpoint(s) of a different evaluator setup");
+
+		return result;
+	}
+
+	/**
+	 * Stores the statistics as checkpoint, adding the checkpoint keys and the setup of this evaluator.
+	 *
+	 * @param stats         the statistics
+	 */
+	protected void checkpoint(List<EvaluationStatistics> stats) {
+		checkpoint(stats, getCheckpointKeysAndSetup());
+	}
+
+	/**
+	 * Stores the statistics as checkpoint, adding the specified keys to the stored copies
+	 * (the statistics themselves remain unchanged).
+	 *
+	 * @param stats         the statistics
+	 * @param keys          the keys to add, including the setup
+	 */
+	protected void checkpoint(List<EvaluationStatistics> stats, Map<String,Number> keys) {
+		List<EvaluationStatistics>  checkpoints;
+		EvaluationStatistics        copy;
+		String                      msg;
+
+		if ((m_CheckpointHandler == null) || (stats.size() == 0))
+			return;
+
+		checkpoints = new ArrayList<>();
+		for (EvaluationStatistics stat: stats) {
+			copy = new EvaluationStatistics(stat.getClassifier(), stat.getCommandLine(), stat.getRelation(), null);
+			copy.putAll(stat);
+			copy.putAll(keys);
+			checkpoints.add(copy);
+		}
+		msg = m_CheckpointHandler.checkpoint(checkpoints);
+		if (msg != null)
+			log(msg);
+	}
+
 	/**
 	 * Stops the evaluation, if possible.
 	 */
@@ -0,0 +1,64 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * CheckpointSupporter.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluators;
+
+import meka.experiment.evaluationstatistics.CheckpointEvaluationStatisticsHandler;
+
+import java.util.Map;
+
+/**
+ * For evaluators that store the statistics of each completed step (eg fold or run) as checkpoint
+ * and skip the steps that were already checkpointed when evaluating again.
+ *
+ * @version $Revision$
+ */
+public interface CheckpointSupporter
+  extends Evaluator {
+
+	/**
+	 * Sets the handler to store the checkpoints with.
+	 *
+	 * @param value     the handler, null to turn off checkpoints
+	 */
+	public void setCheckpointHandler(CheckpointEvaluationStatisticsHandler value);
+
+	/**
+	 * Returns the handler to store the checkpoints with.
+	 *
+	 * @return          the handler, null if checkpoints are off
+	 */
+	public CheckpointEvaluationStatisticsHandler getCheckpointHandler();
+
+	/**
+	 * Sets the additional keys that identify the checkpoints of this evaluator (eg the run of an
+	 * enclosing meta-evaluator). They get added to the statistics that are checkpointed.
+	 *
+	 * @param value     the keys and their values
+	 */
+	public void setCheckpointKeys(Map<String,Number> value);
+
+	/**
+	 * Returns the additional keys that identify the checkpoints of this evaluator.
+	 *
+	 * @return          the keys and their values
+	 */
+	public Map<String,Number> getCheckpointKeys();
+}
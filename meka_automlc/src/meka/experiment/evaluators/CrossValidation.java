@@ -22,6 +22,7 @@ package meka.experiment.evaluators;
 
 import meka.classifiers.multilabel.Evaluation;
 import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.InstancesView;
 import meka.core.OptionUtils;
 import meka.core.Result;
 import meka.core.ThreadLimiter;
@@ -43,7 +44,7 @@ import java.util.concurrent.*;
  */
 public class CrossValidation
   extends AbstractEvaluator
-  implements Randomizable, ThreadLimiter {
+  implements Randomizable, ThreadLimiter, CheckpointSupporter {
 
 	private static final long serialVersionUID = 6318297857792961890L;
 
@@ -74,6 +75,18 @@ public class CrossValidation
 	/** the verbosity option. */
 	protected String m_Verbosity = getDefaultVerbosity();
 
+	/** the training evaluation option. */
+	protected String m_TrainingEvaluation = getDefaultTrainingEvaluation();
+
+	/** the time budget in seconds for the training evaluation. */
+	protected double m_TrainingEvaluationBudget = getDefaultTrainingEvaluationBudget();
+
+	/** whether to use views on the dataset for the training folds rather than copies. */
+	protected boolean m_UseFoldViews = false;
+
+	/** the maximum number of folds to hold in memory at the same time. */
+	protected int m_MaxFoldsInMemory = getDefaultMaxFoldsInMemory();
+
 	/**
 	 * Description to be displayed in the GUI.
 	 *
@@ -301,6 +314,149 @@ public class CrossValidation
 		return "The verbosity option.";
 	}
 
+	/**
+	 * Gets the default training evaluation option.
+	 *
+	 * @return the default
+	 */
+	protected String getDefaultTrainingEvaluation() {
+		return Evaluation.TRAINING_EVALUATION_FULL;
+	}
+
+	/**
+	 * Set the training evaluation option.
+	 *
+	 * @param value the option: off, full or sample size
+	 */
+	public void setTrainingEvaluation(String value) {
+		m_TrainingEvaluation = value;
+	}
+
+	/**
+	 * Gets the training evaluation option.
+	 *
+	 * @return the option: off, full or sample size
+	 */
+	public String getTrainingEvaluation() {
+		return m_TrainingEvaluation;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String trainingEvaluationTipText() {
+		return "Whether to evaluate on the training set as well: '" + Evaluation.TRAINING_EVALUATION_OFF + "', '"
+				+ Evaluation.TRAINING_EVALUATION_FULL + "' or the size of a stratified sample of the training set.";
+	}
+
+	/**
+	 * Gets the default time budget for the training evaluation.
+	 *
+	 * @return the default
+	 */
+	protected double getDefaultTrainingEvaluationBudget() {
+		return 0.0;
+	}
+
+	/**
+	 * Set the time budget for the training evaluation.
+	 *
+	 * @param value the budget in seconds, 0 = no limit
+	 */
+	public void setTrainingEvaluationBudget(double value) {
+		if (value >= 0)
+			m_TrainingEvaluationBudget = value;
+		else
+			log("Training evaluation budget must be >= 0, provided: " + value);
+	}
+
+	/**
+	 * Gets the time budget for the training evaluation.
+	 *
+	 * @return the budget in seconds, 0 = no limit
+	 */
+	public double getTrainingEvaluationBudget() {
+		return m_TrainingEvaluationBudget;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String trainingEvaluationBudgetTipText() {
+		return "The time budget in seconds for the evaluation on the training set; 0 = no limit.";
+	}
+
+	/**
+	 * Sets whether to use views on the dataset for the training folds rather than copies.
+	 *
+	 * @param value true if to use views
+	 */
+	public void setUseFoldViews(boolean value) {
+		m_UseFoldViews = value;
+	}
+
+	/**
+	 * Returns whether to use views on the dataset for the training folds rather than copies.
+	 *
+	 * @return true if to use views
+	 */
+	public boolean getUseFoldViews() {
+		return m_UseFoldViews;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String useFoldViewsTipText() {
+		return "If enabled, the training folds share the instances of the dataset instead of copying them; "
+				+ "only use with classifiers that do not modify their training data in place. Test folds are always shared.";
+	}
+
+	/**
+	 * Returns the default maximum number of folds to hold in memory.
+	 *
+	 * @return the default
+	 */
+	protected int getDefaultMaxFoldsInMemory() {
+		return -1;
+	}
+
+	/**
+	 * Sets the maximum number of folds to hold in memory at the same time.
+	 *
+	 * @param value the maximum, -1 = number of threads
+	 */
+	public void setMaxFoldsInMemory(int value) {
+		if ((value == -1) || (value >= 1))
+			m_MaxFoldsInMemory = value;
+		else
+			log("Maximum number of folds in memory must be -1 or >= 1, provided: " + value);
+	}
+
+	/**
+	 * Returns the maximum number of folds to hold in memory at the same time.
+	 *
+	 * @return the maximum, -1 = number of threads
+	 */
+	public int getMaxFoldsInMemory() {
+		return m_MaxFoldsInMemory;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String maxFoldsInMemoryTipText() {
+		return "The maximum number of folds that are evaluated (and held in memory) at the same time; -1 = number of threads.";
+	}
+
 	/**
 	 * Returns an enumeration of all the available options..
 	 *
@@ -315,7 +471,11 @@ public class CrossValidation
 		OptionUtils.addOption(result, seedTipText(), "" + getDefaultSeed(), 'S');
 		OptionUtils.addOption(result, thresholdTipText(), "" + getDefaultThreshold(), 'T');
 		OptionUtils.addOption(result, verbosityTipText(), "" + getDefaultVerbosity(), 'V');
+		OptionUtils.addOption(result, trainingEvaluationTipText(), "" + getDefaultTrainingEvaluation(), "train-eval");
+		OptionUtils.addOption(result, trainingEvaluationBudgetTipText(), "" + getDefaultTrainingEvaluationBudget(), "train-eval-budget");
 		OptionUtils.addOption(result, numThreadsTipText(), "" + getDefaultNumThreads(), "num-threads");
+		OptionUtils.addFlag(result, useFoldViewsTipText(), "fold-views");
+		OptionUtils.addOption(result, maxFoldsInMemoryTipText(), "" + getDefaultMaxFoldsInMemory(), "max-folds-in-memory");
 		return OptionUtils.toEnumeration(result);
 	}
 
@@ -332,7 +492,11 @@ public class CrossValidation
 		setSeed(OptionUtils.parse(options, 'S', getDefaultSeed()));
 		setThreshold(OptionUtils.parse(options, 'T', getDefaultThreshold()));
 		setVerbosity(OptionUtils.parse(options, 'V', getDefaultVerbosity()));
+		setTrainingEvaluation(OptionUtils.parse(options, "train-eval", getDefaultTrainingEvaluation()));
+		setTrainingEvaluationBudget(OptionUtils.parse(options, "train-eval-budget", getDefaultTrainingEvaluationBudget()));
 		setNumThreads(OptionUtils.parse(options, "num-threads", getDefaultNumThreads()));
+		setUseFoldViews(Utils.getFlag("fold-views", options));
+		setMaxFoldsInMemory(OptionUtils.parse(options, "max-folds-in-memory", getDefaultMaxFoldsInMemory()));
 		super.setOptions(options);
 	}
 
@@ -350,10 +514,79 @@ public class CrossValidation
 		OptionUtils.add(result, 'S', getSeed());
 		OptionUtils.add(result, 'T', getThreshold());
 		OptionUtils.add(result, 'V', getVerbosity());
+		OptionUtils.add(result, "train-eval", getTrainingEvaluation());
+		OptionUtils.add(result, "train-eval-budget", getTrainingEvaluationBudget());
 		OptionUtils.add(result, "num-threads", getNumThreads());
+		OptionUtils.add(result, "fold-views", getUseFoldViews());
+		OptionUtils.add(result, "max-folds-in-memory", getMaxFoldsInMemory());
 		return OptionUtils.toArray(result);
 	}
 
+	/**
+	 * Returns the row indices of the training set for the specified fold.
+	 *
+	 * @param dataset       the full dataset
+	 * @param fold          the fold (1-based)
+	 * @param rand          the random number generator for shuffling the training set
+	 * @return              the indices
+	 */
+	protected int[] trainCV(Instances dataset, int fold, Random rand) {
+		return InstancesView.trainCV(dataset.numInstances(), m_NumFolds, fold - 1, m_PreserveOrder ? null : rand);
+	}
+
+	/**
+	 * Creates the training set for a fold, either as view or as copy.
+	 *
+	 * @param dataset       the full dataset
+	 * @param indices       the rows of the training set
+	 * @return              the training set
+	 * @see                 #getUseFoldViews()
+	 */
+	protected Instances newTrainFold(Instances dataset, int[] indices) {
+		if (m_UseFoldViews)
+			return new InstancesView(dataset, indices);
+		else
+			return InstancesView.materialize(dataset, indices);
+	}
+
+	/**
+	 * Returns the settings that influence the statistics of the folds,
+	 * ie not the number of threads or how the folds are held in memory.
+	 *
+	 * @return          the setup
+	 */
+	@Override
+	protected String getCheckpointSetup() {
+		return (getClass().getName() + "\t" + m_NumFolds + "\t" + m_Seed + "\t" + m_PreserveOrder + "\t" + m_Threshold
+				+ "\t" + m_Verbosity + "\t" + m_TrainingEvaluation + "\t" + m_TrainingEvaluationBudget);
+	}
+
+	/**
+	 * Retrieves the checkpointed folds.
+	 *
+	 * @param classifier    the classifier to evaluate
+	 * @param dataset       the dataset to evaluate on
+	 * @return              the statistics per fold (1-based)
+	 */
+	protected Map<Integer,List<EvaluationStatistics>> retrieveFoldCheckpoints(MultiLabelClassifier classifier, Instances dataset) {
+		Map<Integer,List<EvaluationStatistics>>     result;
+		Integer                                     fold;
+
+		result = new HashMap<>();
+		for (EvaluationStatistics stat: retrieveCheckpoints(classifier, dataset)) {
+			if (stat.get(KEY_FOLD) == null)
+				continue;
+			fold = stat.get(KEY_FOLD).intValue();
+			if (!result.containsKey(fold))
+				result.put(fold, new ArrayList<EvaluationStatistics>());
+			result.get(fold).add(stat);
+		}
+		if (result.size() > 0)
+			log("Restoring " + result.size() + " fold(s) from checkpoints");
+
+		return result;
+	}
+
 	/**
 	 * Returns the evaluation statistics generated for the dataset (sequential execution).
 	 *
@@ -370,22 +603,29 @@ public class CrossValidation
 		int                         i;
 		Random                      rand;
 		MultiLabelClassifier        current;
+		int[]                       trainIndices;
+		Map<Integer,List<EvaluationStatistics>>     restored;
 
-		result = new ArrayList<>();
-		rand   = new Random(m_Seed);
+		result   = new ArrayList<>();
+		rand     = new Random(m_Seed);
+		restored = retrieveFoldCheckpoints(classifier, dataset);
 		for (i = 1; i <= m_NumFolds; i++) {
 			log("Fold: " + i);
-			if (m_PreserveOrder)
-				train = dataset.trainCV(m_NumFolds, i - 1);
-			else
-				train = dataset.trainCV(m_NumFolds, i - 1, rand);
-			test = dataset.testCV(m_NumFolds, i - 1);
+			// always determine the rows, to consume the random numbers in the same order
+			trainIndices = trainCV(dataset, i, rand);
+			if (restored.containsKey(i)) {
+				result.addAll(restored.get(i));
+				continue;
+			}
+			train = newTrainFold(dataset, trainIndices);
+			test  = new InstancesView(dataset, InstancesView.testCV(dataset.numInstances(), m_NumFolds, i - 1));
 			try {
 				current = (MultiLabelClassifier) OptionUtils.shallowCopy(classifier);
-				res = Evaluation.evaluateModel(current, train, test, m_Threshold, m_Verbosity);
+				res = Evaluation.evaluateModel(current, train, test, m_Threshold, m_Verbosity, m_TrainingEvaluation, m_TrainingEvaluationBudget);
 				stats = new EvaluationStatistics(classifier, dataset, res);
 				stats.put(KEY_FOLD, i);
 				result.add(stats);
+				checkpoint(Arrays.asList(stats));
 			}
 			catch (Exception e) {
 				handleException(
@@ -416,37 +656,51 @@ public class CrossValidation
 		EvaluatorJob		            job;
 		int                             i;
 		Random                          rand;
+		int                             maxFolds;
+		final Semaphore                 folds;
+		Map<Integer,List<EvaluationStatistics>>     restored;
 
-		result = new ArrayList<>();
+		result   = new ArrayList<>();
+		restored = retrieveFoldCheckpoints(classifier, dataset);
 
 		debug("pre: create jobs");
 		jobs = new ArrayList<>();
 		rand = new Random(m_Seed);
+		maxFolds = (m_MaxFoldsInMemory == -1) ? m_ActualNumThreads : m_MaxFoldsInMemory;
+		debug("Maximum number of folds in memory: " + maxFolds);
+		folds = new Semaphore(maxFolds, true);
 		for (i = 1; i <= m_NumFolds; i++) {
 			final int index = i;
-			final Instances train;
-			final Instances test;
+			final int[] trainIndices;
 			final MultiLabelClassifier current;
-			if (m_PreserveOrder)
-				train = dataset.trainCV(m_NumFolds, index - 1);
-			else
-				train = dataset.trainCV(m_NumFolds, index - 1, rand);
-			test = dataset.testCV(m_NumFolds, index - 1);
+			// determine the rows up front, to consume the random numbers in the same order as sequential execution
+			trainIndices = trainCV(dataset, index, rand);
+			if (restored.containsKey(index)) {
+				jobs.add(null);
+				continue;
+			}
 			current = (MultiLabelClassifier) OptionUtils.shallowCopy(classifier);
 			job = new EvaluatorJob() {
 				protected List<EvaluationStatistics> doCall() throws Exception {
 					List<EvaluationStatistics> result = new ArrayList<>();
-					log("Executing fold #" + index + "...");
+					folds.acquire();
 					try {
-						Result res = Evaluation.evaluateModel(current, train, test, m_Threshold, m_Verbosity);
+						log("Executing fold #" + index + "...");
+						Instances train = newTrainFold(dataset, trainIndices);
+						Instances test = new InstancesView(dataset, InstancesView.testCV(dataset.numInstances(), m_NumFolds, index - 1));
+						Result res = Evaluation.evaluateModel(current, train, test, m_Threshold, m_Verbosity, m_TrainingEvaluation, m_TrainingEvaluationBudget);
 						EvaluationStatistics stats = new EvaluationStatistics(classifier, dataset, res);
 						stats.put(KEY_FOLD, index);
 						result.add(stats);
+						checkpoint(result);
 					}
 					catch (Exception e) {
 						handleException(
 								"Failed to evaluate dataset '" + dataset.relationName() + "' with classifier: " + Utils.toCommandLine(classifier), e);
 					}
+					finally {
+						folds.release();
+					}
 					log("...finished fold #" + index);
 					return result;
 				}
@@ -459,8 +713,10 @@ public class CrossValidation
 		m_Executor = Executors.newFixedThreadPool(m_ActualNumThreads);
 		debug("pre: submit");
 		try {
-			for (i = 0; i < jobs.size(); i++)
-				m_Executor.submit(jobs.get(i));
+			for (i = 0; i < jobs.size(); i++) {
+				if (jobs.get(i) != null)
+					m_Executor.submit(jobs.get(i));
+			}
 		}
 		catch (RejectedExecutionException e) {
 			// ignored
@@ -491,8 +747,12 @@ public class CrossValidation
 
 		// collect results
 		debug("pre: collect");
-		for (i = 0; i < jobs.size(); i++)
-			result.addAll(jobs.get(i).getResult());
+		for (i = 0; i < jobs.size(); i++) {
+			if (jobs.get(i) == null)
+				result.addAll(restored.get(i + 1));
+			else
+				result.addAll(jobs.get(i).getResult());
+		}
 		debug("post: collect");
 
 		return result;
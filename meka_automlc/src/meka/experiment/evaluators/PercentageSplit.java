@@ -59,6 +59,12 @@ public class PercentageSplit
 	/** the verbosity option. */
 	protected String m_Verbosity = getDefaultVerbosity();
 
+	/** the training evaluation option. */
+	protected String m_TrainingEvaluation = getDefaultTrainingEvaluation();
+
+	/** the time budget in seconds for the training evaluation. */
+	protected double m_TrainingEvaluationBudget = getDefaultTrainingEvaluationBudget();
+
 	/**
 	 * Description to be displayed in the GUI.
 	 *
@@ -244,6 +250,82 @@ public class PercentageSplit
 		return "The verbosity option.";
 	}
 
+	/**
+	 * Gets the default training evaluation option.
+	 *
+	 * @return the default
+	 */
+	protected String getDefaultTrainingEvaluation() {
+		return Evaluation.TRAINING_EVALUATION_FULL;
+	}
+
+	/**
+	 * Set the training evaluation option.
+	 *
+	 * @param value the option: off, full or sample size
+	 */
+	public void setTrainingEvaluation(String value) {
+		m_TrainingEvaluation = value;
+	}
+
+	/**
+	 * Gets the training evaluation option.
+	 *
+	 * @return the option: off, full or sample size
+	 */
+	public String getTrainingEvaluation() {
+		return m_TrainingEvaluation;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String trainingEvaluationTipText() {
+		return "Whether to evaluate on the training set as well: '" + Evaluation.TRAINING_EVALUATION_OFF + "', '"
+				+ Evaluation.TRAINING_EVALUATION_FULL + "' or the size of a stratified sample of the training set.";
+	}
+
+	/**
+	 * Gets the default time budget for the training evaluation.
+	 *
+	 * @return the default
+	 */
+	protected double getDefaultTrainingEvaluationBudget() {
+		return 0.0;
+	}
+
+	/**
+	 * Set the time budget for the training evaluation.
+	 *
+	 * @param value the budget in seconds, 0 = no limit
+	 */
+	public void setTrainingEvaluationBudget(double value) {
+		if (value >= 0)
+			m_TrainingEvaluationBudget = value;
+		else
+			log("Training evaluation budget must be >= 0, provided: " + value);
+	}
+
+	/**
+	 * Gets the time budget for the training evaluation.
+	 *
+	 * @return the budget in seconds, 0 = no limit
+	 */
+	public double getTrainingEvaluationBudget() {
+		return m_TrainingEvaluationBudget;
+	}
+
+	/**
+	 * Describes this property.
+	 *
+	 * @return          the description
+	 */
+	public String trainingEvaluationBudgetTipText() {
+		return "The time budget in seconds for the evaluation on the training set; 0 = no limit.";
+	}
+
 	/**
 	 * Returns an enumeration of all the available options..
 	 *
@@ -258,6 +340,8 @@ public class PercentageSplit
 		OptionUtils.addOption(result, seedTipText(), "" + getDefaultSeed(), 'S');
 		OptionUtils.addOption(result, thresholdTipText(), "" + getDefaultThreshold(), 'T');
 		OptionUtils.addOption(result, verbosityTipText(), "" + getDefaultVerbosity(), 'V');
+		OptionUtils.addOption(result, trainingEvaluationTipText(), "" + getDefaultTrainingEvaluation(), "train-eval");
+		OptionUtils.addOption(result, trainingEvaluationBudgetTipText(), "" + getDefaultTrainingEvaluationBudget(), "train-eval-budget");
 		return OptionUtils.toEnumeration(result);
 	}
 
@@ -274,6 +358,8 @@ public class PercentageSplit
 		setSeed(OptionUtils.parse(options, 'S', getDefaultSeed()));
 		setThreshold(OptionUtils.parse(options, 'T', getDefaultThreshold()));
 		setVerbosity(OptionUtils.parse(options, 'V', getDefaultVerbosity()));
+		setTrainingEvaluation(OptionUtils.parse(options, "train-eval", getDefaultTrainingEvaluation()));
+		setTrainingEvaluationBudget(OptionUtils.parse(options, "train-eval-budget", getDefaultTrainingEvaluationBudget()));
 		super.setOptions(options);
 	}
 
@@ -291,6 +377,8 @@ public class PercentageSplit
 		OptionUtils.add(result, 'S', getSeed());
 		OptionUtils.add(result, 'T', getThreshold());
 		OptionUtils.add(result, 'V', getVerbosity());
+		OptionUtils.add(result, "train-eval", getTrainingEvaluation());
+		OptionUtils.add(result, "train-eval-budget", getTrainingEvaluationBudget());
 		return OptionUtils.toArray(result);
 	}
 
@@ -318,7 +406,7 @@ public class PercentageSplit
 		train     = new Instances(dataset, 0, trainSize);
 		test      = new Instances(dataset, trainSize, dataset.numInstances() - trainSize);
 		try {
-			res = Evaluation.evaluateModel(classifier, train, test, m_Threshold, m_Verbosity);
+			res = Evaluation.evaluateModel(classifier, train, test, m_Threshold, m_Verbosity, m_TrainingEvaluation, m_TrainingEvaluationBudget);
 			result.add(new EvaluationStatistics(classifier, dataset, res));
 		}
 		catch (Exception e) {
@@ -32,7 +32,9 @@ import weka.core.Randomizable;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.*;
 
@@ -44,7 +46,7 @@ import java.util.concurrent.*;
  */
 public class RepeatedRuns
 		extends AbstractMetaEvaluator
-		implements ThreadLimiter {
+		implements ThreadLimiter, CheckpointSupporter {
 
 	private static final long serialVersionUID = -1230107553603089463L;
 
@@ -245,6 +247,50 @@ public class RepeatedRuns
 		return OptionUtils.toArray(result);
 	}
 
+	/**
+	 * Performs a single run with the base evaluator, taking checkpoints into account.
+	 * A base evaluator that supports checkpoints gets passed on the handler and the run number as
+	 * additional key, otherwise the statistics of the complete run get checkpointed, along with the
+	 * setup of the base evaluator (which includes the seed of the run, if randomizable).
+	 *
+	 * @param evaluator     the (initialized) base evaluator to use
+	 * @param run           the run number
+	 * @param classifier    the classifier to evaluate
+	 * @param dataset       the dataset to evaluate on
+	 * @return              the statistics
+	 */
+	protected List<EvaluationStatistics> evaluateRun(Evaluator evaluator, int run, MultiLabelClassifier classifier, Instances dataset) {
+		List<EvaluationStatistics>  result;
+		Map<String,Number>          keys;
+
+		keys = new HashMap<>(m_CheckpointKeys);
+		keys.put(KEY_RUN, run);
+
+		if (evaluator instanceof CheckpointSupporter) {
+			((CheckpointSupporter) evaluator).setCheckpointHandler(m_CheckpointHandler);
+			((CheckpointSupporter) evaluator).setCheckpointKeys(keys);
+			return evaluator.evaluate(classifier, dataset);
+		}
+
+		if (m_CheckpointHandler == null)
+			return evaluator.evaluate(classifier, dataset);
+
+		if (evaluator instanceof AbstractEvaluator)
+			keys.put(KEY_CHECKPOINT_SETUP, getCheckpointDigest(((AbstractEvaluator) evaluator).getCheckpointSetup()));
+		else
+			keys.put(KEY_CHECKPOINT_SETUP, getCheckpointDigest(OptionUtils.toCommandLine(evaluator)));
+		result = retrieveCheckpoints(classifier, dataset, keys);
+		if (result.size() > 0) {
+			log("Restoring run #" + run + " from checkpoints");
+			return result;
+		}
+		result = evaluator.evaluate(classifier, dataset);
+		if (result != null)
+			checkpoint(result, keys);
+
+		return result;
+	}
+
 	/**
 	 * Executes the runs in sequential order.
 	 *
@@ -264,7 +310,7 @@ public class RepeatedRuns
 			if (m_Evaluator instanceof Randomizable)
 				((Randomizable) m_Evaluator).setSeed(i);
 			m_Evaluator.initialize();
-			stats = m_Evaluator.evaluate(classifier, dataset);
+			stats = evaluateRun(m_Evaluator, i, classifier, dataset);
 			if (stats != null) {
 				for (EvaluationStatistics stat: stats) {
 					stat.put(KEY_RUN, i);
@@ -306,7 +352,7 @@ public class RepeatedRuns
 					if (evaluator instanceof Randomizable)
 						((Randomizable) evaluator).setSeed(index);
 					evaluator.initialize();
-					List<EvaluationStatistics> stats = m_Evaluator.evaluate(classifier, dataset);
+					List<EvaluationStatistics> stats = evaluateRun(evaluator, index, classifier, dataset);
 					for (LogListener l: m_LogListeners)
 						evaluator.removeLogListener(l);
 					log("...finished run #" + index + ((stats == null) ? "" : " with error"));
@@ -22,6 +22,7 @@ package meka.gui.explorer.classify;
 
 import meka.classifiers.multilabel.MultiLabelClassifier;
 import meka.classifiers.multitarget.MultiTargetClassifier;
+import meka.core.MLEvalUtils;
 import meka.core.Result;
 import meka.gui.core.ResultHistoryList;
 import weka.core.Instances;
@@ -42,7 +43,6 @@ import java.awt.event.ActionListener;
 public abstract class AbstractShowThresholdCurve
 		extends AbstractClassifyResultHistoryPlugin {
 	private static final long serialVersionUID = -1152575716154907544L;
-	public static final String CURVE_DATA = "Curve Data";
 
 	/**
 	 * Returns the group of the plugin. Used for the grouping the menu items.
@@ -67,7 +67,7 @@ public abstract class AbstractShowThresholdCurve
 		result = (getClassifier(history, index) instanceof MultiLabelClassifier)
 				|| (getClassifier(history, index) instanceof MultiTargetClassifier);
 
-		result = result && (history.getResultAt(index).getMeasurement(CURVE_DATA) != null);
+		result = result && (history.getResultAt(index).size() > 0);
 
 		return result;
 	}
@@ -86,6 +86,13 @@ public abstract class AbstractShowThresholdCurve
 	 */
 	protected abstract String getDefaultYColumn();
 
+	/**
+	 * Returns whether the curves are ROC curves (rather than precision-recall curves).
+	 *
+	 * @return              true if ROC curves
+	 */
+	protected abstract boolean isROC();
+
 	/**
 	 * Sets the combobox indices.
 	 *
@@ -105,10 +112,11 @@ public abstract class AbstractShowThresholdCurve
 	 *
 	 * @param data          the threshold curve data
 	 * @param title         the title of the plot
+	 * @param area          the area under the curve (computed on all predictions)
 	 * @return              the panel
 	 * @throws Exception    if plot generation fails
 	 */
-	protected ThresholdVisualizePanel createPanel(Instances data, String title) throws Exception {
+	protected ThresholdVisualizePanel createPanel(Instances data, String title, double area) throws Exception {
 		ThresholdVisualizePanel result = new ThresholdVisualizePanel();
 		PlotData2D plot = new PlotData2D(data);
 		plot.setPlotName(title);
@@ -141,10 +149,13 @@ public abstract class AbstractShowThresholdCurve
 				JTabbedPane tabbed = new JTabbedPane();
 				dialog.getContentPane().setLayout(new BorderLayout());
 				dialog.getContentPane().add(tabbed, BorderLayout.CENTER);
-				Instances[] curves = (Instances[]) result.getMeasurement(CURVE_DATA);
+				Instances[] curves = MLEvalUtils.getCurveData(result);
+				double[] areas = MLEvalUtils.getCurveAreas(result, isROC());
 				for (int i = 0; i < curves.length; i++) {
+					if (curves[i] == null)
+						continue;
 					try {
-						ThresholdVisualizePanel panel = createPanel(curves[i], "Label " + i);
+						ThresholdVisualizePanel panel = createPanel(curves[i], "Label " + i, areas[i]);
 						tabbed.addTab("" + i, panel);
 					}
 					catch (Exception ex) {
@@ -21,6 +21,7 @@
 package meka.gui.explorer.classify;
 
 import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.MLEvalUtils;
 import meka.core.Result;
 import meka.gui.core.ResultHistoryList;
 import weka.classifiers.evaluation.ThresholdCurve;
@@ -44,7 +45,6 @@ public class ShowMacroCurve
         extends AbstractClassifyResultHistoryPlugin {
 
 	private static final long serialVersionUID = -1152575716154907544L;
-	public static final String CURVE_DATA_MACRO = "Macro Curve Data";
 	public static final String SAMPLES = "Samples";
 	public static final String ACCURACY = "Accuracy";
 
@@ -95,7 +95,7 @@ public class ShowMacroCurve
 	@Override
 	public boolean handles(ResultHistoryList history, int index) {
 		return (getClassifier(history, index) instanceof MultiLabelClassifier)
-		  && (history.getResultAt(index).getMeasurement(CURVE_DATA_MACRO) != null);
+		  && (history.getResultAt(index).size() > 0);
 	}
 
 	/**
@@ -139,8 +139,8 @@ public class ShowMacroCurve
 				JDialog dialog = new JDialog((Frame) null, history.getSuffixAt(index), false);
 				dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
 				dialog.getContentPane().setLayout(new BorderLayout());
-				Instances performance = (Instances) result.getMeasurement(CURVE_DATA_MACRO);
 				try {
+					Instances performance = MLEvalUtils.getMacroCurveData(result);
 					VisualizePanel panel = createPanel(performance);
 					dialog.getContentPane().add(panel, BorderLayout.CENTER);
 				}
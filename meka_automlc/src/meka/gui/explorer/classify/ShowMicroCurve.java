@@ -22,6 +22,7 @@ package meka.gui.explorer.classify;
 
 import meka.classifiers.multilabel.MultiLabelClassifier;
 import weka.classifiers.evaluation.ThresholdCurve;
+import meka.core.MLEvalUtils;
 import meka.core.Result;
 import meka.gui.core.ResultHistoryList;
 import weka.core.Instances;
@@ -43,7 +44,6 @@ import java.awt.event.ActionListener;
 public class ShowMicroCurve
 		extends AbstractClassifyResultHistoryPlugin {
 	private static final long serialVersionUID = -1152575716154907544L;
-	public static final String CURVE_DATA_MICRO = "Micro Curve Data";
 	public static final String SAMPLES = "Samples";
 	public static final String ACCURACY = "Accuracy";
 
@@ -94,7 +94,7 @@ public class ShowMicroCurve
 	@Override
 	public boolean handles(ResultHistoryList history, int index) {
 		return (getClassifier(history, index) instanceof MultiLabelClassifier)
-				&& (history.getResultAt(index).getMeasurement(CURVE_DATA_MICRO) != null);
+				&& (history.getResultAt(index).size() > 0);
 	}
 
 	/**
@@ -138,8 +138,8 @@ public class ShowMicroCurve
 				JDialog dialog = new JDialog((Frame) null, history.getSuffixAt(index), false);
 				dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
 				dialog.getContentPane().setLayout(new BorderLayout());
-				Instances performance = (Instances) result.getMeasurement(CURVE_DATA_MICRO);
 				try {
+					Instances performance = MLEvalUtils.getMicroCurveData(result);
 					VisualizePanel panel = createPanel(performance);
 					dialog.getContentPane().add(panel, BorderLayout.CENTER);
 				}
@@ -63,17 +63,28 @@ public class ShowPrecisionRecall
 		return ThresholdCurve.PRECISION_NAME;
 	}
 
+	/**
+	 * Returns whether the curves are ROC curves (rather than precision-recall curves).
+	 *
+	 * @return              true if ROC curves
+	 */
+	protected boolean isROC() {
+		return false;
+	}
+
 	/**
 	 * Creates a panel displaying the ROC data.
 	 *
 	 * @param data          the threshold curve data
 	 * @param title         the title of the plot
+	 * @param area          the area under the curve (computed on all predictions)
 	 * @return              the panel
 	 * @throws Exception    if plot generation fails
 	 */
-	protected ThresholdVisualizePanel createPanel(Instances data, String title) throws Exception {
-		ThresholdVisualizePanel result = super.createPanel(data, title);
-		result.setROCString("PRC area: " + Utils.doubleToString(ThresholdCurve.getPRCArea(data), 3));
+	protected ThresholdVisualizePanel createPanel(Instances data, String title, double area) throws Exception {
+		ThresholdVisualizePanel result = super.createPanel(data, title, area);
+		// (the area of the curve data would be off, as the data is thinned out for plotting)
+		result.setROCString("PRC area: " + Utils.doubleToString(area, 3));
 		result.setUpComboBoxes(result.getInstances());
 		setComboBoxIndices(data, result);
 		return result;
@@ -0,0 +1,134 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * CCTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.classifiers.multilabel;
+
+import junit.framework.TestCase;
+import meka.classifiers.multitarget.CCp;
+import meka.core.SyntheticData;
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+
+/**
+ * Tests that predicting a batch column-wise gives the same predictions as predicting
+ * instance by instance.
+ *
+ * @version $Revision$
+ */
+public class CCTest
+	extends TestCase {
+
+	/**
+	 * Naive Bayes that reports more efficient batch prediction, for taking the batch path of the nodes.
+	 */
+	public static class BatchNaiveBayes
+		extends NaiveBayes {
+
+		private static final long serialVersionUID = -2260432816409386208L;
+
+		/** the number of batches predicted (by all instances). */
+		public static int batches;
+
+		@Override
+		public boolean implementsMoreEfficientBatchPrediction() {
+			return true;
+		}
+
+		@Override
+		public double[][] distributionsForInstances(Instances insts) throws Exception {
+			synchronized (BatchNaiveBayes.class) {
+				batches++;
+			}
+			return super.distributionsForInstances(insts);
+		}
+	}
+
+	/** the data. */
+	protected Instances m_Data;
+
+	/**
+	 * Generates the data.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		m_Data = SyntheticData.generate(120, 5, 5, 0.3, 1);
+	}
+
+	/**
+	 * Builds the classifier and compares its batch predictions with the ones per instance.
+	 *
+	 * @param cc		the classifier to build
+	 * @param base	the base classifier
+	 * @throws Exception	if the test fails
+	 */
+	protected void check(CC cc, Classifier base) throws Exception {
+		double[][]	batch;
+		int		i;
+
+		cc.setClassifier(base);
+		cc.buildClassifier(m_Data);
+		assertTrue("batch prediction", cc.implementsMoreEfficientBatchPrediction());
+		batch = cc.distributionsForInstances(m_Data);
+		assertEquals("rows", m_Data.numInstances(), batch.length);
+		for (i = 0; i < m_Data.numInstances(); i++)
+			assertTrue("instance " + i, Arrays.equals(cc.distributionForInstance((Instance) m_Data.instance(i).copy()), batch[i]));
+	}
+
+	/**
+	 * Tests a base classifier that gets called per instance.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testPerInstanceBase() throws Exception {
+		check(new CC(), new NaiveBayes());
+	}
+
+	/**
+	 * Tests a base classifier that gets passed the whole batch.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testBatchBase() throws Exception {
+		CC	cc;
+
+		cc = new CC();
+		cc.setSeed(2);
+		BatchNaiveBayes.batches = 0;
+		check(cc, new BatchNaiveBayes());
+		// (one batch per node)
+		assertEquals("batches", m_Data.classIndex(), BatchNaiveBayes.batches);
+	}
+
+	/**
+	 * Tests the multi-target CC with probabilistic output, which classifies link by link.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testMultiTarget() throws Exception {
+		check(new CCp(), new NaiveBayes());
+	}
+}
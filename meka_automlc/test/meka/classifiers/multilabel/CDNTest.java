@@ -0,0 +1,140 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * CDNTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.classifiers.multilabel;
+
+import junit.framework.TestCase;
+import meka.core.SyntheticData;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instances;
+
+import java.util.Arrays;
+
+/**
+ * Tests the Gibbs sampling of {@link CDN}, with several chains and early stopping.
+ *
+ * @version $Revision$
+ */
+public class CDNTest
+	extends TestCase {
+
+	/** the total iterations. */
+	public final static int I = 300;
+
+	/** the collection iterations. */
+	public final static int IC = 100;
+
+	/** the data. */
+	protected Instances m_Data;
+
+	/**
+	 * Generates the data.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		m_Data = SyntheticData.generate(60, 4, 5, 0.3, 1);
+	}
+
+	/**
+	 * Builds a CDN on the data.
+	 *
+	 * @param chains	the number of chains
+	 * @param tolerance	the tolerance, 0 for no early stopping
+	 * @param numThreads	the number of threads
+	 * @return		the classifier
+	 * @throws Exception	if building fails
+	 */
+	protected CDN build(int chains, double tolerance, int numThreads) throws Exception {
+		CDN	result;
+
+		result = new CDN();
+		result.setI(I);
+		result.setIc(IC);
+		result.setChains(chains);
+		result.setTolerance(tolerance);
+		result.setMinBurnin(50);
+		result.setSeed(1);
+		result.setNumThreads(numThreads);
+		result.setClassifier(new NaiveBayes());
+		result.buildClassifier(m_Data);
+
+		return result;
+	}
+
+	/**
+	 * Tests that running the chains of a batch in parallel gives the same marginals as
+	 * running them sequentially, instance by instance.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testParallelChains() throws Exception {
+		CDN		sequential;
+		CDN		parallel;
+		double[][]	batch;
+		int		i;
+
+		sequential = build(3, 0.05, 1);
+		parallel   = build(3, 0.05, 3);
+		batch      = parallel.distributionsForInstances(m_Data);
+		for (i = 0; i < m_Data.numInstances(); i++)
+			assertTrue("instance " + i, Arrays.equals(sequential.distributionForInstance(m_Data.instance(i)), batch[i]));
+		assertEquals("iterations", sequential.getIterations(), parallel.getIterations());
+	}
+
+	/**
+	 * Tests that all iterations get made without a tolerance.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testNoTolerance() throws Exception {
+		CDN	cdn;
+
+		cdn = build(2, 0.0, 1);
+		cdn.distributionsForInstances(m_Data);
+		assertEquals("iterations", (long) m_Data.numInstances() * I * 2, cdn.getIterations());
+		assertEquals("converged", 0.0, cdn.getMeasure("measureConverged"));
+		assertEquals("max iterations", (double) m_Data.numInstances(), cdn.getMeasure("measureMaxIterationsReached"));
+	}
+
+	/**
+	 * Tests that sampling stops early with a tolerance, but not before the minimum burn-in
+	 * and a first block of collection iterations.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testEarlyStopping() throws Exception {
+		CDN		cdn;
+		double[]	y;
+		int		i;
+		int		j;
+
+		cdn = build(3, 10.0, 1);
+		for (i = 0; i < m_Data.numInstances(); i++) {
+			y = cdn.distributionForInstance(m_Data.instance(i));
+			for (j = 0; j < y.length; j++)
+				assertTrue("marginal " + j + " of instance " + i, (y[j] >= 0.0) && (y[j] <= 1.0));
+		}
+		assertEquals("converged", (double) m_Data.numInstances(), cdn.getMeasure("measureConverged"));
+		assertEquals("iterations", (long) m_Data.numInstances() * (50 + IC / CDN.CHECKS) * 3, cdn.getIterations());
+	}
+}
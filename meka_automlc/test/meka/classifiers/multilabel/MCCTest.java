@@ -0,0 +1,167 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * MCCTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.classifiers.multilabel;
+
+import junit.framework.TestCase;
+import meka.core.SyntheticData;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+
+/**
+ * Tests the chain search and the inference of {@link MCC}.
+ *
+ * @version $Revision$
+ */
+public class MCCTest
+	extends TestCase {
+
+	/** the data. */
+	protected Instances m_Data;
+
+	/**
+	 * Generates the data.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		m_Data = SyntheticData.generate(120, 5, 5, 0.3, 1);
+	}
+
+	/**
+	 * Builds an MCC on the data.
+	 *
+	 * @param options	the options
+	 * @return		the classifier
+	 * @throws Exception	if building fails
+	 */
+	protected MCC build(String... options) throws Exception {
+		MCC	result;
+
+		result = new MCC();
+		result.setOptions(options);
+		result.setClassifier(new NaiveBayes());
+		result.buildClassifier(m_Data);
+
+		return result;
+	}
+
+	/**
+	 * Tests that the nodes kept from the chains rated during the search predict the same
+	 * as a chain built from scratch.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testChainSearchNodes() throws Exception {
+		MCC	mcc;
+		CC	cc;
+		int	i;
+
+		mcc = build("-Is", "10", "-Iy", "0", "-S", "1");
+		cc  = new CC();
+		cc.prepareChain(mcc.retrieveChain());
+		cc.setClassifier(new NaiveBayes());
+		cc.buildClassifier(m_Data);
+		for (i = 0; i < m_Data.numInstances(); i++) {
+			Instance x = m_Data.instance(i);
+			assertTrue("instance " + i, Arrays.equals(cc.distributionForInstance(x), mcc.distributionForInstance(x)));
+		}
+	}
+
+	/**
+	 * Tests that rating several proposals in parallel finds the same chain as rating them sequentially.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testParallelProposals() throws Exception {
+		MCC	sequential;
+		MCC	parallel;
+
+		sequential = build("-Is", "5", "-Iy", "0", "-num-proposals", "3", "-S", "1");
+		parallel   = build("-Is", "5", "-Iy", "0", "-num-proposals", "3", "-S", "1", "-num-threads", "4");
+		assertTrue("chain", Arrays.equals(sequential.retrieveChain(), parallel.retrieveChain()));
+	}
+
+	/**
+	 * Tests that running the inference streams of a batch in parallel gives the same
+	 * predictions as running them sequentially, instance by instance.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testParallelStreams() throws Exception {
+		MCC		sequential;
+		MCC		parallel;
+		double[][]	batch;
+		int		i;
+
+		sequential = build("-Iy", "40", "-inference-streams", "4", "-S", "1");
+		parallel   = build("-Iy", "40", "-inference-streams", "4", "-S", "1", "-num-threads", "4");
+		batch      = parallel.distributionsForInstances(m_Data);
+		for (i = 0; i < m_Data.numInstances(); i++)
+			assertTrue("instance " + i, Arrays.equals(sequential.distributionForInstance(m_Data.instance(i)), batch[i]));
+	}
+
+	/**
+	 * Tests that the streams find labelsets at least as probable as the initial CC guess.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testStreamsImproveGuess() throws Exception {
+		MCC		mcc;
+		MCC		greedy;
+		double[]	guess;
+		double[]	y;
+		int		i;
+
+		mcc    = build("-Iy", "40", "-inference-streams", "4", "-S", "1");
+		greedy = build("-Iy", "0", "-S", "1");
+		for (i = 0; i < m_Data.numInstances(); i++) {
+			Instance x = m_Data.instance(i);
+			guess = greedy.distributionForInstance(x);
+			y     = mcc.distributionForInstance(x);
+			assertTrue("instance " + i, probability(mcc, x, y) >= probability(mcc, x, guess));
+		}
+	}
+
+	/**
+	 * Returns the probability of the labelset, as computed by the chain.
+	 *
+	 * @param mcc		the classifier
+	 * @param x		the instance
+	 * @param y		the labelset
+	 * @return		the probability
+	 * @throws Exception	if evaluating the nodes fails
+	 */
+	protected double probability(MCC mcc, Instance x, double[] y) throws Exception {
+		double	result;
+		int		j;
+
+		result = 1.0;
+		for (j = 0; j < y.length; j++)
+			result *= mcc.nodes[j].distribution(x, y)[(int) Math.round(y[j])];
+
+		return result;
+	}
+}
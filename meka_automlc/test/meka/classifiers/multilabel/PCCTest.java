@@ -0,0 +1,217 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * PCCTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.classifiers.multilabel;
+
+import junit.framework.TestCase;
+import meka.core.SyntheticData;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+
+/**
+ * Tests the searches of {@link PCC} against enumerating all labelsets.
+ *
+ * @version $Revision$
+ */
+public class PCCTest
+	extends TestCase {
+
+	/** the number of labels. */
+	public final static int L = 6;
+
+	/** the data. */
+	protected Instances m_Data;
+
+	/**
+	 * Generates the data.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		m_Data = SyntheticData.generate(150, L, 5, 0.3, 1);
+	}
+
+	/**
+	 * Builds a PCC on the data.
+	 *
+	 * @param options	the options
+	 * @return		the classifier
+	 * @throws Exception	if building fails
+	 */
+	protected PCC build(String... options) throws Exception {
+		PCC	result;
+
+		result = new PCC();
+		result.setOptions(options);
+		result.setClassifier(new NaiveBayes());
+		result.buildClassifier(m_Data);
+
+		return result;
+	}
+
+	/**
+	 * Returns the labelset of the path.
+	 *
+	 * @param pcc		the classifier
+	 * @param path	the path, null for the empty labelset
+	 * @return		the labelset
+	 */
+	protected double[] labelset(PCC pcc, PCC.Prefix path) {
+		double[]	result;
+
+		result = new double[L];
+		if (path != null)
+			path.fill(pcc.m_Chain, result, null);
+
+		return result;
+	}
+
+	/**
+	 * Finds the most probable labelset by enumerating all labelsets, with y[0] changing fastest.
+	 *
+	 * @param pcc		the classifier
+	 * @param x		the instance
+	 * @return		the labelset
+	 * @throws Exception	if evaluating the nodes fails
+	 */
+	protected double[] enumerate(PCC pcc, Instance x) throws Exception {
+		double[]	result;
+		double[]	y;
+		double		best;
+		double		p;
+		int		i;
+		int		j;
+
+		result = new double[L];
+		y      = new double[L];
+		best   = 0.0;
+		for (i = 0; i < (1 << L); i++) {
+			for (j = 0; j < L; j++)
+				y[j] = (i >> j) & 1;
+			// (in chain order, as the search computes the probability)
+			p = 1.0;
+			for (int k: pcc.m_Chain)
+				p *= pcc.nodes[k].distribution(x, y)[(int) y[k]];
+			if (p > best) {
+				best = p;
+				System.arraycopy(y, 0, result, 0, L);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Tests that the exact search finds the Bayes-optimal labelset.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testExact() throws Exception {
+		PCC	pcc;
+		int	i;
+
+		pcc = build("-S", "3");
+		for (i = 0; i < m_Data.numInstances(); i++) {
+			Instance x = m_Data.instance(i);
+			assertTrue("instance " + i, Arrays.equals(enumerate(pcc, x), labelset(pcc, pcc.searchUniformCost(x, 0.0, 0))));
+		}
+	}
+
+	/**
+	 * Tests that a budget which does not get used up does not change the search.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testBudgetNotUsedUp() throws Exception {
+		PCC	pcc;
+		int	i;
+
+		pcc = build();
+		for (i = 0; i < m_Data.numInstances(); i++) {
+			Instance x = m_Data.instance(i);
+			assertTrue("instance " + i, Arrays.equals(
+					labelset(pcc, pcc.searchUniformCost(x, 0.0, 0)),
+					labelset(pcc, pcc.searchUniformCost(x, 0.0, 1 << L))));
+		}
+	}
+
+	/**
+	 * Tests that the search falls back to beam search when the budget is used up
+	 * before a complete path is found.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testBudgetFallsBackToBeam() throws Exception {
+		PCC	pcc;
+		int	i;
+
+		pcc = build("-max-evaluations", "2", "-B", "3");
+		for (i = 0; i < m_Data.numInstances(); i++) {
+			Instance x = m_Data.instance(i);
+			assertTrue("instance " + i, Arrays.equals(
+					labelset(pcc, pcc.searchBeam(x, 3)),
+					labelset(pcc, pcc.searchUniformCost(x, 0.0, pcc.getMaxEvaluations()))));
+		}
+	}
+
+	/**
+	 * Tests that beam search with a width of 1 makes the CC predictions.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testBeamWidthOne() throws Exception {
+		PCC	pcc;
+		CC	cc;
+		int	i;
+
+		pcc = build("-I", PCC.INFERENCE_BEAM, "-B", "1", "-S", "3");
+		cc  = new CC();
+		cc.setOptions(new String[]{"-S", "3"});
+		cc.setClassifier(new NaiveBayes());
+		cc.buildClassifier(m_Data);
+		for (i = 0; i < m_Data.numInstances(); i++) {
+			Instance x = m_Data.instance(i);
+			double[] expected = Arrays.copyOf(cc.distributionForInstance(x), L);
+			for (int j = 0; j < L; j++)
+				expected[j] = (expected[j] >= 0.5) ? 1.0 : 0.0;
+			assertTrue("instance " + i, Arrays.equals(expected, labelset(pcc, pcc.searchBeam(x, 1))));
+		}
+	}
+
+	/**
+	 * Tests that the commandline only contains the budget if set.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testOptions() throws Exception {
+		PCC	pcc;
+
+		pcc = new PCC();
+		assertFalse(Arrays.asList(pcc.getOptions()).contains("-max-evaluations"));
+		pcc.setOptions(new String[]{"-max-evaluations", "100"});
+		assertEquals(100, pcc.getMaxEvaluations());
+		assertTrue(Arrays.asList(pcc.getOptions()).contains("-max-evaluations"));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * CurveUtilsTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import junit.framework.TestCase;
+import weka.classifiers.evaluation.ThresholdCurve;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.Random;
+
+/**
+ * Tests the areas of {@link CurveUtils} against the ones of Weka's {@link ThresholdCurve}.
+ *
+ * @version $Revision$
+ */
+public class CurveUtilsTest
+	extends TestCase {
+
+	/** the number of instances. */
+	public final static int N = 500;
+
+	/** the number of labels. */
+	public final static int L = 5;
+
+	/** the true values. */
+	protected int[][] m_Y;
+
+	/** the confidences (rounded, to get ties). */
+	protected double[][] m_P;
+
+	/**
+	 * Generates the true values and confidences.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		Random	rand;
+		int	i;
+		int	j;
+
+		super.setUp();
+
+		rand = new Random(42);
+		m_Y  = new int[N][L];
+		m_P  = new double[N][L];
+		for (i = 0; i < N; i++) {
+			for (j = 0; j < L; j++) {
+				m_Y[i][j] = (rand.nextDouble() < 0.2 + 0.1 * j) ? 1 : 0;
+				m_P[i][j] = Math.round((0.3 * m_Y[i][j] + 0.7 * rand.nextDouble()) * 10) / 10.0;
+			}
+		}
+	}
+
+	/**
+	 * Computes the area of a label from all the predictions, using Weka.
+	 *
+	 * @param j		the label
+	 * @param roc		true for ROC, false for precision-recall
+	 * @return		the area
+	 */
+	protected double getReferenceArea(int j, boolean roc) {
+		Instances	curve;
+
+		curve = new ThresholdCurve().getCurve(
+				MLUtils.toWekaPredictions(MatrixUtils.getCol(m_Y, j), MatrixUtils.getCol(m_P, j)));
+		if (roc)
+			return ThresholdCurve.getROCArea(curve);
+		else
+			return ThresholdCurve.getPRCArea(curve);
+	}
+
+	/**
+	 * Compares the areas with the reference ones.
+	 *
+	 * @param roc		true for ROC, false for precision-recall
+	 * @param numThreads	the number of threads
+	 */
+	protected void check(boolean roc, int numThreads) {
+		double[]	areas;
+		double[]	expected;
+		int		j;
+
+		areas    = CurveUtils.getAreas(m_Y, m_P, roc, numThreads);
+		expected = new double[L];
+		assertEquals("# of areas", L, areas.length);
+		for (j = 0; j < L; j++) {
+			expected[j] = getReferenceArea(j, roc);
+			assertEquals("area of label " + j, expected[j], areas[j], 1e-8);
+		}
+		// what the curve plugins of the Explorer display vs the macro-averaged statistic
+		assertEquals("macro-averaged", Utils.mean(expected), roc ? Metrics.P_macroAUROC(m_Y, m_P) : Metrics.P_macroAUPRC(m_Y, m_P), 1e-8);
+	}
+
+	/**
+	 * Tests the ROC areas, sequentially.
+	 */
+	public void testROCSequential() {
+		check(true, ThreadUtils.SEQUENTIAL);
+	}
+
+	/**
+	 * Tests the ROC areas, in parallel.
+	 */
+	public void testROCParallel() {
+		check(true, 4);
+	}
+
+	/**
+	 * Tests the precision-recall areas, sequentially.
+	 */
+	public void testPRCSequential() {
+		check(false, ThreadUtils.SEQUENTIAL);
+	}
+
+	/**
+	 * Tests the precision-recall areas, in parallel.
+	 */
+	public void testPRCParallel() {
+		check(false, 4);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * LabelSetBKTreeTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests the nearest labelsets of {@link LabelSetBKTree} against a linear scan.
+ *
+ * @version $Revision$
+ */
+public class LabelSetBKTreeTest
+	extends TestCase {
+
+	/**
+	 * Generates a random labelset.
+	 *
+	 * @param L		the number of labels
+	 * @param density	the probability of a label being relevant
+	 * @param rand	the random number generator
+	 * @return		the labelset
+	 */
+	protected LabelSet generate(int L, double density, Random rand) {
+		List<Integer>	result;
+		int		j;
+
+		result = new ArrayList<>();
+		for (j = 0; j < L; j++) {
+			if (rand.nextDouble() < density)
+				result.add(j);
+		}
+
+		return new LabelSet(result);
+	}
+
+	/**
+	 * Finds the nearest labelset by a linear scan: the closest one, then the one with the
+	 * highest count, then the one added first.
+	 *
+	 * @param counts	the labelsets with their counts, in the order of adding
+	 * @param y		the labelset to look up
+	 * @return		the nearest labelset
+	 */
+	protected LabelSet scan(Map<LabelSet,Integer> counts, LabelSet y) {
+		LabelSet	result;
+		int		best;
+		int		count;
+		int		d;
+
+		result = null;
+		best   = Integer.MAX_VALUE;
+		count  = 0;
+		for (Map.Entry<LabelSet,Integer> e: counts.entrySet()) {
+			d = e.getKey().distance(y);
+			if ((d < best) || ((d == best) && (e.getValue() > count))) {
+				result = e.getKey();
+				best   = d;
+				count  = e.getValue();
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compares the tree against the linear scan.
+	 *
+	 * @param L		the number of labels
+	 * @param density	the probability of a label being relevant
+	 * @param seed	the seed
+	 */
+	protected void check(int L, double density, long seed) {
+		LabelSetBKTree			tree;
+		Map<LabelSet,Integer>	counts;
+		Random					rand;
+		LabelSet				y;
+		Integer					count;
+		int						i;
+
+		rand   = new Random(seed);
+		tree   = new LabelSetBKTree();
+		counts = new LinkedHashMap<>();
+		for (i = 0; i < 300; i++) {
+			y     = generate(L, density, rand);
+			count = counts.get(y);
+			counts.put(y, (count == null) ? 1 : count + 1);
+			tree.add(y, 1);
+		}
+		assertEquals("size", counts.size(), tree.size());
+
+		for (i = 0; i < 300; i++) {
+			y = generate(L, density, rand);
+			assertEquals("nearest to " + y, scan(counts, y), tree.nearest(y));
+		}
+	}
+
+	/**
+	 * Tests few labels, with many ties and repeated labelsets.
+	 */
+	public void testFewLabels() {
+		check(8, 0.3, 1);
+	}
+
+	/**
+	 * Tests labelsets that span several words.
+	 */
+	public void testManyLabels() {
+		check(150, 0.05, 2);
+	}
+
+	/**
+	 * Tests the empty tree.
+	 */
+	public void testEmpty() {
+		assertNull(new LabelSetBKTree().nearest(new LabelSet(new int[]{1, 2})));
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * LabelSetIndexTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Tests the subset queries of {@link LabelSetIndex} against the ones of {@link PSUtils}.
+ *
+ * @version $Revision$
+ */
+public class LabelSetIndexTest
+	extends TestCase {
+
+	/** the number of labels. */
+	public final static int L = 8;
+
+	/** the labelsets and their counts. */
+	protected HashMap<LabelSet,Integer> m_Map;
+
+	/** the index. */
+	protected LabelSetIndex m_Index;
+
+	/** the labelsets to query. */
+	protected List<LabelSet> m_Queries;
+
+	/**
+	 * Generates a random labelset.
+	 *
+	 * @param rand	the random number generator
+	 * @param density	the probability of a label being relevant
+	 * @return		the labelset
+	 */
+	protected LabelSet generate(Random rand, double density) {
+		TreeSet<Integer>	labels;
+		int			j;
+
+		labels = new TreeSet<>();
+		for (j = 0; j < L; j++) {
+			if (rand.nextDouble() < density)
+				labels.add(j);
+		}
+
+		return new LabelSet(labels);
+	}
+
+	/**
+	 * Generates the labelsets and the queries.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		Random		rand;
+		LabelSet	y;
+		int		i;
+
+		super.setUp();
+
+		rand  = new Random(1);
+		m_Map = new HashMap<>();
+		for (i = 0; i < 80; i++) {
+			y = generate(rand, 0.3);
+			if (y.indices.length > 0)
+				// (few distinct counts, to get ties)
+				m_Map.put(y, 1 + rand.nextInt(4));
+		}
+		m_Index   = new LabelSetIndex(m_Map);
+		m_Queries = new ArrayList<>();
+		for (i = 0; i < 200; i++)
+			m_Queries.add(generate(rand, 0.6));
+		m_Queries.addAll(m_Map.keySet());
+	}
+
+	/**
+	 * Tests the counts and subsets.
+	 */
+	public void testSubsets() {
+		for (LabelSet y: m_Queries) {
+			assertEquals("count of " + y, (m_Map.get(y) == null) ? 0 : m_Map.get(y).intValue(), m_Index.count(y));
+			assertEquals("subsets of " + y, PSUtils.getSubsets(y, m_Map.keySet()), new HashSet<>(m_Index.getSubsets(y)));
+			assertEquals("sorted subsets of " + y, new ArrayList<>(PSUtils.getSortedSubsets(y, m_Map)), new ArrayList<>(m_Index.getSortedSubsets(y)));
+			assertTrue("all subsets of " + y, Arrays.equals(PSUtils.getAllSubsets(y, m_Map), m_Index.getAllSubsets(y)));
+		}
+	}
+
+	/**
+	 * Tests the top n subsets.
+	 */
+	public void testTopNSubsets() {
+		int	n;
+
+		for (LabelSet y: m_Queries) {
+			for (n = 1; n <= 4; n++)
+				assertTrue("top " + n + " subsets of " + y, Arrays.equals(PSUtils.getTopNSubsets(y, m_Map, n), m_Index.getTopNSubsets(y, n)));
+		}
+	}
+
+	/**
+	 * Tests covering the labelsets.
+	 */
+	public void testCover() {
+		for (LabelSet y: m_Queries)
+			assertEquals("cover of " + y, new HashSet<>(Arrays.asList(PSUtils.cover(y, m_Map))), new HashSet<>(Arrays.asList(m_Index.cover(y))));
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * LabelSetTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import junit.framework.TestCase;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.SparseInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the bit masks of {@link LabelSet} against the sorted indices, across several words.
+ *
+ * @version $Revision$
+ */
+public class LabelSetTest
+	extends TestCase {
+
+	/** the number of labels (more than two words). */
+	public final static int L = 150;
+
+	/**
+	 * Generates random labelsets, some of them only with labels of the first word.
+	 *
+	 * @param n		the number of labelsets
+	 * @param seed	the seed
+	 * @return		the sorted indices of the labelsets
+	 */
+	protected List<int[]> generate(int n, long seed) {
+		List<int[]>	result;
+		Random		rand;
+		int[]		y;
+		int		max;
+		int		i;
+		int		j;
+		int		k;
+
+		result = new ArrayList<>();
+		rand   = new Random(seed);
+		for (i = 0; i < n; i++) {
+			max = (i % 2 == 0) ? 64 : L;
+			y   = new int[max];
+			k   = 0;
+			for (j = 0; j < max; j++) {
+				if (rand.nextDouble() < 0.05)
+					y[k++] = j;
+			}
+			result.add(Arrays.copyOf(y, k));
+		}
+		// (duplicates and the empty labelset)
+		result.add(result.get(0).clone());
+		result.add(result.get(1).clone());
+		result.add(new int[0]);
+
+		return result;
+	}
+
+	/**
+	 * Returns the instance with the labels set, followed by an attribute.
+	 *
+	 * @param y		the sorted indices
+	 * @param sparse	whether to return a sparse instance
+	 * @return		the instance
+	 */
+	protected Instance toInstance(int[] y, boolean sparse) {
+		double[]	values;
+
+		values = new double[L + 1];
+		for (int j: y)
+			values[j] = 1.0;
+		values[L] = 0.5;
+
+		return sparse ? new SparseInstance(1.0, values) : new DenseInstance(1.0, values);
+	}
+
+	/**
+	 * Tests equality and hash codes against the indices.
+	 */
+	public void testEquals() {
+		List<int[]>	sets;
+
+		sets = generate(60, 1);
+		for (int[] y1: sets) {
+			LabelSet s1 = new LabelSet(y1);
+			assertEquals("hash of " + Arrays.toString(y1), Arrays.hashCode(y1), s1.hashCode());
+			assertTrue("words of " + Arrays.toString(y1), Arrays.equals(y1, new LabelSet(s1.getWords()).indices));
+			for (int[] y2: sets)
+				assertEquals(Arrays.toString(y1) + " = " + Arrays.toString(y2), Arrays.equals(y1, y2), s1.equals(new LabelSet(y2)));
+		}
+	}
+
+	/**
+	 * Tests the labelsets of dense and sparse instances, which get looked up without indices.
+	 */
+	public void testInstances() {
+		LabelSetPool	pool;
+		LabelSet	probe;
+
+		pool  = new LabelSetPool();
+		probe = new LabelSet();
+		for (int[] y: generate(60, 2)) {
+			for (boolean sparse: new boolean[]{false, true}) {
+				probe.set(toInstance(y, sparse), L);
+				assertEquals("hash of " + Arrays.toString(y), Arrays.hashCode(y), probe.hashCode());
+				assertTrue(Arrays.toString(y), probe.equals(new LabelSet(y)));
+				assertTrue("pooled " + Arrays.toString(y), Arrays.equals(y, pool.intern(toInstance(y, sparse), L).indices));
+			}
+		}
+		// (the duplicates are only pooled once)
+		assertEquals("pool size", 61, pool.size());
+	}
+
+	/**
+	 * Tests the set operations against the ones on the indices.
+	 */
+	public void testSetOperations() {
+		List<int[]>	sets;
+		int		distance;
+
+		sets = generate(40, 3);
+		for (int[] y1: sets) {
+			LabelSet s1 = new LabelSet(y1);
+			for (int j = 0; j < L; j++)
+				assertEquals(Arrays.toString(y1) + " contains " + j, Arrays.binarySearch(y1, j) >= 0, s1.contains(j));
+			for (int[] y2: sets) {
+				LabelSet s2 = new LabelSet(y2);
+				String msg = Arrays.toString(y1) + ", " + Arrays.toString(y2);
+				assertEquals("subset " + msg, LabelSet.subset(y1, y2) >= 0, s1.isSubsetOf(s2));
+				assertEquals("subsetof " + msg, LabelSet.subset(y1, y2), s1.subsetof(s2));
+				distance = LabelSet.minus(y1, y2).length + LabelSet.minus(y2, y1).length;
+				assertEquals("distance " + msg, distance, s1.distance(s2));
+				LabelSet diff = new LabelSet(y1.clone());
+				diff.minus(s2);
+				assertTrue("minus " + msg, Arrays.equals(LabelSet.minus(y1, y2), diff.indices));
+				assertEquals("minus hash " + msg, Arrays.hashCode(diff.indices), diff.hashCode());
+			}
+		}
+	}
+
+	/**
+	 * Tests that the bit masks get rebuilt after deserialization.
+	 *
+	 * @throws Exception	if serialization fails
+	 */
+	public void testSerialization() throws Exception {
+		ByteArrayOutputStream	bytes;
+		ObjectOutputStream		out;
+		LabelSet				copy;
+
+		for (int[] y: generate(10, 4)) {
+			bytes = new ByteArrayOutputStream();
+			out   = new ObjectOutputStream(bytes);
+			out.writeObject(new LabelSet(y));
+			out.close();
+			copy = (LabelSet) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+			assertTrue(Arrays.toString(y), copy.equals(new LabelSet(y)));
+			assertEquals("hash of " + Arrays.toString(y), Arrays.hashCode(y), copy.hashCode());
+			assertEquals("distance of " + Arrays.toString(y), 0, copy.distance(new LabelSet(y)));
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * MetricCountsTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Tests the single-pass metrics of {@link MetricCounts} against the ones of {@link Metrics}.
+ *
+ * @version $Revision$
+ */
+public class MetricCountsTest
+	extends TestCase {
+
+	/**
+	 * Generates random labels, with some missing values.
+	 *
+	 * @param N		the number of rows (more than a chunk, to get merged counts)
+	 * @param L		the number of labels
+	 * @param missing	whether to add missing values
+	 * @param seed	the seed
+	 * @return		the labels
+	 */
+	protected int[][] generate(int N, int L, boolean missing, long seed) {
+		int[][]	result;
+		Random	rand;
+		int	i;
+		int	j;
+
+		result = new int[N][L];
+		rand   = new Random(seed);
+		for (i = 0; i < N; i++) {
+			for (j = 0; j < L; j++) {
+				if (missing && (rand.nextDouble() < 0.05))
+					result[i][j] = -1;
+				else
+					result[i][j] = (rand.nextDouble() < 0.3) ? 1 : 0;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compares two values, treating NaNs as equal.
+	 */
+	protected void assertSameValue(String msg, double expected, double actual) {
+		if (Double.isNaN(expected))
+			assertTrue(msg + ": expected NaN, got " + actual, Double.isNaN(actual));
+		else
+			assertEquals(msg, expected, actual, 1e-12);
+	}
+
+	/**
+	 * Compares the counts against the metrics.
+	 */
+	protected void check(int[][] Y, int[][] Ypred, int numThreads) {
+		MetricCounts	counts;
+		int		j;
+
+		counts = new MetricCounts(Y, Ypred, true, numThreads);
+		assertSameValue("Accuracy", Metrics.P_Accuracy(Y, Ypred), counts.P_Accuracy());
+		assertSameValue("Hamming loss", Metrics.L_Hamming(Y, Ypred), counts.L_Hamming());
+		assertSameValue("Exact match", Metrics.P_ExactMatch(Y, Ypred), counts.P_ExactMatch());
+		assertSameValue("Harmonic", Metrics.P_Harmonic(Y, Ypred), counts.P_Harmonic());
+		assertSameValue("F1 micro", Metrics.P_FmicroAvg(Y, Ypred), counts.P_FmicroAvg());
+		assertSameValue("F1 macro (labels)", Metrics.P_FmacroAvgL(Y, Ypred), counts.P_FmacroAvgL());
+		assertSameValue("F1 macro (examples)", Metrics.P_FmacroAvgD(Y, Ypred), counts.P_FmacroAvgD());
+		assertSameValue("Precision macro", Metrics.P_PrecisionMacro(Y, Ypred), counts.P_PrecisionMacro());
+		assertSameValue("Levenshtein", Metrics.L_LevenshteinDistance(Y, Ypred), counts.L_LevenshteinDistance());
+		for (j = 0; j < Y[0].length; j++)
+			assertSameValue("Harmonic of label " + j, Metrics.P_Harmonic(Y, Ypred, j), counts.P_Harmonic(j));
+	}
+
+	/**
+	 * Tests the metrics when processing the chunks sequentially.
+	 */
+	public void testSequential() {
+		check(generate(3000, 6, false, 1), generate(3000, 6, false, 2), ThreadUtils.SEQUENTIAL);
+	}
+
+	/**
+	 * Tests the metrics when processing the chunks in parallel.
+	 */
+	public void testParallel() {
+		check(generate(3000, 6, false, 1), generate(3000, 6, false, 2), 4);
+	}
+
+	/**
+	 * Tests the metrics with missing values in the true labels.
+	 */
+	public void testMissing() {
+		check(generate(3000, 6, true, 3), generate(3000, 6, false, 4), 4);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * SyntheticData.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates reproducible multi-label datasets for the tests: the first L attributes are
+ * binary labels ({0,1}), followed by numeric attributes in [0,1]. Each label is a noisy linear
+ * function of the attributes, chained to the previous label to introduce label dependencies.
+ * The class index gets set to L.
+ *
+ * @version $Revision$
+ */
+public class SyntheticData {
+
+	/**
+	 * Generates a dataset.
+	 *
+	 * @param numInstances  the number of instances
+	 * @param numLabels     the number of labels (L)
+	 * @param numAttributes the number of (numeric) input attributes
+	 * @param density       the approximate fraction of relevant labels per instance
+	 * @param seed          the seed for the random number generator
+	 * @return              the dataset
+	 */
+	public static Instances generate(int numInstances, int numLabels, int numAttributes, double density, long seed) {
+		Instances               result;
+		ArrayList<Attribute>    atts;
+		ArrayList<String>       values;
+		Random                  rand;
+		double[][]              weights;
+		double[]                x;
+		double[]                score;
+		double[]                sorted;
+		double                  cut;
+		Instance                inst;
+		int                     i;
+		int                     j;
+		int                     k;
+
+		rand = new Random(seed);
+
+		values = new ArrayList<>();
+		values.add("0");
+		values.add("1");
+		atts = new ArrayList<>();
+		for (j = 0; j < numLabels; j++)
+			atts.add(new Attribute("y" + j, values));
+		for (k = 0; k < numAttributes; k++)
+			atts.add(new Attribute("x" + k));
+		result = new Instances("Synthetic: -C " + numLabels, atts, numInstances);
+		result.setClassIndex(numLabels);
+
+		weights = new double[numLabels][numAttributes];
+		for (j = 0; j < numLabels; j++) {
+			for (k = 0; k < numAttributes; k++)
+				weights[j][k] = rand.nextGaussian();
+		}
+
+		// the scores
+		score = new double[numInstances * numLabels];
+		for (i = 0; i < numInstances; i++) {
+			x = new double[numLabels + numAttributes];
+			for (k = 0; k < numAttributes; k++)
+				x[numLabels + k] = rand.nextDouble();
+			for (j = 0; j < numLabels; j++) {
+				for (k = 0; k < numAttributes; k++)
+					score[i * numLabels + j] += weights[j][k] * (x[numLabels + k] - 0.5);
+				score[i * numLabels + j] += 0.5 * rand.nextGaussian();
+			}
+			inst = new DenseInstance(1.0, x);
+			result.add(inst);
+		}
+
+		// threshold scores to obtain the requested density, chaining each label to the previous one
+		sorted = score.clone();
+		Arrays.sort(sorted);
+		cut = sorted[Math.max(0, Math.min(sorted.length - 1, (int) Math.round((1.0 - density) * sorted.length)))];
+		for (i = 0; i < numInstances; i++) {
+			for (j = 0; j < numLabels; j++) {
+				if ((j > 0) && (result.instance(i).value(j - 1) == 1.0))
+					score[i * numLabels + j] += 0.5;
+				result.instance(i).setValue(j, (score[i * numLabels + j] > cut) ? 1.0 : 0.0);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Generates a dataset with 10% label density and seed 1.
+	 *
+	 * @param numInstances  the number of instances
+	 * @param numLabels     the number of labels (L)
+	 * @param numAttributes the number of (numeric) input attributes
+	 * @return              the dataset
+	 */
+	public static Instances generate(int numInstances, int numLabels, int numAttributes) {
+		return generate(numInstances, numLabels, numAttributes, 0.1, 1);
+	}
+}
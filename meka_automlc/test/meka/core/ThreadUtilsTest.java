@@ -0,0 +1,126 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * ThreadUtilsTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Tests running jobs with {@link ThreadUtils#invokeAll(List, int)}.
+ *
+ * @version $Revision$
+ */
+public class ThreadUtilsTest
+	extends TestCase {
+
+	/**
+	 * Creates jobs that return their index, failing for the specified indices.
+	 *
+	 * @param num		the number of jobs
+	 * @param failing	the indices of the jobs that fail
+	 * @return		the jobs
+	 */
+	protected List<Callable<Integer>> newJobs(int num, final int... failing) {
+		List<Callable<Integer>>	result;
+		int			i;
+
+		result = new ArrayList<>();
+		for (i = 0; i < num; i++) {
+			final int index = i;
+			result.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					for (int f: failing) {
+						if (f == index)
+							throw new IllegalStateException("job " + index);
+					}
+					return index;
+				}
+			});
+		}
+
+		return result;
+	}
+
+	/**
+	 * Tests that the results are in the order of the jobs.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testOrder() throws Exception {
+		List<Integer>	result;
+		int		i;
+
+		for (int numThreads: new int[]{ThreadUtils.SEQUENTIAL, 2, 4, 100}) {
+			result = ThreadUtils.invokeAll(newJobs(50), numThreads);
+			assertEquals("# results", 50, result.size());
+			for (i = 0; i < result.size(); i++)
+				assertEquals("result " + i + " with " + numThreads + " threads", Integer.valueOf(i), result.get(i));
+		}
+	}
+
+	/**
+	 * Tests that the error of the first failing job gets thrown.
+	 */
+	public void testError() {
+		try {
+			ThreadUtils.invokeAll(newJobs(50, 7), 4);
+			fail("no exception");
+		}
+		catch (Exception e) {
+			assertEquals("job 7", e.getMessage());
+		}
+	}
+
+	/**
+	 * Tests that jobs started from a worker thread run on that thread.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testNested() throws Exception {
+		List<Callable<Boolean>>	outer;
+		int			i;
+
+		outer = new ArrayList<>();
+		for (i = 0; i < 4; i++) {
+			outer.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					final Thread current = Thread.currentThread();
+					List<Callable<Boolean>> inner = new ArrayList<>();
+					for (int n = 0; n < 4; n++) {
+						inner.add(new Callable<Boolean>() {
+							@Override
+							public Boolean call() {
+								return Thread.currentThread() == current;
+							}
+						});
+					}
+					return !ThreadUtils.invokeAll(inner, 4).contains(false) && ThreadUtils.isWorkerThread();
+				}
+			});
+		}
+		assertFalse(ThreadUtils.invokeAll(outer, 4).contains(false));
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * ThresholdUtilsTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.core;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Tests the PCut calibration of {@link ThresholdUtils} against a calibration that sorts all the confidences.
+ *
+ * @version $Revision$
+ */
+public class ThresholdUtilsTest
+	extends TestCase {
+
+	/**
+	 * Calibrates a threshold by sorting all the confidences.
+	 *
+	 * @param Y		the confidences
+	 * @param LC_train	the label cardinality of the training set
+	 * @return		the threshold
+	 */
+	protected double calibrateBySorting(ArrayList<double[]> Y, double LC_train) {
+		ArrayList<Double>	big;
+		int			N;
+		int			i;
+
+		N   = Y.size();
+		big = new ArrayList<>();
+		for (double[] y: Y) {
+			for (double y_: y)
+				big.add(y_);
+		}
+		Collections.sort(big);
+
+		i = big.size() - (int) Math.round(LC_train * (double) N);
+		if (N == big.size()) {
+			if (i + 1 == N)
+				return (big.get(N - 2) + big.get(N - 1) / 2.0);
+			if (i + 1 >= N)
+				return 1.0;
+			else
+				return Math.max((big.get(i) + big.get(i + 1)) / 2.0, 0.00001);
+		}
+
+		return Math.max((big.get(i) + big.get(Math.max(i + 1, N - 1))) / 2.0, 0.00001);
+	}
+
+	/**
+	 * Generates confidences (rounded, to get ties).
+	 *
+	 * @param N		the number of instances
+	 * @param L		the number of labels
+	 * @param seed	the seed
+	 * @return		the confidences
+	 */
+	protected ArrayList<double[]> generate(int N, int L, long seed) {
+		ArrayList<double[]>	result;
+		Random			rand;
+		double[]		y;
+		int			i;
+		int			j;
+
+		result = new ArrayList<>();
+		rand   = new Random(seed);
+		for (i = 0; i < N; i++) {
+			y = new double[L];
+			for (j = 0; j < L; j++)
+				y[j] = Math.round(rand.nextDouble() * 20) / 20.0;
+			result.add(y);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Tests the calibration of a single threshold for various label cardinalities.
+	 */
+	public void testCalibrateThreshold() {
+		ArrayList<double[]>	Y;
+		double[]		cardinalities;
+
+		Y             = generate(200, 6, 1);
+		cardinalities = new double[]{0.01, 0.5, 1.3, 2.0, 5.0, 5.99, 6.0};
+		for (double LC: cardinalities)
+			assertEquals("LC=" + LC, calibrateBySorting(Y, LC), ThresholdUtils.calibrateThreshold(Y, LC), 0.0);
+	}
+
+	/**
+	 * Tests the calibration of a single threshold with one confidence per instance.
+	 */
+	public void testCalibrateThresholdSingleLabel() {
+		ArrayList<double[]>	Y;
+		double[]		cardinalities;
+
+		Y             = generate(200, 1, 2);
+		cardinalities = new double[]{0.0, 0.004, 0.005, 0.3, 0.995, 1.0};
+		for (double LC: cardinalities)
+			assertEquals("LC=" + LC, calibrateBySorting(Y, LC), ThresholdUtils.calibrateThreshold(Y, LC), 0.0);
+	}
+
+	/**
+	 * Tests the label-wise calibration, sequentially and in parallel.
+	 */
+	public void testCalibrateThresholds() {
+		ArrayList<double[]>	Y;
+		ArrayList<double[]>	Y_j;
+		double[]		LC;
+		double[]		sequential;
+		double[]		parallel;
+		int			j;
+
+		Y          = generate(300, 5, 3);
+		LC         = new double[]{0.1, 0.25, 0.5, 0.0, 1.0};
+		sequential = ThresholdUtils.calibrateThresholds(Y, LC, ThreadUtils.SEQUENTIAL);
+		parallel   = ThresholdUtils.calibrateThresholds(Y, LC, 4);
+		for (j = 0; j < LC.length; j++) {
+			Y_j = new ArrayList<>();
+			for (double[] y: Y)
+				Y_j.add(new double[]{y[j]});
+			assertEquals("sequential, label " + j, calibrateBySorting(Y_j, LC[j]), sequential[j], 0.0);
+			assertEquals("parallel, label " + j, sequential[j], parallel[j], 0.0);
+		}
+	}
+}
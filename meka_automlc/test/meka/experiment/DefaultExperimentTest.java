@@ -0,0 +1,252 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * DefaultExperimentTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment;
+
+import junit.framework.TestCase;
+import meka.classifiers.multilabel.BR;
+import meka.classifiers.multilabel.CC;
+import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.MLUtils;
+import meka.core.SyntheticData;
+import meka.events.LogEvent;
+import meka.events.LogListener;
+import meka.experiment.datasetproviders.LocalDatasetProvider;
+import meka.experiment.evaluationstatistics.BinaryLog;
+import meka.experiment.evaluationstatistics.EvaluationStatistics;
+import meka.experiment.evaluators.CrossValidation;
+import weka.core.Instances;
+import weka.core.converters.ArffSaver;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tests resuming a {@link DefaultExperiment} from checkpoints, sequentially and in parallel.
+ *
+ * @version $Revision$
+ */
+public class DefaultExperimentTest
+	extends TestCase {
+
+	/**
+	 * Binary log that records the threads that store checkpoints.
+	 */
+	public static class RecordingBinaryLog
+		extends BinaryLog {
+
+		private static final long serialVersionUID = 5104787950381632040L;
+
+		/** the threads that stored checkpoints. */
+		public Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+		@Override
+		public synchronized String checkpoint(List<EvaluationStatistics> stats) {
+			threads.add(Thread.currentThread());
+			return super.checkpoint(stats);
+		}
+	}
+
+	/** the temporary directory. */
+	protected File m_Dir;
+
+	/** the dataset file. */
+	protected File m_Dataset;
+
+	/** the log messages of the last experiment. */
+	protected List<String> m_Messages;
+
+	/**
+	 * Writes the dataset.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		ArffSaver	saver;
+
+		super.setUp();
+
+		m_Dir = File.createTempFile("meka", "test");
+		m_Dir.delete();
+		m_Dir.mkdirs();
+		m_Dataset = new File(m_Dir, "synthetic.arff");
+		saver = new ArffSaver();
+		saver.setInstances(SyntheticData.generate(120, 4, 5, 0.3, 1));
+		saver.setFile(m_Dataset);
+		saver.writeBatch();
+		m_Messages = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	/**
+	 * Removes the temporary files.
+	 *
+	 * @throws Exception	if tear down fails
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		File[]	files;
+
+		files = m_Dir.listFiles();
+		if (files != null) {
+			for (File file: files)
+				file.delete();
+		}
+		m_Dir.delete();
+
+		super.tearDown();
+	}
+
+	/**
+	 * Returns a 3-fold cross-validation.
+	 *
+	 * @return		the evaluator
+	 */
+	protected CrossValidation newEvaluator() {
+		CrossValidation	result;
+
+		result = new CrossValidation();
+		result.setNumFolds(3);
+		result.setNumThreads(1);
+
+		return result;
+	}
+
+	/**
+	 * Runs an experiment with BR and CC.
+	 *
+	 * @param handler	the statistics handler
+	 * @param numThreads	the number of threads
+	 * @return		the statistics
+	 */
+	protected List<EvaluationStatistics> run(BinaryLog handler, int numThreads) {
+		DefaultExperiment	exp;
+		LocalDatasetProvider	provider;
+
+		exp = new DefaultExperiment();
+		exp.setNumThreads(numThreads);
+		exp.setClassifiers(new MultiLabelClassifier[]{new BR(), new CC()});
+		provider = new LocalDatasetProvider();
+		provider.setDatasets(new File[]{m_Dataset});
+		exp.setDatasetProvider(provider);
+		exp.setStatisticsHandler(handler);
+		exp.setEvaluator(newEvaluator());
+		exp.addLogListener(new LogListener() {
+			@Override
+			public void logMessage(LogEvent e) {
+				m_Messages.add(e.getMessage());
+			}
+		});
+		assertNull("initialize", exp.initialize());
+		assertNull("run", exp.run());
+		assertNull("finish", exp.finish());
+
+		return exp.getStatistics();
+	}
+
+	/**
+	 * Turns the statistics into a sorted string, without timing information.
+	 *
+	 * @param stats	the statistics
+	 * @return		the string
+	 */
+	protected String toString(List<EvaluationStatistics> stats) {
+		List<String>			result;
+		TreeMap<String,Double>	values;
+
+		result = new ArrayList<>();
+		for (EvaluationStatistics stat: stats) {
+			values = new TreeMap<>();
+			for (String key: stat.keySet()) {
+				if (!key.toLowerCase().contains("time"))
+					values.put(key, stat.get(key).doubleValue());
+			}
+			result.add(stat.getCommandLine() + " " + stat.getRelation() + " " + values);
+		}
+		Collections.sort(result);
+
+		return result.toString();
+	}
+
+	/**
+	 * Runs an experiment resuming from the checkpoints of BR and compares it with a fresh one.
+	 *
+	 * @param numThreads	the number of threads
+	 * @throws Exception	if the test fails
+	 */
+	protected void checkResume(int numThreads) throws Exception {
+		RecordingBinaryLog	handler;
+		BinaryLog		fresh;
+		CrossValidation		evaluator;
+		Instances		data;
+		String			expected;
+		boolean			restored;
+
+		fresh = new BinaryLog();
+		fresh.setFile(new File(m_Dir, "fresh.mlog"));
+		expected = toString(run(fresh, numThreads));
+
+		// the checkpoints of an experiment that got interrupted after evaluating BR
+		handler = new RecordingBinaryLog();
+		handler.setFile(new File(m_Dir, "resumed.mlog"));
+		assertNull(handler.initialize());
+		data = new Instances(new FileReader(m_Dataset));
+		MLUtils.prepareData(data);
+		evaluator = newEvaluator();
+		evaluator.setCheckpointHandler(handler);
+		evaluator.initialize();
+		evaluator.evaluate(new BR(), data);
+		assertNull(handler.finish());
+
+		handler.threads.clear();
+		m_Messages.clear();
+		assertEquals("statistics", expected, toString(run(handler, numThreads)));
+		restored = false;
+		for (String msg: m_Messages)
+			restored = restored || msg.contains("Restoring 3 fold(s)");
+		assertTrue("restored from checkpoints: " + m_Messages, restored);
+		// the checkpoints of CC only got stored by the thread running the experiment
+		assertEquals("threads storing checkpoints", Collections.singleton(Thread.currentThread()), new HashSet<>(handler.threads));
+	}
+
+	/**
+	 * Tests resuming a sequential experiment.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testResumeSequential() throws Exception {
+		checkResume(1);
+	}
+
+	/**
+	 * Tests resuming a parallel experiment.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testResumeParallel() throws Exception {
+		checkResume(2);
+	}
+}
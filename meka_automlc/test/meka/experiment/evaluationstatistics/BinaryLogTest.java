@@ -0,0 +1,232 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * BinaryLogTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluationstatistics;
+
+import junit.framework.TestCase;
+import meka.classifiers.multilabel.BR;
+import meka.classifiers.multilabel.CC;
+import meka.classifiers.multilabel.MultiLabelClassifier;
+import meka.core.SyntheticData;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests storing, loading and compacting the statistics and checkpoints of a {@link BinaryLog}.
+ *
+ * @version $Revision$
+ */
+public class BinaryLogTest
+	extends TestCase {
+
+	/** the log file. */
+	protected File m_File;
+
+	/** the dataset (only the relation name is used). */
+	protected Instances m_Data;
+
+	/**
+	 * Sets up the log file and dataset.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		m_File = File.createTempFile("meka", ".mlog");
+		m_File.delete();
+		m_Data = SyntheticData.generate(10, 3, 2);
+	}
+
+	/**
+	 * Removes the log file.
+	 *
+	 * @throws Exception	if tear down fails
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		m_File.delete();
+		new File(m_File.getAbsolutePath() + ".tmp").delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates a log for the file.
+	 *
+	 * @param compactInterval	the compact interval
+	 * @return			the initialized log
+	 */
+	protected BinaryLog newLog(int compactInterval) {
+		BinaryLog	result;
+
+		result = new BinaryLog();
+		result.setFile(m_File);
+		result.setCompactInterval(compactInterval);
+		assertNull("initialize", result.initialize());
+
+		return result;
+	}
+
+	/**
+	 * Creates statistics for the classifier.
+	 *
+	 * @param classifier	the classifier
+	 * @param num		the number of statistics
+	 * @param offset	the offset for the values
+	 * @return		the statistics
+	 */
+	protected List<EvaluationStatistics> newStatistics(MultiLabelClassifier classifier, int num, int offset) {
+		List<EvaluationStatistics>	result;
+		EvaluationStatistics		stat;
+		int				i;
+
+		result = new ArrayList<>();
+		for (i = 0; i < num; i++) {
+			stat = new EvaluationStatistics(classifier, m_Data, null);
+			stat.put("Fold", i + offset);
+			stat.put("Accuracy", 0.5 + 0.01 * (i + offset));
+			stat.put("Time", 1000L * (i + offset));
+			result.add(stat);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Tests writing and reading statistics and checkpoints.
+	 */
+	public void testRoundTrip() {
+		BinaryLog			log;
+		List<EvaluationStatistics>	stats;
+
+		log = newLog(100);
+		assertNull(log.append(newStatistics(new BR(), 3, 0)));
+		assertNull(log.checkpoint(newStatistics(new CC(), 2, 0)));
+		assertNull(log.finish());
+
+		log   = newLog(100);
+		stats = log.retrieve(new BR(), m_Data);
+		assertEquals("# statistics", 3, stats.size());
+		assertEquals("integer", Integer.valueOf(2), stats.get(2).get("Fold"));
+		assertEquals("double", 0.52, stats.get(2).get("Accuracy"));
+		assertEquals("long", Long.valueOf(2000L), stats.get(2).get("Time"));
+		assertFalse("BR required", log.requires(new BR(), m_Data));
+		assertTrue("CC required", log.requires(new CC(), m_Data));
+		assertEquals("# checkpoints", 2, log.retrieveCheckpoints(new CC(), m_Data).size());
+		assertEquals("# read", 3, log.read().size());
+		assertNull(log.finish());
+	}
+
+	/**
+	 * Tests that the log gets compacted, also while appending.
+	 */
+	public void testCompact() {
+		BinaryLog	log;
+		long		length;
+		int		i;
+
+		log = newLog(3);
+		for (i = 0; i < 4; i++)
+			assertNull(log.checkpoint(newStatistics(new BR(), 1, i)));
+		assertNull(log.append(newStatistics(new BR(), 4, 0)));
+		for (i = 0; i < 2; i++)
+			assertNull(log.checkpoint(newStatistics(new CC(), 1, i)));
+		length = m_File.length();
+		assertNull(log.finish());
+		assertTrue("compacted", m_File.length() < length);
+
+		log = newLog(3);
+		assertEquals("# records", 2, log.m_NumRecords);
+		assertEquals("# statistics", 4, log.retrieve(new BR(), m_Data).size());
+		assertEquals("# checkpoints BR", 0, log.retrieveCheckpoints(new BR(), m_Data).size());
+		assertEquals("# checkpoints CC", 2, log.retrieveCheckpoints(new CC(), m_Data).size());
+		assertNull(log.finish());
+	}
+
+	/**
+	 * Tests that an incomplete record at the end gets dropped.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testIncompleteRecord() throws Exception {
+		BinaryLog		log;
+		RandomAccessFile	raf;
+		long			length;
+
+		log = newLog(100);
+		assertNull(log.append(newStatistics(new BR(), 2, 0)));
+		assertNull(log.finish());
+		length = m_File.length();
+
+		// the start of a record that never got finished
+		raf = new RandomAccessFile(m_File, "rw");
+		raf.seek(length);
+		raf.writeInt(1000);
+		raf.writeLong(0L);
+		raf.write(new byte[20]);
+		raf.close();
+
+		log = newLog(100);
+		assertEquals("# statistics", 2, log.retrieve(new BR(), m_Data).size());
+		assertEquals("length", length, m_File.length());
+		assertNull(log.append(newStatistics(new CC(), 1, 0)));
+		assertNull(log.finish());
+
+		log = newLog(100);
+		assertEquals("# statistics", 1, log.retrieve(new CC(), m_Data).size());
+		assertNull(log.finish());
+	}
+
+	/**
+	 * Tests that a corrupt record in the middle of the log makes loading fail,
+	 * without touching the log.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testCorruptRecord() throws Exception {
+		BinaryLog		log;
+		RandomAccessFile	raf;
+		long			length;
+		int			b;
+
+		log = newLog(100);
+		assertNull(log.append(newStatistics(new BR(), 2, 0)));
+		assertNull(log.append(newStatistics(new CC(), 2, 0)));
+		assertNull(log.finish());
+		length = m_File.length();
+
+		// flip a byte in the body of the first record
+		raf = new RandomAccessFile(m_File, "rw");
+		raf.seek(BinaryLog.HEADER_SIZE + BinaryLog.RECORD_HEADER_SIZE + 5);
+		b = raf.read();
+		raf.seek(BinaryLog.HEADER_SIZE + BinaryLog.RECORD_HEADER_SIZE + 5);
+		raf.write(b ^ 0xFF);
+		raf.close();
+
+		log = new BinaryLog();
+		log.setFile(m_File);
+		assertNotNull("initialize", log.initialize());
+		assertEquals("length", length, m_File.length());
+	}
+}
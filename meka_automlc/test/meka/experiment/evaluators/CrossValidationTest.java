@@ -0,0 +1,235 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * CrossValidationTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluators;
+
+import junit.framework.TestCase;
+import meka.classifiers.multilabel.BR;
+import meka.core.MLUtils;
+import meka.core.SyntheticData;
+import meka.events.LogEvent;
+import meka.events.LogListener;
+import meka.experiment.evaluationstatistics.BinaryLog;
+import meka.experiment.evaluationstatistics.EvaluationStatistics;
+import weka.core.Instances;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests resuming a {@link CrossValidation} from checkpoints.
+ *
+ * @version $Revision$
+ */
+public class CrossValidationTest
+	extends TestCase {
+
+	/** the checkpoint file. */
+	protected File m_File;
+
+	/** the dataset. */
+	protected Instances m_Data;
+
+	/** the log messages of the last evaluation. */
+	protected List<String> m_Messages;
+
+	/**
+	 * Generates the dataset.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		m_File = File.createTempFile("meka", ".mlog");
+		m_File.delete();
+		m_Data = SyntheticData.generate(90, 4, 5, 0.3, 1);
+		MLUtils.prepareData(m_Data);
+		m_Messages = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	/**
+	 * Removes the checkpoint file.
+	 *
+	 * @throws Exception	if tear down fails
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		m_File.delete();
+
+		super.tearDown();
+	}
+
+	/**
+	 * Evaluates BR with the evaluator.
+	 *
+	 * @param evaluator	the evaluator
+	 * @param checkpoints	whether to use the checkpoint file
+	 * @return		the statistics
+	 * @throws Exception	if evaluation fails
+	 */
+	protected List<EvaluationStatistics> evaluate(AbstractEvaluator evaluator, boolean checkpoints) throws Exception {
+		List<EvaluationStatistics>	result;
+		BinaryLog			handler;
+
+		handler = null;
+		if (checkpoints) {
+			handler = new BinaryLog();
+			handler.setFile(m_File);
+			assertNull(handler.initialize());
+		}
+		m_Messages.clear();
+		evaluator.addLogListener(new LogListener() {
+			@Override
+			public void logMessage(LogEvent e) {
+				m_Messages.add(e.getMessage());
+			}
+		});
+		((CheckpointSupporter) evaluator).setCheckpointHandler(handler);
+		assertNull(evaluator.initialize());
+		result = evaluator.evaluate(new BR(), m_Data);
+		if (handler != null)
+			assertNull(handler.finish());
+
+		return result;
+	}
+
+	/**
+	 * Turns the statistics into a sorted string, without timing information.
+	 *
+	 * @param stats	the statistics
+	 * @return		the string
+	 */
+	public static String toString(List<EvaluationStatistics> stats) {
+		List<String>			result;
+		TreeMap<String,Double>	values;
+
+		result = new ArrayList<>();
+		for (EvaluationStatistics stat: stats) {
+			values = new TreeMap<>();
+			for (String key: stat.keySet()) {
+				if (!key.toLowerCase().contains("time"))
+					values.put(key, stat.get(key).doubleValue());
+			}
+			result.add(stat.getCommandLine() + " " + stat.getRelation() + " " + values);
+		}
+		Collections.sort(result);
+
+		return result.toString();
+	}
+
+	/**
+	 * Returns whether a log message contains the text.
+	 *
+	 * @param text	the text to look for
+	 * @return		true if found
+	 */
+	protected boolean logged(String text) {
+		for (String msg: m_Messages) {
+			if (msg.contains(text))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a 3-fold cross-validation.
+	 *
+	 * @param seed	the seed
+	 * @param numThreads	the number of threads
+	 * @return		the evaluator
+	 */
+	protected CrossValidation newEvaluator(int seed, int numThreads) {
+		CrossValidation	result;
+
+		result = new CrossValidation();
+		result.setNumFolds(3);
+		result.setSeed(seed);
+		result.setNumThreads(numThreads);
+
+		return result;
+	}
+
+	/**
+	 * Tests that the restored folds equal the ones of a new evaluation, also with another number of threads.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testResume() throws Exception {
+		String	expected;
+
+		expected = toString(evaluate(newEvaluator(1, 1), false));
+		assertEquals("checkpointed", expected, toString(evaluate(newEvaluator(1, 1), true)));
+		assertEquals("resumed", expected, toString(evaluate(newEvaluator(1, 2), true)));
+		assertTrue("restored: " + m_Messages, logged("Restoring 3 fold(s)"));
+	}
+
+	/**
+	 * Tests that the checkpoints of another seed get ignored.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testIgnoreOtherSetup() throws Exception {
+		String	expected;
+
+		evaluate(newEvaluator(1, 1), true);
+		expected = toString(evaluate(newEvaluator(2, 1), false));
+		assertEquals("other seed", expected, toString(evaluate(newEvaluator(2, 1), true)));
+		assertTrue("ignored: " + m_Messages, logged("Ignoring 3 checkpoint(s)"));
+		assertFalse("restored: " + m_Messages, logged("Restoring"));
+	}
+
+	/**
+	 * Tests that storing checkpoints leaves the statistics unchanged.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testCheckpointKeepsStatistics() throws Exception {
+		CrossValidation				evaluator;
+		BinaryLog					handler;
+		EvaluationStatistics		stat;
+		Map<String,Number>			keys;
+		List<EvaluationStatistics>	restored;
+
+		handler = new BinaryLog();
+		handler.setFile(m_File);
+		assertNull(handler.initialize());
+		evaluator = newEvaluator(1, 1);
+		evaluator.setCheckpointHandler(handler);
+		stat = new EvaluationStatistics(new BR(), m_Data, null);
+		stat.put(CrossValidation.KEY_FOLD, 1);
+		keys = new HashMap<>();
+		keys.put(RepeatedRuns.KEY_RUN, 3);
+		evaluator.setCheckpointKeys(keys);
+		evaluator.checkpoint(Collections.singletonList(stat));
+		assertEquals("statistics", Collections.singleton(CrossValidation.KEY_FOLD), stat.keySet());
+
+		restored = evaluator.retrieveCheckpoints(new BR(), m_Data);
+		assertEquals("restored", 1, restored.size());
+		assertEquals("restored statistics", Collections.singleton(CrossValidation.KEY_FOLD), restored.get(0).keySet());
+		assertNull(handler.finish());
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * RepeatedRunsTest.java
+ * Copyright (C) 2026 University of Waikato, Hamilton, NZ
+ */
+
+package meka.experiment.evaluators;
+
+import junit.framework.TestCase;
+import meka.classifiers.multilabel.BR;
+import meka.core.MLUtils;
+import meka.core.SyntheticData;
+import meka.events.LogEvent;
+import meka.events.LogListener;
+import meka.experiment.evaluationstatistics.BinaryLog;
+import meka.experiment.evaluationstatistics.EvaluationStatistics;
+import weka.core.Instances;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests resuming {@link RepeatedRuns} from checkpoints, with base evaluators that support
+ * checkpoints themselves and ones that don't.
+ *
+ * @version $Revision$
+ */
+public class RepeatedRunsTest
+	extends TestCase {
+
+	/** the checkpoint file. */
+	protected File m_File;
+
+	/** the dataset. */
+	protected Instances m_Data;
+
+	/** the log messages of the last evaluation. */
+	protected List<String> m_Messages;
+
+	/**
+	 * Generates the dataset.
+	 *
+	 * @throws Exception	if setup fails
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		m_File = File.createTempFile("meka", ".mlog");
+		m_File.delete();
+		m_Data = SyntheticData.generate(90, 4, 5, 0.3, 1);
+		MLUtils.prepareData(m_Data);
+		m_Messages = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	/**
+	 * Removes the checkpoint file.
+	 *
+	 * @throws Exception	if tear down fails
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		m_File.delete();
+
+		super.tearDown();
+	}
+
+	/**
+	 * Evaluates BR with two runs of the base evaluator.
+	 *
+	 * @param base	the base evaluator
+	 * @param checkpoints	whether to use the checkpoint file
+	 * @return		the statistics
+	 * @throws Exception	if evaluation fails
+	 */
+	protected List<EvaluationStatistics> evaluate(Evaluator base, boolean checkpoints) throws Exception {
+		List<EvaluationStatistics>	result;
+		RepeatedRuns			evaluator;
+		BinaryLog			handler;
+
+		evaluator = new RepeatedRuns();
+		evaluator.setLowerRuns(1);
+		evaluator.setUpperRuns(2);
+		evaluator.setEvaluator(base);
+		handler = null;
+		if (checkpoints) {
+			handler = new BinaryLog();
+			handler.setFile(m_File);
+			assertNull(handler.initialize());
+		}
+		m_Messages.clear();
+		evaluator.addLogListener(new LogListener() {
+			@Override
+			public void logMessage(LogEvent e) {
+				m_Messages.add(e.getMessage());
+			}
+		});
+		evaluator.setCheckpointHandler(handler);
+		assertNull(evaluator.initialize());
+		result = evaluator.evaluate(new BR(), m_Data);
+		if (handler != null)
+			assertNull(handler.finish());
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of log messages that contain the text.
+	 *
+	 * @param text	the text to look for
+	 * @return		the number of messages
+	 */
+	protected int count(String text) {
+		int	result;
+
+		result = 0;
+		for (String msg: m_Messages) {
+			if (msg.contains(text))
+				result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a 3-fold cross-validation.
+	 *
+	 * @return		the evaluator
+	 */
+	protected CrossValidation newCrossValidation() {
+		CrossValidation	result;
+
+		result = new CrossValidation();
+		result.setNumFolds(3);
+		result.setNumThreads(1);
+
+		return result;
+	}
+
+	/**
+	 * Tests resuming the folds of the runs of a cross-validation.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testResumeFolds() throws Exception {
+		String	expected;
+
+		expected = CrossValidationTest.toString(evaluate(newCrossValidation(), false));
+		assertEquals("checkpointed", expected, CrossValidationTest.toString(evaluate(newCrossValidation(), true)));
+		assertEquals("resumed", expected, CrossValidationTest.toString(evaluate(newCrossValidation(), true)));
+		assertEquals("restored: " + m_Messages, 2, count("Restoring 3 fold(s)"));
+	}
+
+	/**
+	 * Tests resuming complete runs and ignoring the ones of another setup.
+	 *
+	 * @throws Exception	if the test fails
+	 */
+	public void testResumeRuns() throws Exception {
+		PercentageSplit	split;
+		String			expected;
+
+		expected = CrossValidationTest.toString(evaluate(new PercentageSplit(), false));
+		evaluate(new PercentageSplit(), true);
+		assertEquals("resumed", expected, CrossValidationTest.toString(evaluate(new PercentageSplit(), true)));
+		assertEquals("restored: " + m_Messages, 2, count("Restoring run #"));
+
+		split = new PercentageSplit();
+		split.setTrainPercentage(50.0);
+		expected = CrossValidationTest.toString(evaluate(split, false));
+		assertEquals("other percentage", expected, CrossValidationTest.toString(evaluate(split, true)));
+		assertEquals("ignored: " + m_Messages, 2, count("Ignoring 1 checkpoint(s)"));
+	}
+}